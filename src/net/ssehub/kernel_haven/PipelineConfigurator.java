@@ -25,6 +25,7 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -37,6 +38,7 @@ import net.ssehub.kernel_haven.code_model.CodeModelProvider;
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.provider.AbstractExtractor;
+import net.ssehub.kernel_haven.provider.AbstractProvider;
 import net.ssehub.kernel_haven.util.KernelHavenClassLoader;
 import net.ssehub.kernel_haven.util.Logger;
 import net.ssehub.kernel_haven.util.PerformanceProbe;
@@ -78,6 +80,8 @@ public class PipelineConfigurator {
     private CodeModelProvider cmProvider;
 
     private IAnalysis analysis;
+    
+    private @NonNull Set<@NonNull File> analysisOutputFiles = new HashSet<>();
 
     /**
      * Constructor; package because this class is a singleton. Only used by test
@@ -447,11 +451,115 @@ public class PipelineConfigurator {
         LOGGER.logInfo("Starting analysis...");
         Thread.currentThread().setName("Analysis");
         analysis.run();
+        analysisOutputFiles.addAll(analysis.getOutputFiles());
         
         Thread.currentThread().setName("Setup");
         LOGGER.logInfo("Analysis has finished");
     }
 
+    /**
+     * Runs the analysis once for each of the given source trees. Plugins and extractors are only loaded once and
+     * re-used for all source trees. For each source tree, the settings {@link DefaultSettings#SOURCE_TREE} and
+     * {@link DefaultSettings#SOURCE_TREE_ID} are set, and the output and cache directories are changed to a sub-folder
+     * named after the tree ID. The original values are restored afterwards.
+     * 
+     * @param sourceTrees The source trees to analyze. Relative paths are resolved against
+     *      {@link DefaultSettings#SOURCE_TREE}.
+     * 
+     * @throws SetUpException If a source tree does not exist, or setting up the pipeline for a source tree fails.
+     */
+    public void runOnSourceTrees(@NonNull List<@NonNull File> sourceTrees) throws SetUpException {
+        Configuration config = this.config;
+        if (config == null) {
+            throw new SetUpException("Configuration not set");
+        }
+        
+        File baseSourceTree = config.getValue(DefaultSettings.SOURCE_TREE);
+        File baseOutputDir = config.getValue(DefaultSettings.OUTPUT_DIR);
+        File baseCacheDir = config.getValue(DefaultSettings.CACHE_DIR);
+        String baseTreeId = config.getValue(DefaultSettings.SOURCE_TREE_ID);
+        
+        Set<@NonNull String> usedIds = new HashSet<>();
+        int treeNumber = 0;
+        try {
+            for (File sourceTree : sourceTrees) {
+                treeNumber++;
+                if (!sourceTree.isAbsolute()) {
+                    sourceTree = new File(baseSourceTree, sourceTree.getPath());
+                }
+                if (!sourceTree.isDirectory()) {
+                    throw new SetUpException("Source tree " + sourceTree + " is not an existing directory");
+                }
+                
+                String treeId = sourceTree.getName();
+                if (treeId.isEmpty() || usedIds.contains(treeId)) {
+                    treeId = treeId + "_" + treeNumber;
+                }
+                usedIds.add(treeId);
+                
+                LOGGER.logStatus("Analyzing source tree ", treeNumber, " of ", sourceTrees.size(), ": ", treeId,
+                        " (", sourceTree.getAbsolutePath(), ")");
+                
+                config.setValue(DefaultSettings.SOURCE_TREE, sourceTree);
+                config.setValue(DefaultSettings.SOURCE_TREE_ID, treeId);
+                config.setValue(DefaultSettings.OUTPUT_DIR, createSubDirectory(baseOutputDir, treeId));
+                config.setValue(DefaultSettings.CACHE_DIR, createSubDirectory(baseCacheDir, treeId));
+                
+                createProviders();
+                runPreparation();
+                instantiateAnalysis();
+                runAnalysis();
+                
+                stopProvider(notNull(vmProvider), notNull(vmExtractor));
+                stopProvider(notNull(bmProvider), notNull(bmExtractor));
+                stopProvider(notNull(cmProvider), notNull(cmExtractor));
+            }
+            
+        } finally {
+            config.setValue(DefaultSettings.SOURCE_TREE, baseSourceTree);
+            config.setValue(DefaultSettings.SOURCE_TREE_ID, baseTreeId);
+            config.setValue(DefaultSettings.OUTPUT_DIR, baseOutputDir);
+            config.setValue(DefaultSettings.CACHE_DIR, baseCacheDir);
+        }
+    }
+    
+    /**
+     * Creates (if necessary) a sub-directory with the given name.
+     * 
+     * @param parent The parent directory.
+     * @param name The name of the sub-directory.
+     * 
+     * @return The sub-directory.
+     * 
+     * @throws SetUpException If the directory can not be created.
+     */
+    private static @NonNull File createSubDirectory(@NonNull File parent, @NonNull String name)
+            throws SetUpException {
+        
+        File result = new File(parent, name);
+        if (!result.isDirectory() && !result.mkdirs()) {
+            throw new SetUpException("Can't create directory " + result.getAbsolutePath());
+        }
+        return result;
+    }
+    
+    /**
+     * Cancels the given provider (in case the analysis did not consume all of its results) and waits until its
+     * extractor is finished, so that the extractor can be re-used for the next source tree.
+     * 
+     * @param provider The provider to stop.
+     * @param extractor The extractor of the provider.
+     */
+    private static void stopProvider(@NonNull AbstractProvider<?> provider, @NonNull AbstractExtractor<?> extractor) {
+        provider.cancel();
+        try {
+            extractor.awaitFinished();
+        } catch (InterruptedException e) {
+            // keep the interrupt status for the caller
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Executes the process defined in this instance of PipelineConfigurator.
      */
@@ -464,10 +572,18 @@ public class PipelineConfigurator {
         try {
             loadPlugins();
             instantiateExtractors();
-            createProviders();
-            runPreparation();
-            instantiateAnalysis();
-            runAnalysis();
+            
+            List<@NonNull File> sourceTrees = config != null
+                    ? notNull(config).getValue(DefaultSettings.SOURCE_TREES) : null;
+            if (sourceTrees != null && !sourceTrees.isEmpty()) {
+                runOnSourceTrees(sourceTrees);
+            } else {
+                createProviders();
+                runPreparation();
+                instantiateAnalysis();
+                runAnalysis();
+            }
+            
             archive();
         } catch (SetUpException e) {
             LOGGER.logException("Error while setting up pipeline", e);
@@ -492,9 +608,9 @@ public class PipelineConfigurator {
 
     /**
      * Archives the executed analysis including all plugin jars, KernelHaven.jar
-     * itself, results, log, properties and a sweet cocktail cherry.
+     * itself, results, log, properties and a sweet cocktail cherry. Package visibility for test cases.
      */
-    private void archive() {
+    void archive() {
         Configuration config = this.config;
         if (config == null) {
             throw new RuntimeException("Configuration not set");
@@ -503,7 +619,7 @@ public class PipelineConfigurator {
         // this setting is overridden by the command line option in Run.main()
         if (config.getValue(DefaultSettings.ARCHIVE)) {
             PipelineArchiver archiver = new PipelineArchiver(config);
-            archiver.setAnalysisOutputFiles(analysis.getOutputFiles());
+            archiver.setAnalysisOutputFiles(analysisOutputFiles);
             
             try {
                 archiver.archive();
@@ -15,10 +15,15 @@
  */
 package net.ssehub.kernel_haven.analysis;
 
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
@@ -32,6 +37,12 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * A component of an analysis. Multiple of these can be combined together, to form an analysis pipeline.
+ * <p>
+ * A component that does not need any more results from its input can call {@link #cancel()} on it. The cancellation
+ * propagates further upstream: the inputs of a cancelled component are cancelled once all of their consumers are
+ * cancelled. At the start of the pipeline, cancellation stops the extractors. The inputs and consumers of a component
+ * are detected automatically when a component calls {@link #getNextResult()} on another component from its
+ * {@link #execute()} method.
  *
  * @param <O> The result type of this component.
  * 
@@ -168,6 +179,11 @@ public abstract class AnalysisComponent<O> {
     
     private static final ResultSizeLogger RESULZ_SIZE_LOGGER;
     
+    /**
+     * The component that is executed by the current thread. Used to detect the inputs of components.
+     */
+    private static final @NonNull ThreadLocal<AnalysisComponent<?>> CURRENT_COMPONENT = new ThreadLocal<>();
+    
     static {
         RESULZ_SIZE_LOGGER = new ResultSizeLogger();
         RESULZ_SIZE_LOGGER.start();
@@ -183,6 +199,12 @@ public abstract class AnalysisComponent<O> {
     
     private long tStart;
     
+    private @NonNull Set<AnalysisComponent<?>> inputs;
+    
+    private @NonNull Set<AnalysisComponent<?>> consumers;
+    
+    private volatile boolean cancelled;
+    
     /**
      * Creates a new analysis component.
      * 
@@ -190,6 +212,8 @@ public abstract class AnalysisComponent<O> {
      */
     public AnalysisComponent(@NonNull Configuration config) {
         results = new BlockingQueue<>();
+        inputs = notNull(Collections.newSetFromMap(new ConcurrentHashMap<>()));
+        consumers = notNull(Collections.newSetFromMap(new ConcurrentHashMap<>()));
         RESULZ_SIZE_LOGGER.registerComponent(this);
         
         setLogResults(config.getValue(DefaultSettings.ANALYSIS_COMPONENTS_LOG).contains(getClass().getSimpleName()));
@@ -225,6 +249,7 @@ public abstract class AnalysisComponent<O> {
                     LOGGER.logInfo("Analysis component " + getClass().getSimpleName() + " starting");
                 }
                 
+                CURRENT_COMPONENT.set(this);
                 try {
                     execute();
                 } finally {
@@ -248,17 +273,100 @@ public abstract class AnalysisComponent<O> {
      * @return The next result. <code>null</code> if this analysis is done and does not produce any results anymore.
      */
     public final @Nullable O getNextResult() {
+        AnalysisComponent<?> consumer = CURRENT_COMPONENT.get();
+        if (consumer != null && consumer != this && !consumers.contains(consumer)) {
+            consumer.registerInput(this);
+        }
+        
         start(); // make sure we are started
         return results.get();
     }
     
     /**
-     * Adds a result to be retrieved by the next component.
+     * Registers the given component as an input of this component. Cancellation of this component propagates to
+     * its inputs (see {@link #cancel()}). Inputs that are polled from the thread executing this component are
+     * registered automatically; this method is only needed for inputs that are read from other threads.
+     * 
+     * @param input The input component.
+     */
+    protected final void registerInput(@NonNull AnalysisComponent<?> input) {
+        this.inputs.add(input);
+        input.consumers.add(this);
+        if (cancelled) {
+            input.consumerCancelled();
+        }
+    }
+    
+    /**
+     * Cancels this component: signals that its consumers don't need any more results from it. All results that are
+     * added afterwards are discarded, and consumers waiting in {@link #getNextResult()} get <code>null</code>.
+     * Cancellation propagates to the inputs of this component, if all of their consumers are cancelled. The thread
+     * executing this component is not stopped; long running components should regularly check
+     * {@link #isCancelled()}.
+     */
+    public final void cancel() {
+        synchronized (results) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            results.end();
+        }
+        
+        LOGGER.logDebug2("Analysis component ", getClass().getSimpleName(), " cancelled");
+        onCancel();
+        
+        for (AnalysisComponent<?> input : inputs) {
+            input.consumerCancelled();
+        }
+    }
+    
+    /**
+     * Called when one of the consumers of this component is cancelled. Cancels this component, if all of its
+     * consumers are cancelled.
+     */
+    private void consumerCancelled() {
+        boolean allCancelled = true;
+        for (AnalysisComponent<?> consumer : consumers) {
+            if (!consumer.cancelled) {
+                allCancelled = false;
+                break;
+            }
+        }
+        
+        if (allCancelled) {
+            cancel();
+        }
+    }
+    
+    /**
+     * Called when this component is cancelled. Sub-classes may override this to stop work that is not visible to
+     * the automatic propagation (e.g. external data sources). The default implementation does nothing.
+     */
+    protected void onCancel() {
+    }
+    
+    /**
+     * Returns whether this component has been cancelled (see {@link #cancel()}).
+     * 
+     * @return Whether this component is cancelled.
+     */
+    public final boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Adds a result to be retrieved by the next component. Results are discarded if this component is cancelled.
      * 
      * @param result The result to pass to the next component. Must not be <code>null</code>.
      */
     protected final void addResult(@NonNull O result) {
-        results.add(result);
+        synchronized (results) {
+            if (cancelled) {
+                return;
+            }
+            results.add(result);
+        }
         
         if (logResults) {
             LOGGER.logDebug("Analysis component " + getClass().getSimpleName() + " intermediate result: " + result);
@@ -283,7 +391,9 @@ public abstract class AnalysisComponent<O> {
                     "Execution took " + Util.formatDurationMs(duration));
         }
         
-        results.end();
+        synchronized (results) {
+            results.end();
+        }
         if (out != null) {
             try {
                 out.close();
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import net.ssehub.kernel_haven.util.flow.AbstractPollingPublisher;
+import net.ssehub.kernel_haven.util.flow.Publisher;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A {@link Publisher} for the results of an {@link AnalysisComponent}. This allows reactive consumers to process the
+ * results of an analysis pipeline. Results are only retrieved from the component if the subscriber requested them.
+ * Cancelling the subscription cancels the component (see {@link AnalysisComponent#cancel()}).
+ *
+ * @param <T> The result type of the component.
+ *
+ * @author Adam
+ */
+public class ComponentPublisher<T> extends AbstractPollingPublisher<T> {
+
+    private @NonNull AnalysisComponent<T> component;
+
+    /**
+     * Creates a publisher for the given component.
+     *
+     * @param component The component to publish the results of.
+     */
+    public ComponentPublisher(@NonNull AnalysisComponent<T> component) {
+        this.component = component;
+    }
+
+    @Override
+    protected @Nullable T poll() {
+        return component.getNextResult();
+    }
+
+    @Override
+    protected void onCancel() {
+        component.cancel();
+    }
+
+    @Override
+    protected @NonNull String getName() {
+        return component.getClass().getSimpleName();
+    }
+
+}
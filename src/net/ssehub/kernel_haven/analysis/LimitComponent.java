@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A component that passes only the first N results of the previous component. After that, the previous component is
+ * cancelled (see {@link AnalysisComponent#cancel()}); this stops all upstream components and extractors that are not
+ * needed anymore, so that the pipeline finishes early.
+ * 
+ * @param <T> The type of results.
+ * 
+ * @author Adam
+ */
+public class LimitComponent<T> extends AnalysisComponent<T> {
+
+    private @NonNull AnalysisComponent<T> previousComponent;
+    
+    private int limit;
+    
+    /**
+     * Creates a new {@link LimitComponent} with the limit specified in {@link DefaultSettings#ANALYSIS_LIMIT}.
+     * 
+     * @param config The global configuration.
+     * @param previousComponent The previous component.
+     */
+    public LimitComponent(@NonNull Configuration config, @NonNull AnalysisComponent<T> previousComponent) {
+        this(config, previousComponent, config.getValue(DefaultSettings.ANALYSIS_LIMIT));
+    }
+    
+    /**
+     * Creates a new {@link LimitComponent}.
+     * 
+     * @param config The global configuration.
+     * @param previousComponent The previous component.
+     * @param limit The maximum number of results to pass on.
+     */
+    public LimitComponent(@NonNull Configuration config, @NonNull AnalysisComponent<T> previousComponent,
+            int limit) {
+        super(config);
+        this.previousComponent = previousComponent;
+        this.limit = limit;
+    }
+
+    @Override
+    protected void execute() {
+        int count = 0;
+        
+        T result;
+        while (count < limit && (result = previousComponent.getNextResult()) != null) {
+            addResult(result);
+            count++;
+        }
+        
+        if (count >= limit) {
+            LOGGER.logInfo2("Limit of ", limit, " results reached; cancelling ", previousComponent.getResultName());
+            previousComponent.cancel();
+        }
+    }
+
+    @Override
+    public @NonNull String getResultName() {
+        return previousComponent.getResultName();
+    }
+
+}
@@ -283,6 +283,25 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
             return component;
         }
         
+        /**
+         * Called when one of the starting components was cancelled. If all starting components are cancelled, then
+         * the provider is cancelled, too; this stops the extractor.
+         */
+        private void componentCancelled() {
+            boolean allCancelled = true;
+            for (StartingComponent<T> component : startingComponents) {
+                if (!component.isCancelled()) {
+                    allCancelled = false;
+                    break;
+                }
+            }
+            
+            if (allCancelled) {
+                LOGGER.logInfo2(type, "-Extractor cancelled, because no analysis component needs its results");
+                provider.cancel();
+            }
+        }
+        
         /**
          * Adds the given data element to all starting components.
          * 
@@ -386,6 +405,11 @@ public abstract class PipelineAnalysis extends AbstractAnalysis {
             this.name = type + " StartingComponent";
         }
 
+        @Override
+        protected void onCancel() {
+            duplicator.componentCancelled();
+        }
+        
         @Override
         protected void execute() {
             duplicator.start();
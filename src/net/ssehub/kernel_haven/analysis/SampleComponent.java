@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import java.util.Random;
+
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A component that passes each result of the previous component with a given probability. Can be combined with a
+ * {@link LimitComponent} to quickly get a random sample of a given size, without running the whole pipeline.
+ * 
+ * @param <T> The type of results.
+ * 
+ * @author Adam
+ */
+public class SampleComponent<T> extends AnalysisComponent<T> {
+
+    private @NonNull AnalysisComponent<T> previousComponent;
+    
+    private int percentage;
+    
+    private @NonNull Random random;
+    
+    /**
+     * Creates a new {@link SampleComponent} with the settings {@link DefaultSettings#ANALYSIS_SAMPLE_PERCENTAGE} and
+     * {@link DefaultSettings#ANALYSIS_SAMPLE_SEED}.
+     * 
+     * @param config The global configuration.
+     * @param previousComponent The previous component.
+     */
+    public SampleComponent(@NonNull Configuration config, @NonNull AnalysisComponent<T> previousComponent) {
+        this(config, previousComponent, config.getValue(DefaultSettings.ANALYSIS_SAMPLE_PERCENTAGE),
+                config.getValue(DefaultSettings.ANALYSIS_SAMPLE_SEED));
+    }
+    
+    /**
+     * Creates a new {@link SampleComponent}.
+     * 
+     * @param config The global configuration.
+     * @param previousComponent The previous component.
+     * @param percentage The probability (in percent, 0 to 100) that a result is passed on.
+     * @param seed The seed for the random generator. <code>null</code> for a random seed.
+     */
+    public SampleComponent(@NonNull Configuration config, @NonNull AnalysisComponent<T> previousComponent,
+            int percentage, @Nullable Integer seed) {
+        super(config);
+        this.previousComponent = previousComponent;
+        this.percentage = percentage;
+        this.random = seed != null ? new Random(seed) : new Random();
+    }
+
+    @Override
+    protected void execute() {
+        T result;
+        while ((result = previousComponent.getNextResult()) != null) {
+            if (random.nextInt(100) < percentage) {
+                addResult(result);
+            }
+        }
+    }
+
+    @Override
+    public @NonNull String getResultName() {
+        return previousComponent.getResultName();
+    }
+
+}
@@ -61,6 +61,7 @@ public final class SplitComponent<T> extends AnalysisComponent<Void> {
      */
     public @NonNull AnalysisComponent<T> createOutputComponent() {
         OutputComponent component = new OutputComponent(config);
+        component.registerInput(this);
         outputComponents.add(component);
         return component;
     }
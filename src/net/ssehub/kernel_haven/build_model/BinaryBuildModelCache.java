@@ -0,0 +1,467 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.build_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.build_model.BuildModelDescriptor.KeyType;
+import net.ssehub.kernel_haven.provider.AbstractCache;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.CompactDataInputStream;
+import net.ssehub.kernel_haven.util.io.CompactDataOutputStream;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaDictionary;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
+import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
+import net.ssehub.kernel_haven.util.logic.parser.Parser;
+import net.ssehub.kernel_haven.util.logic.parser.VariableCache;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A cache for writing (and reading) a {@link BuildModel} to a file, using a compact binary format. Compared to the
+ * {@link JsonBuildModelCache}, no formula strings need to be parsed when reading:
+ * <ul>
+ *      <li>All presence conditions are stored in a shared formula table, where each distinct (sub-)formula is stored
+ *          only once and references its operands by index. The formulas are constructed directly from this table,
+ *          so structurally equal sub-formulas are the same object in the read {@link BuildModel}.</li>
+ *      <li>Variable names, directories and file names are stored only once in a string table.</li>
+ *      <li>Each entry of the build model is stored as a directory index, a file name index and a formula index.</li>
+ * </ul>
+ *
+ * @author Adam
+ */
+public class BinaryBuildModelCache extends AbstractCache<BuildModel> {
+
+    private static final int MAGIC = 0x4B48424D; // "KHBM"
+    
+    private static final int VERSION = 1;
+    
+    private static final int FORMULA_FALSE = 0;
+    
+    private static final int FORMULA_TRUE = 1;
+    
+    private static final int FORMULA_VARIABLE = 2;
+    
+    private static final int FORMULA_NEGATION = 3;
+    
+    private static final int FORMULA_CONJUNCTION = 4;
+    
+    private static final int FORMULA_DISJUNCTION = 5;
+    
+    private static final int FORMULA_OTHER = 6;
+    
+    private @NonNull File cacheFile;
+    
+    private @NonNull CompressionCodec codec;
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir The directory where to store the cache files. This must be a directory, and we must be able to
+     *      read and write to it.
+     */
+    public BinaryBuildModelCache(@NonNull File cacheDir) {
+        this(cacheDir, CompressionCodec.NONE);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir The directory where to store the cache files. This must be a directory, and we must be able to
+     *      read and write to it.
+     * @param codec The codec that the cache file is written with. A cache file written by any other codec is still
+     *      read.
+     */
+    public BinaryBuildModelCache(@NonNull File cacheDir, @NonNull CompressionCodec codec) {
+        this.cacheFile = new File(cacheDir, "bmCache.bin");
+        this.codec = codec;
+    }
+    
+    @Override
+    public @Nullable BuildModel read(@NonNull File target) throws FormatException, IOException {
+        InputStream in = CompressionCodec.openFile(cacheFile);
+        
+        BuildModel result = null;
+        if (in != null) {
+            try (CompactDataInputStream dataIn = new CompactDataInputStream(in)) {
+                result = new DeserializeData(dataIn, getFormulaFactory()).deserialize();
+            } catch (EOFException e) {
+                throw new FormatException("Unexpected end of cache file " + cacheFile, e);
+            }
+        }
+        
+        return result;
+    }
+    
+    @Override
+    public void write(@NonNull BuildModel bm) throws IOException {
+        try (CompactDataOutputStream out = new CompactDataOutputStream(codec.createFile(cacheFile))) {
+            new SerializeData().serialize(bm, out);
+        }
+    }
+    
+    /**
+     * Holds the tables of a serialization run.
+     */
+    private static final class SerializeData {
+        
+        private @NonNull List<String> strings;
+        
+        private @NonNull Map<String, Integer> stringIndices;
+        
+        private @NonNull FormulaDictionary formulas;
+        
+        /**
+         * Creates an empty serialization run.
+         */
+        public SerializeData() {
+            this.strings = new ArrayList<>();
+            this.stringIndices = new HashMap<>();
+            this.formulas = new FormulaDictionary();
+        }
+        
+        /**
+         * Returns the index of the given string in the string table. Adds it, if it's not yet contained.
+         * 
+         * @param string The string.
+         * 
+         * @return The index of the string.
+         */
+        private int getStringIndex(@NonNull String string) {
+            Integer result = stringIndices.get(string);
+            if (result == null) {
+                result = strings.size();
+                strings.add(string);
+                stringIndices.put(string, result);
+            }
+            return result;
+        }
+        
+        /**
+         * Serializes the given {@link BuildModel} to the given stream.
+         * 
+         * @param bm The build model to serialize.
+         * @param out The stream to write to.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        public void serialize(@NonNull BuildModel bm, @NonNull CompactDataOutputStream out) throws IOException {
+            List<@NonNull String> paths = new ArrayList<>();
+            Map<@NonNull String, @NonNull Formula> pcs = new HashMap<>();
+            for (File file : bm) {
+                String path = notNull(file.getPath().replace(File.separatorChar, '/'));
+                paths.add(path);
+                pcs.put(path, notNull(bm.getPcDirect(file)));
+            }
+            paths.sort(null);
+            
+            // fill the tables first, so that they can be written before the entries
+            int[] entries = new int[paths.size() * 3];
+            for (int i = 0; i < paths.size(); i++) {
+                String path = notNull(paths.get(i));
+                int separator = path.lastIndexOf('/');
+                entries[i * 3] = getStringIndex(separator == -1 ? "" : notNull(path.substring(0, separator)));
+                entries[i * 3 + 1] = getStringIndex(notNull(path.substring(separator + 1)));
+                entries[i * 3 + 2] = formulas.add(notNull(pcs.get(path)));
+            }
+            for (int i = 0; i < formulas.getSize(); i++) {
+                Formula formula = formulas.get(i);
+                if (formula instanceof Variable) {
+                    getStringIndex(((Variable) formula).getName());
+                } else if (isOther(formula)) {
+                    getStringIndex(formula.toString());
+                }
+            }
+            
+            out.writeInt(MAGIC);
+            out.writeVarInt(VERSION);
+            
+            BuildModelDescriptor descriptor = bm.getDescriptor();
+            out.writeVarInt(descriptor.getKeyType().ordinal());
+            out.writeBoolean(descriptor.isCaseSensitive());
+            
+            out.writeVarInt(strings.size());
+            for (String string : strings) {
+                out.writeString(notNull(string));
+            }
+            
+            out.writeVarInt(formulas.getSize());
+            writeFormulaTable(out);
+            
+            out.writeVarInt(paths.size());
+            for (int entry : entries) {
+                out.writeVarInt(entry);
+            }
+        }
+        
+        /**
+         * Checks whether the given formula is not one of the basic types that are stored structurally.
+         * 
+         * @param formula The formula to check.
+         * 
+         * @return Whether the formula is stored as a string.
+         */
+        private static boolean isOther(@NonNull Formula formula) {
+            return !(formula instanceof False || formula instanceof True || formula instanceof Variable
+                    || formula instanceof Negation || formula instanceof Conjunction
+                    || formula instanceof Disjunction);
+        }
+        
+        /**
+         * Writes the entries of the formula table. Operands are always stored before the formulas that use them, so
+         * that the table only contains back-references.
+         * 
+         * @param out The stream to write to.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        private void writeFormulaTable(@NonNull CompactDataOutputStream out) throws IOException {
+            for (int i = 0; i < formulas.getSize(); i++) {
+                Formula formula = formulas.get(i);
+                
+                if (formula instanceof False) {
+                    out.write(FORMULA_FALSE);
+                    
+                } else if (formula instanceof True) {
+                    out.write(FORMULA_TRUE);
+                    
+                } else if (formula instanceof Variable) {
+                    out.write(FORMULA_VARIABLE);
+                    out.writeVarInt(getStringIndex(((Variable) formula).getName()));
+                    
+                } else if (formula instanceof Negation) {
+                    out.write(FORMULA_NEGATION);
+                    out.writeVarInt(formulas.getIndex(((Negation) formula).getFormula()));
+                    
+                } else if (formula instanceof Conjunction) {
+                    out.write(FORMULA_CONJUNCTION);
+                    out.writeVarInt(formulas.getIndex(((Conjunction) formula).getLeft()));
+                    out.writeVarInt(formulas.getIndex(((Conjunction) formula).getRight()));
+                    
+                } else if (formula instanceof Disjunction) {
+                    out.write(FORMULA_DISJUNCTION);
+                    out.writeVarInt(formulas.getIndex(((Disjunction) formula).getLeft()));
+                    out.writeVarInt(formulas.getIndex(((Disjunction) formula).getRight()));
+                    
+                } else {
+                    out.write(FORMULA_OTHER);
+                    out.writeVarInt(getStringIndex(formula.toString()));
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Holds the tables of a de-serialization run.
+     */
+    private static final class DeserializeData {
+        
+        private @NonNull CompactDataInputStream in;
+        
+        private @NonNull String @NonNull [] strings;
+        
+        private @NonNull Formula @NonNull [] formulas;
+        
+        private @Nullable FormulaFactory factory;
+        
+        /**
+         * Creates a de-serialization run for the given stream.
+         * 
+         * @param in The stream to read from.
+         * @param factory The factory to create the formulas with, or <code>null</code>.
+         */
+        public DeserializeData(@NonNull CompactDataInputStream in, @Nullable FormulaFactory factory) {
+            this.in = in;
+            this.factory = factory;
+            this.strings = new String[0];
+            this.formulas = new Formula[0];
+        }
+        
+        /**
+         * Reads the complete {@link BuildModel} from the stream.
+         * 
+         * @return The read {@link BuildModel}.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the stream does not contain a valid cache.
+         */
+        public @NonNull BuildModel deserialize() throws IOException, FormatException {
+            if (in.readInt() != MAGIC) {
+                throw new FormatException("Not a binary build model cache file");
+            }
+            int version = in.readVarInt();
+            if (version != VERSION) {
+                throw new FormatException("Unsupported version: got " + version + ", but expected " + VERSION);
+            }
+            
+            BuildModel result = new BuildModel();
+            BuildModelDescriptor descriptor = new BuildModelDescriptor();
+            int keyType = in.readVarInt();
+            if (keyType < 0 || keyType >= KeyType.values().length) {
+                throw new FormatException("Invalid key type: " + keyType);
+            }
+            descriptor.setKeyType(notNull(KeyType.values()[keyType]));
+            descriptor.setCaseSensitive(in.readBoolean());
+            result.setDescriptor(descriptor);
+            
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readString();
+            }
+            
+            formulas = new Formula[readCount()];
+            Map<String, Variable> variables = new HashMap<>();
+            for (int i = 0; i < formulas.length; i++) {
+                formulas[i] = readFormula(i, variables);
+            }
+            
+            int numEntries = readCount();
+            for (int i = 0; i < numEntries; i++) {
+                String directory = getString(in.readVarInt());
+                String name = getString(in.readVarInt());
+                Formula pc = getFormula(in.readVarInt(), formulas.length);
+                
+                result.add(new File(directory.isEmpty() ? name : directory + '/' + name), pc);
+            }
+            
+            return result;
+        }
+        
+        /**
+         * Reads a count (e.g. the size of a table) from the stream.
+         * 
+         * @return The count.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the count is negative.
+         */
+        private int readCount() throws IOException, FormatException {
+            int count = in.readVarInt();
+            if (count < 0) {
+                throw new FormatException("Invalid count: " + count);
+            }
+            return count;
+        }
+        
+        /**
+         * Returns the string with the given index in the string table.
+         * 
+         * @param index The index of the string.
+         * 
+         * @return The string.
+         * 
+         * @throws FormatException If the index is out of bounds.
+         */
+        private @NonNull String getString(int index) throws FormatException {
+            if (index < 0 || index >= strings.length) {
+                throw new FormatException("Invalid string table index: " + index);
+            }
+            return strings[index];
+        }
+        
+        /**
+         * Returns the formula with the given index in the formula table.
+         * 
+         * @param index The index of the formula.
+         * @param limit The index must be smaller than this.
+         * 
+         * @return The formula.
+         * 
+         * @throws FormatException If the index is out of bounds.
+         */
+        private @NonNull Formula getFormula(int index, int limit) throws FormatException {
+            if (index < 0 || index >= limit) {
+                throw new FormatException("Invalid formula table index: " + index);
+            }
+            return formulas[index];
+        }
+        
+        /**
+         * Reads the formula table entry with the given index.
+         * 
+         * @param index The index of the entry that is read. Operands must have a smaller index.
+         * @param variables The variables that were already created, so that each variable exists only once.
+         * 
+         * @return The read formula.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the entry is invalid.
+         */
+        private @NonNull Formula readFormula(int index, @NonNull Map<String, Variable> variables)
+                throws IOException, FormatException {
+            
+            Formula result;
+            int type = in.readUnsignedByte();
+            switch (type) {
+            case FORMULA_FALSE:
+                result = False.INSTANCE;
+                break;
+            case FORMULA_TRUE:
+                result = True.INSTANCE;
+                break;
+            case FORMULA_VARIABLE:
+                result = variables.computeIfAbsent(getString(in.readVarInt()), Variable::new);
+                break;
+            case FORMULA_NEGATION:
+                result = new Negation(getFormula(in.readVarInt(), index));
+                break;
+            case FORMULA_CONJUNCTION:
+                result = new Conjunction(getFormula(in.readVarInt(), index), getFormula(in.readVarInt(), index));
+                break;
+            case FORMULA_DISJUNCTION:
+                result = new Disjunction(getFormula(in.readVarInt(), index), getFormula(in.readVarInt(), index));
+                break;
+            case FORMULA_OTHER:
+                try {
+                    result = new Parser<@NonNull Formula>(new CStyleBooleanGrammar(new VariableCache()))
+                            .parse(getString(in.readVarInt()));
+                } catch (ExpressionFormatException e) {
+                    throw new FormatException("Can't parse formula", e);
+                }
+                break;
+            default:
+                throw new FormatException("Invalid formula type: " + type);
+            }
+            
+            FormulaFactory factory = this.factory;
+            if (factory != null) {
+                result = factory.intern(result);
+            }
+            return notNull(result);
+        }
+        
+    }
+    
+}
@@ -40,6 +40,12 @@ public class BuildModel implements Iterable<@NonNull File> {
     
     private @NonNull Map<@NonNull File, Formula> fileFormulaMapping;
     
+    /**
+     * The ID of the source tree that this model was extracted from; only set if multiple source trees are analyzed in
+     * one run.
+     */
+    private @Nullable String treeId;
+    
     /**
      * A custom {@link File} that does equality checks based on the case-sensitive setting in the descriptor.
      */
@@ -103,6 +109,25 @@ public class BuildModel implements Iterable<@NonNull File> {
         return descriptor;
     }
     
+    /**
+     * Returns the ID of the source tree that this model was extracted from. This is only set if multiple source trees
+     * are analyzed in a single execution (see {@link net.ssehub.kernel_haven.config.DefaultSettings#SOURCE_TREES}).
+     * 
+     * @return The ID of the source tree, or <code>null</code> if not set.
+     */
+    public @Nullable String getTreeId() {
+        return treeId;
+    }
+    
+    /**
+     * Sets the ID of the source tree that this model was extracted from.
+     * 
+     * @param treeId The ID of the source tree.
+     */
+    public void setTreeId(@Nullable String treeId) {
+        this.treeId = treeId;
+    }
+    
     /**
      * Overrides the descriptor for this model.
      * 
@@ -22,6 +22,7 @@ import java.util.List;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.provider.AbstractProvider;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
@@ -32,6 +33,23 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public class BuildModelProvider extends AbstractProvider<BuildModel> {
 
+    /**
+     * The formats that the build model cache can be written in.
+     */
+    public static enum CacheFormat {
+        
+        /**
+         * Human-readable JSON, see {@link JsonBuildModelCache}.
+         */
+        JSON,
+        
+        /**
+         * Compact binary format with a shared formula table, see {@link BinaryBuildModelCache}.
+         */
+        BINARY,
+        
+    }
+
     @Override
     protected long getTimeout() {
         return config.getValue(DefaultSettings.BUILD_PROVIDER_TIMEOUT);
@@ -44,9 +62,26 @@ public class BuildModelProvider extends AbstractProvider<BuildModel> {
         return result;
     }
 
+    @Override
+    protected void tagResult(@NonNull BuildModel result, @NonNull String treeId) {
+        result.setTreeId(treeId);
+    }
+    
     @Override
     public @NonNull AbstractCache<BuildModel> createCache() {
-        return new JsonBuildModelCache(config.getValue(DefaultSettings.CACHE_DIR));
+        AbstractCache<BuildModel> result;
+        CompressionCodec codec = createCompressionCodec(config.getValue(DefaultSettings.BUILD_PROVIDER_CACHE_COMPRESS));
+        switch (config.getValue(DefaultSettings.BUILD_PROVIDER_CACHE_FORMAT)) {
+        case BINARY:
+            result = new BinaryBuildModelCache(config.getValue(DefaultSettings.CACHE_DIR), codec);
+            break;
+            
+        case JSON:
+        default:
+            result = new JsonBuildModelCache(config.getValue(DefaultSettings.CACHE_DIR), codec);
+            break;
+        }
+        return result;
     }
 
     @Override
@@ -17,11 +17,9 @@ package net.ssehub.kernel_haven.build_model;
 
 import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -29,14 +27,15 @@ import java.util.Map;
 import net.ssehub.kernel_haven.build_model.BuildModelDescriptor.KeyType;
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
 import net.ssehub.kernel_haven.util.io.json.JsonBoolean;
 import net.ssehub.kernel_haven.util.io.json.JsonElement;
-import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
-import net.ssehub.kernel_haven.util.io.json.JsonParser;
-import net.ssehub.kernel_haven.util.io.json.JsonPrettyPrinter;
+import net.ssehub.kernel_haven.util.io.json.JsonReader;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonWriter;
 import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
 import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
 import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
 import net.ssehub.kernel_haven.util.logic.parser.Parser;
@@ -54,6 +53,8 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
     private static final int VERSION = 2;
     
     private @NonNull File cacheFile;
+    
+    private @NonNull CompressionCodec codec;
 
     /**
      * Creates a new cache in the given cache directory.
@@ -62,38 +63,101 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
      *      read and write to it.
      */
     public JsonBuildModelCache(@NonNull File cacheDir) {
-        cacheFile = new File(cacheDir, "bmCache.json");
+        this(cacheDir, CompressionCodec.NONE);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir The directory where to store the cache files. This must be a directory, and we must be able to
+     *      read and write to it.
+     * @param codec The codec that the cache file is written with. A cache file written by any other codec is still
+     *      read.
+     */
+    public JsonBuildModelCache(@NonNull File cacheDir, @NonNull CompressionCodec codec) {
+        this.cacheFile = new File(cacheDir, "bmCache.json");
+        this.codec = codec;
     }
     
     @Override
     public @Nullable BuildModel read(@NonNull File target) throws FormatException, IOException {
-        JsonObject data = null;
+        InputStream in = CompressionCodec.openFile(cacheFile);
+        
         BuildModel result = null;
+        if (in != null) {
+            try (JsonReader reader = new JsonReader(in)) {
+                result = read(reader);
+            }
+        }
         
-        try (JsonParser parser = new JsonParser(cacheFile)) {
-            
-            JsonElement parsed = parser.parse();
-            if (!(parsed instanceof JsonObject)) {
-                throw new FormatException("Expected JSON object, got " + parsed.getClass().getSimpleName());
+        return result;
+    }
+    
+    /**
+     * Reads the build model from the given reader. The presence conditions are added to the build model while they
+     * are read.
+     * 
+     * @param reader The reader to read from.
+     * 
+     * @return The read build model.
+     * 
+     * @throws FormatException If the JSON does not contain the expected data.
+     * @throws IOException If reading fails.
+     */
+    private @NonNull BuildModel read(@NonNull JsonReader reader) throws FormatException, IOException {
+        BuildModel result = new BuildModel();
+        boolean versionRead = false;
+        boolean descriptorRead = false;
+        boolean pcsRead = false;
+        JsonElement bufferedPcs = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "version":
+                int version = reader.nextInt();
+                if (version != VERSION) {
+                    throw new FormatException("Got invalid version " + version + ", we only support " + VERSION);
+                }
+                versionRead = true;
+                break;
+                
+            case "descriptor":
+                JsonElement descriptor = reader.nextElement();
+                if (!(descriptor instanceof JsonObject)) {
+                    throw new FormatException("Expected JSON object, got " + descriptor.getClass().getSimpleName());
+                }
+                result.setDescriptor(jsonToDescriptor((JsonObject) descriptor));
+                descriptorRead = true;
+                break;
+                
+            case "presenceConditions":
+                if (descriptorRead) {
+                    readPcs(reader, result);
+                } else {
+                    // the descriptor influences how files are stored in the build model, so it has to be read first
+                    bufferedPcs = reader.nextElement();
+                }
+                pcsRead = true;
+                break;
+                
+            default:
+                reader.skipValue();
+                break;
             }
-            
-            data = (JsonObject) parsed;
-            
-        } catch (FileNotFoundException e) {
-            // ignore and return null
         }
+        reader.endObject();
+        reader.peek(); // make sure that the end of the document is reached
         
-        if (data != null) {
-            if (data.getInt("version") != VERSION) {
-                throw new FormatException("Got invalid version " + data.getInt("version") + ", we only support "
-                        + VERSION);
+        if (!versionRead || !descriptorRead || !pcsRead) {
+            throw new FormatException("Missing version, descriptor or presenceConditions");
+        }
+        
+        if (bufferedPcs != null) {
+            if (!(bufferedPcs instanceof JsonObject)) {
+                throw new FormatException("Expected JSON object, got " + bufferedPcs.getClass().getSimpleName());
             }
-            
-            result = new BuildModel();
-            
-            result.setDescriptor(jsonToDescriptor(data.getObject("descriptor")));
-            
-            jsonToPcs(data.getObject("presenceConditions"), result);
+            jsonToPcs((JsonObject) bufferedPcs, result);
         }
         
         return result;
@@ -122,6 +186,46 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
         return result;
     }
     
+    /**
+     * Creates the parser for the presence conditions. Uses the {@link FormulaFactory} of this cache, if set.
+     * 
+     * @return The parser.
+     */
+    private @NonNull Parser</*@NonNull*/ Formula> createParser() {
+        FormulaFactory factory = getFormulaFactory();
+        CStyleBooleanGrammar grammar = factory != null
+                ? new CStyleBooleanGrammar(factory) : new CStyleBooleanGrammar(new VariableCache());
+        return new Parser<>(grammar);
+    }
+    
+    /**
+     * Reads the presence conditions directly from the given reader.
+     * 
+     * @param reader The reader positioned at the start of the presence condition object.
+     * @param result The {@link BuildModel} to add the result to.
+     * 
+     * @throws FormatException If JSON is malformed.
+     * @throws IOException If reading fails.
+     */
+    private void readPcs(@NonNull JsonReader reader, @NonNull BuildModel result) throws FormatException, IOException {
+        Parser</*@NonNull*/ Formula> parser = createParser();
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String file = reader.nextName();
+            
+            Formula pc;
+            try {
+                pc = notNull(parser.parse(reader.nextString()));
+            } catch (ExpressionFormatException e) {
+                throw new FormatException(e);
+            }
+            
+            result.add(new File(file), pc);
+        }
+        reader.endObject();
+    }
+    
     /**
      * Converts the given JSON object back into presence conditions.
      * 
@@ -131,8 +235,7 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
      * @throws FormatException If JSON is malformed.
      */
     private void jsonToPcs(@NonNull JsonObject json, @NonNull BuildModel result) throws FormatException {
-        VariableCache cache = new VariableCache();
-        Parser</*@NonNull*/ Formula> parser = new Parser<>(new CStyleBooleanGrammar(cache));
+        Parser</*@NonNull*/ Formula> parser = createParser();
         /*
          * TODO: commented out annotations
          * The commented out annotations trigger a bug in the javac compiler:
@@ -163,15 +266,16 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
 
     @Override
     public void write(@NonNull BuildModel bm) throws IOException {
-        JsonObject mainJson = new JsonObject();
-        
-        mainJson.putElement("version", new JsonNumber(VERSION));
-        
-        mainJson.putElement("descriptor", descriptorToJson(bm.getDescriptor()));
-        mainJson.putElement("presenceConditions", pcsToJson(bm));
-        
-        try (BufferedWriter out = new BufferedWriter(new FileWriter(cacheFile))) {
-            out.write(mainJson.accept(new JsonPrettyPrinter()));
+        try (JsonWriter out = new JsonWriter(codec.createFile(cacheFile))) {
+            out.beginObject();
+            
+            out.name("version").value(VERSION);
+            
+            out.name("descriptor").value(descriptorToJson(bm.getDescriptor()));
+            out.name("presenceConditions");
+            writePcs(bm, out);
+            
+            out.endObject();
         }
     }
     
@@ -192,27 +296,26 @@ public class JsonBuildModelCache extends AbstractCache<BuildModel> {
     }
     
     /**
-     * Converts the presence conditions for all files to a JSON object.
+     * Writes the presence conditions for all files as a JSON object.
      * 
      * @param bm The {@link BuildModel} to read the PCs from.
+     * @param out The writer to write the PCs to.
      * 
-     * @return A JSON representation of the PCs.
+     * @throws IOException If writing fails.
      */
-    private @NonNull JsonObject pcsToJson(@NonNull BuildModel bm) {
-        JsonObject result = new JsonObject();
-        
+    private void writePcs(@NonNull BuildModel bm, @NonNull JsonWriter out) throws IOException {
         List<@NonNull File> files = new ArrayList<>(bm.getSize());
         bm.forEach(files::add);
         
-        files.stream()
-                .sorted((f1, f2) -> f1.getPath().replace(File.separatorChar, '/').compareTo(
-                        f2.getPath().replace(File.separatorChar, '/')))
-                .forEach((file) -> {
-                    result.putElement(notNull(file.getPath().replace(File.separatorChar, '/')),
-                            new JsonString(notNull(bm.getPcDirect(file)).toString()));
-                });
+        files.sort((f1, f2) -> f1.getPath().replace(File.separatorChar, '/').compareTo(
+                f2.getPath().replace(File.separatorChar, '/')));
         
-        return result;
+        out.beginObject();
+        for (File file : files) {
+            out.name(notNull(file.getPath().replace(File.separatorChar, '/')))
+                    .value(notNull(bm.getPcDirect(file)).toString());
+        }
+        out.endObject();
     }
 
 }
@@ -54,6 +54,13 @@ public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedT
     private static final @NonNull Parser<@NonNull Formula> PARSER
             = new Parser<>(new CStyleBooleanGrammar(new VariableCache()));
     
+    /**
+     * Formulas that are already known for the de-serialization that is currently running in this thread. This allows
+     * caches that store formulas in a structured way to skip parsing the formula strings. See
+     * {@link #setKnownFormulas(Map)}.
+     */
+    private static final @NonNull ThreadLocal<@Nullable Map<String, Formula>> KNOWN_FORMULAS = new ThreadLocal<>();
+    
     private static final @NonNull File UNKNOWN = new File("<unknown>");
     
     private @NonNull File sourceFile;
@@ -116,6 +123,14 @@ public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedT
      * @throws FormatException If the formula can't be parsed.
      */
     protected @NonNull Formula parseJsonFormula(@NonNull String formula) throws FormatException {
+        Map<String, Formula> knownFormulas = KNOWN_FORMULAS.get();
+        if (knownFormulas != null) {
+            Formula known = knownFormulas.get(formula);
+            if (known != null) {
+                return known;
+            }
+        }
+        
         try {
             return PARSER.parse(formula);
         } catch (ExpressionFormatException e) {
@@ -123,6 +138,21 @@ public abstract class AbstractCodeElement<NestedType extends CodeElement<NestedT
         }
     }
 
+    /**
+     * Sets the formulas that are already known for the de-serialization running in the current thread.
+     * {@link #parseJsonFormula(String)} returns these instead of parsing the formula string again. Must be reset to
+     * <code>null</code> after the de-serialization is done.
+     * 
+     * @param knownFormulas A mapping of formula string to the (already parsed) formula. <code>null</code> to reset.
+     */
+    static void setKnownFormulas(@Nullable Map<String, Formula> knownFormulas) {
+        if (knownFormulas != null) {
+            KNOWN_FORMULAS.set(knownFormulas);
+        } else {
+            KNOWN_FORMULAS.remove();
+        }
+    }
+
     @Override
     public @NonNull File getSourceFile() {
         return sourceFile;
@@ -29,6 +29,7 @@ import net.ssehub.kernel_haven.util.io.json.JsonElement;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
 import net.ssehub.kernel_haven.util.logic.Formula;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * A superclass for all {@link CodeElement} that have nested elements.
@@ -40,8 +41,38 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
 public abstract class AbstractCodeElementWithNesting<NestedType extends CodeElement<NestedType>>
         extends AbstractCodeElement<NestedType> {
 
+    /**
+     * Loads the nested elements of an {@link AbstractCodeElementWithNesting} from a cache on first access. See
+     * {@link AbstractCodeElementWithNesting#setNestedElementLoader(NestedElementLoader)}.
+     */
+    interface NestedElementLoader {
+        
+        /**
+         * Returns the number of nested elements that {@link #load()} will return. This does not load the elements.
+         * 
+         * @return The number of nested elements.
+         */
+        public int getCount();
+        
+        /**
+         * Loads the nested elements.
+         * 
+         * @return The nested elements, in order.
+         * 
+         * @throws FormatException If the cache does not contain valid elements.
+         */
+        public @NonNull List<@NonNull CodeElement<?>> load() throws FormatException;
+        
+    }
+    
     private @NonNull List<@NonNull NestedType> nested;
     
+    /**
+     * If not <code>null</code>, then the nested elements have not been loaded yet. {@link #nested} is only valid
+     * after this has been set to <code>null</code>.
+     */
+    private volatile @Nullable NestedElementLoader nestedLoader;
+    
     /**
      * Creates this element with the given presence condition. Source file is unknown, line numbers are -1 and
      * condition is <code>null</code>.
@@ -73,19 +104,79 @@ public abstract class AbstractCodeElementWithNesting<NestedType extends CodeElem
         this.nested = new LinkedList<>();
     }
     
+    /**
+     * Sets a loader that provides the nested elements of this element. The nested elements are loaded when they are
+     * first accessed; {@link #getNestedElementCount()} does not load them. This is used by caches that de-serialize
+     * the nesting structure lazily (see {@link BinaryCodeModelCache}).
+     * 
+     * @param loader The loader for the nested elements.
+     */
+    void setNestedElementLoader(@NonNull NestedElementLoader loader) {
+        this.nestedLoader = loader;
+    }
+    
+    /**
+     * Checks whether the nested elements are still to be loaded by a {@link NestedElementLoader}.
+     * 
+     * @return Whether the nested elements have not been loaded yet.
+     */
+    boolean isNestedElementLoaderPending() {
+        return nestedLoader != null;
+    }
+    
+    /**
+     * Returns the list of nested elements. Loads them first, if a {@link NestedElementLoader} is set.
+     * 
+     * @return The nested elements.
+     * 
+     * @throws IllegalStateException If loading the nested elements fails.
+     */
+    private @NonNull List<@NonNull NestedType> getNested() throws IllegalStateException {
+        if (nestedLoader != null) {
+            loadNested();
+        }
+        return nested;
+    }
+    
+    /**
+     * Loads the nested elements from the {@link NestedElementLoader}, if this has not happened yet. The loaded list
+     * is published to other threads by the volatile write to {@link #nestedLoader}.
+     * 
+     * @throws IllegalStateException If loading the nested elements fails.
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized void loadNested() throws IllegalStateException {
+        NestedElementLoader loader = this.nestedLoader;
+        if (loader != null) {
+            List<@NonNull NestedType> loaded = new LinkedList<>();
+            try {
+                for (CodeElement<?> element : loader.load()) {
+                    loaded.add((NestedType) element);
+                }
+            } catch (FormatException e) {
+                throw new IllegalStateException("Can't load nested elements of " + getClass().getSimpleName()
+                        + " in line " + getLineStart() + " from the cache", e);
+            }
+            
+            this.nested = loaded;
+            this.nestedLoader = null;
+        }
+    }
+    
     @Override
     public int getNestedElementCount() {
-        return nested.size();
+        NestedElementLoader loader = this.nestedLoader;
+        return loader != null ? loader.getCount() : nested.size();
     }
 
     @Override
     public @NonNull NestedType getNestedElement(int index) throws IndexOutOfBoundsException {
-        return notNull(nested.get(index));
+        return notNull(getNested().get(index));
     }
 
     @Override
     public void addNestedElement(@NonNull NestedType element) {
-        nested.add(element);
+        getNested().add(element);
     }
     
     /**
@@ -100,24 +191,25 @@ public abstract class AbstractCodeElementWithNesting<NestedType extends CodeElem
     protected void replaceNestedElement(@NonNull NestedType oldElement, @NonNull NestedType newElement)
             throws NoSuchElementException {
         
-        int index = nested.indexOf(oldElement);
+        List<@NonNull NestedType> elements = getNested();
+        int index = elements.indexOf(oldElement);
         if (index < 0) {
             throw new NoSuchElementException();
         }
         
-        nested.set(index, newElement);
+        elements.set(index, newElement);
     }
     
     @Override
     public Iterator<@NonNull NestedType> iterator() {
-        return nested.iterator();
+        return getNested().iterator();
     }
     
     @Override
     protected int hashCode(@NonNull CodeElementHasher hasher) {
         int result = 1;
 
-        for (NestedType n : nested) {
+        for (NestedType n : getNested()) {
             result = 31 * result + hasher.hashCode((AbstractCodeElement<?>) n);
         }
         
@@ -131,10 +223,13 @@ public abstract class AbstractCodeElementWithNesting<NestedType extends CodeElem
         if (equal) {
             AbstractCodeElementWithNesting<?> o = (AbstractCodeElementWithNesting<?>) other;
             
-            equal = this.nested.size() == o.nested.size();
-            for (int i = 0; equal && i < this.nested.size(); i++) {
-                equal &= checker.isEqual((AbstractCodeElement<?>) this.nested.get(i),
-                        (AbstractCodeElement<?>) o.nested.get(i));
+            List<@NonNull NestedType> thisNested = this.getNested();
+            List<?> otherNested = o.getNested();
+            
+            equal = thisNested.size() == otherNested.size();
+            for (int i = 0; equal && i < thisNested.size(); i++) {
+                equal &= checker.isEqual((AbstractCodeElement<?>) thisNested.get(i),
+                        (AbstractCodeElement<?>) otherNested.get(i));
             }
         }
         
@@ -15,7 +15,12 @@
  */
 package net.ssehub.kernel_haven.code_model;
 
+import java.io.File;
+
 import net.ssehub.kernel_haven.provider.AbstractExtractor;
+import net.ssehub.kernel_haven.util.CodeExtractorException;
+import net.ssehub.kernel_haven.util.ExtractorException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
  * Abstract parent class for all code model extractors.
@@ -24,4 +29,9 @@ import net.ssehub.kernel_haven.provider.AbstractExtractor;
  */
 public abstract class AbstractCodeModelExtractor extends AbstractExtractor<SourceFile<?>> {
 
+    @Override
+    protected @NonNull ExtractorException createTimeoutException(@NonNull File target, long timeout) {
+        return new CodeExtractorException(target, "Extraction exceeded the deadline of " + timeout + " ms");
+    }
+    
 }
@@ -0,0 +1,1401 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import net.ssehub.kernel_haven.code_model.CodeElementRegistry.CodeElementFactory;
+import net.ssehub.kernel_haven.provider.AbstractCache;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.ByteBufferInputStream;
+import net.ssehub.kernel_haven.util.io.CompactDataInputStream;
+import net.ssehub.kernel_haven.util.io.CompactDataOutputStream;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
+import net.ssehub.kernel_haven.util.io.PackFile;
+import net.ssehub.kernel_haven.util.io.json.JsonBoolean;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonList;
+import net.ssehub.kernel_haven.util.io.json.JsonNull;
+import net.ssehub.kernel_haven.util.io.json.JsonNumber;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaDictionary;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
+import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
+import net.ssehub.kernel_haven.util.logic.parser.Parser;
+import net.ssehub.kernel_haven.util.logic.parser.VariableCache;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A cache for saving (and reading) a code model to files, using a compact binary format. Compared to the
+ * {@link JsonCodeModelCache}, this is considerably smaller and faster to read and write:
+ * <ul>
+ *      <li>Numbers (e.g. line numbers) are written as variable-length integers.</li>
+ *      <li>All strings (paths, keys, identifiers, variable names) are stored only once in a per-file string table and
+ *          referenced by index.</li>
+ *      <li>Class names of the {@link CodeElement}s are stored only once in a class table and referenced by index.</li>
+ *      <li>The conditions and presence conditions are stored in a formula table, where each distinct (sub-)formula is
+ *          stored only once and references its operands by index. The formulas are constructed directly from this
+ *          table on reading, so no formula strings need to be parsed.</li>
+ * </ul>
+ * <p>
+ * Optionally, all source files are stored in a single {@link PackFile} instead of one cache file per source file.
+ * </p>
+ * <p>
+ * The {@link CodeElement}s are serialized via their {@link CodeElement#serializeToJson(JsonObject, Function, Function)}
+ * methods and their JSON de-serialization constructors, so every {@link CodeElement} that supports the
+ * {@link JsonCodeModelCache} is also supported by this cache.
+ * </p>
+ * <p>
+ * The nested elements of each element are stored in a block prefixed with its length. If no element inside such a
+ * block references (via {@link CodeElement#resolveIds(Map)}) an element outside of it, or vice versa, the block is
+ * marked as self-contained. In lazy mode, self-contained blocks are skipped on reading and only de-serialized once the
+ * nested elements are accessed (see {@link AbstractCodeElementWithNesting}). This considerably reduces the time and
+ * memory needed by analyses that only look at the top-level elements.
+ * </p>
+ * 
+ * @author Adam
+ */
+public class BinaryCodeModelCache extends AbstractCache<SourceFile<?>> {
+
+    private static final int MAGIC = 0x4B48434D; // "KHCM"
+    
+    private static final int VERSION = 2;
+    
+    /**
+     * The oldest version that can still be read. Version 1 does not contain the lengths of the nested blocks.
+     */
+    private static final int MIN_VERSION = 1;
+    
+    private static final int TAG_NULL = 0;
+    
+    private static final int TAG_TRUE = 1;
+    
+    private static final int TAG_FALSE = 2;
+    
+    private static final int TAG_INT = 3;
+    
+    private static final int TAG_LONG = 4;
+    
+    private static final int TAG_DOUBLE = 5;
+    
+    private static final int TAG_STRING = 6;
+    
+    private static final int TAG_FORMULA = 7;
+    
+    private static final int TAG_LIST = 8;
+    
+    private static final int TAG_OBJECT = 9;
+    
+    private static final int FORMULA_FALSE = 0;
+    
+    private static final int FORMULA_TRUE = 1;
+    
+    private static final int FORMULA_VARIABLE = 2;
+    
+    private static final int FORMULA_NEGATION = 3;
+    
+    private static final int FORMULA_CONJUNCTION = 4;
+    
+    private static final int FORMULA_DISJUNCTION = 5;
+    
+    private static final int FORMULA_OTHER = 6;
+    
+    private @NonNull File cacheDir;
+
+    private @NonNull CompressionCodec codec;
+    
+    private boolean usePack;
+    
+    private boolean lazy;
+    
+    private @Nullable PackFile pack;
+
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir) {
+        this(cacheDir, false);
+    }
+
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param compress
+     *            Whether the cache files should be written compressed (with {@link CompressionCodec#DEFAULT}).
+     *            Already existing compressed cache files are always read, even if
+     *            compression is turned off.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir, boolean compress) {
+        this(cacheDir, compress, false);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param compress
+     *            Whether the cache files should be written compressed (with {@link CompressionCodec#DEFAULT}).
+     *            Already existing compressed cache files are always read, even if
+     *            compression is turned off.
+     * @param usePack
+     *            Whether all source files should be stored in a single {@link PackFile} in the cache directory,
+     *            instead of one cache file per source file.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir, boolean compress, boolean usePack) {
+        this(cacheDir, compress ? CompressionCodec.DEFAULT : CompressionCodec.NONE, usePack);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param codec
+     *            The codec that the cache files (or pack entries) are written with. Cache files written by any
+     *            other codec are still read.
+     * @param usePack
+     *            Whether all source files should be stored in a single {@link PackFile} in the cache directory,
+     *            instead of one cache file per source file.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir, @NonNull CompressionCodec codec, boolean usePack) {
+        this(cacheDir, codec, usePack, false);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param codec
+     *            The codec that the cache files (or pack entries) are written with. Cache files written by any
+     *            other codec are still read.
+     * @param usePack
+     *            Whether all source files should be stored in a single {@link PackFile} in the cache directory,
+     *            instead of one cache file per source file.
+     * @param lazy
+     *            Whether self-contained blocks of nested elements should only be de-serialized when they are first
+     *            accessed. The content of the cache file is kept in memory until then.
+     */
+    public BinaryCodeModelCache(@NonNull File cacheDir, @NonNull CompressionCodec codec, boolean usePack,
+            boolean lazy) {
+        
+        this.cacheDir = cacheDir;
+        this.codec = codec;
+        this.usePack = usePack;
+        this.lazy = lazy;
+    }
+    
+    /**
+     * Returns the {@link PackFile} that this cache stores its entries in. Opens it on first access (and again after
+     * {@link #close()}).
+     * 
+     * @return The pack.
+     * 
+     * @throws IOException If opening the pack fails.
+     */
+    private synchronized @NonNull PackFile getPack() throws IOException {
+        PackFile pack = this.pack;
+        if (pack == null) {
+            pack = new PackFile(new File(cacheDir, "code_model.bin.pack"));
+            this.pack = pack;
+        }
+        return pack;
+    }
+    
+    /**
+     * Returns the key for the given source file in the {@link PackFile}.
+     * 
+     * @param path The path of the source file, relative to the source code tree.
+     * 
+     * @return The key in the pack.
+     */
+    private static @NonNull String getPackKey(@NonNull File path) {
+        return notNull(path.getPath().replace(File.separatorChar, '/'));
+    }
+    
+    /**
+     * Returns the path where the given source file should be cached.
+     * 
+     * @param path
+     *            The path of the source file, relative to the source code tree.
+     * @return The file where to cache, without the suffix of the {@link CompressionCodec}.
+     */
+    private @NonNull File getCacheFile(@NonNull File path) {
+        String name = path.getPath().replace(File.separatorChar, '.') + ".bin";
+        return new File(cacheDir, name);
+    }
+    
+    /**
+     * Writes the given {@link SourceFile} to the cache.
+     * 
+     * @param file
+     *            The file to write to the cache. Must not be <code>null</code>.
+     * @throws IOException
+     *             If writing the cache file fails.
+     */
+    @Override
+    public void write(@NonNull SourceFile<?> file) throws IOException {
+        if (usePack) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (CompactDataOutputStream dataOut = new CompactDataOutputStream(codec.compress(bytes))) {
+                new SerializeData().serialize(file, dataOut);
+            }
+            getPack().write(getPackKey(file.getPath()), bytes.toByteArray());
+            return;
+        }
+        
+        try (CompactDataOutputStream dataOut = new CompactDataOutputStream(
+                codec.createFile(getCacheFile(file.getPath())))) {
+            new SerializeData().serialize(file, dataOut);
+        }
+    }
+    
+    /**
+     * A {@link ByteArrayOutputStream} that allows to overwrite already written bytes.
+     */
+    private static final class PatchableByteArrayOutputStream extends ByteArrayOutputStream {
+        
+        /**
+         * Overwrites a single byte.
+         * 
+         * @param offset The offset of the byte.
+         * @param value The new value of the byte.
+         */
+        public void patchByte(int offset, int value) {
+            buf[offset] = (byte) value;
+        }
+        
+        /**
+         * Overwrites a 4 byte integer, in the same format as {@link CompactDataOutputStream#writeInt(int)}.
+         * 
+         * @param offset The offset of the first byte of the integer.
+         * @param value The new value of the integer.
+         */
+        public void patchInt(int offset, int value) {
+            buf[offset] = (byte) (value >>> 24);
+            buf[offset + 1] = (byte) (value >>> 16);
+            buf[offset + 2] = (byte) (value >>> 8);
+            buf[offset + 3] = (byte) value;
+        }
+        
+    }
+    
+    /**
+     * A {@link ByteArrayInputStream} that exposes its buffer and current position, so that blocks of it can be read
+     * again later.
+     */
+    private static final class PositionedByteArrayInputStream extends ByteArrayInputStream {
+        
+        /**
+         * Creates a stream that reads the given block of the given buffer.
+         * 
+         * @param buffer The buffer to read.
+         * @param offset The offset of the first byte to read.
+         * @param length The number of bytes to read.
+         */
+        public PositionedByteArrayInputStream(byte @NonNull [] buffer, int offset, int length) {
+            super(buffer, offset, length);
+        }
+        
+        /**
+         * Returns the underlying buffer.
+         * 
+         * @return The buffer.
+         */
+        public byte @NonNull [] getBuffer() {
+            return notNull(buf);
+        }
+        
+        /**
+         * Returns the offset of the next byte that is read in the underlying buffer.
+         * 
+         * @return The current position.
+         */
+        public int getPosition() {
+            return pos;
+        }
+        
+    }
+    
+    /**
+     * Holds the data necessary for a serialization run. This is encapsulated in a nested object, so that the
+     * {@link BinaryCodeModelCache} itself is stateless.
+     */
+    private static final class SerializeData {
+        
+        private @NonNull Map<String, Integer> stringIndices;
+        
+        private @NonNull List<String> strings;
+        
+        private @NonNull Map<Class<?>, Integer> classIndices;
+        
+        private @NonNull List<Class<?>> classes;
+        
+        private @NonNull FormulaDictionary formulas;
+        
+        private @NonNull Map<Formula, String> formulaStrings;
+        
+        private @NonNull Map<String, Formula> knownFormulas;
+        
+        private @NonNull Map<IdentityWrapper<CodeElement<?>>, Integer> idMapping;
+        
+        private int nextId;
+        
+        /**
+         * The position of each written element (in pre-order). Secondary elements have the position of the element
+         * that they are written with.
+         */
+        private @NonNull Map<IdentityWrapper<CodeElement<?>>, Integer> positions;
+        
+        /**
+         * The position of the parent of the element at each position; -1 for top-level elements.
+         */
+        private @NonNull List<Integer> parents;
+        
+        /**
+         * The offset of the self-contained flag of the nested block of the element at each position; -1 for elements
+         * without nested elements.
+         */
+        private @NonNull List<Integer> flagOffsets;
+        
+        /**
+         * The positions of the elements that reference the elements in {@link #referenceTargets}.
+         */
+        private @NonNull List<Integer> referenceSources;
+        
+        private @NonNull List<@NonNull CodeElement<?>> referenceTargets;
+        
+        private int currentPosition;
+        
+        private @NonNull PatchableByteArrayOutputStream elementBytes;
+        
+        private @NonNull CompactDataOutputStream elementOut;
+        
+        /**
+         * Creates a new {@link SerializeData} instance. This instance should be used for once round of serialization.
+         */
+        public SerializeData() {
+            this.stringIndices = new HashMap<>();
+            this.strings = new ArrayList<>();
+            this.classIndices = new HashMap<>();
+            this.classes = new ArrayList<>();
+            this.formulas = new FormulaDictionary();
+            this.formulaStrings = new IdentityHashMap<>();
+            this.knownFormulas = new HashMap<>();
+            this.idMapping = new HashMap<>();
+            this.nextId = 1;
+            this.positions = new HashMap<>();
+            this.parents = new ArrayList<>();
+            this.flagOffsets = new ArrayList<>();
+            this.referenceSources = new ArrayList<>();
+            this.referenceTargets = new ArrayList<>();
+            this.elementBytes = new PatchableByteArrayOutputStream();
+            this.elementOut = new CompactDataOutputStream(elementBytes);
+        }
+        
+        /**
+         * Serializes the given {@link SourceFile} to the given output stream.
+         * 
+         * @param sourceFile The source file to serialize.
+         * @param out The stream to write to.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        public void serialize(@NonNull SourceFile<?> sourceFile, @NonNull CompactDataOutputStream out)
+                throws IOException {
+            
+            int pathIndex = getStringIndex(notNull(sourceFile.getPath().getPath().replace(File.separatorChar, '/')));
+            
+            // the tables are only complete after all elements are serialized, so serialize them to memory first
+            for (CodeElement<?> element : sourceFile) {
+                writeElement(element, -1);
+            }
+            elementOut.flush();
+            markSelfContainedBlocks();
+            
+            // the formula table may add strings to the string table, so it needs to be serialized before that, too
+            ByteArrayOutputStream formulaBytes = new ByteArrayOutputStream();
+            CompactDataOutputStream formulaOut = new CompactDataOutputStream(formulaBytes);
+            writeFormulaTable(formulaOut);
+            formulaOut.flush();
+            
+            out.writeInt(MAGIC);
+            out.writeVarInt(VERSION);
+            
+            out.writeVarInt(strings.size());
+            for (String string : strings) {
+                out.writeString(notNull(string));
+            }
+            
+            out.writeVarInt(classes.size());
+            for (Class<?> clazz : classes) {
+                out.writeString(notNull(clazz.getName()));
+            }
+            
+            out.writeVarInt(formulas.getSize());
+            formulaBytes.writeTo(out);
+            
+            out.writeVarInt(pathIndex);
+            out.writeVarInt(sourceFile.getTopElementCount());
+            elementBytes.writeTo(out);
+        }
+        
+        /**
+         * Returns the index of the given string in the string table. Adds the string to the table, if necessary.
+         * 
+         * @param string The string to get the index for.
+         * 
+         * @return The index of the string.
+         */
+        private int getStringIndex(@NonNull String string) {
+            Integer result = stringIndices.get(string);
+            if (result == null) {
+                result = strings.size();
+                strings.add(string);
+                stringIndices.put(string, result);
+            }
+            return result;
+        }
+        
+        /**
+         * Returns the index of the given class in the class table. Adds the class to the table, if necessary.
+         * 
+         * @param clazz The class to get the index for.
+         * 
+         * @return The index of the class.
+         */
+        private int getClassIndex(@NonNull Class<?> clazz) {
+            Integer result = classIndices.get(clazz);
+            if (result == null) {
+                result = classes.size();
+                classes.add(clazz);
+                classIndices.put(clazz, result);
+            }
+            return result;
+        }
+        
+        /**
+         * Writes the entries of the formula table. Operands are always stored before the formulas that use them, so
+         * that the table only contains back-references.
+         * 
+         * @param out The stream to write to.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        private void writeFormulaTable(@NonNull CompactDataOutputStream out) throws IOException {
+            for (int i = 0; i < formulas.getSize(); i++) {
+                Formula formula = formulas.get(i);
+                
+                if (formula instanceof False) {
+                    out.write(FORMULA_FALSE);
+                    
+                } else if (formula instanceof True) {
+                    out.write(FORMULA_TRUE);
+                    
+                } else if (formula instanceof Variable) {
+                    out.write(FORMULA_VARIABLE);
+                    out.writeVarInt(getStringIndex(((Variable) formula).getName()));
+                    
+                } else if (formula instanceof Negation) {
+                    out.write(FORMULA_NEGATION);
+                    out.writeVarInt(formulas.getIndex(((Negation) formula).getFormula()));
+                    
+                } else if (formula instanceof Conjunction) {
+                    out.write(FORMULA_CONJUNCTION);
+                    out.writeVarInt(formulas.getIndex(((Conjunction) formula).getLeft()));
+                    out.writeVarInt(formulas.getIndex(((Conjunction) formula).getRight()));
+                    
+                } else if (formula instanceof Disjunction) {
+                    out.write(FORMULA_DISJUNCTION);
+                    out.writeVarInt(formulas.getIndex(((Disjunction) formula).getLeft()));
+                    out.writeVarInt(formulas.getIndex(((Disjunction) formula).getRight()));
+                    
+                } else {
+                    out.write(FORMULA_OTHER);
+                    out.writeVarInt(getStringIndex(formula.toString()));
+                }
+            }
+        }
+        
+        /**
+         * Registers the given formula, so that strings equal to its string representation are written as references
+         * to the formula table.
+         * 
+         * @param formula The formula to register. May be <code>null</code>.
+         */
+        private void registerFormula(@Nullable Formula formula) {
+            if (formula != null && !formulaStrings.containsKey(formula)) {
+                String string = formula.toString();
+                formulaStrings.put(formula, string);
+                knownFormulas.putIfAbsent(string, formula);
+            }
+        }
+        
+        /**
+         * Returns the ID for the given {@link CodeElement} instance. Each instance gets an ID based on object identity.
+         * 
+         * @param element The instance to get the ID for.
+         * 
+         * @return The ID for the given instance.
+         */
+        public int getId(@NonNull CodeElement<?> element) {
+            IdentityWrapper<CodeElement<?>> wrapper = new IdentityWrapper<>(element);
+            Integer result = idMapping.get(wrapper);
+            if (result == null) {
+                result = nextId++;
+                idMapping.put(wrapper, result);
+            }
+            return result;
+        }
+        
+        /**
+         * Returns the ID for the given {@link CodeElement} instance and records that the element that is currently
+         * written references it. This is passed as the ID function to
+         * {@link CodeElement#serializeToJson(JsonObject, Function, Function)}.
+         * 
+         * @param element The referenced element.
+         * 
+         * @return The ID for the given instance.
+         */
+        private int getReferenceId(@NonNull CodeElement<?> element) {
+            referenceSources.add(currentPosition);
+            referenceTargets.add(element);
+            return getId(element);
+        }
+        
+        /**
+         * Writes the given {@link CodeElement} (and recursively all of its nested elements) to the in-memory element
+         * stream.
+         * 
+         * @param element The element to write.
+         * @param parent The position of the parent element; -1 for top-level elements.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        private void writeElement(@NonNull CodeElement<?> element, int parent) throws IOException {
+            CompactDataOutputStream out = elementOut;
+            
+            int position = parents.size();
+            parents.add(parent);
+            flagOffsets.add(-1);
+            positions.put(new IdentityWrapper<>(element), position);
+            
+            registerFormula(element.getCondition());
+            registerFormula(element.getPresenceCondition());
+            
+            out.writeVarInt(getClassIndex(element.getClass()));
+            out.writeVarInt(getId(element));
+            
+            currentPosition = position;
+            JsonObject fields = new JsonObject();
+            element.serializeToJson(fields, this::serializeSecondary, this::getReferenceId);
+            writeObject(fields, out);
+            
+            int numNested = element.getNestedElementCount();
+            out.writeVarInt(numNested);
+            if (numNested > 0) {
+                // the flag and the length are patched in once they are known
+                flagOffsets.set(position, elementBytes.size());
+                out.write(0);
+                out.writeInt(0);
+                int start = elementBytes.size();
+                
+                for (CodeElement<?> nested : element) {
+                    writeElement(nested, position);
+                }
+                
+                elementBytes.patchInt(start - 4, elementBytes.size() - start);
+            }
+        }
+        
+        /**
+         * Marks all nested blocks as self-contained, for which no reference crosses the border of the block. The
+         * elements inside a nested block are all elements that the owner of the block is a strict ancestor of. Thus,
+         * the blocks that a reference crosses are the blocks of all elements that are a strict ancestor of exactly one
+         * of the two referencing elements.
+         * 
+         */
+        private void markSelfContainedBlocks() {
+            boolean[] crossed = new boolean[parents.size()];
+            
+            for (int i = 0; i < referenceSources.size(); i++) {
+                int source = referenceSources.get(i);
+                Integer target = positions.get(new IdentityWrapper<>(referenceTargets.get(i)));
+                
+                if (target == null) {
+                    // the target is not part of this file; don't load any block containing the source lazily
+                    for (int p = parents.get(source); p != -1; p = parents.get(p)) {
+                        crossed[p] = true;
+                    }
+                    
+                } else if (target != source) {
+                    Set<Integer> sourceAncestors = new HashSet<>();
+                    for (int p = parents.get(source); p != -1; p = parents.get(p)) {
+                        sourceAncestors.add(p);
+                    }
+                    
+                    int commonAncestor = -1;
+                    for (int p = parents.get(target); p != -1; p = parents.get(p)) {
+                        if (sourceAncestors.contains(p)) {
+                            commonAncestor = p;
+                            break;
+                        }
+                        crossed[p] = true;
+                    }
+                    for (int p = parents.get(source); p != commonAncestor; p = parents.get(p)) {
+                        crossed[p] = true;
+                    }
+                }
+            }
+            
+            for (int i = 0; i < crossed.length; i++) {
+                int flagOffset = flagOffsets.get(i);
+                if (flagOffset != -1 && !crossed[i]) {
+                    elementBytes.patchByte(flagOffset, 1);
+                }
+            }
+        }
+        
+        /**
+         * Serializes a {@link CodeElement} that is not part of the primary nesting structure (e.g. a condition of a
+         * statement) to JSON, in the same way as the {@link JsonCodeModelCache} does.
+         * 
+         * @param element The element to serialize.
+         * 
+         * @return The element serialized as JSON.
+         */
+        private @NonNull JsonElement serializeSecondary(@NonNull CodeElement<?> element) {
+            registerFormula(element.getCondition());
+            registerFormula(element.getPresenceCondition());
+            positions.put(new IdentityWrapper<>(element), currentPosition);
+            
+            JsonObject result = new JsonObject();
+            
+            result.putElement("class", new JsonString(notNull(element.getClass().getName())));
+            result.putElement("id", new JsonNumber(getId(element)));
+            
+            element.serializeToJson(result, this::serializeSecondary, this::getReferenceId);
+            
+            if (element.getNestedElementCount() > 0) {
+                JsonList nestedJson = new JsonList();
+                for (CodeElement<?> nested : element) {
+                    nestedJson.addElement(serializeSecondary(nested));
+                }
+                
+                result.putElement("nested", nestedJson);
+            }
+            
+            return result;
+        }
+        
+        /**
+         * Writes the given JSON object to the given stream.
+         * 
+         * @param object The object to write.
+         * @param out The stream to write to.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        private void writeObject(@NonNull JsonObject object, @NonNull CompactDataOutputStream out)
+                throws IOException {
+            
+            out.writeVarInt(object.getSize());
+            for (Map.Entry<String, JsonElement> entry : object) {
+                out.writeVarInt(getStringIndex(notNull(entry.getKey())));
+                writeValue(notNull(entry.getValue()), out);
+            }
+        }
+        
+        /**
+         * Writes the given JSON value to the given stream.
+         * 
+         * @param value The value to write.
+         * @param out The stream to write to.
+         * 
+         * @throws IOException If writing to the stream fails.
+         */
+        private void writeValue(@NonNull JsonElement value, @NonNull CompactDataOutputStream out) throws IOException {
+            if (value instanceof JsonString) {
+                String string = ((JsonString) value).getValue();
+                Formula formula = knownFormulas.get(string);
+                if (formula != null) {
+                    out.write(TAG_FORMULA);
+                    out.writeVarInt(formulas.add(formula));
+                } else {
+                    out.write(TAG_STRING);
+                    out.writeVarInt(getStringIndex(string));
+                }
+                
+            } else if (value instanceof JsonNumber) {
+                Number number = ((JsonNumber) value).getValue();
+                if (number instanceof Integer || number instanceof Short || number instanceof Byte) {
+                    out.write(TAG_INT);
+                    out.writeSignedVarLong(number.intValue());
+                } else if (number instanceof Long) {
+                    out.write(TAG_LONG);
+                    out.writeSignedVarLong(number.longValue());
+                } else {
+                    out.write(TAG_DOUBLE);
+                    out.writeDouble(number.doubleValue());
+                }
+                
+            } else if (value instanceof JsonBoolean) {
+                out.write(((JsonBoolean) value).getValue() ? TAG_TRUE : TAG_FALSE);
+                
+            } else if (value instanceof JsonList) {
+                JsonList list = (JsonList) value;
+                out.write(TAG_LIST);
+                out.writeVarInt(list.getSize());
+                for (JsonElement nested : list) {
+                    writeValue(nested, out);
+                }
+                
+            } else if (value instanceof JsonObject) {
+                out.write(TAG_OBJECT);
+                writeObject((JsonObject) value, out);
+                
+            } else {
+                out.write(TAG_NULL);
+            }
+        }
+        
+    }
+    
+    /**
+     * Reads the {@link SourceFile} for the given path from the cache.
+     * 
+     * @param path
+     *            The path in the source code tree that should be read from the
+     *            cache. Must not be <code>null</code>.
+     * @return The {@link SourceFile} read from cache, or <code>null</code> if
+     *         it was not in the cache.
+     * 
+     * @throws IOException
+     *             If reading the cache fails.
+     * @throws FormatException
+     *             If the cache content is invalid.
+     */
+    @Override
+    public @Nullable SourceFile<?> read(@NonNull File path) throws IOException, FormatException {
+        if (usePack) {
+            return readFromPack(path);
+        }
+        
+        SourceFile<CodeElement<?>> result = null;
+        InputStream in = CompressionCodec.openFile(getCacheFile(path));
+        if (in != null) {
+            try {
+                result = deserialize(in);
+            } catch (EOFException e) {
+                throw new FormatException("Unexpected end of cache file for " + path, e);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Reads a {@link SourceFile} from the given stream. In lazy mode, the complete content of the stream is read into
+     * memory first, so that self-contained nested blocks can be read later.
+     * 
+     * @param in The stream to read from. This is closed by this method.
+     * 
+     * @return The read {@link SourceFile}.
+     * 
+     * @throws IOException If reading the stream fails.
+     * @throws FormatException If the stream does not contain a valid cache.
+     */
+    private @NonNull SourceFile<CodeElement<?>> deserialize(@NonNull InputStream in)
+            throws IOException, FormatException {
+        
+        try (InputStream stream = in) {
+            DeserializeData data;
+            if (lazy) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                Util.copyStream(stream, content);
+                byte[] bytes = notNull(content.toByteArray());
+                data = new DeserializeData(new PositionedByteArrayInputStream(bytes, 0, bytes.length));
+            } else {
+                data = new DeserializeData(new CompactDataInputStream(stream));
+            }
+            return data.deserialize();
+        }
+    }
+    
+    /**
+     * Reads the {@link SourceFile} for the given path from the {@link PackFile}.
+     * 
+     * @param path The path in the source code tree that should be read from the cache.
+     * 
+     * @return The {@link SourceFile} read from the pack, or <code>null</code> if it is not in the pack.
+     * 
+     * @throws IOException If reading the pack fails.
+     * @throws FormatException If the cache content is invalid.
+     */
+    private @Nullable SourceFile<?> readFromPack(@NonNull File path) throws IOException, FormatException {
+        ByteBuffer buffer = getPack().read(getPackKey(path));
+        if (buffer == null) {
+            return null;
+        }
+        
+        try {
+            return deserialize(CompressionCodec.decompressAny(new ByteBufferInputStream(buffer)));
+        } catch (EOFException e) {
+            throw new FormatException("Unexpected end of cache entry for " + path, e);
+        }
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        PackFile pack;
+        synchronized (this) {
+            pack = this.pack;
+        }
+        if (pack != null) {
+            pack.flush();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        PackFile pack;
+        synchronized (this) {
+            pack = this.pack;
+            this.pack = null;
+        }
+        if (pack != null) {
+            pack.close();
+        }
+    }
+    
+    /**
+     * Holds the data necessary for a de-serialization run. This is encapsulated in a nested object, so that the
+     * {@link BinaryCodeModelCache} itself is stateless.
+     */
+    private final class DeserializeData {
+        
+        private @NonNull CompactDataInputStream in;
+        
+        /**
+         * The stream that {@link #in} reads from, if the data is held in memory and self-contained nested blocks
+         * should be read lazily. Otherwise <code>null</code>.
+         */
+        private @Nullable PositionedByteArrayInputStream lazyIn;
+        
+        private int version;
+        
+        private @NonNull String @NonNull [] strings;
+        
+        private @NonNull CodeElementFactory @NonNull [] classes;
+        
+        private @NonNull Formula @NonNull [] formulas;
+        
+        private @Nullable String @NonNull [] formulaStrings;
+        
+        private @NonNull Map<String, Formula> knownFormulas;
+        
+        private @NonNull Map<Integer, IdentityWrapper<CodeElement<?>>> idMapping;
+        
+        /**
+         * Creates a new object for de-serialization.
+         * 
+         * @param in The stream to read from.
+         */
+        @SuppressWarnings("null") // arrays are filled in deserialize()
+        public DeserializeData(@NonNull CompactDataInputStream in) {
+            this.in = in;
+            this.strings = new String[0];
+            this.classes = new CodeElementFactory[0];
+            this.formulas = new Formula[0];
+            this.formulaStrings = new String[0];
+            this.knownFormulas = new HashMap<>();
+            this.idMapping = new HashMap<>();
+        }
+        
+        /**
+         * Creates a new object for lazy de-serialization of the complete cache held in memory.
+         * 
+         * @param in The stream to read from.
+         */
+        public DeserializeData(@NonNull PositionedByteArrayInputStream in) {
+            this(new CompactDataInputStream(in));
+            this.lazyIn = in;
+        }
+        
+        /**
+         * Creates a new object for de-serialization of a self-contained nested block. The tables are shared with the
+         * given object.
+         * 
+         * @param tables The object that read the tables of the cache.
+         * @param in The stream that reads the nested block.
+         */
+        private DeserializeData(@NonNull DeserializeData tables, @NonNull PositionedByteArrayInputStream in) {
+            this.in = new CompactDataInputStream(in);
+            this.lazyIn = in;
+            this.version = tables.version;
+            this.strings = tables.strings;
+            this.classes = tables.classes;
+            this.formulas = tables.formulas;
+            this.formulaStrings = tables.formulaStrings;
+            this.knownFormulas = tables.knownFormulas;
+            this.idMapping = new HashMap<>();
+        }
+        
+        /**
+         * Reads the complete {@link SourceFile} from the stream.
+         * 
+         * @return The read {@link SourceFile}.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the stream does not contain a valid cache.
+         */
+        public @NonNull SourceFile<CodeElement<?>> deserialize() throws IOException, FormatException {
+            if (in.readInt() != MAGIC) {
+                throw new FormatException("Not a binary code model cache file");
+            }
+            version = in.readVarInt();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new FormatException("Unsupported version: got " + version + ", but expected " + VERSION);
+            }
+            
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readString();
+            }
+            
+            classes = new CodeElementFactory[readCount()];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = CodeElementRegistry.getFactory(in.readString());
+            }
+            
+            formulas = new Formula[readCount()];
+            formulaStrings = new String[formulas.length];
+            for (int i = 0; i < formulas.length; i++) {
+                formulas[i] = readFormula(i);
+            }
+            
+            SourceFile<CodeElement<?>> result = new SourceFile<>(new File(getString(in.readVarInt())));
+            
+            AbstractCodeElement.setKnownFormulas(knownFormulas);
+            try {
+                int numElements = readCount();
+                for (int i = 0; i < numElements; i++) {
+                    result.addElement(readElement());
+                }
+            } finally {
+                AbstractCodeElement.setKnownFormulas(null);
+            }
+            
+            resolveIds();
+            
+            return result;
+        }
+        
+        /**
+         * Reads the given number of elements from a self-contained nested block. The elements reference only each
+         * other, so their IDs are resolved directly afterwards.
+         * 
+         * @param count The number of elements in the block.
+         * 
+         * @return The read elements.
+         * 
+         * @throws FormatException If the block does not contain valid elements.
+         */
+        public @NonNull List<@NonNull CodeElement<?>> deserializeNested(int count) throws FormatException {
+            List<@NonNull CodeElement<?>> result = new ArrayList<>(count);
+            
+            AbstractCodeElement.setKnownFormulas(knownFormulas);
+            try {
+                for (int i = 0; i < count; i++) {
+                    result.add(readElement());
+                }
+                if (in.available() != 0) {
+                    throw new FormatException("Nested block contains more data than its elements");
+                }
+            } catch (IOException e) {
+                throw new FormatException("Unexpected end of nested block", e);
+            } finally {
+                AbstractCodeElement.setKnownFormulas(null);
+            }
+            
+            resolveIds();
+            
+            return result;
+        }
+        
+        /**
+         * Reads a count (e.g. the size of a table) from the stream.
+         * 
+         * @return The count.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the count is negative.
+         */
+        private int readCount() throws IOException, FormatException {
+            int count = in.readVarInt();
+            if (count < 0) {
+                throw new FormatException("Invalid count: " + count);
+            }
+            return count;
+        }
+        
+        /**
+         * Returns the string with the given index in the string table.
+         * 
+         * @param index The index of the string.
+         * 
+         * @return The string.
+         * 
+         * @throws FormatException If the index is out of bounds.
+         */
+        private @NonNull String getString(int index) throws FormatException {
+            if (index < 0 || index >= strings.length) {
+                throw new FormatException("Invalid string table index: " + index);
+            }
+            return strings[index];
+        }
+        
+        /**
+         * Returns the formula with the given index in the formula table.
+         * 
+         * @param index The index of the formula.
+         * @param limit The index must be smaller than this.
+         * 
+         * @return The formula.
+         * 
+         * @throws FormatException If the index is out of bounds.
+         */
+        private @NonNull Formula getFormula(int index, int limit) throws FormatException {
+            if (index < 0 || index >= limit) {
+                throw new FormatException("Invalid formula table index: " + index);
+            }
+            return formulas[index];
+        }
+        
+        /**
+         * Reads the formula table entry with the given index.
+         * 
+         * @param index The index of the entry that is read. Operands must have a smaller index.
+         * 
+         * @return The read formula.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the entry is invalid.
+         */
+        private @NonNull Formula readFormula(int index) throws IOException, FormatException {
+            Formula result;
+            int type = in.readUnsignedByte();
+            switch (type) {
+            case FORMULA_FALSE:
+                result = False.INSTANCE;
+                break;
+            case FORMULA_TRUE:
+                result = True.INSTANCE;
+                break;
+            case FORMULA_VARIABLE:
+                result = new Variable(getString(in.readVarInt()));
+                break;
+            case FORMULA_NEGATION:
+                result = new Negation(getFormula(in.readVarInt(), index));
+                break;
+            case FORMULA_CONJUNCTION:
+                result = new Conjunction(getFormula(in.readVarInt(), index), getFormula(in.readVarInt(), index));
+                break;
+            case FORMULA_DISJUNCTION:
+                result = new Disjunction(getFormula(in.readVarInt(), index), getFormula(in.readVarInt(), index));
+                break;
+            case FORMULA_OTHER:
+                try {
+                    result = new Parser<@NonNull Formula>(new CStyleBooleanGrammar(new VariableCache()))
+                            .parse(getString(in.readVarInt()));
+                } catch (ExpressionFormatException e) {
+                    throw new FormatException("Can't parse formula", e);
+                }
+                break;
+            default:
+                throw new FormatException("Invalid formula type: " + type);
+            }
+            
+            FormulaFactory factory = getFormulaFactory();
+            if (factory != null) {
+                result = factory.intern(result);
+            }
+            return result;
+        }
+        
+        /**
+         * Reads a {@link CodeElement} (and recursively all of its nested elements) from the stream.
+         * 
+         * @return The read {@link CodeElement}.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the stream does not contain the expected data.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private @NonNull CodeElement<?> readElement() throws IOException, FormatException {
+            int classIndex = in.readVarInt();
+            if (classIndex < 0 || classIndex >= classes.length) {
+                throw new FormatException("Invalid class table index: " + classIndex);
+            }
+            int id = in.readVarInt();
+            JsonObject fields = readObject();
+            
+            CodeElement result = classes[classIndex].create(fields, this::deserializeSecondary);
+            idMapping.put(id, new IdentityWrapper<>(result));
+            
+            int numNested = readCount();
+            if (version >= 2 && numNested > 0) {
+                boolean selfContained = in.readUnsignedByte() != 0;
+                int length = in.readInt();
+                
+                PositionedByteArrayInputStream lazyIn = this.lazyIn;
+                if (selfContained && lazyIn != null && result instanceof AbstractCodeElementWithNesting) {
+                    int offset = lazyIn.getPosition();
+                    if (length < 0 || in.skipBytes(length) != length) {
+                        throw new FormatException("Invalid length of nested block: " + length);
+                    }
+                    
+                    DeserializeData blockData = new DeserializeData(this,
+                            new PositionedByteArrayInputStream(lazyIn.getBuffer(), offset, length));
+                    ((AbstractCodeElementWithNesting<?>) result).setNestedElementLoader(
+                            new LazyNestedElements(blockData, numNested));
+                    return result;
+                }
+            }
+            
+            for (int i = 0; i < numNested; i++) {
+                result.addNestedElement(readElement());
+            }
+            
+            return result;
+        }
+        
+        /**
+         * De-serializes a {@link CodeElement} that is not part of the primary nesting structure. This is the inverse
+         * of {@link SerializeData#serializeSecondary(CodeElement)}.
+         * 
+         * @param element The JSON to de-serialize.
+         * 
+         * @return The resulting {@link CodeElement}.
+         * 
+         * @throws FormatException If the JSON does not contain the expected data.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        private @NonNull CodeElement<?> deserializeSecondary(@NonNull JsonElement element) throws FormatException {
+            if (!(element instanceof JsonObject)) {
+                throw new FormatException("Expected JsonObject, but got " + element.getClass().getSimpleName());
+            }
+            
+            JsonObject json = (JsonObject) element;
+            CodeElement result = CodeElementRegistry.create(json.getString("class"), json, this::deserializeSecondary);
+            idMapping.put(json.getInt("id"), new IdentityWrapper<>(result));
+            
+            if (json.getElement("nested") != null) {
+                for (JsonElement nested : json.getList("nested")) {
+                    result.addNestedElement(deserializeSecondary(nested));
+                }
+            }
+            
+            return result;
+        }
+        
+        /**
+         * Reads a JSON object from the stream.
+         * 
+         * @return The read object.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the stream does not contain the expected data.
+         */
+        private @NonNull JsonObject readObject() throws IOException, FormatException {
+            JsonObject result = new JsonObject();
+            int size = readCount();
+            for (int i = 0; i < size; i++) {
+                String key = getString(in.readVarInt());
+                result.putElement(key, readValue());
+            }
+            return result;
+        }
+        
+        /**
+         * Reads a JSON value from the stream.
+         * 
+         * @return The read value.
+         * 
+         * @throws IOException If reading the stream fails.
+         * @throws FormatException If the stream does not contain the expected data.
+         */
+        private @NonNull JsonElement readValue() throws IOException, FormatException {
+            JsonElement result;
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case TAG_NULL:
+                result = JsonNull.INSTANCE;
+                break;
+            case TAG_TRUE:
+                result = JsonBoolean.TRUE;
+                break;
+            case TAG_FALSE:
+                result = JsonBoolean.FALSE;
+                break;
+            case TAG_INT:
+                result = new JsonNumber((int) in.readSignedVarLong());
+                break;
+            case TAG_LONG:
+                result = new JsonNumber(in.readSignedVarLong());
+                break;
+            case TAG_DOUBLE:
+                result = new JsonNumber(in.readDouble());
+                break;
+            case TAG_STRING:
+                result = new JsonString(getString(in.readVarInt()));
+                break;
+            case TAG_FORMULA:
+                result = new JsonString(getFormulaString(in.readVarInt()));
+                break;
+            case TAG_LIST:
+                JsonList list = new JsonList();
+                int size = readCount();
+                for (int i = 0; i < size; i++) {
+                    list.addElement(readValue());
+                }
+                result = list;
+                break;
+            case TAG_OBJECT:
+                result = readObject();
+                break;
+            default:
+                throw new FormatException("Invalid value tag: " + tag);
+            }
+            return result;
+        }
+        
+        /**
+         * Returns the string representation of the formula with the given index. The formula is registered as known,
+         * so that {@link AbstractCodeElement#parseJsonFormula(String)} does not need to parse the string again.
+         * 
+         * @param index The index of the formula in the formula table.
+         * 
+         * @return The string representation of the formula.
+         * 
+         * @throws FormatException If the index is out of bounds.
+         */
+        private @NonNull String getFormulaString(int index) throws FormatException {
+            Formula formula = getFormula(index, formulas.length);
+            String result = formulaStrings[index];
+            if (result == null) {
+                result = formula.toString();
+                formulaStrings[index] = result;
+                knownFormulas.put(result, formula);
+            }
+            return result;
+        }
+        
+        /**
+         * Iterates over all de-serialized elements and calls their {@link CodeElement#resolveIds(Map)} methods.
+         * This is the second step of de-serialization.
+         * @throws FormatException If any of the {@link CodeElement#resolveIds(Map)} methods throws a
+         *      {@link FormatException}.
+         */
+        private void resolveIds() throws FormatException {
+            Map<Integer, CodeElement<?>> mapping = new HashMap<>((int) (idMapping.size() * 1.25));
+            for (Map.Entry<Integer, IdentityWrapper<CodeElement<?>>> element : idMapping.entrySet()) {
+                mapping.put(element.getKey(), element.getValue().getData());
+            }
+            mapping = Collections.unmodifiableMap(mapping);
+            
+            for (IdentityWrapper<CodeElement<?>> element : idMapping.values()) {
+                element.getData().resolveIds(mapping);
+            }
+        }
+        
+    }
+
+    /**
+     * Loads a self-contained block of nested elements on first access.
+     */
+    private static final class LazyNestedElements implements AbstractCodeElementWithNesting.NestedElementLoader {
+        
+        private @NonNull DeserializeData data;
+        
+        private int count;
+        
+        /**
+         * Creates a loader for a nested block.
+         * 
+         * @param data The de-serialization data that reads the nested block.
+         * @param count The number of elements in the block.
+         */
+        public LazyNestedElements(@NonNull DeserializeData data, int count) {
+            this.data = data;
+            this.count = count;
+        }
+        
+        @Override
+        public int getCount() {
+            return count;
+        }
+        
+        @Override
+        public @NonNull List<@NonNull CodeElement<?>> load() throws FormatException {
+            // the formula strings are shared between all blocks of the same file
+            synchronized (data.knownFormulas) {
+                return data.deserializeNested(count);
+            }
+        }
+        
+    }
+    
+}
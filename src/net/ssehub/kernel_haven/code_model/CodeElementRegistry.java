@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.ssehub.kernel_haven.code_model.JsonCodeModelCache.CheckedFunction;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A registry of factories that de-serialize {@link CodeElement}s from JSON. Each class name is resolved only once;
+ * after that, de-serializing an element only costs a map lookup and a direct call of the factory.
+ * <p>
+ * Plugins can register an explicit {@link CodeElementFactory} for their {@link CodeElement} classes (e.g. a
+ * constructor reference) via {@link #register(Class, CodeElementFactory)}. For classes without an explicitly
+ * registered factory, the de-serialization constructor with (JsonObject, CheckedFunction) parameters is looked up
+ * once and bound to a {@link MethodHandle}.
+ * </p>
+ * <p>
+ * Classes are looked up in the class loaders registered via {@link #addClassLoader(ClassLoader)}, then in the context
+ * class loader of the current thread, and finally in the system class loader (which KernelHaven adds the plugins
+ * to).
+ * </p>
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ * 
+ * @author Adam
+ */
+public class CodeElementRegistry {
+
+    /**
+     * A factory that creates a {@link CodeElement} from its JSON serialization. This is the inverse operation to
+     * {@link CodeElement#serializeToJson(JsonObject, java.util.function.Function, java.util.function.Function)}.
+     */
+    @FunctionalInterface
+    public interface CodeElementFactory {
+        
+        /**
+         * Creates a {@link CodeElement} from the given JSON.
+         * 
+         * @param json The JSON to de-serialize.
+         * @param deserializeFunction The function to use for de-serializing secondary nested elements.
+         * 
+         * @return The de-serialized element.
+         * 
+         * @throws FormatException If the JSON does not have the expected format.
+         */
+        public @NonNull CodeElement<?> create(@NonNull JsonObject json,
+                @NonNull CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException>
+                deserializeFunction) throws FormatException;
+        
+    }
+    
+    private static final @NonNull MethodType FACTORY_TYPE
+            = notNull(MethodType.methodType(CodeElement.class, JsonObject.class, CheckedFunction.class));
+    
+    private static final @NonNull Map<String, CodeElementFactory> FACTORIES = new ConcurrentHashMap<>();
+    
+    private static final @NonNull List<ClassLoader> CLASS_LOADERS = new CopyOnWriteArrayList<>();
+    
+    static {
+        register(CodeBlock.class, CodeBlock::new);
+    }
+    
+    /**
+     * Don't allow any instances.
+     */
+    private CodeElementRegistry() {
+    }
+    
+    /**
+     * Registers an explicit factory for the given {@link CodeElement} class. Replaces any previously registered (or
+     * automatically created) factory for this class.
+     * 
+     * @param type The class that the factory creates.
+     * @param factory The factory.
+     */
+    public static void register(@NonNull Class<?> type, @NonNull CodeElementFactory factory) {
+        FACTORIES.put(type.getName(), factory);
+    }
+    
+    /**
+     * Adds a class loader that is used to look up {@link CodeElement} classes by name.
+     * 
+     * @param classLoader The class loader to add.
+     */
+    public static void addClassLoader(@NonNull ClassLoader classLoader) {
+        if (!CLASS_LOADERS.contains(classLoader)) {
+            CLASS_LOADERS.add(classLoader);
+        }
+    }
+    
+    /**
+     * Returns the factory for the given {@link CodeElement} class name. The result is cached, so that the class is
+     * only resolved on the first call.
+     * 
+     * @param className The fully qualified name of the {@link CodeElement} class.
+     * 
+     * @return The factory for this class.
+     * 
+     * @throws FormatException If the class can not be found, is not a {@link CodeElement} or does not have a
+     *      de-serialization constructor.
+     */
+    public static @NonNull CodeElementFactory getFactory(@NonNull String className) throws FormatException {
+        CodeElementFactory factory = FACTORIES.get(className);
+        if (factory == null) {
+            factory = createFactory(className);
+            CodeElementFactory existing = FACTORIES.putIfAbsent(className, factory);
+            if (existing != null) {
+                factory = existing;
+            }
+        }
+        return factory;
+    }
+    
+    /**
+     * Creates a new {@link CodeElement} of the given class from the given JSON.
+     * 
+     * @param className The fully qualified name of the {@link CodeElement} class.
+     * @param json The JSON to de-serialize.
+     * @param deserializeFunction The function to use for de-serializing secondary nested elements.
+     * 
+     * @return The de-serialized element.
+     * 
+     * @throws FormatException If the class can't be resolved or the JSON does not have the expected format.
+     */
+    public static @NonNull CodeElement<?> create(@NonNull String className, @NonNull JsonObject json,
+            @NonNull CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException>
+            deserializeFunction) throws FormatException {
+        
+        return getFactory(className).create(json, deserializeFunction);
+    }
+    
+    /**
+     * Loads the given class from the known class loaders.
+     * 
+     * @param className The name of the class to load.
+     * 
+     * @return The loaded class.
+     * 
+     * @throws ClassNotFoundException If none of the class loaders knows the class.
+     */
+    private static @NonNull Class<?> loadClass(@NonNull String className) throws ClassNotFoundException {
+        for (ClassLoader classLoader : CLASS_LOADERS) {
+            Class<?> result = tryLoadClass(classLoader, className);
+            if (result != null) {
+                return result;
+            }
+        }
+        
+        Class<?> result = tryLoadClass(Thread.currentThread().getContextClassLoader(), className);
+        if (result == null) {
+            result = ClassLoader.getSystemClassLoader().loadClass(className);
+        }
+        return notNull(result);
+    }
+    
+    /**
+     * Tries to load the given class from the given class loader.
+     * 
+     * @param classLoader The class loader to use. May be <code>null</code>.
+     * @param className The name of the class to load.
+     * 
+     * @return The loaded class, or <code>null</code> if the class loader doesn't know the class.
+     */
+    private static @Nullable Class<?> tryLoadClass(@Nullable ClassLoader classLoader, @NonNull String className) {
+        Class<?> result = null;
+        if (classLoader != null) {
+            try {
+                result = classLoader.loadClass(className);
+            } catch (ClassNotFoundException e) {
+                // try next
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Creates a factory for the given class, based on its de-serialization constructor.
+     * 
+     * @param className The fully qualified name of the {@link CodeElement} class.
+     * 
+     * @return The factory.
+     * 
+     * @throws FormatException If the class can not be found, is not a {@link CodeElement} or does not have a
+     *      de-serialization constructor.
+     */
+    private static @NonNull CodeElementFactory createFactory(@NonNull String className) throws FormatException {
+        MethodHandle handle;
+        try {
+            Class<?> clazz = loadClass(className);
+            if (!CodeElement.class.isAssignableFrom(clazz)) {
+                throw new FormatException(className + " is not a " + CodeElement.class.getSimpleName());
+            }
+            
+            Constructor<?> ctor = clazz.getDeclaredConstructor(JsonObject.class, CheckedFunction.class);
+            ctor.setAccessible(true);
+            handle = MethodHandles.lookup().unreflectConstructor(ctor).asType(FACTORY_TYPE);
+            
+        } catch (NoSuchMethodException e) {
+            throw new FormatException(className + " does not implement a constructor with (JsonObject, Function) "
+                    + "parameters for de-serialization", e);
+            
+        } catch (ReflectiveOperationException | SecurityException e) {
+            throw new FormatException("Can't instantiate " + className, e);
+        }
+        
+        return (json, deserializeFunction) -> {
+            try {
+                return notNull((CodeElement<?>) handle.invokeExact(json, deserializeFunction));
+                
+            } catch (FormatException | Error e) {
+                throw e;
+                
+            // CHECKSTYLE:OFF
+            } catch (Throwable e) {
+            // CHECKSTYLE:ON
+                throw new FormatException("Can't instantiate " + className, e);
+            }
+        };
+    }
+    
+}
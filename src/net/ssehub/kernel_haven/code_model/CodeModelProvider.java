@@ -25,6 +25,7 @@ import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.provider.AbstractProvider;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
@@ -35,11 +36,33 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  */
 public class CodeModelProvider extends AbstractProvider<SourceFile<?>> {
 
+    /**
+     * The formats that the code model cache can be written in.
+     */
+    public static enum CacheFormat {
+        
+        /**
+         * Human-readable JSON, see {@link JsonCodeModelCache}.
+         */
+        JSON,
+        
+        /**
+         * Compact binary format, see {@link BinaryCodeModelCache}.
+         */
+        BINARY,
+        
+    }
+
     @Override
     protected long getTimeout() {
         return config.getValue(DefaultSettings.CODE_PROVIDER_TIMEOUT);
     }
     
+    @Override
+    protected long getTargetTimeout() {
+        return config.getValue(DefaultSettings.CODE_EXTRACTOR_TARGET_TIMEOUT);
+    }
+    
     @Override
     protected @NonNull List<@NonNull File> getTargets() throws SetUpException {
         List<@NonNull File> result = new LinkedList<>();
@@ -91,10 +114,29 @@ public class CodeModelProvider extends AbstractProvider<SourceFile<?>> {
 
     }
 
+    @Override
+    protected void tagResult(@NonNull SourceFile<?> result, @NonNull String treeId) {
+        result.setTreeId(treeId);
+    }
+    
     @Override
     protected @NonNull AbstractCache<SourceFile<?>> createCache() {
-        return new JsonCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
-                config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_COMPRESS));
+        AbstractCache<SourceFile<?>> result;
+        CompressionCodec codec = createCompressionCodec(config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_COMPRESS));
+        switch (config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_FORMAT)) {
+        case BINARY:
+            result = new BinaryCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                    codec, config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_PACK),
+                    config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_LAZY));
+            break;
+            
+        case JSON:
+        default:
+            result = new JsonCodeModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                    codec, config.getValue(DefaultSettings.CODE_PROVIDER_CACHE_PACK));
+            break;
+        }
+        return result;
     }
 
     @Override
@@ -17,45 +17,80 @@ package net.ssehub.kernel_haven.code_model;
 
 import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.ZipArchive;
+import net.ssehub.kernel_haven.util.io.ByteBufferInputStream;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
+import net.ssehub.kernel_haven.util.io.PackFile;
 import net.ssehub.kernel_haven.util.io.json.JsonElement;
 import net.ssehub.kernel_haven.util.io.json.JsonList;
 import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
-import net.ssehub.kernel_haven.util.io.json.JsonParser;
-import net.ssehub.kernel_haven.util.io.json.JsonPrettyPrinter;
+import net.ssehub.kernel_haven.util.io.json.JsonReader;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonWriter;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaDictionary;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
+import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
+import net.ssehub.kernel_haven.util.logic.parser.Parser;
+import net.ssehub.kernel_haven.util.logic.parser.VariableCache;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * A cache for saving (and reading) a code model to a files, using JSON as
- * serialization.
+ * serialization. Each distinct formula (condition or presence condition) is stored only once per file in a formula
+ * table, in which formulas reference their operands by index. Elements reference the formulas in this table.
  * 
  * @author Adam
  */
 public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
 
-    private static final int VERSION = 2;
+    private static final int VERSION = 3;
+    
+    /**
+     * The oldest version that can still be read. Version 2 does not contain a formula table.
+     */
+    private static final int MIN_VERSION = 2;
+    
+    /**
+     * The key of the formula references in the element JSON. Starts with a character that is not allowed in Java
+     * identifiers, so that it does not clash with the fields of the elements.
+     */
+    private static final @NonNull String FORMULA_REFERENCES = "#formulas";
+    
+    private static final @NonNull Parser<@NonNull Formula> FORMULA_PARSER
+            = new Parser<>(new CStyleBooleanGrammar(new VariableCache()));
     
     private @NonNull File cacheDir;
 
-    private boolean compress;
+    private @NonNull CompressionCodec codec;
+    
+    private boolean usePack;
+    
+    private @Nullable PackFile pack;
 
     /**
      * Creates a new cache in the given cache directory.
@@ -65,7 +100,7 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
      *            directory, and we must be able to read and write to it.
      */
     public JsonCodeModelCache(@NonNull File cacheDir) {
-        this.cacheDir = cacheDir;
+        this(cacheDir, false);
     }
 
     /**
@@ -75,13 +110,77 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
      *            The directory where to store the cache files. This must be a
      *            directory, and we must be able to read and write to it.
      * @param compress
-     *            Whether the cache files should be written compressed. Already
-     *            existing compressed cache files are always read, even if
+     *            Whether the cache files should be written compressed (with {@link CompressionCodec#DEFAULT}).
+     *            Already existing compressed cache files are always read, even if
      *            compression is turned off.
      */
     public JsonCodeModelCache(@NonNull File cacheDir, boolean compress) {
+        this(cacheDir, compress, false);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param compress
+     *            Whether the cache files should be written compressed (with {@link CompressionCodec#DEFAULT}).
+     *            Already existing compressed cache files are always read, even if
+     *            compression is turned off.
+     * @param usePack
+     *            Whether all source files should be stored in a single {@link PackFile} in the cache directory,
+     *            instead of one cache file per source file.
+     */
+    public JsonCodeModelCache(@NonNull File cacheDir, boolean compress, boolean usePack) {
+        this(cacheDir, compress ? CompressionCodec.DEFAULT : CompressionCodec.NONE, usePack);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir
+     *            The directory where to store the cache files. This must be a
+     *            directory, and we must be able to read and write to it.
+     * @param codec
+     *            The codec that the cache files (or pack entries) are written with. Cache files written by any
+     *            other codec are still read.
+     * @param usePack
+     *            Whether all source files should be stored in a single {@link PackFile} in the cache directory,
+     *            instead of one cache file per source file.
+     */
+    public JsonCodeModelCache(@NonNull File cacheDir, @NonNull CompressionCodec codec, boolean usePack) {
         this.cacheDir = cacheDir;
-        this.compress = compress;
+        this.codec = codec;
+        this.usePack = usePack;
+    }
+    
+    /**
+     * Returns the {@link PackFile} that this cache stores its entries in. Opens it on first access (and again after
+     * {@link #close()}).
+     * 
+     * @return The pack.
+     * 
+     * @throws IOException If opening the pack fails.
+     */
+    private synchronized @NonNull PackFile getPack() throws IOException {
+        PackFile pack = this.pack;
+        if (pack == null) {
+            pack = new PackFile(new File(cacheDir, "code_model.json.pack"));
+            this.pack = pack;
+        }
+        return pack;
+    }
+    
+    /**
+     * Returns the key for the given source file in the {@link PackFile}.
+     * 
+     * @param path The path of the source file, relative to the source code tree.
+     * 
+     * @return The key in the pack.
+     */
+    private static @NonNull String getPackKey(@NonNull File path) {
+        return notNull(path.getPath().replace(File.separatorChar, '/'));
     }
 
     /**
@@ -97,14 +196,14 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
     }
 
     /**
-     * Returns the path where the given source file should be cached, if
-     * compression is turned on.
+     * Returns the path where the given source file was cached by older versions, if
+     * compression was turned on. These are Zip archives containing a single cache.json entry.
      * 
      * @param path
      *            The path of the source file, relative to the source code tree.
-     * @return The file where to cache.
+     * @return The legacy compressed cache file.
      */
-    private @NonNull File getCompressedCacheFile(@NonNull File path) {
+    private @NonNull File getLegacyCompressedCacheFile(@NonNull File path) {
         String name = path.getPath().replace(File.separatorChar, '.') + ".json.zip";
         return new File(cacheDir, name);
     }
@@ -119,28 +218,20 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
      */
     @Override
     public void write(@NonNull SourceFile<?> file) throws IOException {
-        File cacheFile;
-        if (compress) {
-            // delete the uncompressed version, since this method is supposed to
-            // overwrite any previous cache
-            getCacheFile(file.getPath()).delete();
-            cacheFile = getCompressedCacheFile(file.getPath());
-        } else {
-            cacheFile = getCacheFile(file.getPath());
+        if (usePack) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (OutputStream out = codec.compress(bytes)) {
+                serialize(file, out);
+            }
+            getPack().write(getPackKey(file.getPath()), notNull(bytes.toByteArray()));
+            return;
         }
-
-        JsonElement json = serialize(file);
         
-        if (compress) {
-            try (ZipArchive archive = new ZipArchive(cacheFile);
-                    OutputStream out = archive.getOutputStream(new File("cache.json"))) {
-                
-                out.write(json.accept(new JsonPrettyPrinter()).getBytes(StandardCharsets.UTF_8));
-            }
-        } else {
-            try (OutputStream out = new FileOutputStream(cacheFile)) {
-                out.write(json.accept(new JsonPrettyPrinter()).getBytes(StandardCharsets.UTF_8));
-            }
+        // delete the legacy version, since this method is supposed to overwrite any previous cache
+        getLegacyCompressedCacheFile(file.getPath()).delete();
+        
+        try (OutputStream out = codec.createFile(getCacheFile(file.getPath()))) {
+            serialize(file, out);
         }
     }
     
@@ -154,12 +245,125 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         
         private int nextId;
         
+        private @NonNull FormulaDictionary formulas;
+        
+        private @NonNull Map<Formula, String> formulaStrings;
+        
+        private @NonNull Map<String, Formula> knownFormulas;
+        
         /**
          * Creates a new {@link SerializeData} instance. This instance should be used for once round of serialization
          */
         public SerializeData() {
             this.idMapping = new HashMap<>();
             this.nextId = 1;
+            this.formulas = new FormulaDictionary();
+            this.formulaStrings = new IdentityHashMap<>();
+            this.knownFormulas = new HashMap<>();
+        }
+        
+        /**
+         * Registers the conditions and presence conditions of the given element and all of its nested elements in the
+         * formula table. This has to be done before any element is serialized, since the formula table is written
+         * before the elements.
+         * 
+         * @param element The element to register the formulas of.
+         */
+        public void registerFormulas(@NonNull CodeElement<?> element) {
+            registerFormula(element.getCondition());
+            registerFormula(element.getPresenceCondition());
+            for (CodeElement<?> nested : element) {
+                registerFormulas(nested);
+            }
+        }
+        
+        /**
+         * Registers the given formula, so that element fields equal to its string representation are stored as
+         * references to the formula table.
+         * 
+         * @param formula The formula to register. May be <code>null</code>.
+         */
+        private void registerFormula(@Nullable Formula formula) {
+            if (formula != null && !formulaStrings.containsKey(formula)) {
+                String string = formula.toString();
+                formulaStrings.put(formula, string);
+                knownFormulas.putIfAbsent(string, formula);
+                formulas.add(formula);
+            }
+        }
+        
+        /**
+         * Replaces all fields of the given element JSON that contain a known formula with a reference to the formula
+         * table. The references are stored in a nested object under {@link #FORMULA_REFERENCES}, mapping the field name
+         * to the index in the formula table.
+         * 
+         * @param element The JSON of an element.
+         */
+        private void replaceFormulas(@NonNull JsonObject element) {
+            JsonObject references = null;
+            for (Map.Entry<String, JsonElement> entry : element) {
+                JsonElement value = entry.getValue();
+                if (value instanceof JsonString && !entry.getKey().equals("class")) {
+                    Formula formula = knownFormulas.get(((JsonString) value).getValue());
+                    if (formula != null) {
+                        if (references == null) {
+                            references = new JsonObject();
+                        }
+                        references.putElement(notNull(entry.getKey()), new JsonNumber(formulas.getIndex(formula)));
+                    }
+                }
+            }
+            
+            if (references != null) {
+                for (Map.Entry<String, JsonElement> reference : references) {
+                    element.removeElement(notNull(reference.getKey()));
+                }
+                element.putElement(FORMULA_REFERENCES, references);
+            }
+        }
+        
+        /**
+         * Writes the formula table.
+         * 
+         * @param writer The writer to write the formula table to.
+         * 
+         * @throws IOException If writing fails.
+         */
+        public void writeFormulas(@NonNull JsonWriter writer) throws IOException {
+            writer.beginList();
+            for (int i = 0; i < formulas.getSize(); i++) {
+                Formula formula = formulas.get(i);
+                writer.beginList();
+                
+                if (formula instanceof False) {
+                    writer.value("0");
+                    
+                } else if (formula instanceof True) {
+                    writer.value("1");
+                    
+                } else if (formula instanceof Variable) {
+                    writer.value("v").value(((Variable) formula).getName());
+                    
+                } else if (formula instanceof Negation) {
+                    writer.value("!").value(formulas.getIndex(((Negation) formula).getFormula()));
+                    
+                } else if (formula instanceof Conjunction) {
+                    writer.value("&")
+                            .value(formulas.getIndex(((Conjunction) formula).getLeft()))
+                            .value(formulas.getIndex(((Conjunction) formula).getRight()));
+                    
+                } else if (formula instanceof Disjunction) {
+                    writer.value("|")
+                            .value(formulas.getIndex(((Disjunction) formula).getLeft()))
+                            .value(formulas.getIndex(((Disjunction) formula).getRight()));
+                    
+                } else {
+                    writer.value("s").value(formula.toString());
+                }
+                
+                writer.endList();
+            }
+            writer.endList();
         }
         
         /**
@@ -180,19 +384,40 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         }
         
         /**
-         * Serializes the given {@link CodeElement} to JSON.
+         * Serializes the given element and writes it, including its nested elements, to the given writer. Only the
+         * fields of a single element are held in memory at a time.
+         * 
+         * @param element The element to write.
+         * @param writer The writer to write the element to.
+         * 
+         * @throws IOException If writing fails.
+         */
+        public void write(@NonNull CodeElement<?> element, @NonNull JsonWriter writer) throws IOException {
+            writer.beginObject();
+            for (Map.Entry<String, JsonElement> field : serializeFields(element)) {
+                writer.name(notNull(field.getKey())).value(notNull(field.getValue()));
+            }
+            
+            if (element.getNestedElementCount() > 0) {
+                writer.name("nested").beginList();
+                for (CodeElement<?> nested : element) {
+                    write(nested, writer);
+                }
+                writer.endList();
+            }
+            writer.endObject();
+        }
+        
+        /**
+         * Serializes the given element, including its nested elements, into a {@link JsonElement}. This is used for
+         * secondary nested elements.
          * 
          * @param element The element to serialize.
          * 
-         * @return The element serialized as JSON.
+         * @return The serialized element.
          */
         public @NonNull JsonElement serialize(@NonNull CodeElement<?> element) {
-            JsonObject result = new JsonObject();
-            
-            result.putElement("class", new JsonString(notNull(element.getClass().getName())));
-            result.putElement("id", new JsonNumber(getId(element)));
-            
-            element.serializeToJson(result, this::serialize, this::getId);
+            JsonObject result = serializeFields(element);
             
             if (element.getNestedElementCount() > 0) {
                 JsonList nestedJson = new JsonList();
@@ -206,32 +431,58 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
             return result;
         }
         
+        /**
+         * Serializes the fields of the given element, without the nested elements.
+         * 
+         * @param element The element to serialize.
+         * 
+         * @return The serialized fields of the element.
+         */
+        private @NonNull JsonObject serializeFields(@NonNull CodeElement<?> element) {
+            JsonObject result = new JsonObject();
+            result.putElement("class", new JsonString(notNull(element.getClass().getName())));
+            result.putElement("id", new JsonNumber(getId(element)));
+            
+            element.serializeToJson(result, this::serialize, this::getId);
+            replaceFormulas(result);
+            
+            return result;
+        }
+        
     }
     
     /**
-     * Serializes the given {@link SourceFile} to JSON.
+     * Serializes the given {@link SourceFile} to JSON and writes it to the given stream. The JSON is streamed, i.e.
+     * no complete JSON tree of the source file is created in memory.
      * 
      * @param sourceFile The source file to serialize.
+     * @param out The stream to write the JSON to. This is not closed by this method.
      * 
-     * @return The source file serialized as JSON.
+     * @throws IOException If writing to the stream fails.
      */
-    private @NonNull JsonElement serialize(@NonNull SourceFile<?> sourceFile) {
-        JsonObject result = new JsonObject();
+    private void serialize(@NonNull SourceFile<?> sourceFile, @NonNull OutputStream out) throws IOException {
+        SerializeData data = new SerializeData();
+        for (CodeElement<?> element : sourceFile) {
+            data.registerFormulas(element);
+        }
         
-        result.putElement("version", new JsonNumber(VERSION));
-        result.putElement("path", new JsonString(notNull(
-                sourceFile.getPath().getPath().replace(File.separatorChar, '/'))));
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
         
-        JsonList elements = new JsonList();
+        writer.name("version").value(VERSION);
+        writer.name("path").value(sourceFile.getPath().getPath().replace(File.separatorChar, '/'));
         
-        SerializeData data = new SerializeData();
+        writer.name("formulas");
+        data.writeFormulas(writer);
+        
+        writer.name("elements").beginList();
         for (CodeElement<?> element : sourceFile) {
-            elements.addElement(data.serialize(element));
+            data.write(element, writer);
         }
+        writer.endList();
         
-        result.putElement("elements", elements);
-        
-        return result;
+        writer.endObject();
+        writer.flush();
     }
     
     /**
@@ -250,40 +501,75 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
      */
     @Override
     public @Nullable SourceFile<?> read(@NonNull File path) throws IOException, FormatException {
-        // always try uncompressed first, since its faster
-        boolean compressed = false;
-        File cacheFile = getCacheFile(path);
-        File compressedCacheFile = getCompressedCacheFile(path);
-        if (!cacheFile.exists() && compressedCacheFile.isFile()) {
-            cacheFile = compressedCacheFile;
-            compressed = true;
+        if (usePack) {
+            return readFromPack(path);
         }
         
         SourceFile<CodeElement<?>> result = null;
-        try {
-            JsonElement json;
-            if (compressed) {
-                try (ZipArchive archive = new ZipArchive(cacheFile);
-                        JsonParser parser = new JsonParser(
-                                new InputStreamReader(archive.getInputStream(new File("cache.json"))))) {
+        InputStream in = CompressionCodec.openFile(getCacheFile(path));
+        if (in != null) {
+            try (JsonReader reader = new JsonReader(in)) {
+                result = read(reader);
+            }
+            
+        } else {
+            File legacyFile = getLegacyCompressedCacheFile(path);
+            if (legacyFile.isFile()) {
+                try (ZipArchive archive = new ZipArchive(legacyFile);
+                        JsonReader reader = new JsonReader(archive.getInputStream(new File("cache.json")))) {
                     
-                    json = parser.parse();
-                }
-            } else {
-                try (JsonParser parser = new JsonParser(cacheFile)) {
-                    json = parser.parse();
+                    result = read(reader);
                 }
             }
-            
-            result = deserialize(json);
-            
-        } catch (FileNotFoundException e) {
-            // ignore, so that null is returned if cache is not present
         }
 
         return result;
     }
     
+    /**
+     * Reads the {@link SourceFile} for the given path from the {@link PackFile}.
+     * 
+     * @param path The path in the source code tree that should be read from the cache.
+     * 
+     * @return The {@link SourceFile} read from the pack, or <code>null</code> if it is not in the pack.
+     * 
+     * @throws IOException If reading the pack fails.
+     * @throws FormatException If the cache content is invalid.
+     */
+    private @Nullable SourceFile<?> readFromPack(@NonNull File path) throws IOException, FormatException {
+        ByteBuffer buffer = getPack().read(getPackKey(path));
+        if (buffer == null) {
+            return null;
+        }
+        
+        try (JsonReader reader = new JsonReader(CompressionCodec.decompressAny(new ByteBufferInputStream(buffer)))) {
+            return read(reader);
+        }
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        PackFile pack;
+        synchronized (this) {
+            pack = this.pack;
+        }
+        if (pack != null) {
+            pack.flush();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        PackFile pack;
+        synchronized (this) {
+            pack = this.pack;
+            this.pack = null;
+        }
+        if (pack != null) {
+            pack.close();
+        }
+    }
+    
     /**
      * Functional interface that may throw an exception.
      *
@@ -315,11 +601,190 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
         
         private @NonNull Map<Integer, IdentityWrapper<CodeElement<?>>> idMapping;
         
+        private @NonNull Formula @NonNull [] formulas;
+        
+        private @Nullable String @NonNull [] formulaStrings;
+        
+        private @NonNull Map<String, Formula> knownFormulas;
+        
         /**
          * Creates a new object for de-serialization.
          */
+        @SuppressWarnings("null") // arrays are filled in deserializeFormulas()
         public DeserializeData() {
             idMapping = new HashMap<>();
+            formulas = new Formula[0];
+            formulaStrings = new String[0];
+            knownFormulas = new HashMap<>();
+        }
+        
+        /**
+         * Returns the formulas that have been referenced by the de-serialized elements so far, mapped by their string
+         * representation.
+         * 
+         * @return The known formulas.
+         */
+        public @NonNull Map<String, Formula> getKnownFormulas() {
+            return knownFormulas;
+        }
+        
+        /**
+         * Reads the formula table. Each entry may only reference entries that come before it.
+         * 
+         * @param reader The reader positioned at the start of the formula table.
+         * 
+         * @throws FormatException If the formula table is invalid.
+         * @throws IOException If reading fails.
+         */
+        public void readFormulas(@NonNull JsonReader reader) throws FormatException, IOException {
+            List<@NonNull Formula> result = new ArrayList<>();
+            FormulaFactory factory = getFormulaFactory();
+            
+            reader.beginList();
+            while (reader.hasNext()) {
+                reader.beginList();
+                
+                Formula formula;
+                String type = reader.nextString();
+                switch (type) {
+                case "0":
+                    formula = False.INSTANCE;
+                    break;
+                case "1":
+                    formula = True.INSTANCE;
+                    break;
+                case "v":
+                    formula = new Variable(reader.nextString());
+                    break;
+                case "!":
+                    formula = new Negation(readOperand(reader, result));
+                    break;
+                case "&":
+                    formula = new Conjunction(readOperand(reader, result), readOperand(reader, result));
+                    break;
+                case "|":
+                    formula = new Disjunction(readOperand(reader, result), readOperand(reader, result));
+                    break;
+                case "s":
+                    try {
+                        formula = FORMULA_PARSER.parse(reader.nextString());
+                    } catch (ExpressionFormatException e) {
+                        throw new FormatException("Can't parse formula", e);
+                    }
+                    break;
+                default:
+                    throw new FormatException("Invalid formula type: " + type);
+                }
+                
+                reader.endList();
+                if (factory != null) {
+                    formula = factory.intern(formula);
+                }
+                result.add(formula);
+            }
+            reader.endList();
+            
+            formulas = notNull(result.toArray(new Formula[result.size()]));
+            formulaStrings = new String[formulas.length];
+        }
+        
+        /**
+         * Reads the operand of a formula table entry.
+         * 
+         * @param reader The reader positioned at the index of the operand.
+         * @param previous The formulas of the table that have been read so far.
+         * 
+         * @return The operand.
+         * 
+         * @throws FormatException If the entry does not reference a valid operand.
+         * @throws IOException If reading fails.
+         */
+        private @NonNull Formula readOperand(@NonNull JsonReader reader, @NonNull List<@NonNull Formula> previous)
+                throws FormatException, IOException {
+            
+            int operand = reader.nextInt();
+            if (operand < 0 || operand >= previous.size()) {
+                throw new FormatException("Invalid formula table index: " + operand);
+            }
+            return notNull(previous.get(operand));
+        }
+        
+        /**
+         * Replaces the references to the formula table in the given element JSON with the string representations of
+         * the formulas. The formulas are registered as known, so that
+         * {@link AbstractCodeElement#parseJsonFormula(String)} does not need to parse them again.
+         * 
+         * @param json The element JSON.
+         * 
+         * @throws FormatException If the references are invalid.
+         */
+        private void resolveFormulas(@NonNull JsonObject json) throws FormatException {
+            if (json.getElement(FORMULA_REFERENCES) == null) {
+                return;
+            }
+            
+            JsonObject references = json.getObject(FORMULA_REFERENCES);
+            json.removeElement(FORMULA_REFERENCES);
+            for (Map.Entry<String, JsonElement> reference : references) {
+                JsonElement value = reference.getValue();
+                if (!(value instanceof JsonNumber)) {
+                    throw new FormatException("Invalid formula reference: " + value);
+                }
+                int index = ((JsonNumber) value).getValue().intValue();
+                if (index < 0 || index >= formulas.length) {
+                    throw new FormatException("Invalid formula table index: " + index);
+                }
+                
+                String string = formulaStrings[index];
+                if (string == null) {
+                    string = formulas[index].toString();
+                    formulaStrings[index] = string;
+                    knownFormulas.put(string, formulas[index]);
+                }
+                json.putElement(notNull(reference.getKey()), new JsonString(string));
+            }
+        }
+        
+        /**
+         * Reads a {@link CodeElement}, including its nested elements, from the given reader. Only the fields of a
+         * single element are read into a {@link JsonObject}; the nested elements are read directly from the stream.
+         * 
+         * @param reader The reader positioned at the start of the element.
+         * 
+         * @return The resulting {@link CodeElement}.
+         * 
+         * @throws FormatException If the JSON does not contain the expected data.
+         * @throws IOException If reading fails.
+         */
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public @NonNull CodeElement<?> read(@NonNull JsonReader reader) throws FormatException, IOException {
+            JsonObject json = new JsonObject();
+            List<@NonNull CodeElement<?>> nested = null;
+            
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("nested")) {
+                    nested = new ArrayList<>();
+                    reader.beginList();
+                    while (reader.hasNext()) {
+                        nested.add(read(reader));
+                    }
+                    reader.endList();
+                    
+                } else {
+                    json.putElement(name, reader.nextElement());
+                }
+            }
+            reader.endObject();
+            
+            CodeElement result = create(json);
+            if (nested != null) {
+                for (CodeElement<?> element : nested) {
+                    result.addNestedElement(element);
+                }
+            }
+            return result;
         }
         
         /**
@@ -338,33 +803,7 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
             }
             
             JsonObject json = (JsonObject) element;
-            CodeElement result;
-            
-            String className = json.getString("class");
-            try {
-                Class<?> clazz = ClassLoader.getSystemClassLoader().loadClass(className);
-                
-                Constructor<?> ctor = clazz.getDeclaredConstructor(JsonObject.class, CheckedFunction.class);
-                ctor.setAccessible(true);
-                CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException> deserializeFunction
-                    = this::deserialize;
-                result = notNull((CodeElement) ctor.newInstance(json, deserializeFunction));
-                
-            } catch (NoSuchMethodException e) {
-                throw new FormatException(className + " does not implement a constructor with (JsonObject, Function) "
-                        + "parameters for de-serialization", e);
-            } catch (InvocationTargetException e) {
-                if (e.getCause() instanceof FormatException) {
-                    throw (FormatException) e.getCause();
-                }
-                throw new FormatException("Can't instantiate " + className, e);
-                
-            } catch (ReflectiveOperationException e) {
-                throw new FormatException("Can't instantiate " + className, e);
-            }
-            
-            int id = json.getInt("id");
-            idMapping.put(id, new IdentityWrapper<>(result));
+            CodeElement result = create(json);
             
             if (json.getElement("nested") != null) {
                 for (JsonElement nested : json.getList("nested")) {
@@ -375,6 +814,28 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
             return result;
         }
         
+        /**
+         * Creates a single {@link CodeElement} (without its nested elements) from the given JSON.
+         * 
+         * @param json The JSON of the element.
+         * 
+         * @return The created element.
+         * 
+         * @throws FormatException If the JSON does not contain the expected data.
+         */
+        private @NonNull CodeElement<?> create(@NonNull JsonObject json) throws FormatException {
+            resolveFormulas(json);
+            
+            CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException> deserializeFunction
+                = this::deserialize;
+            CodeElement<?> result = CodeElementRegistry.create(json.getString("class"), json, deserializeFunction);
+            
+            int id = json.getInt("id");
+            idMapping.put(id, new IdentityWrapper<>(result));
+            
+            return result;
+        }
+        
         /**
          * Iterates over all de-serialized elements and calls their {@link CodeElement#resolveIds(Map)} methods.
          * This is the second step of de-serialization.
@@ -396,33 +857,98 @@ public class JsonCodeModelCache extends AbstractCache<SourceFile<?>> {
     }
     
     /**
-     * Deserializes the given JSON back to a {@link SourceFile}.
+     * Reads a {@link SourceFile} from the given reader. The JSON is read token by token; no JSON tree of the whole
+     * source file is created.
      * 
-     * @param json The JSON data to deserialize.
+     * @param reader The reader to read the source file from.
      * 
-     * @return The deserialized {@link SourceFile}.
+     * @return The read {@link SourceFile}.
      * 
      * @throws FormatException If the JSON does not contain the expected data.
+     * @throws IOException If reading fails.
      */
-    private @NonNull SourceFile<CodeElement<?>> deserialize(@NonNull JsonElement json) throws FormatException {
-        if (!(json instanceof JsonObject)) {
-            throw new FormatException("Expected JsonObject, but got " + json.getClass().getSimpleName());
-        }
+    private @NonNull SourceFile<CodeElement<?>> read(@NonNull JsonReader reader) throws FormatException, IOException {
+        Integer version = null;
+        String path = null;
+        boolean formulasRead = false;
+        List<@NonNull CodeElement<?>> elements = null;
+        JsonElement bufferedElements = null;
         
-        JsonObject jsonObj = (JsonObject) json;
+        DeserializeData data = new DeserializeData();
         
-        if (jsonObj.getInt("version") != VERSION) {
-            throw new FormatException("Unsupported version: got " + jsonObj.getInt("version")
-                    + ", but expected " + VERSION);
+        AbstractCodeElement.setKnownFormulas(data.getKnownFormulas());
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                case "version":
+                    version = reader.nextInt();
+                    if (version < MIN_VERSION || version > VERSION) {
+                        throw new FormatException("Unsupported version: got " + version + ", but expected "
+                                + VERSION);
+                    }
+                    break;
+                    
+                case "path":
+                    path = reader.nextString();
+                    break;
+                    
+                case "formulas":
+                    data.readFormulas(reader);
+                    formulasRead = true;
+                    break;
+                    
+                case "elements":
+                    if (formulasRead || (version != null && version == MIN_VERSION)) {
+                        elements = new ArrayList<>();
+                        reader.beginList();
+                        while (reader.hasNext()) {
+                            elements.add(data.read(reader));
+                        }
+                        reader.endList();
+                        
+                    } else {
+                        // the formula table may still follow; elements can only be created after it has been read
+                        bufferedElements = reader.nextElement();
+                    }
+                    break;
+                    
+                default:
+                    reader.skipValue();
+                    break;
+                }
+            }
+            reader.endObject();
+            reader.peek(); // make sure that the end of the document is reached
+            
+            if (bufferedElements != null) {
+                if (!(bufferedElements instanceof JsonList)) {
+                    throw new FormatException("Expected JsonList, but got "
+                            + bufferedElements.getClass().getSimpleName());
+                }
+                elements = new ArrayList<>();
+                for (JsonElement element : (JsonList) bufferedElements) {
+                    elements.add(data.deserialize(element));
+                }
+            }
+            
+        } finally {
+            AbstractCodeElement.setKnownFormulas(null);
         }
         
-        File path = new File(jsonObj.getString("path"));
-        
-        SourceFile<CodeElement<?>> result = new SourceFile<>(path);
+        if (version == null) {
+            throw new FormatException("Missing version");
+        }
+        if (path == null) {
+            throw new FormatException("Missing path");
+        }
+        if (elements == null) {
+            throw new FormatException("Missing elements");
+        }
         
-        DeserializeData data = new DeserializeData();
-        for (JsonElement nested : jsonObj.getList("elements")) {
-            result.addElement(data.deserialize(nested));
+        SourceFile<CodeElement<?>> result = new SourceFile<>(new File(path));
+        for (CodeElement<?> element : elements) {
+            result.addElement(element);
         }
         
         data.resolveIds();
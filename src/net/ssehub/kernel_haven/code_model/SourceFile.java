@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * Represents a single file from the source tree.
@@ -43,6 +44,11 @@ public class SourceFile<ElementType extends CodeElement<?>> implements Iterable<
      * This are the toplevel elements which are not nested in other elements.
      */
     private @NonNull List<@NonNull ElementType> elements;
+    
+    /**
+     * The ID of the source tree that this file belongs to; only set if multiple source trees are analyzed in one run.
+     */
+    private @Nullable String treeId;
 
     /**
      * Constructs a Sourcefile.
@@ -65,6 +71,26 @@ public class SourceFile<ElementType extends CodeElement<?>> implements Iterable<
         return path;
     }
 
+    /**
+     * Returns the ID of the source tree that this file belongs to. This is only set if multiple source trees are
+     * analyzed in a single execution (see {@link net.ssehub.kernel_haven.config.DefaultSettings#SOURCE_TREES}).
+     * 
+     * @return The ID of the source tree, or <code>null</code> if not set.
+     */
+    public @Nullable String getTreeId() {
+        return treeId;
+    }
+    
+    /**
+     * Sets the ID of the source tree that this file belongs to. The tree ID is not considered in
+     * {@link #equals(Object)}, so that the same file in different versions of the source tree can be compared.
+     * 
+     * @param treeId The ID of the source tree.
+     */
+    public void setTreeId(@Nullable String treeId) {
+        this.treeId = treeId;
+    }
+    
     /**
      * Adds a element to the end of the list.
      * 
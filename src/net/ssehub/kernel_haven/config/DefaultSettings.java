@@ -19,6 +19,7 @@ import static net.ssehub.kernel_haven.config.Setting.Type.BOOLEAN;
 import static net.ssehub.kernel_haven.config.Setting.Type.DIRECTORY;
 import static net.ssehub.kernel_haven.config.Setting.Type.FILE;
 import static net.ssehub.kernel_haven.config.Setting.Type.INTEGER;
+import static net.ssehub.kernel_haven.config.Setting.Type.PATH;
 import static net.ssehub.kernel_haven.config.Setting.Type.REGEX;
 import static net.ssehub.kernel_haven.config.Setting.Type.STRING;
 import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
@@ -33,9 +34,14 @@ import java.util.regex.Pattern;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.analysis.ConfiguredPipelineAnalysis;
+import net.ssehub.kernel_haven.analysis.LimitComponent;
+import net.ssehub.kernel_haven.analysis.SampleComponent;
+import net.ssehub.kernel_haven.build_model.BuildModelProvider;
 import net.ssehub.kernel_haven.build_model.EmptyBuildModelExtractor;
+import net.ssehub.kernel_haven.code_model.CodeModelProvider;
 import net.ssehub.kernel_haven.code_model.EmptyCodeModelExtractor;
 import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 import net.ssehub.kernel_haven.variability_model.EmptyVariabilityModelExtractor;
@@ -69,6 +75,14 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull File> LOG_DIR = new Setting<>("log.dir", DIRECTORY, true, ".", "The path where log files will be written. This has to be set to a valid directory with write access.");
     public static final @NonNull Setting<@NonNull File> ARCHIVE_DIR = new Setting<>("archive.dir", DIRECTORY, true, ".", "Directory to write the archive of the infrastrucure execution to. This has to be set to a valid directory with write access.");
     
+    /*
+     * Caches
+     */
+    
+    public static final @NonNull Setting<CompressionCodec.@NonNull Type> CACHE_COMPRESSION = new EnumSetting<>("cache.compression", CompressionCodec.Type.class, true, CompressionCodec.Type.GZIP, "The codec that the providers use for compressed cache files. GZIP is a stream compression. BLOCK splits large cache entries into blocks that are compressed in parallel, which trades CPU for less time spent on disk I/O. NONE disables compression for all caches.");
+    public static final @NonNull Setting<@NonNull Integer> CACHE_COMPRESSION_LEVEL = new Setting<>("cache.compression.level", INTEGER, true, "6", "The compression level of the codec defined by cache.compression, from 0 (fastest) to 9 (best compression).");
+    public static final @NonNull Setting<@NonNull Boolean> CACHE_HASH_CONSING = new Setting<>("cache.hash_consing", BOOLEAN, true, "false", "Whether the formulas read from the code model and build model caches should be interned in the default FormulaFactory. Structurally equal formulas (e.g. identical presence conditions) then share their memory and can be compared by identity.");
+    
     /*
      * Logging
      */
@@ -101,12 +115,17 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull String> ANALYSIS_RESULT_NAME = new Setting<>("analysis.output.name", STRING, true, "Analysis", "A name for the analysis result that is used as a prefix for the output file(s).");
     public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_USE_VARMODEL_VARIABLES_ONLY = new Setting<>("analysis.consider_vm_vars_only", BOOLEAN, true, "false", "Defines whether the analysis should only consider variables that are present in the variability model.");
     public static final @NonNull Setting<@NonNull Boolean> ANALYSIS_PIPELINE_START_EXTRACTORS = new Setting<>("analysis.pipeline.preemptively_start_extractors", BOOLEAN, true, "true", "Whether the analysis pipeline should preemptively start all three extractors. This has the advantage that the extractors will always run in parallel, even if the analysis compoenents only poll them in order. If this is set to false, then the extractors only start on demand when the analysis components poll them.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_LIMIT = new Setting<>("analysis.limit", INTEGER, true, "100", "The maximum number of results that a " + LimitComponent.class.getSimpleName() + " passes on. After that, the previous components and extractors are cancelled.");
+    public static final @NonNull Setting<@NonNull Integer> ANALYSIS_SAMPLE_PERCENTAGE = new Setting<>("analysis.sample.percentage", INTEGER, true, "100", "The probability (in percent, 0 to 100) with which a " + SampleComponent.class.getSimpleName() + " passes on each result.");
+    public static final @NonNull Setting<@Nullable Integer> ANALYSIS_SAMPLE_SEED = new Setting<>("analysis.sample.seed", INTEGER, false, null, "The seed for the random generator of a " + SampleComponent.class.getSimpleName() + ". If not set, a random seed is used.");
     
     /*
      * Common extractor parameters
      */
     
     public static final @NonNull Setting<@NonNull File> SOURCE_TREE = new Setting<>("source_tree", DIRECTORY, true, null, "The path to the source tree of the product line that should be analyzed.");
+    public static final @NonNull ListSetting<@NonNull File> SOURCE_TREES = new ListSetting<>("source_trees", PATH, false, "A list of source trees (e.g. different versions of the product line) that should be analyzed one after another in a single execution. Relative paths are resolved against " + SOURCE_TREE.getKey() + ". Plugins and extractors are only loaded once. Each source tree gets its own sub-folder (named after the tree ID) in the output and cache directories. If this is not set, only " + SOURCE_TREE.getKey() + " is analyzed.");
+    public static final @NonNull Setting<@Nullable String> SOURCE_TREE_ID = new Setting<>("source_tree.id", STRING, false, null, "An identifier for the source tree that is analyzed. Code model, build model and variability model results are tagged with this ID. If " + SOURCE_TREES.getKey() + " is used, this is set automatically to the name of each source tree directory.");
     public static final @NonNull Setting<@Nullable String> ARCH = new Setting<>("arch", STRING, false, null, "The architecture of the Linux Kernel that should be analyzed. Most Linux extractors require this.");
     
     /*
@@ -117,10 +136,14 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull Integer> CODE_PROVIDER_TIMEOUT = new Setting<>("code.provider.timeout", INTEGER, true, "0", "The maximum time the provider waits for the results of the extractor until an exception is thrown. In milliseconds; 0 = no timeout used.");
     public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_WRITE = new Setting<>("code.provider.cache.write", BOOLEAN, true, "false", "Defines whether the code model provider will write its results to the cache directory.");
     public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_READ = new Setting<>("code.provider.cache.read", BOOLEAN, true, "false", "Defines whether the code model provider is allowed to read the cache instead of starting the extractor.");
-    public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_COMPRESS = new Setting<>("code.provider.cache.compress", BOOLEAN, true, "true", "Whether the individual cache files for the code model should written as compressed Zip archives. Reading of compressed cache files is always supported.");
+    public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_COMPRESS = new Setting<>("code.provider.cache.compress", BOOLEAN, true, "true", "Whether the individual cache files (or pack entries) for the code model should be written compressed with the codec defined by cache.compression. Reading of compressed cache files is always supported.");
+    public static final @NonNull Setting<CodeModelProvider.@NonNull CacheFormat> CODE_PROVIDER_CACHE_FORMAT = new EnumSetting<>("code.provider.cache.format", CodeModelProvider.CacheFormat.class, true, CodeModelProvider.CacheFormat.JSON, "The format that the code model cache is written and read in. JSON is human-readable; BINARY is considerably smaller and faster to read and write. Caches written in one format can not be read in the other format.");
+    public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_PACK = new Setting<>("code.provider.cache.pack", BOOLEAN, true, "false", "Whether the code model cache should be stored in a single pack file in the cache directory, instead of one cache file per source file. This is considerably faster for large code models. If " + CODE_PROVIDER_CACHE_COMPRESS.getKey() + " is set, the entries in the pack are compressed individually.");
+    public static final @NonNull Setting<@NonNull Boolean> CODE_PROVIDER_CACHE_LAZY = new Setting<>("code.provider.cache.lazy", BOOLEAN, true, "false", "Whether the nested elements of code elements read from the cache should only be de-serialized when they are first accessed. This speeds up analyses that only look at the top-level elements, at the cost of keeping the cache content in memory until then. Only supported by the BINARY " + CODE_PROVIDER_CACHE_FORMAT.getKey() + ".");
     public static final @NonNull ListSetting<@NonNull String> CODE_EXTRACTOR_FILES = new ListSetting<>("code.extractor.files", STRING, notNull(Arrays.asList("")), "Defines which files the code extractor should run on. Comma separated list of paths relative to the source tree. If directories are listed, then they are searched recursively for files that match the regular expression specified in code.extractor.file_regex. Set to an empty string to specify the complete source tree.");
     public static final @NonNull Setting<@NonNull Pattern> CODE_EXTRACTOR_FILE_REGEX = new Setting<>("code.extractor.file_regex", REGEX, true, ".*\\.c", "A Java regular expression defining which files are considered to be source files for parsing. See code.extractor.files for a description on which files this expression is tested on."); 
     public static final @NonNull Setting<@NonNull Integer> CODE_EXTRACTOR_THREADS = new Setting<>("code.extractor.threads", INTEGER, true, "1", "The number of threads the code extractor should use. This many files are parsed in parallel.");
+    public static final @NonNull Setting<@NonNull Integer> CODE_EXTRACTOR_TARGET_TIMEOUT = new Setting<>("code.extractor.target_timeout", INTEGER, true, "0", "The maximum time the code extractor may spend on a single source file. If this is exceeded, the file is skipped with an exception, the extractor thread working on it is abandoned and a new one is started. In milliseconds; 0 = no timeout used.");
     
     public static final @NonNull Setting<@NonNull Boolean> FUZZY_PARSING = new Setting<>("code.extractor.fuzzy_parsing", BOOLEAN, true, "false", "Defines whether non-boolean conditions that are encountered in the code should be (fuzzily) convereted into boolean conditions, instead of throwing an exception. For example, this replaces (A == 1) && B with A_eq_1 && B.");
     
@@ -132,6 +155,8 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull Integer> BUILD_PROVIDER_TIMEOUT = new Setting<>("build.provider.timeout", INTEGER, true, "0", "The maximum time the provider waits for the results of the extractor until an exception is thrown. In milliseconds; 0 = no timeout used.");
     public static final @NonNull Setting<@NonNull Boolean> BUILD_PROVIDER_CACHE_WRITE = new Setting<>("build.provider.cache.write", BOOLEAN, true, "false", "Defines whether the build model provider will write its results to the cache directory.");
     public static final @NonNull Setting<@NonNull Boolean> BUILD_PROVIDER_CACHE_READ = new Setting<>("build.provider.cache.read", BOOLEAN, true, "false", "Defines whether the code model build is allowed to read the cache instead of starting the extractor.");
+    public static final @NonNull Setting<@NonNull Boolean> BUILD_PROVIDER_CACHE_COMPRESS = new Setting<>("build.provider.cache.compress", BOOLEAN, true, "false", "Whether the build model cache should be written compressed with the codec defined by cache.compression. Reading of compressed cache files is always supported.");
+    public static final @NonNull Setting<BuildModelProvider.@NonNull CacheFormat> BUILD_PROVIDER_CACHE_FORMAT = new EnumSetting<>("build.provider.cache.format", BuildModelProvider.CacheFormat.class, true, BuildModelProvider.CacheFormat.JSON, "The format that the build model cache is written and read in. JSON is human-readable; BINARY stores the presence conditions as a shared formula table, so that no formulas need to be parsed when reading the cache. Caches written in one format can not be read in the other format.");
     public static final @NonNull Setting<@NonNull Pattern> BUILD_EXTRACTOR_FILE_REGEX = new Setting<>("build.extractor.file_regex", REGEX, true, ".*(?i)(^|\\/|\\\\)(Makefile\\.?\\w*|Kbuild|Build)", "A Java regular expression defining which files are considered to be files relevant for parsing the build model.");
     
     /*
@@ -142,6 +167,7 @@ public class DefaultSettings {
     public static final @NonNull Setting<@NonNull Integer> VARIABILITY_PROVIDER_TIMEOUT = new Setting<>("variability.provider.timeout", INTEGER, true, "0", "The maximum time the provider waits for the results of the extractor until an exception is thrown. In milliseconds; 0 = no timeout used.");
     public static final @NonNull Setting<@NonNull Boolean> VARIABILITY_PROVIDER_CACHE_WRITE = new Setting<>("variability.provider.cache.write", BOOLEAN, true, "false", "Defines whether the variability model provider will write its results to the cache directory.");
     public static final @NonNull Setting<@NonNull Boolean> VARIABILITY_PROVIDER_CACHE_READ = new Setting<>("variability.provider.cache.read", BOOLEAN, true, "false", "Defines whether the variability model provider is allowed to read the cache instead of starting the extractor.");
+    public static final @NonNull Setting<@NonNull Boolean> VARIABILITY_PROVIDER_CACHE_COMPRESS = new Setting<>("variability.provider.cache.compress", BOOLEAN, true, "false", "Whether the variability model cache should be written compressed with the codec defined by cache.compression. Reading of compressed cache files is always supported.");
     public static final @NonNull Setting<@Nullable File> VARIABILITY_INPUT_FILE = new Setting<>("variability.input.file", FILE, false, null, "Path of a single file to be parsed by a variability model extractor.");
     public static final @NonNull Setting<@NonNull Pattern> VARIABILITY_EXTRACTOR_FILE_REGEX = new Setting<>("variability.extractor.file_regex", REGEX, true, "..*(?i)(^|\\/|\\\\)(Kconfig)", "A Java regular expression defining which files are considered to be source files relevant for parsing the variability model.");
     
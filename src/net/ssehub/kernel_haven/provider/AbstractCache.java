@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.IOException;
 
 import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -31,6 +32,28 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  */
 public abstract class AbstractCache<ResultType> {
 
+    private @Nullable FormulaFactory formulaFactory;
+    
+    /**
+     * Sets the {@link FormulaFactory} that the formulas read from this cache are created through. This allows to
+     * share the memory of identical formulas across all results read from the cache. By default, no factory is used.
+     * Caches that don't read formulas ignore this.
+     * 
+     * @param formulaFactory The factory to create formulas with, or <code>null</code>.
+     */
+    public void setFormulaFactory(@Nullable FormulaFactory formulaFactory) {
+        this.formulaFactory = formulaFactory;
+    }
+    
+    /**
+     * Returns the {@link FormulaFactory} that the formulas read from this cache should be created through.
+     * 
+     * @return The factory, or <code>null</code> if formulas should be created directly.
+     */
+    protected @Nullable FormulaFactory getFormulaFactory() {
+        return formulaFactory;
+    }
+
     /**
      * Read the result for the given target from cache.
      * 
@@ -51,4 +74,23 @@ public abstract class AbstractCache<ResultType> {
      */
     public abstract void write(@NonNull ResultType result) throws IOException;
     
+    /**
+     * Flushes any state of this cache that is not yet persisted (e.g. an index) to disk. This is called after the
+     * extractor has finished all of its targets. The default implementation does nothing.
+     * 
+     * @throws IOException If writing to disk fails.
+     */
+    public void flush() throws IOException {
+    }
+    
+    /**
+     * Releases the resources of this cache (e.g. open files). This is called after the extractor has finished all of
+     * its targets, after {@link #flush()}. Caches re-acquire their resources if they are used again afterwards. The
+     * default implementation does nothing.
+     * 
+     * @throws IOException If releasing the resources fails.
+     */
+    public void close() throws IOException {
+    }
+    
 }
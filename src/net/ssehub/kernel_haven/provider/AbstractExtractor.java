@@ -18,6 +18,8 @@ package net.ssehub.kernel_haven.provider;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
 import net.ssehub.kernel_haven.SetUpException;
@@ -48,6 +50,8 @@ public abstract class AbstractExtractor<ResultType> {
     
     private AbstractProvider<ResultType> provider;
     
+    private volatile boolean cancelled;
+    
     /**
      * Creates a new extractor.
      */
@@ -95,6 +99,35 @@ public abstract class AbstractExtractor<ResultType> {
         }
     }
     
+    /**
+     * Waits until the current run of this extractor is finished, i.e. until all workers are done and the end of the
+     * results has been signaled to the provider. Returns immediately if the extractor is not running.
+     * 
+     * @throws InterruptedException If the current thread is interrupted while waiting.
+     */
+    public final void awaitFinished() throws InterruptedException {
+        synchronized (isRunningMutex) {
+            while (isRunning) {
+                isRunningMutex.wait();
+            }
+        }
+    }
+    
+    /**
+     * Creates the exception that is passed to the provider if the extraction of a single target exceeded the deadline
+     * specified by {@link AbstractProvider#getTargetTimeout()}. Sub-classes may override this to return a more
+     * specific exception type.
+     * 
+     * @param target The target that the extractor was running on.
+     * @param timeout The deadline that was exceeded, in milliseconds.
+     * 
+     * @return The exception to pass to the provider.
+     */
+    protected @NonNull ExtractorException createTimeoutException(@NonNull File target, long timeout) {
+        return new ExtractorException("Extraction of " + target.getPath() + " exceeded the deadline of "
+                + timeout + " ms");
+    }
+    
     /**
      * A worker thread that executes runOnFile() on the targets it gets from a queue.
      */
@@ -104,6 +137,12 @@ public abstract class AbstractExtractor<ResultType> {
         
         private @NonNull ProgressLogger progress;
         
+        private @Nullable File currentTarget;
+        
+        private long currentStart;
+        
+        private boolean abandoned;
+        
         /**
          * Creates a new worker thread.
          * 
@@ -111,24 +150,67 @@ public abstract class AbstractExtractor<ResultType> {
          * @param number The number of this thread.
          * @param targets The queue to get targets from.
          * @param progress A {@link ProgressLogger} to notfiy about finished items.
+         * @param daemon Whether this thread should be a daemon thread. Workers that may be abandoned by the watchdog
+         *      should be daemons, so that they don't prevent the JVM from exiting.
          */
         public WorkerThread(@NonNull String name, int number, @NonNull BlockingQueue<File> targets,
-                @NonNull ProgressLogger progress) {
+                @NonNull ProgressLogger progress, boolean daemon) {
             super(name + "-" + number);
             this.targets = targets;
             this.progress = progress;
+            setDaemon(daemon);
+        }
+        
+        /**
+         * Marks the start of work on the given target.
+         * 
+         * @param target The target that this worker starts working on.
+         */
+        private synchronized void startTarget(@NonNull File target) {
+            this.currentTarget = target;
+            this.currentStart = System.currentTimeMillis();
+        }
+        
+        /**
+         * Marks the end of work on the current target.
+         * 
+         * @return <code>false</code> if this worker has been abandoned by the watchdog in the meantime; in this case,
+         *      the result must be discarded and this worker should stop.
+         */
+        private synchronized boolean finishTarget() {
+            this.currentTarget = null;
+            return !abandoned;
+        }
+        
+        /**
+         * Called by the watchdog. Checks whether this worker is working on the current target for longer than the
+         * given timeout; if so, this worker is marked as abandoned.
+         * 
+         * @param timeout The deadline for a single target, in milliseconds.
+         * 
+         * @return The target that exceeded the deadline, or <code>null</code> if this worker is within the deadline.
+         */
+        private synchronized @Nullable File abandonIfExceeded(long timeout) {
+            File result = null;
+            if (currentTarget != null && System.currentTimeMillis() - currentStart > timeout) {
+                result = currentTarget;
+                abandoned = true;
+            }
+            return result;
         }
         
         @Override
         public void run() {
             File target;
             
-            while ((target = targets.get()) != null) {
+            while (!cancelled && (target = targets.get()) != null && provider.awaitDemand()) {
+                startTarget(target);
+                
+                ResultType result = null;
+                boolean readFromCache = false;
+                ExtractorException exception = null;
+                
                 try {
-                    ResultType result = null;
-                    boolean readFromCache = false;
-                    
-                    
                     if (provider.readCache()) {
                         try {
                             result = provider.getCache().read(target);
@@ -150,6 +232,21 @@ public abstract class AbstractExtractor<ResultType> {
                         throw new ExtractorException("Extractor returned null");
                     }
                     
+                } catch (ExtractorException e) {
+                    exception = e;
+                }
+                
+                if (!finishTarget()) {
+                    // the watchdog already reported this target and started a replacement for us
+                    LOGGER.logDebug("Discarding result for abandoned target " + target.getPath());
+                    break;
+                }
+                
+                if (exception != null) {
+                    provider.addException(exception);
+                    provider.returnDemand();
+                    
+                } else if (result != null) {
                     provider.addResult(result);
                     
                     if (provider.writeCache() && !readFromCache) {
@@ -161,9 +258,6 @@ public abstract class AbstractExtractor<ResultType> {
                             LOGGER.logException("Error writing cache for file " + target.getPath(), e);
                         }
                     }
-                    
-                } catch (ExtractorException e) {
-                    provider.addException(e);
                 }
                 
                 progress.processedOne();
@@ -172,16 +266,71 @@ public abstract class AbstractExtractor<ResultType> {
         
     }
     
+    /**
+     * Waits until all worker threads are done. While waiting, this acts as a watchdog: workers that work on a single
+     * target for longer than the given timeout are interrupted and abandoned. An exception is passed to the provider
+     * for the target, and a replacement worker is started so that the number of active workers stays the same.
+     * 
+     * @param workers The initially started worker threads.
+     * @param targetQueue The queue of targets; used by replacement workers.
+     * @param progress The {@link ProgressLogger} that the workers use.
+     * @param timeout The deadline for a single target, in milliseconds. 0 means that no deadline is enforced.
+     */
+    private void watchWorkers(@NonNull List<WorkerThread> workers, @NonNull BlockingQueue<File> targetQueue,
+            @NonNull ProgressLogger progress, long timeout) {
+        
+        List<WorkerThread> active = new LinkedList<>(workers);
+        int nextNumber = workers.size() + 1;
+        long interval = Math.max(10, Math.min(1000, timeout / 10));
+        
+        while (!active.isEmpty()) {
+            try {
+                active.get(0).join(timeout > 0 ? interval : 0);
+            } catch (InterruptedException e) {
+            }
+            
+            List<WorkerThread> replacements = new LinkedList<>();
+            for (Iterator<WorkerThread> it = active.iterator(); it.hasNext();) {
+                WorkerThread worker = it.next();
+                
+                if (!worker.isAlive()) {
+                    it.remove();
+                    continue;
+                }
+                
+                File target = timeout > 0 ? worker.abandonIfExceeded(timeout) : null;
+                if (target != null) {
+                    it.remove();
+                    LOGGER.logWarning2("Extraction of ", target.getPath(), " exceeded the deadline of ", timeout,
+                            " ms; abandoning worker ", worker.getName());
+                    
+                    // interrupting also kills child processes started via Util or ProcessPool
+                    worker.interrupt();
+                    provider.addException(createTimeoutException(target, timeout));
+                    provider.returnDemand();
+                    progress.processedOne();
+                    
+                    WorkerThread replacement = new WorkerThread(getName(), nextNumber++, targetQueue, progress, true);
+                    replacement.start();
+                    replacements.add(replacement);
+                }
+            }
+            active.addAll(replacements);
+        }
+    }
+    
     /**
      * Runs the extractor asynchronously on the given list of targets. This potentially (depending on configuration)
      * spawns multiple threads that chew through the list of targets. For each result, setResult() or setException()
-     * of the provider is called.
+     * of the provider is called. If the provider specifies a deadline for single targets (see
+     * {@link AbstractProvider#getTargetTimeout()}), then workers that exceed it are abandoned and replaced.
      * 
      * @param targets The targets to run on.
      */
     public final void run(@NonNull List<@NonNull File> targets) {
         synchronized (isRunningMutex) {
             this.isRunning = true;
+            this.cancelled = false;
         }
         
         new Thread(() -> {
@@ -195,31 +344,53 @@ public abstract class AbstractExtractor<ResultType> {
             }
             targetQueue.end();
             
+            long timeout = provider.getTargetTimeout();
             List<WorkerThread> threads = new ArrayList<>(provider.getNumberOfThreads());
             
             for (int i = 1; i <= provider.getNumberOfThreads(); i++) {
-                WorkerThread th = new WorkerThread(getName(), i, targetQueue, progress);
+                WorkerThread th = new WorkerThread(getName(), i, targetQueue, progress, timeout > 0);
                 th.start();
                 threads.add(th);
             }
             
-            for (WorkerThread th : threads) {
+            watchWorkers(threads, targetQueue, progress, timeout);
+            
+            if (cancelled) {
+                LOGGER.logInfo2(getName(), " cancelled; remaining targets are skipped");
+            }
+            
+            if (provider.writeCache()) {
                 try {
-                    th.join();
-                } catch (InterruptedException e) {
+                    provider.getCache().flush();
+                } catch (IOException e) {
+                    LOGGER.logException("Error flushing cache", e);
                 }
             }
+            try {
+                provider.getCache().close();
+            } catch (IOException e) {
+                LOGGER.logException("Error closing cache", e);
+            }
             
             progress.close();
             
             synchronized (isRunningMutex) {
                 isRunning = false;
                 provider.addResult(null);
+                isRunningMutex.notifyAll();
             }
             
         }, getName()).start();
     }
 
+    /**
+     * Cancels the current run of this extractor. Workers don't start on any new targets after this; targets that are
+     * currently being worked on are finished normally. Called by {@link AbstractProvider#cancel()}.
+     */
+    final void cancel() {
+        this.cancelled = true;
+    }
+    
     /**
      * Sets the provider to pass the results to.
      * 
@@ -21,9 +21,13 @@ import java.util.concurrent.TimeoutException;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.util.BlockingQueue;
 import net.ssehub.kernel_haven.util.ExtractorException;
 import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.flow.DemandCounter;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -49,6 +53,10 @@ public abstract class AbstractProvider<ResultType> {
     private @NonNull BlockingQueue<ExtractorException> exceptionQueue;
     
     private AbstractCache<ResultType> cache;
+    
+    private volatile @Nullable DemandCounter demand;
+    
+    private boolean cancelled;
 
     /**
      * Creates a new provider.
@@ -77,6 +85,17 @@ public abstract class AbstractProvider<ResultType> {
      */
     protected abstract long getTimeout();
     
+    /**
+     * Specifies the deadline in milliseconds for the extraction of a single target. If the extractor works on a
+     * single target for longer than this, the worker is abandoned (and replaced by a new one) and an exception is
+     * generated for the target instead. By default, no deadline is used.
+     * 
+     * @return The deadline in milliseconds. 0 means no deadline is used.
+     */
+    protected long getTargetTimeout() {
+        return 0;
+    }
+    
     /**
      * Creates a cache to use for the extractor.
      * 
@@ -84,6 +103,29 @@ public abstract class AbstractProvider<ResultType> {
      */
     protected abstract @NonNull AbstractCache<ResultType> createCache();
     
+    /**
+     * Creates the {@link CompressionCodec} for the cache, as defined by {@link DefaultSettings#CACHE_COMPRESSION} and
+     * {@link DefaultSettings#CACHE_COMPRESSION_LEVEL}. An invalid level is replaced by the default level.
+     * 
+     * @param compress Whether the cache of this provider should be compressed at all.
+     * 
+     * @return The codec to write the cache with; {@link CompressionCodec#NONE} if compress is <code>false</code>.
+     */
+    protected @NonNull CompressionCodec createCompressionCodec(boolean compress) {
+        CompressionCodec result = CompressionCodec.NONE;
+        if (compress) {
+            CompressionCodec.Type type = config.getValue(DefaultSettings.CACHE_COMPRESSION);
+            int level = config.getValue(DefaultSettings.CACHE_COMPRESSION_LEVEL);
+            try {
+                result = CompressionCodec.create(type, level);
+            } catch (IllegalArgumentException e) {
+                Logger.get().logWarning("Invalid cache compression level " + level + ", using default level");
+                result = CompressionCodec.create(type, -1);
+            }
+        }
+        return result;
+    }
+    
     /**
      * Whether to try and read from the cache before running the extractor.
      * 
@@ -132,7 +174,11 @@ public abstract class AbstractProvider<ResultType> {
         this.config = config;
         extractor.init(config);
         
-        this.cache = createCache();
+        AbstractCache<ResultType> cache = createCache();
+        if (config.getValue(DefaultSettings.CACHE_HASH_CONSING)) {
+            cache.setFormulaFactory(FormulaFactory.getDefault());
+        }
+        this.cache = cache;
     }
     
     /**
@@ -163,8 +209,11 @@ public abstract class AbstractProvider<ResultType> {
             throw new SetUpException("Extractor not yet initialized");
         }
         
-        resultQueue = new BlockingQueue<>();
-        exceptionQueue = new BlockingQueue<>();
+        synchronized (this) {
+            resultQueue = new BlockingQueue<>();
+            exceptionQueue = new BlockingQueue<>();
+            cancelled = false;
+        }
 
         try {
             extractor.run(getTargets());
@@ -176,25 +225,124 @@ public abstract class AbstractProvider<ResultType> {
     
     /**
      * Adds a new result to this provider. Pass <code>null</code> to signal that the extraction process is finished.
+     * Results are discarded if this provider is cancelled. If a source tree ID is configured (see
+     * {@link DefaultSettings#SOURCE_TREE_ID}), the result is tagged with it (see {@link #tagResult(Object, String)}).
      * 
      * @param result The result of the extractor to add.
      */
-    public void addResult(@Nullable ResultType result) {
+    public synchronized void addResult(@Nullable ResultType result) {
+        if (cancelled) {
+            // queues are already ended; results that arrive late are discarded
+            return;
+        }
+        
         if (result == null) {
             resultQueue.end();
             exceptionQueue.end();
         } else {
+            String treeId = config != null ? config.getValue(DefaultSettings.SOURCE_TREE_ID) : null;
+            if (treeId != null) {
+                tagResult(result, treeId);
+            }
             resultQueue.add(result);
         }
     }
     
     /**
-     * Adds a new exception to this provider.
+     * Tags the given result with the ID of the source tree that it was extracted from. Called by
+     * {@link #addResult(Object)} if a source tree ID is configured. The default implementation does nothing.
+     * 
+     * @param result The result to tag.
+     * @param treeId The ID of the source tree.
+     */
+    protected void tagResult(@NonNull ResultType result, @NonNull String treeId) {
+    }
+    
+    /**
+     * Adds a new exception to this provider. Exceptions are discarded if this provider is cancelled.
      * 
      * @param exception The exception to add.
      */
-    public void addException(@NonNull ExtractorException exception) {
-        exceptionQueue.add(exception);
+    public synchronized void addException(@NonNull ExtractorException exception) {
+        if (!cancelled) {
+            exceptionQueue.add(exception);
+        }
+    }
+    
+    /**
+     * Cancels the extraction: the extractor does not start on any new targets, and the result and exception queues of
+     * this provider are ended immediately. Results of targets that the extractor is currently working on are
+     * discarded. This is used to stop the extraction early, if nobody needs any more results.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            resultQueue.end();
+            exceptionQueue.end();
+            cancelled = true;
+        }
+        
+        extractor.cancel();
+        
+        DemandCounter demand = this.demand;
+        if (demand != null) {
+            demand.cancel();
+        }
+    }
+    
+    /**
+     * Returns whether {@link #cancel()} has been called since the last start of the extractor.
+     * 
+     * @return Whether the extraction is cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Enables demand control for this provider: the extractor only starts working on a new target if there is
+     * outstanding demand (see {@link #addDemand(long)}). Should be called before the extractor is started. Used by
+     * the {@link ProviderPublisher}.
+     */
+    void enableDemandControl() {
+        this.demand = new DemandCounter();
+    }
+    
+    /**
+     * Adds demand for the given number of results. Only has an effect if demand control is enabled.
+     * 
+     * @param n The number of additional results that are requested. {@link Long#MAX_VALUE} means unbounded demand.
+     */
+    void addDemand(long n) {
+        DemandCounter demand = this.demand;
+        if (demand != null) {
+            demand.add(n);
+        }
+    }
+    
+    /**
+     * Called by the extractor before it starts working on the next target. Waits until there is demand for a result,
+     * if demand control is enabled.
+     * 
+     * @return Whether the extractor may continue with the next target. <code>false</code> if waiting for demand was
+     *      cancelled or interrupted.
+     */
+    boolean awaitDemand() {
+        DemandCounter demand = this.demand;
+        return demand == null || demand.take();
+    }
+    
+    /**
+     * Called by the extractor if a target produced an exception instead of a result. Since no result was produced,
+     * the consumed demand is returned so that the extractor continues with another target.
+     */
+    void returnDemand() {
+        DemandCounter demand = this.demand;
+        if (demand != null && !demand.isCancelled()) {
+            demand.add(1);
+        }
     }
     
     /**
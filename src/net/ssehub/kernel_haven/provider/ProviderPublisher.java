@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.provider;
+
+import net.ssehub.kernel_haven.util.flow.AbstractPollingPublisher;
+import net.ssehub.kernel_haven.util.flow.Publisher;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A {@link Publisher} for the results of an {@link AbstractProvider}. This enables demand control on the provider:
+ * the workers of the extractor only start on a new target if the subscriber requested more results. Thus, extraction
+ * does not run ahead of the consumer. Targets that produce an exception instead of a result don't count towards the
+ * demand; the exceptions can still be retrieved via {@link AbstractProvider#getNextException()}. Cancelling the
+ * subscription cancels the provider (see {@link AbstractProvider#cancel()}).
+ * <p>
+ * The publisher must be created before the provider is started (i.e. before {@link AbstractProvider#start()} or the
+ * first call to {@link AbstractProvider#getNextResult()}); otherwise, the extractor may already have started working
+ * on more targets than requested.
+ *
+ * @param <T> The result type of the provider.
+ *
+ * @author Adam
+ */
+public class ProviderPublisher<T> extends AbstractPollingPublisher<T> {
+
+    private @NonNull AbstractProvider<T> provider;
+
+    /**
+     * Creates a publisher for the given provider. Enables demand control on the provider.
+     *
+     * @param provider The provider to publish the results of.
+     */
+    public ProviderPublisher(@NonNull AbstractProvider<T> provider) {
+        this.provider = provider;
+        provider.enableDemandControl();
+    }
+
+    @Override
+    protected @Nullable T poll() {
+        return provider.getNextResult();
+    }
+
+    @Override
+    protected void onRequest(long n) {
+        provider.addDemand(n);
+    }
+
+    @Override
+    protected void onCancel() {
+        provider.cancel();
+    }
+
+    @Override
+    protected @NonNull String getName() {
+        return provider.getClass().getSimpleName();
+    }
+
+}
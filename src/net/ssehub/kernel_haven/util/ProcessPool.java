@@ -0,0 +1,570 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A pool of long-lived external processes that handle requests over their standard input and output. This avoids
+ * the process startup (and tool initialization) costs of {@link Util#executeProcess(ProcessBuilder, String)} if an
+ * external tool has to be called for a lot of inputs.
+ * <p>
+ * All processes are started from the same {@link ProcessBuilder}. A request is sent to the standard input of an idle
+ * process, and exactly one response is expected on its standard output (see {@link Protocol}). The standard error
+ * output of the processes is logged on debug level.
+ * <p>
+ * Processes that crashed (i.e. terminated or closed their standard output) are transparently restarted. If a response
+ * does not arrive within the given timeout, or the calling thread is interrupted while waiting, the process is killed
+ * and restarted, too. Optionally, a health check request can be specified that every (re-)started process has to
+ * answer correctly before it is used; see {@link #setHealthCheck(String, String)}.
+ * <p>
+ * This class is thread-safe; {@link #execute(String, long)} may be called from multiple threads at once. If all
+ * processes are busy, callers wait until one becomes available.
+ *
+ * @author Adam
+ */
+public class ProcessPool implements Closeable {
+
+    /**
+     * The protocol used to exchange requests and responses with the processes.
+     */
+    public static enum Protocol {
+
+        /**
+         * Each request and response is a single line, terminated by a line break. Requests must not contain line
+         * breaks.
+         */
+        LINE,
+
+        /**
+         * Each request and response is prefixed with its length in bytes, as a decimal number followed by a line
+         * break. The content itself may contain arbitrary characters (including line breaks).
+         */
+        LENGTH_PREFIXED,
+
+    }
+
+    /**
+     * Marker put into the response queue of a process when its standard output was closed.
+     */
+    private static final @NonNull Object EOF = new Object();
+
+    private static final @NonNull Charset CHARSET = notNull(StandardCharsets.UTF_8);
+
+    private @NonNull ProcessBuilder processBuilder;
+
+    private @NonNull String name;
+
+    private @NonNull Protocol protocol;
+
+    private @Nullable String healthCheckRequest;
+
+    private @Nullable String healthCheckResponse;
+
+    private long healthCheckTimeout;
+
+    private @NonNull List<@NonNull PooledProcess> allProcesses;
+
+    private @NonNull LinkedBlockingQueue<@NonNull PooledProcess> idleProcesses;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a new process pool. The processes are started lazily, when they are first used.
+     *
+     * @param processBuilder The builder used to start the processes. Must not redirect stdin or stdout.
+     * @param name The name of the process; used for logging and thread names.
+     * @param size The number of processes to keep.
+     * @param protocol The protocol to talk to the processes.
+     *
+     * @throws IllegalArgumentException If size is smaller than 1.
+     */
+    public ProcessPool(@NonNull ProcessBuilder processBuilder, @NonNull String name, int size,
+            @NonNull Protocol protocol) throws IllegalArgumentException {
+
+        if (size < 1) {
+            throw new IllegalArgumentException("Process pool size must be at least 1, got " + size);
+        }
+
+        this.processBuilder = processBuilder;
+        this.name = name;
+        this.protocol = protocol;
+        this.allProcesses = new ArrayList<>(size);
+        this.idleProcesses = new LinkedBlockingQueue<>();
+
+        for (int i = 0; i < size; i++) {
+            PooledProcess process = new PooledProcess(name + "-" + (i + 1));
+            allProcesses.add(process);
+            idleProcesses.add(process);
+        }
+    }
+
+    /**
+     * Sets a health check that every (re-)started process has to pass before it is used. The given request is sent to
+     * the process, and the response has to equal the given expected response. If the health check fails, the process
+     * is killed and an {@link IOException} is thrown to the caller that tried to use it.
+     *
+     * @param request The request to send as a health check.
+     * @param expectedResponse The response that the process has to answer to the health check.
+     * @param timeout The maximum time (in milliseconds) to wait for the answer to the health check. 0 means no timeout.
+     */
+    public void setHealthCheck(@NonNull String request, @NonNull String expectedResponse, long timeout) {
+        this.healthCheckRequest = request;
+        this.healthCheckResponse = expectedResponse;
+        this.healthCheckTimeout = timeout;
+    }
+
+    /**
+     * Sets a health check that every (re-)started process has to pass before it is used. Uses a timeout of 10 seconds.
+     * See {@link #setHealthCheck(String, String, long)}.
+     *
+     * @param request The request to send as a health check.
+     * @param expectedResponse The response that the process has to answer to the health check.
+     */
+    public void setHealthCheck(@NonNull String request, @NonNull String expectedResponse) {
+        setHealthCheck(request, expectedResponse, 10000);
+    }
+
+    /**
+     * Returns the number of processes in this pool.
+     *
+     * @return The size of this pool.
+     */
+    public int getSize() {
+        return allProcesses.size();
+    }
+
+    /**
+     * Returns how often processes in this pool have been (re-)started so far.
+     *
+     * @return The number of process starts.
+     */
+    public int getNumStarts() {
+        int result = 0;
+        for (PooledProcess process : allProcesses) {
+            result += process.numStarts;
+        }
+        return result;
+    }
+
+    /**
+     * Sends the given request to an idle process and waits for its response. If no process is idle, this waits
+     * until one becomes available.
+     *
+     * @param request The request to send.
+     * @param timeout The maximum time (in milliseconds) to wait for the response. 0 means no timeout. If the timeout
+     *      is reached, the process is killed (and restarted for the next request).
+     *
+     * @return The response of the process.
+     *
+     * @throws InterruptedIOException If the timeout was reached or the calling thread was interrupted.
+     * @throws IOException If starting the process, or communicating with it, fails; or if the process crashed while
+     *      handling the request.
+     */
+    public @NonNull String execute(@NonNull String request, long timeout) throws IOException {
+        if (protocol == Protocol.LINE && (request.indexOf('\n') != -1 || request.indexOf('\r') != -1)) {
+            throw new IllegalArgumentException("Request must not contain line breaks for protocol " + protocol);
+        }
+
+        PooledProcess process = acquire();
+        try {
+            process.ensureRunning();
+            return process.execute(request, timeout);
+        } finally {
+            release(process);
+        }
+    }
+
+    /**
+     * Checks the health of all currently idle processes. Processes that are not running anymore, or that fail the
+     * health check (see {@link #setHealthCheck(String, String, long)}), are killed; they will be restarted when they
+     * are used next time.
+     *
+     * @return The number of processes that failed the check.
+     */
+    public int checkHealth() {
+        List<@NonNull PooledProcess> toCheck = new ArrayList<>(allProcesses.size());
+        idleProcesses.drainTo(toCheck);
+
+        int numFailed = 0;
+        for (PooledProcess process : toCheck) {
+            if (process.isRunning()) {
+                try {
+                    process.runHealthCheck();
+                } catch (IOException e) {
+                    Logger.get().logExceptionDebug("Health check of " + process.name + " failed", e);
+                    process.kill();
+                    numFailed++;
+                }
+            } else if (process.process != null) {
+                process.kill();
+                numFailed++;
+            }
+            release(process);
+        }
+        return numFailed;
+    }
+
+    /**
+     * Takes an idle process from the pool. Waits until one is available.
+     *
+     * @return An idle process.
+     *
+     * @throws InterruptedIOException If the calling thread was interrupted while waiting.
+     * @throws IOException If this pool is already closed.
+     */
+    private @NonNull PooledProcess acquire() throws IOException {
+        PooledProcess result = null;
+        while (result == null) {
+            if (closed) {
+                throw new IOException("Process pool " + name + " is closed");
+            }
+            try {
+                result = idleProcesses.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting for an idle process of " + name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puts the given process back into the pool of idle processes.
+     *
+     * @param process The process that is idle now.
+     */
+    private void release(@NonNull PooledProcess process) {
+        if (closed) {
+            process.kill();
+        }
+        idleProcesses.add(process);
+    }
+
+    /**
+     * Kills all processes of this pool. Processes that are currently handling a request are killed, too. Calls to
+     * {@link #execute(String, long)} will fail after this.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (PooledProcess process : allProcesses) {
+            process.kill();
+        }
+    }
+
+    /**
+     * A single process in the pool.
+     */
+    private final class PooledProcess {
+
+        private @NonNull String name;
+
+        private volatile @Nullable Process process;
+
+        private @Nullable OutputStream stdin;
+
+        private @NonNull LinkedBlockingQueue<@NonNull Object> responses;
+
+        private volatile int numStarts;
+
+        /**
+         * Creates a new (not yet started) process.
+         *
+         * @param name The name of this process, used for logging.
+         */
+        public PooledProcess(@NonNull String name) {
+            this.name = name;
+            this.responses = new LinkedBlockingQueue<>();
+        }
+
+        /**
+         * Checks whether the process is currently running. A process that already closed its standard output is
+         * considered as not running anymore.
+         *
+         * @return Whether the process is running.
+         */
+        public boolean isRunning() {
+            Process process = this.process;
+            return process != null && process.isAlive() && responses.peek() != EOF;
+        }
+
+        /**
+         * Starts the process if it is not currently running (e.g. because it crashed or was killed).
+         *
+         * @throws IOException If starting the process fails or it fails the health check.
+         */
+        public void ensureRunning() throws IOException {
+            if (isRunning()) {
+                return;
+            }
+
+            if (process != null) {
+                Logger.get().logDebug2("Restarting crashed process ", name);
+                kill();
+            }
+
+            Process process = processBuilder.start();
+            this.process = process;
+            this.stdin = process.getOutputStream();
+            this.responses = new LinkedBlockingQueue<>();
+            this.numStarts++;
+
+            Thread stdoutReader = new Thread(new ResponseReader(notNull(process.getInputStream()), responses),
+                    name + "-stdout");
+            stdoutReader.setDaemon(true);
+            stdoutReader.start();
+
+            Thread stderrReader = new Thread(() -> logStderr(notNull(process.getErrorStream())), name + "-stderr");
+            stderrReader.setDaemon(true);
+            stderrReader.start();
+
+            try {
+                runHealthCheck();
+            } catch (IOException e) {
+                kill();
+                throw new IOException("Process " + name + " failed health check", e);
+            }
+        }
+
+        /**
+         * Runs the health check on this process, if a health check is specified.
+         *
+         * @throws IOException If the health check fails.
+         */
+        public void runHealthCheck() throws IOException {
+            String request = healthCheckRequest;
+            if (request != null) {
+                String response = sendAndReceive(request, healthCheckTimeout);
+                if (!response.equals(healthCheckResponse)) {
+                    throw new IOException("Got unexpected health check response: " + response);
+                }
+            }
+        }
+
+        /**
+         * Sends a request to this process and waits for the response. Kills the process if the timeout is reached or
+         * the calling thread is interrupted.
+         *
+         * @param request The request to send.
+         * @param timeout The timeout for the response, in milliseconds. 0 means no timeout.
+         *
+         * @return The response of the process.
+         *
+         * @throws IOException If communicating with the process fails or the timeout was reached.
+         */
+        public @NonNull String execute(@NonNull String request, long timeout) throws IOException {
+            try {
+                return sendAndReceive(request, timeout);
+            } catch (IOException e) {
+                kill();
+                throw e;
+            }
+        }
+
+        /**
+         * Sends a request to this process and waits for the response.
+         *
+         * @param request The request to send.
+         * @param timeout The timeout for the response, in milliseconds. 0 means no timeout.
+         *
+         * @return The response of the process.
+         *
+         * @throws IOException If communicating with the process fails or the timeout was reached.
+         */
+        private @NonNull String sendAndReceive(@NonNull String request, long timeout) throws IOException {
+            OutputStream stdin = this.stdin;
+            if (stdin == null) {
+                throw new IOException("Process " + name + " is not running");
+            }
+
+            byte[] bytes = request.getBytes(CHARSET);
+            if (protocol == Protocol.LENGTH_PREFIXED) {
+                stdin.write((bytes.length + "\n").getBytes(CHARSET));
+            }
+            stdin.write(bytes);
+            if (protocol == Protocol.LINE) {
+                stdin.write('\n');
+            }
+            stdin.flush();
+
+            Object response;
+            try {
+                if (timeout > 0) {
+                    response = responses.poll(timeout, TimeUnit.MILLISECONDS);
+                } else {
+                    response = responses.take();
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting for response of " + name);
+            }
+
+            if (response == null) {
+                throw new InterruptedIOException("Process " + name + " did not respond within " + timeout + " ms");
+            }
+            if (response == EOF) {
+                throw new EOFException("Process " + name + " closed its output before responding");
+            }
+
+            return (String) response;
+        }
+
+        /**
+         * Forcibly terminates this process, if it is running.
+         */
+        public void kill() {
+            Process process = this.process;
+            this.process = null;
+            this.stdin = null;
+            if (process != null) {
+                process.destroyForcibly();
+            }
+        }
+
+        /**
+         * Logs all lines of the given standard error stream on debug level, until the stream is closed.
+         *
+         * @param stderr The standard error stream of the process.
+         */
+        private void logStderr(@NonNull InputStream stderr) {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(stderr, CHARSET))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    Logger.get().logDebug2(name, " stderr: ", line);
+                }
+            } catch (IOException e) {
+                // process was killed; ignore
+            }
+        }
+
+    }
+
+    /**
+     * Reads the responses from the standard output of a process and puts them into a queue. Puts {@link #EOF} into
+     * the queue when the stream is closed.
+     */
+    private final class ResponseReader implements Runnable {
+
+        private @NonNull InputStream in;
+
+        private @NonNull LinkedBlockingQueue<@NonNull Object> responses;
+
+        /**
+         * Creates a new response reader.
+         *
+         * @param in The standard output of the process.
+         * @param responses The queue to put the responses into.
+         */
+        public ResponseReader(@NonNull InputStream in, @NonNull LinkedBlockingQueue<@NonNull Object> responses) {
+            this.in = new BufferedInputStream(in);
+            this.responses = responses;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String response;
+                while ((response = readResponse()) != null) {
+                    responses.add(response);
+                }
+            } catch (IOException e) {
+                // process was killed or sent malformed data; treat as closed stream
+            }
+            responses.add(EOF);
+        }
+
+        /**
+         * Reads a single response from the stream.
+         *
+         * @return The response, or <code>null</code> if the stream ended.
+         *
+         * @throws IOException If reading the stream fails or the response is malformed.
+         */
+        private @Nullable String readResponse() throws IOException {
+            String line = readLine();
+            if (line == null || protocol == Protocol.LINE) {
+                return line;
+            }
+
+            int length;
+            try {
+                length = Integer.parseInt(line.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid length prefix: " + line);
+            }
+            if (length < 0) {
+                throw new IOException("Invalid length prefix: " + line);
+            }
+
+            byte[] buffer = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int r = in.read(buffer, read, length - read);
+                if (r == -1) {
+                    throw new EOFException();
+                }
+                read += r;
+            }
+            return new String(buffer, CHARSET);
+        }
+
+        /**
+         * Reads a single line (terminated by \n or \r\n) from the stream.
+         *
+         * @return The line without the line terminator, or <code>null</code> if the stream ended before any character.
+         *
+         * @throws IOException If reading the stream fails.
+         */
+        private @Nullable String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int read;
+            while ((read = in.read()) != -1 && read != '\n') {
+                line.write(read);
+            }
+            if (read == -1 && line.size() == 0) {
+                return null;
+            }
+
+            byte[] bytes = line.toByteArray();
+            int length = bytes.length;
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            return new String(bytes, 0, length, CHARSET);
+        }
+
+    }
+
+}
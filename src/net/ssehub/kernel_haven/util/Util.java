@@ -181,20 +181,24 @@ public final class Util {
     }
 
     /**
-     * Waits until the given process has finished. If the given timeout was reached, then the process is forcibly
-     * terminated.
+     * Waits until the given process has finished. If the given timeout was reached, or the calling thread is
+     * interrupted while waiting, then the process is forcibly terminated (and the interrupted status of the thread is
+     * kept).
      * 
      * @param process
      *            The process to wait for. Must not be <code>null</code>.
      * @param timeout
      *            The maximum time to wait (in milliseconds) until the process is killed forcibly. 0 if no timeout
      *            should be used.
-     * @return The exit code of the process, or <code>null</code> if the process was killed.
+     * @return The exit code of the process, or <code>null</code> if the process was killed because the timeout was
+     *            reached. If the process was killed because the thread was interrupted, the exit code of the killed
+     *            process is returned.
      */
     public static @Nullable Integer waitForProcess(@NonNull Process process, long timeout) {
         int returnValue = 0;
         boolean timeoutReached = false;
 
+        boolean interrupted = false;
         boolean success = false;
         do {
             try {
@@ -205,13 +209,20 @@ public final class Util {
                 }
                 success = true;
             } catch (InterruptedException e) {
+                // e.g. the watchdog of AbstractExtractor abandoned this thread; don't leave the process running
+                interrupted = true;
+                success = true;
             }
         } while (!success);
 
-        if (timeoutReached) {
+        if (timeoutReached || interrupted) {
             process.destroyForcibly();
             waitForProcess(process);
         }
+        
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
 
         returnValue = process.exitValue();
 
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.flow;
+
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A {@link Publisher} that is backed by a blocking source of items (e.g. a queue). A single subscriber is supported.
+ * A separate delivery thread polls the source and passes the items to the subscriber as long as it has outstanding
+ * demand. At most one item is polled ahead of the demand. Sub-classes can react to requests via
+ * {@link #onRequest(long)}, e.g. to forward the demand further upstream.
+ *
+ * @param <T> The type of items that are published.
+ *
+ * @author Adam
+ */
+public abstract class AbstractPollingPublisher<T> implements Publisher<T> {
+
+    private boolean subscribed;
+
+    /**
+     * Retrieves the next item from the source. Blocks until an item is available.
+     *
+     * @return The next item, or <code>null</code> if the source has no more items.
+     */
+    protected abstract @Nullable T poll();
+
+    /**
+     * The name of this publisher. Used for naming the delivery thread.
+     *
+     * @return The name of this publisher.
+     */
+    protected abstract @NonNull String getName();
+
+    /**
+     * Called when the subscriber requests more items. The default implementation does nothing.
+     *
+     * @param n The number of additional requested items; {@link Long#MAX_VALUE} for unbounded demand.
+     */
+    protected void onRequest(long n) {
+    }
+
+    /**
+     * Called when the subscriber cancels its subscription. The default implementation does nothing.
+     */
+    protected void onCancel() {
+    }
+
+    @Override
+    public synchronized void subscribe(@NonNull Subscriber<? super T> subscriber) {
+        if (subscribed) {
+            subscriber.onSubscribe(new Subscription() {
+
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(getName() + " only supports a single subscriber"));
+            return;
+        }
+        subscribed = true;
+
+        DeliverySubscription subscription = new DeliverySubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+
+        Thread th = new Thread(subscription, getName() + "-Publisher");
+        th.setDaemon(true);
+        th.start();
+    }
+
+    /**
+     * The subscription for the single subscriber. Also runs the delivery loop.
+     */
+    private final class DeliverySubscription implements Subscription, Runnable {
+
+        private @NonNull Subscriber<? super T> subscriber;
+
+        private @NonNull DemandCounter demand;
+
+        private volatile @Nullable Throwable invalidRequest;
+
+        /**
+         * Creates the subscription for the given subscriber.
+         *
+         * @param subscriber The subscriber to deliver items to.
+         */
+        public DeliverySubscription(@NonNull Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+            this.demand = new DemandCounter();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // the error is delivered by the delivery thread, so that the subscriber is never called concurrently
+                invalidRequest = new IllegalArgumentException("Requested " + n + " items; must be positive");
+                demand.cancel();
+                return;
+            }
+            if (demand.isCancelled()) {
+                return;
+            }
+
+            onRequest(n);
+            demand.add(n);
+        }
+
+        @Override
+        public void cancel() {
+            if (!demand.isCancelled()) {
+                demand.cancel();
+                onCancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!demand.isCancelled()) {
+                    // poll first, so that the end of the source is signaled even without outstanding demand
+                    T next = poll();
+
+                    if (next == null) {
+                        if (!demand.isCancelled()) {
+                            subscriber.onComplete();
+                            return;
+                        }
+                        break;
+                    }
+
+                    if (!demand.take()) {
+                        break;
+                    }
+                    subscriber.onNext(next);
+                }
+
+                Throwable invalidRequest = this.invalidRequest;
+                if (invalidRequest != null) {
+                    onCancel();
+                    subscriber.onError(invalidRequest);
+                }
+
+                // CHECKSTYLE:OFF
+            } catch (RuntimeException e) {
+                // CHECKSTYLE:ON
+                Logger.get().logExceptionDebug("Exception while publishing items of " + getName(), e);
+                demand.cancel();
+                onCancel();
+                subscriber.onError(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.flow;
+
+/**
+ * A thread-safe counter for outstanding demand. One thread adds demand via {@link #add(long)}, while other threads
+ * wait for (and consume) demand via {@link #take()}. Demand of {@link Long#MAX_VALUE} is treated as unbounded.
+ *
+ * @author Adam
+ */
+public class DemandCounter {
+
+    private long demand;
+
+    private boolean cancelled;
+
+    /**
+     * Creates a new counter with no initial demand.
+     */
+    public DemandCounter() {
+    }
+
+    /**
+     * Adds demand. Waiting threads are woken up. Saturates at {@link Long#MAX_VALUE} (unbounded demand).
+     *
+     * @param n The amount of demand to add. Must be positive.
+     *
+     * @throws IllegalArgumentException If n is not positive.
+     */
+    public synchronized void add(long n) throws IllegalArgumentException {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Demand must be positive, got " + n);
+        }
+
+        if (demand > Long.MAX_VALUE - n) {
+            demand = Long.MAX_VALUE;
+        } else {
+            demand += n;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits until there is demand and consumes one unit of it.
+     *
+     * @return <code>true</code> if one unit of demand was consumed; <code>false</code> if this counter was cancelled
+     *      or the calling thread was interrupted while waiting (the interrupted status is kept in this case).
+     */
+    public synchronized boolean take() {
+        while (demand == 0 && !cancelled) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        if (cancelled) {
+            return false;
+        }
+
+        if (demand != Long.MAX_VALUE) {
+            demand--;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the currently outstanding demand.
+     *
+     * @return The current demand; {@link Long#MAX_VALUE} for unbounded demand.
+     */
+    public synchronized long get() {
+        return demand;
+    }
+
+    /**
+     * Cancels this counter. All waiting and future calls to {@link #take()} return <code>false</code>.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * Returns whether {@link #cancel()} has been called.
+     *
+     * @return Whether this counter is cancelled.
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+}
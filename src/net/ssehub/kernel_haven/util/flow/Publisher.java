@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.flow;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A producer of items that are received by a {@link Subscriber}. Items are only passed to the subscriber if it
+ * signaled demand via {@link Subscription#request(long)}.
+ * <p>
+ * This mirrors the <code>java.util.concurrent.Flow.Publisher</code> interface (and the Reactive Streams
+ * specification), which is not available on Java 8. Adapting to these APIs only requires a thin wrapper that
+ * delegates the method calls.
+ *
+ * @param <T> The type of items that are published.
+ *
+ * @author Adam
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+
+    /**
+     * Adds the given subscriber. The subscriber will receive a call to
+     * {@link Subscriber#onSubscribe(Subscription)} first. If the subscription is not possible (e.g. because this
+     * publisher only supports a single subscriber), then {@link Subscriber#onError(Throwable)} is called afterwards.
+     *
+     * @param subscriber The subscriber to add.
+     */
+    public void subscribe(@NonNull Subscriber<? super T> subscriber);
+
+}
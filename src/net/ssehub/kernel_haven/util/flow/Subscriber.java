@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.flow;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A receiver of items from a {@link Publisher}. The methods of a subscriber are never called concurrently.
+ * <p>
+ * This mirrors the <code>java.util.concurrent.Flow.Subscriber</code> interface; see {@link Publisher}.
+ *
+ * @param <T> The type of items that are received.
+ *
+ * @author Adam
+ */
+public interface Subscriber<T> {
+
+    /**
+     * Called once, before any other method of this subscriber is called. No items are received until
+     * {@link Subscription#request(long)} is called on the given subscription.
+     *
+     * @param subscription The subscription to request items with.
+     */
+    public void onSubscribe(@NonNull Subscription subscription);
+
+    /**
+     * Called for each item. This is never called more often than requested via {@link Subscription#request(long)}.
+     *
+     * @param item The next item.
+     */
+    public void onNext(@NonNull T item);
+
+    /**
+     * Called if the publisher failed. No other methods are called after this.
+     *
+     * @param throwable The cause of the failure.
+     */
+    public void onError(@NonNull Throwable throwable);
+
+    /**
+     * Called when the publisher has no more items. No other methods are called after this.
+     */
+    public void onComplete();
+
+}
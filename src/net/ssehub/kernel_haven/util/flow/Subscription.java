@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.flow;
+
+/**
+ * The link between a {@link Publisher} and a {@link Subscriber}. The subscriber uses this to signal demand for
+ * items, or to cancel the subscription.
+ * <p>
+ * This mirrors the <code>java.util.concurrent.Flow.Subscription</code> interface; see {@link Publisher}.
+ *
+ * @author Adam
+ */
+public interface Subscription {
+
+    /**
+     * Adds the given number of items to the demand of the subscriber. {@link Long#MAX_VALUE} means unbounded demand.
+     * If the number is not positive, then {@link Subscriber#onError(Throwable)} is called with an
+     * {@link IllegalArgumentException}.
+     *
+     * @param n The number of additional items that the subscriber wants to receive.
+     */
+    public void request(long n);
+
+    /**
+     * Cancels this subscription. The subscriber will (eventually) receive no more items.
+     */
+    public void cancel();
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A {@link CompressionCodec} that splits the data into blocks of fixed size and deflates each block independently.
+ * This allows the blocks of large entries to be compressed in parallel. The format is:
+ * <ul>
+ *      <li>The magic number <code>KHBZ</code></li>
+ *      <li>For each block: the uncompressed length (int), the stored length (int) and the stored bytes. If both
+ *          lengths are equal, the block is stored uncompressed; otherwise it is raw deflate data.</li>
+ *      <li>An uncompressed length of 0 to mark the end.</li>
+ * </ul>
+ *
+ * @author Adam
+ */
+public class BlockCompressionCodec extends CompressionCodec {
+
+    static final @NonNull String SUFFIX = ".khz";
+    
+    /**
+     * The default size of the uncompressed blocks.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    
+    private static final byte @NonNull [] MAGIC = {'K', 'H', 'B', 'Z'};
+    
+    /**
+     * The maximum block size accepted while reading. Protects against allocating huge arrays for corrupt data.
+     */
+    private static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+    
+    private int level;
+    
+    private int blockSize;
+    
+    private @NonNull Executor executor;
+    
+    /**
+     * Creates a block codec with the default block size, which compresses on the common {@link ForkJoinPool}.
+     * 
+     * @param level The deflate level, from 0 (fastest) to 9 (best compression), or -1 for the default level.
+     * 
+     * @throws IllegalArgumentException If the level is invalid.
+     */
+    public BlockCompressionCodec(int level) throws IllegalArgumentException {
+        this(level, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Creates a block codec.
+     * 
+     * @param level The deflate level, from 0 (fastest) to 9 (best compression), or -1 for the default level.
+     * @param blockSize The size of the uncompressed blocks, in bytes.
+     * @param executor The executor that compresses the blocks.
+     * 
+     * @throws IllegalArgumentException If the level or block size is invalid.
+     */
+    public BlockCompressionCodec(int level, int blockSize, @NonNull Executor executor)
+            throws IllegalArgumentException {
+        
+        checkLevel(level);
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        this.level = level;
+        this.blockSize = blockSize;
+        this.executor = executor;
+    }
+    
+    /**
+     * Checks whether the given bytes start with the magic number of this format.
+     * 
+     * @param bytes The first bytes of the data.
+     * @param length The number of valid bytes in the array.
+     * 
+     * @return Whether the data is block compressed.
+     */
+    static boolean hasMagic(byte @NonNull [] bytes, int length) {
+        return length >= MAGIC.length && Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC);
+    }
+    
+    @Override
+    public @NonNull OutputStream compress(@NonNull OutputStream out) throws IOException {
+        out.write(MAGIC);
+        return new BlockOutputStream(out);
+    }
+    
+    @Override
+    public @NonNull InputStream decompress(@NonNull InputStream in) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        try {
+            new DataInputStream(in).readFully(magic);
+        } catch (EOFException e) {
+            throw new ZipException("Missing block compression header");
+        }
+        if (!hasMagic(magic, magic.length)) {
+            throw new ZipException("Invalid block compression header");
+        }
+        return new BlockInputStream(in);
+    }
+    
+    @Override
+    public @NonNull String getFileSuffix() {
+        return SUFFIX;
+    }
+    
+    /**
+     * A compressed block.
+     */
+    private static final class Block {
+        
+        private int rawLength;
+        
+        private byte @NonNull [] data;
+        
+        private int length;
+        
+        /**
+         * Creates a block.
+         * 
+         * @param rawLength The uncompressed length.
+         * @param data The stored data.
+         * @param length The number of valid bytes in data.
+         */
+        Block(int rawLength, byte @NonNull [] data, int length) {
+            this.rawLength = rawLength;
+            this.data = data;
+            this.length = length;
+        }
+        
+    }
+    
+    /**
+     * Compresses a single block. If the compressed data is not smaller than the input, the input is stored as-is.
+     * Each block uses its own {@link Deflater}, which is ended afterwards to release its native memory right away;
+     * creating it is cheap compared to deflating a whole block.
+     * 
+     * @param raw The uncompressed data.
+     * @param length The number of valid bytes in raw.
+     * 
+     * @return The compressed block.
+     */
+    private @NonNull Block compressBlock(byte @NonNull [] raw, int length) {
+        Deflater deflater = new Deflater(level, true);
+        
+        Block result;
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            
+            byte[] compressed = new byte[length];
+            int compressedLength = 0;
+            while (!deflater.finished() && compressedLength < compressed.length) {
+                compressedLength += deflater.deflate(compressed, compressedLength,
+                        compressed.length - compressedLength);
+            }
+            
+            if (deflater.finished() && compressedLength < length) {
+                result = new Block(length, compressed, compressedLength);
+            } else {
+                result = new Block(length, raw, length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return result;
+    }
+    
+    /**
+     * The stream that collects the data into blocks and hands them to the executor.
+     */
+    private final class BlockOutputStream extends OutputStream {
+        
+        private @NonNull DataOutputStream out;
+        
+        private byte @NonNull [] buffer;
+        
+        private int bufferLength;
+        
+        private @NonNull Deque<@NonNull CompletableFuture<@NonNull Block>> pending;
+        
+        private int maxPending;
+        
+        private boolean closed;
+        
+        /**
+         * Creates the stream.
+         * 
+         * @param out The stream to write the blocks to.
+         */
+        BlockOutputStream(@NonNull OutputStream out) {
+            this.out = new DataOutputStream(out);
+            this.buffer = new byte[blockSize];
+            this.pending = new ArrayDeque<>();
+            this.maxPending = 2 * Runtime.getRuntime().availableProcessors();
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            if (bufferLength == buffer.length) {
+                submitBlock();
+            }
+            buffer[bufferLength++] = (byte) b;
+        }
+        
+        @Override
+        public void write(byte @NonNull [] bytes, int offset, int length) throws IOException {
+            int written = 0;
+            while (written < length) {
+                if (bufferLength == buffer.length) {
+                    submitBlock();
+                }
+                int chunk = Math.min(length - written, buffer.length - bufferLength);
+                System.arraycopy(bytes, offset + written, buffer, bufferLength, chunk);
+                bufferLength += chunk;
+                written += chunk;
+            }
+        }
+        
+        /**
+         * Hands the current buffer to the executor. Writes finished blocks if too many are pending.
+         * 
+         * @throws IOException If writing a block fails.
+         */
+        private void submitBlock() throws IOException {
+            byte[] raw = buffer;
+            int length = bufferLength;
+            pending.add(CompletableFuture.supplyAsync(() -> compressBlock(raw, length), executor));
+            
+            buffer = new byte[blockSize];
+            bufferLength = 0;
+            
+            while (pending.size() >= maxPending) {
+                writeBlock(awaitBlock(notNull(pending.poll())));
+            }
+        }
+        
+        /**
+         * Waits for the given block to be compressed.
+         * 
+         * @param future The future of the compression task.
+         * 
+         * @return The compressed block.
+         * 
+         * @throws IOException If the compression failed or was interrupted.
+         */
+        private @NonNull Block awaitBlock(@NonNull CompletableFuture<@NonNull Block> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing block");
+            } catch (ExecutionException e) {
+                throw new IOException("Compressing block failed", e.getCause());
+            }
+        }
+        
+        /**
+         * Writes a block to the underlying stream.
+         * 
+         * @param block The block to write.
+         * 
+         * @throws IOException If writing fails.
+         */
+        private void writeBlock(@NonNull Block block) throws IOException {
+            out.writeInt(block.rawLength);
+            out.writeInt(block.length);
+            out.write(block.data, 0, block.length);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            
+            try {
+                if (bufferLength > 0) {
+                    if (pending.isEmpty()) {
+                        // a single small block is not worth handing to the executor
+                        pending.add(CompletableFuture.completedFuture(compressBlock(buffer, bufferLength)));
+                    } else {
+                        pending.add(CompletableFuture.supplyAsync(
+                            () -> compressBlock(buffer, bufferLength), executor));
+                    }
+                }
+                while (!pending.isEmpty()) {
+                    writeBlock(awaitBlock(notNull(pending.poll())));
+                }
+                out.writeInt(0);
+            } finally {
+                out.close();
+            }
+        }
+        
+    }
+    
+    /**
+     * The stream that reads and inflates the blocks sequentially.
+     */
+    private static final class BlockInputStream extends InputStream {
+        
+        private @NonNull DataInputStream in;
+        
+        private @NonNull Inflater inflater;
+        
+        private byte @NonNull [] block;
+        
+        private byte @NonNull [] compressed;
+        
+        private int blockLength;
+        
+        private int position;
+        
+        private boolean finished;
+        
+        /**
+         * Creates the stream.
+         * 
+         * @param in The stream to read the blocks from, positioned after the magic number.
+         */
+        BlockInputStream(@NonNull InputStream in) {
+            this.in = new DataInputStream(in);
+            this.inflater = new Inflater(true);
+            this.block = new byte[0];
+            this.compressed = new byte[0];
+        }
+        
+        /**
+         * Reads the next block, if the current one is exhausted.
+         * 
+         * @return Whether data is available.
+         * 
+         * @throws IOException If reading the block fails or the data is corrupt.
+         */
+        private boolean fill() throws IOException {
+            while (!finished && position == blockLength) {
+                try {
+                    readBlock();
+                } catch (EOFException e) {
+                    throw new ZipException("Unexpected end of block compressed data");
+                }
+            }
+            return position < blockLength;
+        }
+        
+        /**
+         * Reads and decompresses the next block.
+         * 
+         * @throws IOException If reading the block fails or the data is corrupt.
+         */
+        private void readBlock() throws IOException {
+            int rawLength = in.readInt();
+            if (rawLength == 0) {
+                finished = true;
+                return;
+            }
+            int storedLength = in.readInt();
+            if (rawLength < 0 || rawLength > MAX_BLOCK_SIZE || storedLength < 0 || storedLength > rawLength) {
+                throw new ZipException("Invalid block lengths: " + rawLength + ", " + storedLength);
+            }
+            
+            if (block.length < rawLength) {
+                block = new byte[rawLength];
+            }
+            
+            if (storedLength == rawLength) {
+                in.readFully(block, 0, rawLength);
+            } else {
+                if (compressed.length < storedLength) {
+                    compressed = new byte[storedLength];
+                }
+                in.readFully(compressed, 0, storedLength);
+                
+                inflater.reset();
+                inflater.setInput(compressed, 0, storedLength);
+                try {
+                    int inflated = 0;
+                    while (inflated < rawLength) {
+                        int n = inflater.inflate(block, inflated, rawLength - inflated);
+                        if (n == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary())) {
+                            throw new ZipException("Block is shorter than declared");
+                        }
+                        inflated += n;
+                    }
+                } catch (DataFormatException e) {
+                    throw new ZipException("Corrupt block: " + e.getMessage());
+                }
+            }
+            
+            blockLength = rawLength;
+            position = 0;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            return fill() ? block[position++] & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte @NonNull [] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int read = Math.min(length, blockLength - position);
+            System.arraycopy(block, position, bytes, offset, read);
+            position += read;
+            return read;
+        }
+        
+        @Override
+        public int available() {
+            return blockLength - position;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            in.close();
+        }
+        
+    }
+    
+}
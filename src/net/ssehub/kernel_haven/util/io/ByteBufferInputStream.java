@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * An {@link InputStream} that reads from a {@link ByteBuffer}. Reading advances the position of the buffer.
+ * 
+ * @author Adam
+ */
+public class ByteBufferInputStream extends InputStream {
+    
+    private @NonNull ByteBuffer buffer;
+    
+    /**
+     * Creates a stream for the given buffer.
+     * 
+     * @param buffer The buffer to read from.
+     */
+    public ByteBufferInputStream(@NonNull ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+    
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+    
+    @Override
+    public int read(byte @NonNull [] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int read = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, read);
+        return read;
+    }
+    
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+    
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+    
+}
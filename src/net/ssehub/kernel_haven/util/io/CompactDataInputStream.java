@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A {@link DataInputStream} that additionally supports the variable-length encoded integers (varints) written by
+ * {@link CompactDataOutputStream}.
+ * 
+ * @author Adam
+ */
+public class CompactDataInputStream extends DataInputStream {
+
+    /**
+     * Creates a new {@link CompactDataInputStream}.
+     * 
+     * @param in The input stream to read from.
+     */
+    public CompactDataInputStream(@NonNull InputStream in) {
+        super(in);
+    }
+    
+    /**
+     * Reads an unsigned variable-length integer. See {@link CompactDataOutputStream#writeVarInt(int)}.
+     * 
+     * @return The read value.
+     * 
+     * @throws IOException If reading from the stream fails or the value is malformed.
+     */
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    /**
+     * Reads an unsigned variable-length long. See {@link CompactDataOutputStream#writeVarLong(long)}.
+     * 
+     * @return The read value.
+     * 
+     * @throws IOException If reading from the stream fails or the value is malformed.
+     */
+    public long readVarLong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+    
+    /**
+     * Reads a signed, zig-zag encoded variable-length long. See
+     * {@link CompactDataOutputStream#writeSignedVarLong(long)}.
+     * 
+     * @return The read value.
+     * 
+     * @throws IOException If reading from the stream fails or the value is malformed.
+     */
+    public long readSignedVarLong() throws IOException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+    
+    /**
+     * Reads a string written by {@link CompactDataOutputStream#writeString(String)}.
+     * 
+     * @return The read string.
+     * 
+     * @throws IOException If reading from the stream fails.
+     */
+    public @NonNull String readString() throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+}
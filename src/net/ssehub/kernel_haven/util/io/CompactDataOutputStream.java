@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A {@link DataOutputStream} that additionally supports variable-length encoded integers (varints). Small values,
+ * like line numbers or table indices, only take up a single byte this way.
+ * 
+ * @author Adam
+ * 
+ * @see CompactDataInputStream
+ */
+public class CompactDataOutputStream extends DataOutputStream {
+
+    /**
+     * Creates a new {@link CompactDataOutputStream}.
+     * 
+     * @param out The output stream to write to.
+     */
+    public CompactDataOutputStream(@NonNull OutputStream out) {
+        super(out);
+    }
+    
+    /**
+     * Writes an unsigned variable-length integer. Each byte contains 7 bits of the value, the highest bit signals
+     * whether another byte follows. Negative values are treated as unsigned, i.e. they always take 5 bytes; use
+     * {@link #writeSignedVarLong(long)} if negative values are expected.
+     * 
+     * @param value The value to write.
+     * 
+     * @throws IOException If writing to the stream fails.
+     */
+    public void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write(value);
+    }
+    
+    /**
+     * Writes an unsigned variable-length long. See {@link #writeVarInt(int)}.
+     * 
+     * @param value The value to write.
+     * 
+     * @throws IOException If writing to the stream fails.
+     */
+    public void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+    
+    /**
+     * Writes a signed variable-length long. The value is zig-zag encoded, so that values with a small absolute value
+     * take up few bytes.
+     * 
+     * @param value The value to write.
+     * 
+     * @throws IOException If writing to the stream fails.
+     */
+    public void writeSignedVarLong(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    /**
+     * Writes a string as UTF-8 bytes, prefixed by the number of bytes as a varint. In contrast to
+     * {@link #writeUTF(String)}, this has no length limit.
+     * 
+     * @param value The string to write.
+     * 
+     * @throws IOException If writing to the stream fails.
+     */
+    public void writeString(@NonNull String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        write(bytes);
+    }
+    
+}
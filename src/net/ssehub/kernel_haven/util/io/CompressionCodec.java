@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A codec that compresses the entries of a cache. A codec wraps plain output and input streams; the compressed data
+ * starts with a magic number, so that {@link #decompressAny(InputStream)} can read data written by any codec. Cache
+ * files carry the {@link #getFileSuffix()} of the codec that wrote them.
+ *
+ * @author Adam
+ */
+public abstract class CompressionCodec {
+
+    /**
+     * The available compression types.
+     */
+    public static enum Type {
+        
+        /**
+         * No compression.
+         */
+        NONE,
+        
+        /**
+         * Stream compression with GZIP (deflate).
+         */
+        GZIP,
+        
+        /**
+         * Framed deflate blocks, which are compressed in parallel. See {@link BlockCompressionCodec}.
+         */
+        BLOCK,
+    }
+    
+    /**
+     * A codec that does not compress at all.
+     */
+    public static final @NonNull CompressionCodec NONE = new CompressionCodec() {
+        
+        @Override
+        public @NonNull OutputStream compress(@NonNull OutputStream out) {
+            return out;
+        }
+        
+        @Override
+        public @NonNull InputStream decompress(@NonNull InputStream in) {
+            return in;
+        }
+        
+        @Override
+        public @NonNull String getFileSuffix() {
+            return "";
+        }
+        
+    };
+    
+    /**
+     * The default codec that is used if compression is simply turned "on".
+     */
+    public static final @NonNull CompressionCodec DEFAULT = new GzipCompressionCodec(Deflater.DEFAULT_COMPRESSION);
+    
+    /**
+     * The file suffixes of all codecs, in the order that {@link #openFile(File)} tries them.
+     */
+    private static final @NonNull String @NonNull [] SUFFIXES = {
+        "", GzipCompressionCodec.SUFFIX, BlockCompressionCodec.SUFFIX
+    };
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * Creates a codec.
+     * 
+     * @param type The type of compression.
+     * @param level The compression level, from 0 (fastest) to 9 (best compression), or -1 for the default level.
+     *      Ignored for {@link Type#NONE}.
+     * 
+     * @return The codec.
+     * 
+     * @throws IllegalArgumentException If the level is invalid.
+     */
+    public static @NonNull CompressionCodec create(@NonNull Type type, int level) throws IllegalArgumentException {
+        CompressionCodec result;
+        switch (type) {
+        case GZIP:
+            result = new GzipCompressionCodec(level);
+            break;
+        case BLOCK:
+            result = new BlockCompressionCodec(level);
+            break;
+        case NONE:
+        default:
+            result = NONE;
+            break;
+        }
+        return result;
+    }
+    
+    /**
+     * Checks that the given compression level is valid.
+     * 
+     * @param level The level to check.
+     * 
+     * @throws IllegalArgumentException If the level is not in [0, 9] and not -1.
+     */
+    static void checkLevel(int level) throws IllegalArgumentException {
+        if (level != Deflater.DEFAULT_COMPRESSION
+                && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+    }
+    
+    /**
+     * Wraps the given stream so that all data written to the result is compressed into the given stream. Closing the
+     * result finishes the compression and closes the given stream.
+     * 
+     * @param out The stream to write the compressed data to.
+     * 
+     * @return The stream to write the uncompressed data to.
+     * 
+     * @throws IOException If writing the header of the compressed data fails.
+     */
+    public abstract @NonNull OutputStream compress(@NonNull OutputStream out) throws IOException;
+    
+    /**
+     * Wraps the given stream, so that the data read from it is decompressed.
+     * 
+     * @param in The stream to read the compressed data from.
+     * 
+     * @return The stream to read the uncompressed data from.
+     * 
+     * @throws IOException If reading the header of the compressed data fails.
+     */
+    public abstract @NonNull InputStream decompress(@NonNull InputStream in) throws IOException;
+    
+    /**
+     * Returns the suffix that is appended to the names of files compressed with this codec.
+     * 
+     * @return The file suffix, including the leading dot. Empty if this codec does not compress.
+     */
+    public abstract @NonNull String getFileSuffix();
+    
+    /**
+     * Opens a file for writing with this codec. The name of the file is the given base file with the suffix of this
+     * codec. Files for the same base file with the suffixes of other codecs are deleted, since writing is supposed to
+     * overwrite previous versions.
+     * 
+     * @param baseFile The file to write to, without a compression suffix.
+     * 
+     * @return A stream to write the uncompressed data to.
+     * 
+     * @throws IOException If opening the file fails.
+     */
+    public @NonNull OutputStream createFile(@NonNull File baseFile) throws IOException {
+        String suffix = getFileSuffix();
+        for (String other : SUFFIXES) {
+            if (!other.equals(suffix)) {
+                new File(baseFile.getPath() + other).delete();
+            }
+        }
+        
+        return compress(new BufferedOutputStream(new FileOutputStream(baseFile.getPath() + suffix), BUFFER_SIZE));
+    }
+    
+    /**
+     * Opens a file that was written by {@link #createFile(File)} of any codec. The uncompressed file is tried first,
+     * since it is the fastest to read.
+     * 
+     * @param baseFile The file to read, without a compression suffix.
+     * 
+     * @return A stream to read the uncompressed data from, or <code>null</code> if no file for the base file exists.
+     * 
+     * @throws IOException If opening the file fails.
+     */
+    public static @Nullable InputStream openFile(@NonNull File baseFile) throws IOException {
+        InputStream result = null;
+        for (String suffix : SUFFIXES) {
+            try {
+                result = decompressAny(new FileInputStream(baseFile.getPath() + suffix));
+                break;
+            } catch (FileNotFoundException e) {
+                // try next suffix
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Wraps the given stream, so that the data read from it is decompressed with the codec that was used to write
+     * it. The codec is detected by the magic number at the start of the data; data without a known magic number is
+     * read as uncompressed.
+     * 
+     * @param in The stream to read from.
+     * 
+     * @return The stream to read the uncompressed data from.
+     * 
+     * @throws IOException If reading the header of the data fails.
+     */
+    public static @NonNull InputStream decompressAny(@NonNull InputStream in) throws IOException {
+        InputStream result = in.markSupported() ? in : new BufferedInputStream(in, BUFFER_SIZE);
+        
+        byte[] magic = new byte[4];
+        result.mark(magic.length);
+        int read = 0;
+        int r;
+        while (read < magic.length && (r = result.read(magic, read, magic.length - read)) != -1) {
+            read += r;
+        }
+        result.reset();
+        
+        if (GzipCompressionCodec.hasMagic(magic, read)) {
+            result = new GzipCompressionCodec(Deflater.DEFAULT_COMPRESSION).decompress(result);
+        } else if (BlockCompressionCodec.hasMagic(magic, read)) {
+            result = new BlockCompressionCodec(Deflater.DEFAULT_COMPRESSION).decompress(result);
+        }
+        
+        return result;
+    }
+    
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A {@link CompressionCodec} that compresses with GZIP at a configurable deflate level.
+ *
+ * @author Adam
+ */
+public class GzipCompressionCodec extends CompressionCodec {
+
+    static final @NonNull String SUFFIX = ".gz";
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private int level;
+    
+    /**
+     * Creates a GZIP codec.
+     * 
+     * @param level The deflate level, from 0 (fastest) to 9 (best compression), or -1 for the default level.
+     * 
+     * @throws IllegalArgumentException If the level is invalid.
+     */
+    public GzipCompressionCodec(int level) throws IllegalArgumentException {
+        checkLevel(level);
+        this.level = level;
+    }
+    
+    /**
+     * Checks whether the given bytes start with the GZIP magic number.
+     * 
+     * @param bytes The first bytes of the data.
+     * @param length The number of valid bytes in the array.
+     * 
+     * @return Whether the data is GZIP compressed.
+     */
+    static boolean hasMagic(byte @NonNull [] bytes, int length) {
+        return length >= 2 && bytes[0] == (byte) 0x1F && bytes[1] == (byte) 0x8B;
+    }
+    
+    @Override
+    public @NonNull OutputStream compress(@NonNull OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+    
+    @Override
+    public @NonNull InputStream decompress(@NonNull InputStream in) throws IOException {
+        return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+    
+    @Override
+    public @NonNull String getFileSuffix() {
+        return SUFFIX;
+    }
+    
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A single-file, append-only store for many small entries (e.g. cache files). Each entry is identified by a string
+ * key. Writing an entry with an already existing key appends a new version of it; the old version stays in the file
+ * but is no longer reachable.
+ * <p>
+ * An offset index (key to position in the pack) is kept in memory and written to a separate index file (the pack file
+ * name with an additional <code>.idx</code> suffix) on {@link #flush()} and {@link #close()}. When opening an existing
+ * pack, the index file is loaded and any entries appended after it was written are recovered by scanning the end of
+ * the pack. If the index file is missing, the complete pack is scanned.
+ * </p>
+ * <p>
+ * Entries are read through {@link MappedByteBuffer}s, so reading an entry does not require any system calls.
+ * </p>
+ * <p>
+ * This class is thread-safe. Multiple threads can write concurrently: the position of each new entry is reserved
+ * with a single atomic operation, after which the entry is written with a positional write that does not block other
+ * writers. If writing an entry fails, its reserved space is marked as a skip record, so that scanning the pack steps
+ * over it instead of discarding all entries behind it.
+ * </p>
+ * 
+ * @author Adam
+ */
+public class PackFile implements Closeable {
+    
+    private static final @NonNull Logger LOGGER = Logger.get();
+
+    private static final int RECORD_MAGIC = 0x4B485052; // "KHPR"
+    
+    private static final int INDEX_MAGIC = 0x4B485049; // "KHPI"
+    
+    /**
+     * Marks unused space in the pack (left by a failed write). Has the same header as a normal record, with a key
+     * length of 0; the data length covers the rest of the unused space.
+     */
+    private static final int SKIP_MAGIC = 0x4B485053; // "KHPS"
+    
+    private static final int HEADER_SIZE = 12;
+    
+    private static final long SEGMENT_SIZE = 1L << 30;
+    
+    /**
+     * The location of a single entry in the pack.
+     */
+    private static final class Entry {
+        
+        private final long offset;
+        
+        private final int length;
+        
+        /**
+         * Creates an entry.
+         * 
+         * @param offset The position of the data in the pack.
+         * @param length The length of the data.
+         */
+        public Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+        
+    }
+    
+    private @NonNull File packFile;
+    
+    private @NonNull File indexFile;
+    
+    private @NonNull FileChannel channel;
+    
+    private @NonNull AtomicLong end;
+    
+    private @NonNull Map<String, Entry> index;
+    
+    private volatile @Nullable MappedByteBuffer @NonNull [] segments;
+    
+    /**
+     * Writers hold the (shared) read lock while writing an entry; {@link #flush()} holds the (exclusive) write lock,
+     * so that no writes are in progress while the index is persisted.
+     */
+    private @NonNull ReadWriteLock flushLock;
+    
+    /**
+     * Opens (or creates) the given pack file.
+     * 
+     * @param packFile The pack file to open. Is created if it does not exist.
+     * 
+     * @throws IOException If opening or reading the pack file fails.
+     */
+    @SuppressWarnings("null") // array is initially empty
+    public PackFile(@NonNull File packFile) throws IOException {
+        this.packFile = packFile;
+        this.indexFile = new File(packFile.getPath() + ".idx");
+        this.channel = notNull(FileChannel.open(packFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        this.index = new ConcurrentHashMap<>();
+        this.segments = new MappedByteBuffer[0];
+        this.flushLock = new ReentrantReadWriteLock();
+        
+        try {
+            long scanStart = loadIndex();
+            this.end = new AtomicLong(scanPack(scanStart));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Loads the index file, if it exists and fits to the pack.
+     * 
+     * @return The position in the pack up to which the loaded index is complete.
+     * 
+     * @throws IOException If reading the index file fails.
+     */
+    private long loadIndex() throws IOException {
+        long covered = 0;
+        if (indexFile.isFile()) {
+            try (CompactDataInputStream in = new CompactDataInputStream(
+                    new BufferedInputStream(new FileInputStream(indexFile)))) {
+                
+                if (in.readInt() == INDEX_MAGIC) {
+                    long length = in.readVarLong();
+                    if (length <= channel.size()) {
+                        int size = in.readVarInt();
+                        for (int i = 0; i < size; i++) {
+                            String key = in.readString();
+                            index.put(key, new Entry(in.readVarLong(), in.readVarInt()));
+                        }
+                        covered = length;
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.logExceptionDebug("Can't read index of pack " + packFile + "; scanning it instead", e);
+                index.clear();
+                covered = 0;
+            }
+        }
+        return covered;
+    }
+    
+    /**
+     * Scans the pack for entries, starting at the given position. Skip records are stepped over. Scanning stops at the
+     * first invalid or incomplete record; the pack is truncated there, so that new entries overwrite the invalid data.
+     * 
+     * @param start The position to start scanning at. Must be the start of a record (or the end of the pack).
+     * 
+     * @return The end of the last valid record.
+     * 
+     * @throws IOException If reading the pack fails.
+     */
+    private long scanPack(long start) throws IOException {
+        long size = channel.size();
+        long pos = start;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        
+        while (pos + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, pos);
+            header.flip();
+            int magic = header.getInt();
+            int keyLength = header.getInt();
+            int dataLength = header.getInt();
+            
+            long dataStart = pos + HEADER_SIZE + keyLength;
+            boolean skip = magic == SKIP_MAGIC && keyLength == 0;
+            if ((magic != RECORD_MAGIC && !skip) || keyLength < 0 || dataLength < 0 || dataStart + dataLength > size) {
+                break;
+            }
+            
+            if (!skip) {
+                ByteBuffer key = ByteBuffer.allocate(keyLength);
+                readFully(key, pos + HEADER_SIZE);
+                index.put(new String(key.array(), StandardCharsets.UTF_8), new Entry(dataStart, dataLength));
+            }
+            
+            pos = dataStart + dataLength;
+        }
+        
+        if (pos < size) {
+            LOGGER.logWarning2("Pack ", packFile, " contains invalid data at position ", pos, "; truncating it");
+            channel.truncate(pos);
+        }
+        
+        return pos;
+    }
+    
+    /**
+     * Fills the given buffer with data from the given position of the pack.
+     * 
+     * @param buffer The buffer to fill.
+     * @param position The position in the pack to read from.
+     * 
+     * @throws IOException If reading fails or the end of the pack is reached.
+     */
+    private void readFully(@NonNull ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new IOException("Unexpected end of pack " + packFile);
+            }
+            pos += read;
+        }
+    }
+    
+    /**
+     * Writes (appends) an entry to the pack. If an entry with the same key already exists, it is replaced.
+     * 
+     * @param key The key of the entry.
+     * @param data The data of the entry.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void write(@NonNull String key, byte @NonNull [] data) throws IOException {
+        write(key, data, 0, data.length);
+    }
+    
+    /**
+     * Writes (appends) an entry to the pack. If an entry with the same key already exists, it is replaced.
+     * 
+     * @param key The key of the entry.
+     * @param data An array containing the data of the entry.
+     * @param offset The start of the data in the array.
+     * @param length The length of the data.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void write(@NonNull String key, byte @NonNull [] data, int offset, int length) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + keyBytes.length + length);
+        record.putInt(RECORD_MAGIC);
+        record.putInt(keyBytes.length);
+        record.putInt(length);
+        record.put(keyBytes);
+        record.put(data, offset, length);
+        record.flip();
+        
+        flushLock.readLock().lock();
+        try {
+            long position = end.getAndAdd(record.capacity());
+            
+            try {
+                writeFully(record, position);
+            } catch (IOException e) {
+                markSkipped(position, record.capacity());
+                throw e;
+            }
+            
+            index.put(key, new Entry(position + HEADER_SIZE + keyBytes.length, length));
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Writes the remaining content of the given buffer to the given position of the pack. Package visibility for test
+     * cases.
+     * 
+     * @param buffer The buffer to write.
+     * @param position The position in the pack to write to.
+     * 
+     * @throws IOException If writing fails.
+     */
+    void writeFully(@NonNull ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            pos += channel.write(buffer, pos);
+        }
+    }
+    
+    /**
+     * Writes a skip record over the reserved space of a failed write, so that scanning the pack steps over it. If this
+     * fails, too, a scan (without index file) stops at this position.
+     * 
+     * @param position The start of the reserved space.
+     * @param length The length of the reserved space; at least {@link #HEADER_SIZE}.
+     */
+    private void markSkipped(long position, int length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(SKIP_MAGIC);
+        header.putInt(0);
+        header.putInt(length - HEADER_SIZE);
+        header.flip();
+        
+        try {
+            writeFully(header, position);
+        } catch (IOException e) {
+            LOGGER.logExceptionWarning("Can't mark unused space at position " + position + " in pack " + packFile, e);
+        }
+    }
+    
+    /**
+     * Reads the entry with the given key.
+     * 
+     * @param key The key of the entry.
+     * 
+     * @return A read-only buffer containing the data of the entry, or <code>null</code> if no such entry exists.
+     * 
+     * @throws IOException If reading fails.
+     */
+    public @Nullable ByteBuffer read(@NonNull String key) throws IOException {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        
+        ByteBuffer result;
+        int segment = (int) (entry.offset / SEGMENT_SIZE);
+        long segmentStart = segment * SEGMENT_SIZE;
+        
+        if (entry.length > 0 && (entry.offset + entry.length - 1) / SEGMENT_SIZE != segment) {
+            // entry crosses a segment boundary; this is rare enough to simply read it into memory
+            result = ByteBuffer.allocate(entry.length);
+            readFully(result, entry.offset);
+            result.flip();
+            result = result.asReadOnlyBuffer();
+            
+        } else {
+            int start = (int) (entry.offset - segmentStart);
+            ByteBuffer mapping = getSegment(segment, start + entry.length).duplicate();
+            mapping.position(start);
+            mapping.limit(start + entry.length);
+            result = mapping.slice();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Reads the entry with the given key as an {@link InputStream}.
+     * 
+     * @param key The key of the entry.
+     * 
+     * @return A stream of the data of the entry, or <code>null</code> if no such entry exists.
+     * 
+     * @throws IOException If reading fails.
+     */
+    public @Nullable InputStream getInputStream(@NonNull String key) throws IOException {
+        ByteBuffer buffer = read(key);
+        return buffer != null ? new ByteBufferInputStream(buffer) : null;
+    }
+    
+    /**
+     * Returns the memory mapping for the given segment. If the existing mapping is too short (because the pack has
+     * grown since it was created), a new mapping is created.
+     * 
+     * @param segment The index of the segment.
+     * @param minLength The minimum length that the mapping must have.
+     * 
+     * @return The mapping of the segment.
+     * 
+     * @throws IOException If mapping the pack fails.
+     */
+    private @NonNull MappedByteBuffer getSegment(int segment, int minLength) throws IOException {
+        MappedByteBuffer[] segments = this.segments;
+        MappedByteBuffer result = segment < segments.length ? segments[segment] : null;
+        
+        if (result == null || result.capacity() < minLength) {
+            synchronized (this) {
+                segments = this.segments;
+                result = segment < segments.length ? segments[segment] : null;
+                
+                if (result == null || result.capacity() < minLength) {
+                    long segmentStart = segment * SEGMENT_SIZE;
+                    long length = Math.min(SEGMENT_SIZE, channel.size() - segmentStart);
+                    result = notNull(channel.map(MapMode.READ_ONLY, segmentStart, length));
+                    
+                    MappedByteBuffer[] newSegments = segments;
+                    if (segment >= segments.length) {
+                        newSegments = new MappedByteBuffer[segment + 1];
+                        System.arraycopy(segments, 0, newSegments, 0, segments.length);
+                    } else {
+                        newSegments = segments.clone();
+                    }
+                    newSegments[segment] = result;
+                    this.segments = newSegments;
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Checks whether an entry with the given key exists.
+     * 
+     * @param key The key of the entry.
+     * 
+     * @return Whether the entry exists.
+     */
+    public boolean contains(@NonNull String key) {
+        return index.containsKey(key);
+    }
+    
+    /**
+     * Returns the keys of all entries in this pack.
+     * 
+     * @return An unmodifiable view on the keys of all entries.
+     */
+    public @NonNull Set<String> getKeys() {
+        return notNull(Collections.unmodifiableSet(index.keySet()));
+    }
+    
+    /**
+     * Returns the number of entries in this pack.
+     * 
+     * @return The number of entries.
+     */
+    public int getSize() {
+        return index.size();
+    }
+    
+    /**
+     * Returns the pack file.
+     * 
+     * @return The pack file.
+     */
+    public @NonNull File getFile() {
+        return packFile;
+    }
+    
+    /**
+     * Forces all written entries to disk and writes the index file.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void flush() throws IOException {
+        flushLock.writeLock().lock();
+        try {
+            channel.force(false);
+            
+            File tmpFile = new File(indexFile.getPath() + ".tmp");
+            try (CompactDataOutputStream out = new CompactDataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                
+                out.writeInt(INDEX_MAGIC);
+                out.writeVarLong(end.get());
+                out.writeVarInt(index.size());
+                for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                    out.writeString(notNull(entry.getKey()));
+                    out.writeVarLong(entry.getValue().offset);
+                    out.writeVarInt(entry.getValue().length);
+                }
+            }
+            
+            indexFile.delete();
+            if (!tmpFile.renameTo(indexFile)) {
+                throw new IOException("Can't write index file " + indexFile);
+            }
+            
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
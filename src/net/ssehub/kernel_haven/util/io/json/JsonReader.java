@@ -0,0 +1,964 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A pull-based streaming reader for JSON. In contrast to the {@link JsonParser}, this does not create a tree of
+ * {@link JsonElement}s for the whole document. Instead, the caller pulls the tokens of the document one after another
+ * and decides how to handle them. {@link #nextElement()} can be used to read smaller sub-trees as
+ * {@link JsonElement}s.
+ * <p>
+ * Example:
+ * <pre>
+ * try (JsonReader reader = new JsonReader(file)) {
+ *     reader.beginObject();
+ *     while (reader.hasNext()) {
+ *         String name = reader.nextName();
+ *         if (name.equals("version")) {
+ *             int version = reader.nextInt();
+ *         } else {
+ *             reader.skipValue();
+ *         }
+ *     }
+ *     reader.endObject();
+ * }
+ * </pre>
+ * </p>
+ * 
+ * @see <a href="https://www.json.org/">https://www.json.org/</a>
+ * 
+ * @author Adam
+ */
+public class JsonReader implements Closeable {
+
+    /**
+     * The different tokens that can be read from a JSON document.
+     */
+    public enum Token {
+        
+        /**
+         * The start of an object ('{').
+         */
+        BEGIN_OBJECT,
+        
+        /**
+         * The end of an object ('}').
+         */
+        END_OBJECT,
+        
+        /**
+         * The start of a list ('[').
+         */
+        BEGIN_LIST,
+        
+        /**
+         * The end of a list (']').
+         */
+        END_LIST,
+        
+        /**
+         * The name of an entry in an object.
+         */
+        NAME,
+        
+        /**
+         * A string value.
+         */
+        STRING,
+        
+        /**
+         * A number value.
+         */
+        NUMBER,
+        
+        /**
+         * A boolean value.
+         */
+        BOOLEAN,
+        
+        /**
+         * A null value.
+         */
+        NULL,
+        
+        /**
+         * The end of the document.
+         */
+        END_DOCUMENT,
+        
+    }
+    
+    private static final int MAX_NESTING_DEPTH = 1200;
+    
+    private static final byte EMPTY_DOCUMENT = 0;
+    
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    
+    private static final byte EMPTY_OBJECT = 2;
+    
+    private static final byte NONEMPTY_OBJECT = 3;
+    
+    private static final byte DANGLING_NAME = 4;
+    
+    private static final byte EMPTY_LIST = 5;
+    
+    private static final byte NONEMPTY_LIST = 6;
+    
+    private @NonNull Reader in;
+    
+    private char @NonNull [] buffer;
+    
+    private int pos;
+    
+    private int limit;
+    
+    private int lineNumber;
+    
+    private byte @NonNull [] stack;
+    
+    private int depth;
+    
+    private @Nullable Token peeked;
+    
+    private @NonNull StringBuilder stringBuilder;
+    
+    /**
+     * Creates a reader for the given character stream. The stream is buffered internally.
+     * 
+     * @param in The stream to read the JSON from.
+     */
+    public JsonReader(@NonNull Reader in) {
+        this.in = in;
+        this.buffer = new char[8192];
+        this.stack = new byte[32];
+        this.stack[0] = EMPTY_DOCUMENT;
+        this.depth = 1;
+        this.stringBuilder = new StringBuilder();
+    }
+    
+    /**
+     * Creates a reader for the given UTF-8 encoded byte stream.
+     * 
+     * @param in The stream to read the JSON from.
+     */
+    public JsonReader(@NonNull InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Creates a reader for the given UTF-8 encoded file.
+     * 
+     * @param file The file to read.
+     * 
+     * @throws IOException If opening the file fails.
+     */
+    public JsonReader(@NonNull File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+    
+    /**
+     * Returns the type of the next token, without consuming it.
+     * 
+     * @return The type of the next token.
+     * 
+     * @throws FormatException If the JSON is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    public @NonNull Token peek() throws FormatException, IOException {
+        Token result = peeked;
+        if (result == null) {
+            result = doPeek();
+            peeked = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the current object or list has more elements.
+     * 
+     * @return Whether there is another element in the current object or list.
+     * 
+     * @throws FormatException If the JSON is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    public boolean hasNext() throws FormatException, IOException {
+        Token next = peek();
+        return next != Token.END_OBJECT && next != Token.END_LIST && next != Token.END_DOCUMENT;
+    }
+    
+    /**
+     * Consumes the start of an object.
+     * 
+     * @throws FormatException If the next token is not the start of an object.
+     * @throws IOException If reading the stream fails.
+     */
+    public void beginObject() throws FormatException, IOException {
+        expect(Token.BEGIN_OBJECT);
+        pos++; // consume '{'
+        push(EMPTY_OBJECT);
+    }
+    
+    /**
+     * Consumes the end of the current object.
+     * 
+     * @throws FormatException If the next token is not the end of an object.
+     * @throws IOException If reading the stream fails.
+     */
+    public void endObject() throws FormatException, IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+    
+    /**
+     * Consumes the start of a list.
+     * 
+     * @throws FormatException If the next token is not the start of a list.
+     * @throws IOException If reading the stream fails.
+     */
+    public void beginList() throws FormatException, IOException {
+        expect(Token.BEGIN_LIST);
+        pos++; // consume '['
+        push(EMPTY_LIST);
+    }
+    
+    /**
+     * Consumes the end of the current list.
+     * 
+     * @throws FormatException If the next token is not the end of a list.
+     * @throws IOException If reading the stream fails.
+     */
+    public void endList() throws FormatException, IOException {
+        expect(Token.END_LIST);
+        depth--;
+    }
+    
+    /**
+     * Reads the name of the next entry in the current object.
+     * 
+     * @return The name.
+     * 
+     * @throws FormatException If the next token is not a name.
+     * @throws IOException If reading the stream fails.
+     */
+    public @NonNull String nextName() throws FormatException, IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+    
+    /**
+     * Reads a string value.
+     * 
+     * @return The string.
+     * 
+     * @throws FormatException If the next token is not a string.
+     * @throws IOException If reading the stream fails.
+     */
+    public @NonNull String nextString() throws FormatException, IOException {
+        expect(Token.STRING);
+        return readString();
+    }
+    
+    /**
+     * Reads a string value and writes its (unescaped) content to the given writer. This allows reading large strings
+     * without holding them in memory completely.
+     * 
+     * @param out The writer to write the string content to.
+     * 
+     * @throws FormatException If the next token is not a string.
+     * @throws IOException If reading the stream or writing to the writer fails.
+     */
+    public void nextString(@NonNull Writer out) throws FormatException, IOException {
+        expect(Token.STRING);
+        pos++; // consume '"'
+        
+        StringBuilder chunk = stringBuilder;
+        boolean finished = false;
+        while (!finished) {
+            chunk.setLength(0);
+            finished = readStringChunk(chunk);
+            out.append(chunk);
+        }
+    }
+    
+    /**
+     * Reads a number value. Integral numbers are returned as {@link Integer}, if they fit, or {@link Long}. All other
+     * numbers are returned as {@link Double}. This is the same as {@link JsonParser} does.
+     * 
+     * @return The number.
+     * 
+     * @throws FormatException If the next token is not a valid number.
+     * @throws IOException If reading the stream fails.
+     */
+    public @NonNull Number nextNumber() throws FormatException, IOException {
+        expect(Token.NUMBER);
+        
+        StringBuilder literal = stringBuilder;
+        literal.setLength(0);
+        boolean integral = readNumberLiteral(literal);
+        
+        Number result;
+        try {
+            if (integral) {
+                long l = Long.parseLong(literal.toString());
+                if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                    result = (int) l;
+                } else {
+                    result = l;
+                }
+            } else {
+                result = Double.parseDouble(literal.toString());
+            }
+        } catch (NumberFormatException e) {
+            throw makeException("Can't parse number " + e.getMessage());
+        }
+        return result;
+    }
+    
+    /**
+     * Reads a number value that must be an integer.
+     * 
+     * @return The integer.
+     * 
+     * @throws FormatException If the next token is not an integer number.
+     * @throws IOException If reading the stream fails.
+     */
+    public int nextInt() throws FormatException, IOException {
+        Number number = nextNumber();
+        if (!(number instanceof Integer)) {
+            throw makeException("Expected integer, got " + number);
+        }
+        return number.intValue();
+    }
+    
+    /**
+     * Reads a boolean value.
+     * 
+     * @return The boolean.
+     * 
+     * @throws FormatException If the next token is not a boolean.
+     * @throws IOException If reading the stream fails.
+     */
+    public boolean nextBoolean() throws FormatException, IOException {
+        expect(Token.BOOLEAN);
+        
+        boolean result;
+        if (buffer[pos] == 't') {
+            readLiteral("true");
+            result = true;
+        } else {
+            readLiteral("false");
+            result = false;
+        }
+        return result;
+    }
+    
+    /**
+     * Reads a null value.
+     * 
+     * @throws FormatException If the next token is not null.
+     * @throws IOException If reading the stream fails.
+     */
+    public void nextNull() throws FormatException, IOException {
+        expect(Token.NULL);
+        readLiteral("null");
+    }
+    
+    /**
+     * Reads the next value (including all nested values, for objects and lists) as a {@link JsonElement} tree.
+     * 
+     * @return The read value.
+     * 
+     * @throws FormatException If the next token is not the start of a value, or the value is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    public @NonNull JsonElement nextElement() throws FormatException, IOException {
+        Token first = peek();
+        if (first == Token.END_OBJECT || first == Token.END_LIST || first == Token.NAME
+                || first == Token.END_DOCUMENT) {
+            throw makeException("Expected value, got " + first);
+        }
+        
+        // use explicit stacks instead of recursion, so that deeply nested values don't overflow the call stack
+        Deque<@NonNull JsonElement> containers = new ArrayDeque<>();
+        Deque<@NonNull String> names = new ArrayDeque<>();
+        JsonElement result = null;
+        
+        do {
+            JsonElement value = null;
+            switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                containers.push(new JsonObject());
+                break;
+            case BEGIN_LIST:
+                beginList();
+                containers.push(new JsonList());
+                break;
+            case END_OBJECT:
+                endObject();
+                value = containers.pop();
+                break;
+            case END_LIST:
+                endList();
+                value = containers.pop();
+                break;
+            case NAME:
+                names.push(nextName());
+                break;
+            case STRING:
+                value = new JsonString(nextString());
+                break;
+            case NUMBER:
+                value = new JsonNumber(nextNumber());
+                break;
+            case BOOLEAN:
+                value = JsonBoolean.get(nextBoolean());
+                break;
+            case NULL:
+                nextNull();
+                value = JsonNull.INSTANCE;
+                break;
+            default:
+                throw makeException("Expected value, got " + peek());
+            }
+            
+            if (value != null) {
+                JsonElement parent = containers.peek();
+                if (parent == null) {
+                    result = value;
+                } else if (parent instanceof JsonObject) {
+                    ((JsonObject) parent).putElement(notNull(names.pop()), value);
+                } else {
+                    ((JsonList) parent).addElement(value);
+                }
+            }
+        } while (result == null);
+        
+        return result;
+    }
+    
+    /**
+     * Skips the next value (including all nested values, for objects and lists).
+     * 
+     * @throws FormatException If the next token is not the start of a value, or the value is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    public void skipValue() throws FormatException, IOException {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+            case BEGIN_OBJECT:
+                beginObject();
+                nesting++;
+                break;
+            case BEGIN_LIST:
+                beginList();
+                nesting++;
+                break;
+            case END_OBJECT:
+                endObject();
+                nesting--;
+                break;
+            case END_LIST:
+                endList();
+                nesting--;
+                break;
+            case NAME:
+                nextName();
+                break;
+            case STRING:
+                nextString();
+                break;
+            case NUMBER:
+                nextNumber();
+                break;
+            case BOOLEAN:
+                nextBoolean();
+                break;
+            case NULL:
+                nextNull();
+                break;
+            default:
+                throw makeException("Expected value, got " + peek());
+            }
+        } while (nesting > 0);
+    }
+    
+    /**
+     * Returns the current line number in the stream. Useful for error messages.
+     * 
+     * @return The current line number, starting with 1.
+     */
+    public int getLineNumber() {
+        return lineNumber + 1;
+    }
+    
+    /**
+     * Closes the underlying stream.
+     * 
+     * @throws IOException If closing the stream fails.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    /**
+     * Checks that the next token is of the given type, and marks it as consumed.
+     * 
+     * @param expected The expected token type.
+     * 
+     * @throws FormatException If the next token is of a different type.
+     * @throws IOException If reading the stream fails.
+     */
+    private void expect(@NonNull Token expected) throws FormatException, IOException {
+        Token next = peek();
+        if (next != expected) {
+            throw makeException("Expected " + expected + ", got " + next);
+        }
+        peeked = null;
+    }
+    
+    /**
+     * Determines the type of the next token. Consumes all structural characters (separators, closing brackets)
+     * before it, but not the first character of a value (or name).
+     * 
+     * @return The type of the next token.
+     * 
+     * @throws FormatException If the JSON is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    private @NonNull Token doPeek() throws FormatException, IOException {
+        int c;
+        switch (stack[depth - 1]) {
+        case EMPTY_DOCUMENT:
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            break;
+            
+        case NONEMPTY_DOCUMENT:
+            if (nextNonWhitespace() != -1) {
+                throw makeException("JSON element is over, but didn't reach EOF");
+            }
+            return Token.END_DOCUMENT;
+            
+        case EMPTY_LIST:
+            if (nextNonWhitespace() == ']') {
+                pos++;
+                return Token.END_LIST;
+            }
+            stack[depth - 1] = NONEMPTY_LIST;
+            break;
+            
+        case NONEMPTY_LIST:
+            c = nextNonWhitespace();
+            pos++;
+            if (c == ']') {
+                return Token.END_LIST;
+            } else if (c != ',') {
+                throw makeException("Expecting ',' or ']' in list, got " + describe(c));
+            }
+            break;
+            
+        case EMPTY_OBJECT:
+        case NONEMPTY_OBJECT:
+            c = nextNonWhitespace();
+            if (c == '}') {
+                pos++;
+                return Token.END_OBJECT;
+            }
+            if (stack[depth - 1] == NONEMPTY_OBJECT) {
+                pos++;
+                if (c != ',') {
+                    throw makeException("Expecting ',' or '}' in object, got " + describe(c));
+                }
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw makeException("Expecting key string, got " + describe(c));
+            }
+            stack[depth - 1] = DANGLING_NAME;
+            return Token.NAME;
+            
+        case DANGLING_NAME:
+            c = nextNonWhitespace();
+            pos++;
+            if (c != ':') {
+                throw makeException("Expecting ':' after key, got " + describe(c));
+            }
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            break;
+            
+        default:
+            throw new IllegalStateException();
+        }
+        
+        return peekValue();
+    }
+    
+    /**
+     * Determines the type of the next value.
+     * 
+     * @return The type of the next value.
+     * 
+     * @throws FormatException If the next character does not start a value.
+     * @throws IOException If reading the stream fails.
+     */
+    private @NonNull Token peekValue() throws FormatException, IOException {
+        int c = nextNonWhitespace();
+        Token result;
+        switch (c) {
+        case '{':
+            result = Token.BEGIN_OBJECT;
+            break;
+        case '[':
+            result = Token.BEGIN_LIST;
+            break;
+        case '"':
+            result = Token.STRING;
+            break;
+        case 't':
+        case 'f':
+            result = Token.BOOLEAN;
+            break;
+        case 'n':
+            result = Token.NULL;
+            break;
+        case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9': case '-':
+            result = Token.NUMBER;
+            break;
+        default:
+            throw makeException("Couldn't determine type: " + describe(c));
+        }
+        return result;
+    }
+    
+    /**
+     * Pushes a new state on the stack.
+     * 
+     * @param state The new state.
+     * 
+     * @throws FormatException If the maximum nesting depth is exceeded.
+     */
+    private void push(byte state) throws FormatException {
+        if (depth > MAX_NESTING_DEPTH) {
+            throw makeException("Exceeded maximum nesting depth of " + MAX_NESTING_DEPTH);
+        }
+        if (depth == stack.length) {
+            stack = notNull(Arrays.copyOf(stack, depth * 2));
+        }
+        stack[depth++] = state;
+    }
+    
+    /**
+     * Makes sure that at least one character is available in the buffer.
+     * 
+     * @return Whether a character is available; <code>false</code> if the end of the stream is reached.
+     * 
+     * @throws IOException If reading the stream fails.
+     */
+    private boolean fill() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        
+        pos = 0;
+        limit = 0;
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        
+        if (read > 0) {
+            limit = read;
+        }
+        return read > 0;
+    }
+    
+    /**
+     * Skips all whitespace and returns the next character, without consuming it.
+     * 
+     * @return The next non-whitespace character, or -1 if the end of the stream is reached.
+     * 
+     * @throws IOException If reading the stream fails.
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (fill()) {
+            char c = buffer[pos];
+            if (c == '\n') {
+                lineNumber++;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+    
+    /**
+     * Reads a complete string. The next character must be the opening '"'.
+     * 
+     * @return The read string.
+     * 
+     * @throws FormatException If the string is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    private @NonNull String readString() throws FormatException, IOException {
+        pos++; // consume '"'
+        
+        StringBuilder result = stringBuilder;
+        result.setLength(0);
+        while (!readStringChunk(result)) {
+            // continue until string is finished
+        }
+        return notNull(result.toString());
+    }
+    
+    /**
+     * Reads a chunk of a string, at most until the end of the current buffer content.
+     * 
+     * @param result The builder to append the unescaped characters to.
+     * 
+     * @return Whether the string is finished (i.e. the closing '"' has been consumed).
+     * 
+     * @throws FormatException If the string is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    private boolean readStringChunk(@NonNull StringBuilder result) throws FormatException, IOException {
+        if (!fill()) {
+            throw makeException("Expecting '\"' at end of string, got EOF");
+        }
+        
+        int start = pos;
+        while (pos < limit) {
+            char c = buffer[pos];
+            if (c == '"') {
+                result.append(buffer, start, pos - start);
+                pos++;
+                return true;
+                
+            } else if (c == '\\') {
+                result.append(buffer, start, pos - start);
+                pos++;
+                result.append(readEscaped());
+                return false;
+                
+            } else if (c < 0x20) { // control characters (< 0x20 (space)) are not allowed
+                throw makeException("Unescaped control character " + Integer.toHexString(c));
+            }
+            pos++;
+        }
+        
+        result.append(buffer, start, pos - start);
+        return false;
+    }
+    
+    /**
+     * Reads an escape sequence in a string. The backslash is already consumed.
+     * 
+     * @return The unescaped character.
+     * 
+     * @throws FormatException If the escape sequence is invalid.
+     * @throws IOException If reading the stream fails.
+     */
+    private char readEscaped() throws FormatException, IOException {
+        int read = readChar();
+        char unescaped;
+        switch (read) {
+        case '"':
+        case '\\':
+        case '/':
+            unescaped = (char) read;
+            break;
+        case 'b':
+            unescaped = '\b';
+            break;
+        case 'n':
+            unescaped = '\n';
+            break;
+        case 'r':
+            unescaped = '\r';
+            break;
+        case 't':
+            unescaped = '\t';
+            break;
+        case 'f':
+            unescaped = '\f';
+            break;
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(readChar(), 16);
+                if (digit < 0) {
+                    throw makeException("Expected four hex digits after \\u");
+                }
+                value = value * 16 + digit;
+            }
+            unescaped = (char) value;
+            break;
+            
+        default:
+            throw makeException("Invalid escaped character " + describe(read));
+        }
+        return unescaped;
+    }
+    
+    /**
+     * Reads and consumes a single character.
+     * 
+     * @return The character, or -1 if the end of the stream is reached.
+     * 
+     * @throws IOException If reading the stream fails.
+     */
+    private int readChar() throws IOException {
+        return fill() ? buffer[pos++] : -1;
+    }
+    
+    /**
+     * Returns the next character without consuming it.
+     * 
+     * @return The character, or -1 if the end of the stream is reached.
+     * 
+     * @throws IOException If reading the stream fails.
+     */
+    private int peekChar() throws IOException {
+        return fill() ? buffer[pos] : -1;
+    }
+    
+    /**
+     * Reads a number literal and checks that it is valid.
+     * 
+     * @param literal The builder to append the literal to.
+     * 
+     * @return Whether the number is integral (i.e. has no fraction and exponent part).
+     * 
+     * @throws FormatException If the number is malformed.
+     * @throws IOException If reading the stream fails.
+     */
+    private boolean readNumberLiteral(@NonNull StringBuilder literal) throws FormatException, IOException {
+        boolean integral = true;
+        
+        if (peekChar() == '-') {
+            literal.append((char) readChar());
+        }
+        int firstDigit = peekChar();
+        if (readDigits(literal) == 0) {
+            throw makeException("Got no integer digits");
+        }
+        if (firstDigit == '0' && literal.length() > (literal.charAt(0) == '-' ? 2 : 1)) {
+            throw makeException("Number may not start with leading 0");
+        }
+        
+        if (peekChar() == '.') {
+            integral = false;
+            literal.append((char) readChar());
+            if (readDigits(literal) == 0) {
+                throw makeException("Expected at least one digit after '.', got " + describe(peekChar()));
+            }
+        }
+        
+        if (peekChar() == 'e' || peekChar() == 'E') {
+            integral = false;
+            literal.append((char) readChar());
+            if (peekChar() == '-' || peekChar() == '+') {
+                literal.append((char) readChar());
+            }
+            if (readDigits(literal) == 0) {
+                throw makeException("Expected at least one digit after 'E', got " + describe(peekChar()));
+            }
+        }
+        
+        return integral;
+    }
+    
+    /**
+     * Reads a sequence of digits.
+     * 
+     * @param literal The builder to append the digits to.
+     * 
+     * @return The number of read digits.
+     * 
+     * @throws IOException If reading the stream fails.
+     */
+    private int readDigits(@NonNull StringBuilder literal) throws IOException {
+        int count = 0;
+        int c;
+        while ((c = peekChar()) >= '0' && c <= '9') {
+            literal.append((char) c);
+            pos++;
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * Reads the given literal (e.g. "true") and checks that the read characters match exactly.
+     * 
+     * @param expected The expected literal.
+     * 
+     * @throws FormatException If the read characters do not match.
+     * @throws IOException If reading the stream fails.
+     */
+    private void readLiteral(@NonNull String expected) throws FormatException, IOException {
+        for (int i = 0; i < expected.length(); i++) {
+            int read = readChar();
+            if (read != expected.charAt(i)) {
+                throw makeException("Expected " + expected + ", got " + describe(read));
+            }
+        }
+    }
+    
+    /**
+     * Creates a readable description of the given character for error messages.
+     * 
+     * @param c The character, or -1 for the end of the stream.
+     * 
+     * @return A description of the character.
+     */
+    private static @NonNull String describe(int c) {
+        return c == -1 ? "EOF" : "'" + (char) c + "'";
+    }
+    
+    /**
+     * Creates a {@link FormatException} with the given message. Adds information about the current line number.
+     * 
+     * @param message The exception message.
+     * 
+     * @return The created exception.
+     */
+    private @NonNull FormatException makeException(@NonNull String message) {
+        return new FormatException("Line " + getLineNumber() + ": " + message);
+    }
+    
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A streaming writer for JSON. Instead of creating a complete tree of {@link JsonElement}s first, the structure is
+ * written directly to the underlying stream, while it is created. Thus, only memory proportional to the nesting depth
+ * is required, independent of the size of the written JSON.
+ * <p>
+ * The output is formatted exactly like the output of {@link JsonPrettyPrinter}.
+ * </p>
+ * <p>
+ * Example:
+ * <pre>
+ * try (JsonWriter writer = new JsonWriter(out)) {
+ *     writer.beginObject();
+ *     writer.name("version").value(1);
+ *     writer.name("list").beginList().value("a").value(true).endList();
+ *     writer.endObject();
+ * }
+ * </pre>
+ * </p>
+ * 
+ * @author Adam
+ */
+public class JsonWriter implements Closeable, Flushable {
+
+    /**
+     * The top-level document, nothing written yet.
+     */
+    private static final byte EMPTY_DOCUMENT = 0;
+    
+    /**
+     * The top-level document, a value has already been written.
+     */
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    
+    /**
+     * An object, no entry written yet.
+     */
+    private static final byte EMPTY_OBJECT = 2;
+    
+    /**
+     * An object, at least one entry has been written.
+     */
+    private static final byte NONEMPTY_OBJECT = 3;
+    
+    /**
+     * An object, a name has been written but its value is still missing.
+     */
+    private static final byte DANGLING_NAME = 4;
+    
+    /**
+     * A list, no element written yet.
+     */
+    private static final byte EMPTY_LIST = 5;
+    
+    /**
+     * A list, at least one element has been written.
+     */
+    private static final byte NONEMPTY_LIST = 6;
+    
+    private @NonNull Writer out;
+    
+    private byte @NonNull [] stack;
+    
+    private int depth;
+    
+    /**
+     * Creates a writer that writes to the given {@link Writer}. The writer is buffered, if it is not already a
+     * {@link BufferedWriter}.
+     * 
+     * @param out The writer to write the JSON to.
+     */
+    public JsonWriter(@NonNull Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.stack = new byte[16];
+        this.stack[0] = EMPTY_DOCUMENT;
+        this.depth = 1;
+    }
+    
+    /**
+     * Creates a writer that writes UTF-8 encoded JSON to the given {@link OutputStream}.
+     * 
+     * @param out The stream to write the JSON to.
+     */
+    public JsonWriter(@NonNull OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Starts a new object. Must be followed by any number of {@link #name(String)} and value pairs, and then
+     * {@link #endObject()}.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        push(EMPTY_OBJECT);
+        return this;
+    }
+    
+    /**
+     * Ends the current object.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     * @throws IllegalStateException If there is no open object, or a name without a value has been written.
+     */
+    public @NonNull JsonWriter endObject() throws IOException, IllegalStateException {
+        return end(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+    
+    /**
+     * Starts a new list. Must be followed by any number of values, and then {@link #endList()}.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter beginList() throws IOException {
+        beforeValue();
+        out.write('[');
+        push(EMPTY_LIST);
+        return this;
+    }
+    
+    /**
+     * Ends the current list.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     * @throws IllegalStateException If there is no open list.
+     */
+    public @NonNull JsonWriter endList() throws IOException, IllegalStateException {
+        return end(EMPTY_LIST, NONEMPTY_LIST, ']');
+    }
+    
+    /**
+     * Writes the name of the next entry in the current object. Must be followed by exactly one value.
+     * 
+     * @param name The name of the entry.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     * @throws IllegalStateException If the current structure is not an object, or a name has already been written.
+     */
+    public @NonNull JsonWriter name(@NonNull String name) throws IOException, IllegalStateException {
+        byte top = stack[depth - 1];
+        if (top == NONEMPTY_OBJECT) {
+            out.write(',');
+        } else if (top != EMPTY_OBJECT) {
+            throw new IllegalStateException("Can't write a name outside of an object");
+        }
+        newLine(depth - 1);
+        writeString(name);
+        out.write(": ");
+        stack[depth - 1] = DANGLING_NAME;
+        return this;
+    }
+    
+    /**
+     * Writes a string value. A <code>null</code> value is written as JSON <code>null</code>.
+     * 
+     * @param value The value to write.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter value(@Nullable String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+    
+    /**
+     * Writes a string value, that is read from the given {@link Reader}. This allows writing large strings without
+     * holding them in memory completely. The reader is not closed.
+     * 
+     * @param value The reader to read the string value from.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If reading from the reader or writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter value(@NonNull Reader value) throws IOException {
+        beforeValue();
+        out.write('"');
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = value.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                writeEscaped(buffer[i]);
+            }
+        }
+        out.write('"');
+        return this;
+    }
+    
+    /**
+     * Writes a boolean value.
+     * 
+     * @param value The value to write.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+    
+    /**
+     * Writes a number value.
+     * 
+     * @param value The value to write.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter value(@NonNull Number value) throws IOException {
+        beforeValue();
+        out.write(String.valueOf(value));
+        return this;
+    }
+    
+    /**
+     * Writes a <code>null</code> value.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+    
+    /**
+     * Writes the given (already created) {@link JsonElement} as a value. This is useful for writing smaller sub-trees
+     * that are created by other parts of the code.
+     * 
+     * @param value The value to write.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    public @NonNull JsonWriter value(@NonNull JsonElement value) throws IOException {
+        if (value instanceof JsonObject) {
+            beginObject();
+            for (Map.Entry<String, JsonElement> entry : (JsonObject) value) {
+                name(notNull(entry.getKey()));
+                value(notNull(entry.getValue()));
+            }
+            endObject();
+            
+        } else if (value instanceof JsonList) {
+            beginList();
+            for (JsonElement element : (JsonList) value) {
+                value(element);
+            }
+            endList();
+            
+        } else if (value instanceof JsonString) {
+            value(((JsonString) value).getValue());
+            
+        } else if (value instanceof JsonNumber) {
+            value(((JsonNumber) value).getValue());
+            
+        } else if (value instanceof JsonBoolean) {
+            value(((JsonBoolean) value).getValue());
+            
+        } else {
+            nullValue();
+        }
+        return this;
+    }
+    
+    /**
+     * Flushes the underlying stream.
+     * 
+     * @throws IOException If flushing the underlying stream fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * Closes the underlying stream.
+     * 
+     * @throws IOException If closing the underlying stream fails.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Checks that a value may be written at the current position, and writes the separators required before it.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     * @throws IllegalStateException If no value is allowed at the current position.
+     */
+    private void beforeValue() throws IOException, IllegalStateException {
+        switch (stack[depth - 1]) {
+        case EMPTY_DOCUMENT:
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            break;
+            
+        case DANGLING_NAME:
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            break;
+            
+        case NONEMPTY_LIST:
+            out.write(',');
+            newLine(depth - 1);
+            break;
+            
+        case EMPTY_LIST:
+            stack[depth - 1] = NONEMPTY_LIST;
+            newLine(depth - 1);
+            break;
+            
+        case NONEMPTY_DOCUMENT:
+            throw new IllegalStateException("JSON must only have one top-level value");
+            
+        default:
+            throw new IllegalStateException("Expected a name before the value in an object");
+        }
+    }
+    
+    /**
+     * Ends the current object or list.
+     * 
+     * @param empty The state that marks an empty structure of the expected type.
+     * @param nonempty The state that marks a non-empty structure of the expected type.
+     * @param bracket The closing bracket to write.
+     * 
+     * @return This writer.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     * @throws IllegalStateException If the current structure is not of the expected type.
+     */
+    private @NonNull JsonWriter end(byte empty, byte nonempty, char bracket) throws IOException,
+            IllegalStateException {
+        
+        byte top = stack[depth - 1];
+        if (top != empty && top != nonempty) {
+            throw new IllegalStateException("Can't close " + bracket + " here");
+        }
+        depth--;
+        if (top == nonempty) {
+            newLine(depth - 1);
+        }
+        out.write(bracket);
+        return this;
+    }
+    
+    /**
+     * Pushes a new state on the stack.
+     * 
+     * @param state The state to push.
+     */
+    private void push(byte state) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = state;
+    }
+    
+    /**
+     * Writes a line break, followed by the given number of tabs for indentation.
+     * 
+     * @param indentation The number of tabs to write.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    private void newLine(int indentation) throws IOException {
+        out.write('\n');
+        for (int i = 0; i < indentation; i++) {
+            out.write('\t');
+        }
+    }
+    
+    /**
+     * Writes the given string, enclosed in quotes and properly escaped.
+     * 
+     * @param str The string to write.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    private void writeString(@NonNull String str) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (needsEscaping(c)) {
+                out.write(str, start, i - start);
+                writeEscaped(c);
+                start = i + 1;
+            }
+        }
+        out.write(str, start, str.length() - start);
+        out.write('"');
+    }
+    
+    /**
+     * Checks whether the given character must be escaped in a JSON string.
+     * 
+     * @param c The character to check.
+     * 
+     * @return Whether the character must be escaped.
+     * 
+     * @see JsonString#jsonEscape(String)
+     */
+    private static boolean needsEscaping(char c) {
+        return c == '"' || c == '\\' || c == '\b' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+    
+    /**
+     * Writes the given character, escaped if necessary. Uses the same escaping as
+     * {@link JsonString#jsonEscape(String)}.
+     * 
+     * @param c The character to write.
+     * 
+     * @throws IOException If writing to the underlying stream fails.
+     */
+    private void writeEscaped(char c) throws IOException {
+        switch (c) {
+        case '"':
+            out.write("\\\"");
+            break;
+        case '\\':
+            out.write("\\\\");
+            break;
+        case '\b':
+            out.write("\\b");
+            break;
+        case '\n':
+            out.write("\\n");
+            break;
+        case '\r':
+            out.write("\\r");
+            break;
+        case '\t':
+            out.write("\\t");
+            break;
+        case '\f':
+            out.write("\\f");
+            break;
+            
+        default:
+            out.write(c);
+            break;
+        }
+    }
+    
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A thread-safe, size-bounded memoization layer for a simplifier. The same presence conditions are often simplified
+ * again and again (e.g. across files and components); this cache returns the previous result for structurally equal
+ * formulas (see {@link Formula#equals(Object)}; the hash codes of formulas are precomputed, so lookups are cheap). The
+ * wrapped simplifier must thus be deterministic.
+ * <p>
+ * The cache is split into stripes selected by the hash code of the formula. Each stripe is a least-recently-used
+ * map with its own lock, so concurrent threads rarely contend. The simplifier itself runs outside of the locks; if two
+ * threads simplify the same formula concurrently, the first result is kept.
+ * </p>
+ * <p>
+ * Can wrap the currently installed simplifier:
+ * <code>FormulaSimplifier.setSimplifier(new CachingSimplifier(FormulaSimplifier.getSimplifier(), 100000))</code>.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class CachingSimplifier implements Function<@NonNull Formula, @NonNull Formula> {
+
+    private static final int NUM_STRIPES = 16;
+    
+    private @NonNull Function<@NonNull Formula, @NonNull Formula> simplifier;
+    
+    private int maxSize;
+    
+    private @NonNull Stripe @NonNull [] stripes;
+    
+    private @NonNull LongAdder hits;
+    
+    private @NonNull LongAdder misses;
+    
+    private @NonNull LongAdder evictions;
+    
+    /**
+     * A least-recently-used map of cached results. Access must be synchronized on the stripe.
+     */
+    private static final class Stripe extends LinkedHashMap<@NonNull Formula, @NonNull Formula> {
+
+        private static final long serialVersionUID = 4893178520394478125L;
+
+        private int capacity;
+        
+        private transient @NonNull LongAdder evictions;
+        
+        /**
+         * Creates a stripe.
+         * 
+         * @param capacity The maximum number of entries.
+         * @param evictions The counter for evicted entries.
+         */
+        Stripe(int capacity, @NonNull LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<@NonNull Formula, @NonNull Formula> eldest) {
+            boolean remove = size() > capacity;
+            if (remove) {
+                evictions.increment();
+            }
+            return remove;
+        }
+        
+    }
+    
+    /**
+     * Creates a cache for the given simplifier.
+     * 
+     * @param simplifier The simplifier to cache the results of.
+     * @param maxSize The maximum number of cached results. Must be positive.
+     * 
+     * @throws IllegalArgumentException If maxSize is not positive.
+     */
+    public CachingSimplifier(@NonNull Function<@NonNull Formula, @NonNull Formula> simplifier, int maxSize)
+            throws IllegalArgumentException {
+        
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        }
+        
+        this.simplifier = simplifier;
+        this.maxSize = maxSize;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        
+        // small caches use fewer stripes, so that the bound is not rounded up too much
+        int numStripes = Math.min(NUM_STRIPES, Integer.highestOneBit(maxSize));
+        int capacity = (maxSize + numStripes - 1) / numStripes;
+        this.stripes = new @NonNull Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new Stripe(capacity, evictions);
+        }
+    }
+    
+    @Override
+    public @NonNull Formula apply(@NonNull Formula formula) {
+        Stripe stripe = getStripe(formula);
+        Formula result;
+        synchronized (stripe) {
+            result = stripe.get(formula);
+        }
+        
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            Formula simplified = simplifier.apply(formula);
+            synchronized (stripe) {
+                result = stripe.putIfAbsent(formula, simplified);
+            }
+            if (result == null) {
+                result = simplified;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns the stripe for the given formula.
+     * 
+     * @param formula The formula.
+     * @return The stripe that caches the formula.
+     */
+    private @NonNull Stripe getStripe(@NonNull Formula formula) {
+        int hash = formula.hashCode();
+        // spread the higher bits, since the stripe is selected by the lower bits
+        hash ^= (hash >>> 16) ^ (hash >>> 8);
+        return stripes[hash & (stripes.length - 1)];
+    }
+    
+    /**
+     * Returns the wrapped simplifier.
+     * 
+     * @return The simplifier that this cache calls for new formulas.
+     */
+    public @NonNull Function<@NonNull Formula, @NonNull Formula> getSimplifier() {
+        return simplifier;
+    }
+    
+    /**
+     * Returns the maximum number of cached results.
+     * 
+     * @return The maximum size of this cache.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Returns the number of currently cached results.
+     * 
+     * @return The size of this cache.
+     */
+    public int getSize() {
+        int result = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                result += stripe.size();
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of calls that were answered from the cache.
+     * 
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * Returns the number of calls that had to call the wrapped simplifier.
+     * 
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * Returns the number of results that were removed because the cache was full.
+     * 
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Removes all cached results. The statistics are not reset.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+    
+    @Override
+    public @NonNull String toString() {
+        long numHits = getHits();
+        long total = numHits + getMisses();
+        return "CachingSimplifier[size=" + getSize() + "/" + maxSize + ", hits=" + numHits + ", misses="
+                + getMisses() + ", evictions=" + getEvictions() + ", hit rate="
+                + (total > 0 ? (100 * numHits / total) + "%" : "n/a") + "]";
+    }
+    
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A {@link Formula} compiled into a flat postfix program over integer variable slots. Evaluating the program avoids
+ * the virtual visitor calls, boxing and name lookups of the {@link FormulaEvaluator}. Additionally, the bit-parallel
+ * evaluation methods evaluate 64 configurations at once: bit <code>i</code> of each <code>long</code> value belongs
+ * to configuration <code>i</code>.
+ * <p>
+ * Each variable of the formula is assigned a slot, in the order of first occurrence (see {@link #getVariables()}).
+ * The evaluation methods take an array of values indexed by slot.
+ * </p>
+ * <p>
+ * Three-valued (unknown) semantics are available through a pair of masks per value: the <i>true</i> mask has the bits
+ * set for the configurations where the value is <code>true</code>, the <i>false</i> mask has the bits set where the
+ * value is <code>false</code>. Configurations where neither bit is set are unknown. This matches the semantics of the
+ * {@link FormulaEvaluator} with <code>null</code> values: e.g. <code>false &amp;&amp; unknown</code> is
+ * <code>false</code>, while <code>true &amp;&amp; unknown</code> is unknown.
+ * </p>
+ * <p>
+ * Instances are immutable and thus thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class CompiledFormula {
+
+    private static final int OP_BITS = 3;
+    
+    private static final int OP_MASK = (1 << OP_BITS) - 1;
+    
+    /**
+     * Pushes the value of the variable slot given as argument.
+     */
+    private static final int OP_VARIABLE = 0;
+    
+    private static final int OP_TRUE = 1;
+    
+    private static final int OP_FALSE = 2;
+    
+    private static final int OP_NOT = 3;
+    
+    /**
+     * Replaces the number of top-most values given as argument with their conjunction.
+     */
+    private static final int OP_AND = 4;
+    
+    /**
+     * Replaces the number of top-most values given as argument with their disjunction.
+     */
+    private static final int OP_OR = 5;
+    
+    /**
+     * The instructions; the lower {@link #OP_BITS} are the operation, the remaining bits are the argument.
+     */
+    private int @NonNull [] program;
+    
+    private int programLength;
+    
+    private int maxStackSize;
+    
+    private @NonNull List<@NonNull String> variables;
+    
+    private @NonNull Map<String, Integer> slots;
+    
+    /**
+     * Compiles the given formula.
+     * 
+     * @param formula The formula to compile.
+     * 
+     * @throws IllegalArgumentException If the formula contains unsupported formula types.
+     */
+    public CompiledFormula(@NonNull Formula formula) throws IllegalArgumentException {
+        this.program = new int[16];
+        this.variables = new ArrayList<>();
+        this.slots = new HashMap<>();
+        
+        compile(formula);
+        
+        this.program = notNull(Arrays.copyOf(program, programLength));
+        this.maxStackSize = calculateMaxStackSize(program);
+    }
+    
+    /**
+     * Appends the postfix program of the given formula.
+     * 
+     * @param formula The formula to compile.
+     * 
+     * @throws IllegalArgumentException If the formula contains unsupported formula types.
+     */
+    private void compile(@NonNull Formula formula) throws IllegalArgumentException {
+        int instruction;
+        
+        if (formula instanceof Variable) {
+            String name = ((Variable) formula).getName();
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                slot = variables.size();
+                variables.add(name);
+                slots.put(name, slot);
+            }
+            instruction = (slot << OP_BITS) | OP_VARIABLE;
+            
+        } else if (formula instanceof True) {
+            instruction = OP_TRUE;
+            
+        } else if (formula instanceof False) {
+            instruction = OP_FALSE;
+            
+        } else if (formula instanceof Negation) {
+            compile(((Negation) formula).getFormula());
+            instruction = OP_NOT;
+            
+        } else if (formula instanceof Conjunction || formula instanceof Disjunction
+                || formula instanceof NaryFormula) {
+            
+            // flattening turns a chain of binary operations into a single instruction
+            NaryFormula nary = (NaryFormula) NaryFormula.flatten(formula);
+            for (int i = 0; i < nary.getOperandCount(); i++) {
+                compile(nary.getOperand(i));
+            }
+            instruction = (nary.getOperandCount() << OP_BITS)
+                    | (nary.getOperator() == NaryFormula.Operator.AND ? OP_AND : OP_OR);
+            
+        } else {
+            throw new IllegalArgumentException("Unsupported formula type: " + formula.getClass().getName());
+        }
+        
+        if (programLength == program.length) {
+            program = notNull(Arrays.copyOf(program, programLength * 2));
+        }
+        program[programLength++] = instruction;
+    }
+    
+    /**
+     * Calculates the maximum stack size required to run the given program.
+     * 
+     * @param program The program.
+     * @return The maximum stack size.
+     */
+    private static int calculateMaxStackSize(int @NonNull [] program) {
+        int size = 0;
+        int max = 0;
+        for (int instruction : program) {
+            switch (instruction & OP_MASK) {
+            case OP_AND:
+            case OP_OR:
+                size -= (instruction >>> OP_BITS) - 1;
+                break;
+            case OP_NOT:
+                break;
+            default:
+                size++;
+                break;
+            }
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+    
+    /**
+     * Returns the variables of the formula, indexed by their slot.
+     * 
+     * @return The variable names; the index is the slot.
+     */
+    public @NonNull String @NonNull [] getVariables() {
+        return notNull(variables.toArray(new @NonNull String[variables.size()]));
+    }
+    
+    /**
+     * Returns the number of variable slots. The arrays passed to the evaluation methods must have (at least) this
+     * length.
+     * 
+     * @return The number of variables of the formula.
+     */
+    public int getNumVariables() {
+        return variables.size();
+    }
+    
+    /**
+     * Returns the slot of the given variable.
+     * 
+     * @param name The name of the variable.
+     * @return The slot of the variable, or -1 if the formula does not contain the variable.
+     */
+    public int getSlot(@NonNull String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+    
+    /**
+     * Returns the number of instructions of the compiled program.
+     * 
+     * @return The program length.
+     */
+    public int getProgramLength() {
+        return program.length;
+    }
+    
+    /**
+     * Evaluates the formula for a single configuration.
+     * 
+     * @param values The value of each variable slot.
+     * @return The value of the formula.
+     */
+    public boolean evaluate(boolean @NonNull [] values) {
+        long[] bits = new long[variables.size()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = values[i] ? 1L : 0L;
+        }
+        return (evaluate(bits) & 1L) != 0;
+    }
+    
+    /**
+     * Evaluates the formula for 64 configurations at once.
+     * 
+     * @param values The value of each variable slot; bit <code>i</code> is the value in configuration <code>i</code>.
+     * @return The value of the formula; bit <code>i</code> is the value in configuration <code>i</code>.
+     */
+    public long evaluate(long @NonNull [] values) {
+        long[] stack = new long[maxStackSize];
+        int sp = 0;
+        
+        for (int instruction : program) {
+            int arg = instruction >>> OP_BITS;
+            switch (instruction & OP_MASK) {
+            case OP_VARIABLE:
+                stack[sp++] = values[arg];
+                break;
+            case OP_TRUE:
+                stack[sp++] = -1L;
+                break;
+            case OP_FALSE:
+                stack[sp++] = 0L;
+                break;
+            case OP_NOT:
+                stack[sp - 1] = ~stack[sp - 1];
+                break;
+            case OP_AND:
+                sp -= arg - 1;
+                for (int i = 0; i < arg - 1; i++) {
+                    stack[sp - 1] &= stack[sp + i];
+                }
+                break;
+            default: // OP_OR
+                sp -= arg - 1;
+                for (int i = 0; i < arg - 1; i++) {
+                    stack[sp - 1] |= stack[sp + i];
+                }
+                break;
+            }
+        }
+        
+        return stack[0];
+    }
+    
+    /**
+     * Evaluates the formula for 64 configurations at once, with three-valued semantics. For each variable slot, the
+     * bit <code>i</code> of the true and false mask defines the value in configuration <code>i</code>; if neither is
+     * set, the value is unknown. The bits must not be set in both masks.
+     * 
+     * @param trueValues The true mask of each variable slot.
+     * @param falseValues The false mask of each variable slot.
+     * @param result An array of (at least) size 2; the true mask of the result is written to index 0, the false mask
+     *      to index 1.
+     */
+    public void evaluate(long @NonNull [] trueValues, long @NonNull [] falseValues, long @NonNull [] result) {
+        long[] trueStack = new long[maxStackSize];
+        long[] falseStack = new long[maxStackSize];
+        int sp = 0;
+        
+        for (int instruction : program) {
+            int arg = instruction >>> OP_BITS;
+            switch (instruction & OP_MASK) {
+            case OP_VARIABLE:
+                trueStack[sp] = trueValues[arg];
+                falseStack[sp++] = falseValues[arg];
+                break;
+            case OP_TRUE:
+                trueStack[sp] = -1L;
+                falseStack[sp++] = 0L;
+                break;
+            case OP_FALSE:
+                trueStack[sp] = 0L;
+                falseStack[sp++] = -1L;
+                break;
+            case OP_NOT:
+                long tmp = trueStack[sp - 1];
+                trueStack[sp - 1] = falseStack[sp - 1];
+                falseStack[sp - 1] = tmp;
+                break;
+            case OP_AND:
+                // true if all operands are true; false if any operand is false
+                sp -= arg - 1;
+                for (int i = 0; i < arg - 1; i++) {
+                    trueStack[sp - 1] &= trueStack[sp + i];
+                    falseStack[sp - 1] |= falseStack[sp + i];
+                }
+                break;
+            default: // OP_OR
+                sp -= arg - 1;
+                for (int i = 0; i < arg - 1; i++) {
+                    trueStack[sp - 1] |= trueStack[sp + i];
+                    falseStack[sp - 1] &= falseStack[sp + i];
+                }
+                break;
+            }
+        }
+        
+        result[0] = trueStack[0];
+        result[1] = falseStack[0];
+    }
+    
+    /**
+     * Evaluates the formula for a single configuration, with three-valued semantics. Convenience method with the same
+     * interface as the {@link FormulaEvaluator}.
+     * 
+     * @param values The mapping {@code variable name -> boolean value}; <code>null</code> or missing values are
+     *      unknown.
+     * @return The value of the formula, or <code>null</code> if it is unknown.
+     */
+    public @Nullable Boolean evaluate(@NonNull Map<String, Boolean> values) {
+        long[] trueValues = new long[variables.size()];
+        long[] falseValues = new long[variables.size()];
+        for (int i = 0; i < trueValues.length; i++) {
+            Boolean value = values.get(variables.get(i));
+            if (value != null) {
+                trueValues[i] = value ? 1L : 0L;
+                falseValues[i] = value ? 0L : 1L;
+            }
+        }
+        
+        long[] result = new long[2];
+        evaluate(trueValues, falseValues, result);
+        
+        Boolean value = null;
+        if ((result[0] & 1L) != 0) {
+            value = true;
+        } else if ((result[1] & 1L) != 0) {
+            value = false;
+        }
+        return value;
+    }
+    
+}
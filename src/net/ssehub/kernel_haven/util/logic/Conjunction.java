@@ -15,6 +15,8 @@
  */
 package net.ssehub.kernel_haven.util.logic;
 
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -32,6 +34,11 @@ public final class Conjunction extends Formula {
     
     private @NonNull Formula right;
     
+    /**
+     * The hash code of this formula. Computed once in the constructor, since the formula is immutable.
+     */
+    private int hash;
+    
     /**
      * Creates a boolean conjunction (AND).
      * 
@@ -41,6 +48,7 @@ public final class Conjunction extends Formula {
     public Conjunction(@NonNull Formula left, @NonNull Formula right) {
         this.left = left;
         this.right = right;
+        this.hash = (left.hashCode() + right.hashCode()) * 4564;
     }
     
     /**
@@ -63,52 +71,32 @@ public final class Conjunction extends Formula {
     
     @Override
     public @NonNull String toString() {
-        String leftStr = left.toString();
-        if (!(left instanceof Conjunction) && left.getPrecedence() <= this.getPrecedence()) {
-            leftStr = '(' + leftStr + ')';
-        }
-        
-        String rightStr = right.toString();
-        if (!(right instanceof Conjunction) && right.getPrecedence() <= this.getPrecedence()) {
-            rightStr = '(' + rightStr + ')';
-        }
-        
-        return leftStr + " && " + rightStr;
+        StringBuilder result = new StringBuilder();
+        toString(result);
+        return notNull(result.toString());
     }
     
     @Override
     public void toString(@NonNull StringBuilder result) {
-        if (!(left instanceof Conjunction) && left.getPrecedence() <= this.getPrecedence()) {
-            result.append('(');
-            left.toString(result);
-            result.append(')');
-        } else {
-            left.toString(result);
-        }
-        
-        result.append(" && ");
-                
-        if (!(right instanceof Conjunction) && right.getPrecedence() <= this.getPrecedence()) {
-            result.append('(');
-            right.toString(result);
-            result.append(')');
-        } else {
-            right.toString(result);
-        }
+        // not recursive, to support deeply nested formulas
+        FormulaTraverser.toString(this, result);
     }
     
     @Override
     public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Conjunction) {
             Conjunction other = (Conjunction) obj;
-            return left.equals(other.getLeft()) && right.equals(other.getRight());
+            return hash == other.hash && left.equals(other.getLeft()) && right.equals(other.getRight());
         }
         return false;
     }
     
     @Override
     public int hashCode() {
-        return (left.hashCode() + right.hashCode()) * 4564;
+        return hash;
     }
 
     @Override
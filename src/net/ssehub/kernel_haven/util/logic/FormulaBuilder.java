@@ -16,6 +16,7 @@
 package net.ssehub.kernel_haven.util.logic;
 
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * Static utility methods for creating {@link Conjunction}s, {@link Disjunction}s and {@link Negation}s with less code
@@ -32,17 +33,83 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  * Formula formula = or("A", and(not("B"), "C"));
  * // equal to: new Disjunction(new Variable("A"),new Conjunction(new Negation(new Variable("B")), new Variable("C"))
  * </pre>
+ * <p>
+ * If a {@link FormulaFactory} is set via {@link #setFactory(FormulaFactory)}, all formulas are created through it
+ * (and thus are canonical instances of that factory).
+ * </p>
  *
  * @author Adam
  */
 public class FormulaBuilder {
 
+    private static volatile @Nullable FormulaFactory factory;
+    
     /**
      * Don't allow any instance.
      */
     private FormulaBuilder() {
     }
     
+    /**
+     * Sets the {@link FormulaFactory} that all formulas are created through.
+     * 
+     * @param factory The factory to use; <code>null</code> to create the formulas with their constructors.
+     */
+    public static void setFactory(@Nullable FormulaFactory factory) {
+        FormulaBuilder.factory = factory;
+    }
+    
+    /**
+     * Shorthand for <code>new Variable(name)</code>. Goes through the factory, if one is set (see
+     * {@link #setFactory(FormulaFactory)}).
+     * 
+     * @param name The name of the variable.
+     * 
+     * @return The variable.
+     */
+    public static @NonNull Variable variable(@NonNull String name) {
+        FormulaFactory factory = FormulaBuilder.factory;
+        return factory != null ? factory.variable(name) : new Variable(name);
+    }
+    
+    /**
+     * Creates a conjunction, through the factory if set.
+     * 
+     * @param left The left operand.
+     * @param right The right operand.
+     * 
+     * @return The conjunction.
+     */
+    private static @NonNull Conjunction conjunction(@NonNull Formula left, @NonNull Formula right) {
+        FormulaFactory factory = FormulaBuilder.factory;
+        return factory != null ? factory.and(left, right) : new Conjunction(left, right);
+    }
+    
+    /**
+     * Creates a disjunction, through the factory if set.
+     * 
+     * @param left The left operand.
+     * @param right The right operand.
+     * 
+     * @return The disjunction.
+     */
+    private static @NonNull Disjunction disjunction(@NonNull Formula left, @NonNull Formula right) {
+        FormulaFactory factory = FormulaBuilder.factory;
+        return factory != null ? factory.or(left, right) : new Disjunction(left, right);
+    }
+    
+    /**
+     * Creates a negation, through the factory if set.
+     * 
+     * @param formula The negated formula.
+     * 
+     * @return The negation.
+     */
+    private static @NonNull Negation negation(@NonNull Formula formula) {
+        FormulaFactory factory = FormulaBuilder.factory;
+        return factory != null ? factory.not(formula) : new Negation(formula);
+    }
+    
     /**
      * Shorthand for <code>new Conjunction(left, right)</code>.
      * 
@@ -52,7 +119,7 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull Formula left, @NonNull Formula right) {
-        return new Conjunction(left, right);
+        return conjunction(left, right);
     }
     
     /**
@@ -64,7 +131,7 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull String left, @NonNull Formula right) {
-        return new Conjunction(new Variable(left), right);
+        return conjunction(variable(left), right);
     }
     
     /**
@@ -76,7 +143,7 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull Formula left, @NonNull String right) {
-        return new Conjunction(left, new Variable(right));
+        return conjunction(left, variable(right));
     }
     
     /**
@@ -88,7 +155,7 @@ public class FormulaBuilder {
      * @return A conjunction of the two terms.
      */
     public static @NonNull Conjunction and(@NonNull String left, @NonNull String right) {
-        return new Conjunction(new Variable(left), new Variable(right));
+        return conjunction(variable(left), variable(right));
     }
     
     /**
@@ -100,7 +167,7 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull Formula left, @NonNull Formula right) {
-        return new Disjunction(left, right);
+        return disjunction(left, right);
     }
     
     /**
@@ -112,7 +179,7 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull String left, @NonNull Formula right) {
-        return new Disjunction(new Variable(left), right);
+        return disjunction(variable(left), right);
     }
     
     /**
@@ -124,7 +191,7 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull Formula left, @NonNull String right) {
-        return new Disjunction(left, new Variable(right));
+        return disjunction(left, variable(right));
     }
     
     /**
@@ -136,7 +203,7 @@ public class FormulaBuilder {
      * @return A disjunction of the two terms.
      */
     public static @NonNull Disjunction or(@NonNull String left, @NonNull String right) {
-        return new Disjunction(new Variable(left), new Variable(right));
+        return disjunction(variable(left), variable(right));
     }
     
     /**
@@ -147,7 +214,7 @@ public class FormulaBuilder {
      * @return A negation of the formula.
      */
     public static @NonNull Negation not(@NonNull Formula formula) {
-        return new Negation(formula);
+        return negation(formula);
     }
     
     /**
@@ -158,7 +225,7 @@ public class FormulaBuilder {
      * @return A negation of the formula.
      */
     public static @NonNull Negation not(@NonNull String formula) {
-        return new Negation(new Variable(formula));
+        return negation(variable(formula));
     }
     
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A dictionary of distinct formulas, used for serializing many formulas with shared structure. Each distinct
+ * (sub-)formula is stored only once and gets a unique index. Formulas are added in post-order, i.e. the operands of a
+ * formula always have a smaller index than the formula itself. Thus, a serialized dictionary can be read back
+ * sequentially, with each entry only referencing entries that have already been read.
+ * <p>
+ * Formulas are considered equal if they are structurally equal. Looking up a formula instance that has already been
+ * added is a constant-time identity lookup; for other formulas, only a constant-time lookup per node is required
+ * (since the operands are identified by their index).
+ * </p>
+ * 
+ * @author Adam
+ */
+public class FormulaDictionary {
+
+    /**
+     * The structural key of an entry in the dictionary.
+     */
+    private static final class Key {
+        
+        private final @NonNull Class<?> type;
+        
+        private final int operand1;
+        
+        private final int operand2;
+        
+        private final @Nullable String name;
+        
+        /**
+         * Creates a new key.
+         * 
+         * @param type The class of the formula.
+         * @param operand1 The index of the first operand (or -1).
+         * @param operand2 The index of the second operand (or -1).
+         * @param name The name of the variable, or the string representation of unknown formula types.
+         */
+        public Key(@NonNull Class<?> type, int operand1, int operand2, @Nullable String name) {
+            this.type = type;
+            this.operand1 = operand1;
+            this.operand2 = operand2;
+            this.name = name;
+        }
+        
+        @Override
+        public int hashCode() {
+            String name = this.name;
+            return ((type.hashCode() * 31 + operand1) * 31 + operand2) * 31 + (name != null ? name.hashCode() : 0);
+        }
+        
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            boolean equal = false;
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                String name = this.name;
+                equal = type == other.type && operand1 == other.operand1 && operand2 == other.operand2
+                        && (name != null ? name.equals(other.name) : other.name == null);
+            }
+            return equal;
+        }
+        
+    }
+    
+    private @NonNull List<@NonNull Formula> formulas;
+    
+    private @NonNull Map<Formula, Integer> identities;
+    
+    private @NonNull Map<Key, Integer> indices;
+    
+    /**
+     * Creates an empty dictionary.
+     */
+    public FormulaDictionary() {
+        this.formulas = new ArrayList<>();
+        this.identities = new IdentityHashMap<>();
+        this.indices = new HashMap<>();
+    }
+    
+    /**
+     * Adds the given formula (and all of its sub-formulas) to this dictionary, if it's not already contained.
+     * 
+     * @param formula The formula to add.
+     * 
+     * @return The index of the formula in this dictionary.
+     */
+    public int add(@NonNull Formula formula) {
+        Integer result = identities.get(formula);
+        if (result != null) {
+            return result;
+        }
+        
+        Key key = createKey(formula, true);
+        result = indices.get(key);
+        if (result == null) {
+            result = formulas.size();
+            formulas.add(formula);
+            indices.put(key, result);
+        }
+        
+        identities.put(formula, result);
+        return result;
+    }
+    
+    /**
+     * Creates the structural key for the given formula.
+     * 
+     * @param formula The formula to create the key for.
+     * @param add Whether operands that are not yet contained in this dictionary should be added.
+     * 
+     * @return The key for the formula.
+     * 
+     * @throws IllegalArgumentException If add is <code>false</code> and an operand is not contained in this dictionary.
+     */
+    private @NonNull Key createKey(@NonNull Formula formula, boolean add) throws IllegalArgumentException {
+        Key key;
+        if (formula instanceof Variable) {
+            key = new Key(Variable.class, -1, -1, ((Variable) formula).getName());
+        } else if (formula instanceof Negation) {
+            key = new Key(Negation.class, operand(((Negation) formula).getFormula(), add), -1, null);
+        } else if (formula instanceof Conjunction) {
+            Conjunction conjunction = (Conjunction) formula;
+            key = new Key(Conjunction.class, operand(conjunction.getLeft(), add), operand(conjunction.getRight(), add),
+                    null);
+        } else if (formula instanceof Disjunction) {
+            Disjunction disjunction = (Disjunction) formula;
+            key = new Key(Disjunction.class, operand(disjunction.getLeft(), add), operand(disjunction.getRight(), add),
+                    null);
+        } else if (formula instanceof True || formula instanceof False) {
+            key = new Key(formula.getClass(), -1, -1, null);
+        } else {
+            key = new Key(formula.getClass(), -1, -1, formula.toString());
+        }
+        return key;
+    }
+    
+    /**
+     * Returns the index of an operand.
+     * 
+     * @param operand The operand.
+     * @param add Whether the operand should be added, if it's not yet contained in this dictionary.
+     * 
+     * @return The index of the operand.
+     * 
+     * @throws IllegalArgumentException If add is <code>false</code> and the operand is not contained in this
+     *      dictionary.
+     */
+    private int operand(@NonNull Formula operand, boolean add) throws IllegalArgumentException {
+        return add ? add(operand) : getIndex(operand);
+    }
+    
+    /**
+     * Returns the index of the given formula. The formula (or a structurally equal formula) must have been added with
+     * {@link #add(Formula)} before (either directly, or as a sub-formula of another formula).
+     * 
+     * @param formula The formula to get the index for.
+     * 
+     * @return The index of the formula.
+     * 
+     * @throws IllegalArgumentException If the formula is not contained in this dictionary.
+     */
+    public int getIndex(@NonNull Formula formula) throws IllegalArgumentException {
+        Integer result = identities.get(formula);
+        if (result == null) {
+            result = indices.get(createKey(formula, false));
+            if (result == null) {
+                throw new IllegalArgumentException("Formula " + formula + " not contained in dictionary");
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the formula with the given index.
+     * 
+     * @param index The index of the formula.
+     * 
+     * @return The formula at the given index.
+     * 
+     * @throws IndexOutOfBoundsException If the index is out of bounds.
+     */
+    public @NonNull Formula get(int index) throws IndexOutOfBoundsException {
+        return notNull(formulas.get(index));
+    }
+    
+    /**
+     * Returns the number of distinct formulas in this dictionary.
+     * 
+     * @return The number of formulas.
+     */
+    public int getSize() {
+        return formulas.size();
+    }
+    
+}
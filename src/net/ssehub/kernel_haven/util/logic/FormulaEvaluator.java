@@ -26,7 +26,7 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
  * 
  * @author Adam
  */
-public class FormulaEvaluator implements IFormulaVisitor<@Nullable Boolean> {
+public class FormulaEvaluator implements INaryFormulaVisitor<@Nullable Boolean> {
 
     private @NonNull Map<String, Boolean> variableValues;
     
@@ -96,4 +96,27 @@ public class FormulaEvaluator implements IFormulaVisitor<@Nullable Boolean> {
         return result;
     }
 
+    @Override
+    public @Nullable Boolean visitNaryFormula(@NonNull NaryFormula formula) {
+        // the dominating value is false for AND and true for OR
+        Boolean dominant = formula.getOperator() == NaryFormula.Operator.AND ? Boolean.FALSE : Boolean.TRUE;
+        
+        boolean undefined = false;
+        Boolean result = null;
+        for (int i = 0; i < formula.getOperandCount() && result == null; i++) {
+            Boolean value = formula.getOperand(i).accept(this);
+            if (dominant.equals(value)) {
+                result = dominant;
+            } else if (value == null) {
+                undefined = true;
+            }
+        }
+        
+        if (result == null && !undefined) {
+            result = !dominant;
+        }
+        
+        return result;
+    }
+
 }
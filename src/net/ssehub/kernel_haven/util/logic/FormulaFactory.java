@@ -0,0 +1,438 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A hash-consing factory for {@link Formula}s. Every formula created by this factory is interned in a unique table,
+ * so that structurally equal formulas created by the same factory are the same instance. This means that:
+ * <ul>
+ *      <li>{@link Formula#equals(Object)} of two formulas from this factory returns after the identity check.</li>
+ *      <li>Structurally equal formulas (e.g. identical presence conditions of different code elements) share their
+ *          memory.</li>
+ * </ul>
+ * <p>
+ * The operands of the formulas are interned, too. The unique table only holds weak references to the formulas, so
+ * formulas that are no longer used anywhere else are garbage collected. This class is thread-safe.
+ * </p>
+ * <p>
+ * Formulas not created by this factory can be converted to their canonical instance with {@link #intern(Formula)}.
+ * Formula types other than the ones in this package are not interned.
+ * </p>
+ * 
+ * @author Adam
+ */
+public final class FormulaFactory {
+
+    private static final @NonNull FormulaFactory DEFAULT = new FormulaFactory();
+    
+    /**
+     * The unique table. Each key is mapped to itself; formulas are looked up with a {@link LookupKey}.
+     */
+    private @NonNull ConcurrentHashMap<Object, NodeReference> table;
+    
+    private @NonNull ReferenceQueue<Formula> staleReferences;
+    
+    /**
+     * Creates a new factory with an empty unique table. Formulas of different factories are not interned against
+     * each other.
+     */
+    public FormulaFactory() {
+        this.table = new ConcurrentHashMap<>();
+        this.staleReferences = new ReferenceQueue<>();
+    }
+    
+    /**
+     * Returns the default factory, which is shared by the whole application.
+     * 
+     * @return The default factory.
+     */
+    public static @NonNull FormulaFactory getDefault() {
+        return DEFAULT;
+    }
+    
+    /**
+     * Returns the canonical variable with the given name.
+     * 
+     * @param name The name of the variable.
+     * 
+     * @return The canonical variable.
+     */
+    public @NonNull Variable variable(@NonNull String name) {
+        return (Variable) intern(new Variable(name));
+    }
+    
+    /**
+     * Returns the canonical negation of the given formula.
+     * 
+     * @param formula The formula to negate.
+     * 
+     * @return The canonical negation.
+     */
+    public @NonNull Negation not(@NonNull Formula formula) {
+        return (Negation) internNode(new Negation(intern(formula)));
+    }
+    
+    /**
+     * Returns the canonical conjunction of the two given formulas.
+     * 
+     * @param left The left operand.
+     * @param right The right operand.
+     * 
+     * @return The canonical conjunction.
+     */
+    public @NonNull Conjunction and(@NonNull Formula left, @NonNull Formula right) {
+        return (Conjunction) internNode(new Conjunction(intern(left), intern(right)));
+    }
+    
+    /**
+     * Returns the canonical disjunction of the two given formulas.
+     * 
+     * @param left The left operand.
+     * @param right The right operand.
+     * 
+     * @return The canonical disjunction.
+     */
+    public @NonNull Disjunction or(@NonNull Formula left, @NonNull Formula right) {
+        return (Disjunction) internNode(new Disjunction(intern(left), intern(right)));
+    }
+    
+    /**
+     * Returns the canonical instance of the given formula. If the formula is already in the unique table, this is
+     * cheap. Otherwise, the operands are interned first. This is done bottom-up on an explicit stack, so deeply
+     * nested formulas do not overflow the stack.
+     * 
+     * @param formula The formula to intern.
+     * 
+     * @return The canonical instance that is structurally equal to the given formula. This is the given formula
+     *      itself, if it is not yet in the unique table and all its operands are canonical.
+     */
+    public @NonNull Formula intern(@NonNull Formula formula) {
+        Deque<@NonNull Formula> nodes = new ArrayDeque<>();
+        // whether the operands of the node at the same position are already interned
+        Deque<@NonNull Boolean> expanded = new ArrayDeque<>();
+        Deque<@NonNull Formula> results = new ArrayDeque<>();
+        
+        nodes.push(formula);
+        expanded.push(false);
+        
+        while (!nodes.isEmpty()) {
+            Formula node = notNull(nodes.pop());
+            
+            if (notNull(expanded.pop())) {
+                Formula candidate = withOperands(node, results);
+                Formula result = lookup(candidate);
+                results.push(result != null ? result : internNode(candidate));
+                
+            } else {
+                Formula result = internLeaf(node);
+                if (result != null) {
+                    results.push(result);
+                } else {
+                    nodes.push(node);
+                    expanded.push(true);
+                    pushOperands(node, nodes, expanded);
+                }
+            }
+        }
+        
+        return notNull(results.pop());
+    }
+    
+    /**
+     * Returns the canonical instance of the given formula, if that does not require interning its operands first.
+     * 
+     * @param formula The formula.
+     * 
+     * @return The canonical instance, or <code>null</code> if the operands of the formula need to be interned
+     *      first.
+     */
+    private @Nullable Formula internLeaf(@NonNull Formula formula) {
+        Formula result;
+        if (formula instanceof True) {
+            result = True.INSTANCE;
+            
+        } else if (formula instanceof False) {
+            result = False.INSTANCE;
+            
+        } else if (formula instanceof Variable) {
+            result = lookup(formula);
+            if (result == null) {
+                result = internNode(formula);
+            }
+            
+        } else if (formula instanceof Negation || formula instanceof Conjunction || formula instanceof Disjunction) {
+            // only found if the operands are already canonical
+            result = lookup(formula);
+            
+        } else {
+            result = formula;
+        }
+        return result;
+    }
+    
+    /**
+     * Pushes the operands of the given formula, so that the left operand is on top.
+     * 
+     * @param formula A {@link Negation}, {@link Conjunction} or {@link Disjunction}.
+     * @param nodes The stack of pending nodes.
+     * @param expanded The stack of expanded flags for the pending nodes.
+     */
+    private static void pushOperands(@NonNull Formula formula, @NonNull Deque<@NonNull Formula> nodes,
+            @NonNull Deque<@NonNull Boolean> expanded) {
+        
+        if (formula instanceof Negation) {
+            nodes.push(((Negation) formula).getFormula());
+            expanded.push(false);
+            
+        } else if (formula instanceof Conjunction) {
+            nodes.push(((Conjunction) formula).getRight());
+            expanded.push(false);
+            nodes.push(((Conjunction) formula).getLeft());
+            expanded.push(false);
+            
+        } else {
+            nodes.push(((Disjunction) formula).getRight());
+            expanded.push(false);
+            nodes.push(((Disjunction) formula).getLeft());
+            expanded.push(false);
+        }
+    }
+    
+    /**
+     * Returns a formula structurally equal to the given one, with the canonical operands from the given stack.
+     * Re-uses the given formula, if its operands are already canonical.
+     * 
+     * @param formula A {@link Negation}, {@link Conjunction} or {@link Disjunction}.
+     * @param results The stack of interned formulas; the canonical operands are popped from it (the right operand
+     *      is on top).
+     * 
+     * @return A formula with canonical operands.
+     */
+    private static @NonNull Formula withOperands(@NonNull Formula formula, @NonNull Deque<@NonNull Formula> results) {
+        Formula result = formula;
+        
+        if (formula instanceof Negation) {
+            Formula canonical = notNull(results.pop());
+            if (canonical != ((Negation) formula).getFormula()) {
+                result = new Negation(canonical);
+            }
+            
+        } else if (formula instanceof Conjunction) {
+            Conjunction conjunction = (Conjunction) formula;
+            Formula right = notNull(results.pop());
+            Formula left = notNull(results.pop());
+            if (left != conjunction.getLeft() || right != conjunction.getRight()) {
+                result = new Conjunction(left, right);
+            }
+            
+        } else {
+            Disjunction disjunction = (Disjunction) formula;
+            Formula right = notNull(results.pop());
+            Formula left = notNull(results.pop());
+            if (left != disjunction.getLeft() || right != disjunction.getRight()) {
+                result = new Disjunction(left, right);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Looks up the canonical instance of the given formula in the unique table. Only formulas with the same operand
+     * instances are found (see {@link #isSameNode(Formula, Formula)}), so the given formula needs canonical
+     * operands.
+     * 
+     * @param formula The formula to look up.
+     * 
+     * @return The canonical instance, or <code>null</code> if there is none.
+     */
+    private @Nullable Formula lookup(@NonNull Formula formula) {
+        expungeStaleReferences();
+        
+        NodeReference reference = table.get(new LookupKey(formula));
+        return reference != null ? reference.get() : null;
+    }
+    
+    /**
+     * Inserts the given formula into the unique table, unless a structurally equal formula is already present.
+     * 
+     * @param formula The formula to insert. Its operands must already be canonical.
+     * 
+     * @return The canonical instance; either the given formula or the one already in the table.
+     */
+    private @NonNull Formula internNode(@NonNull Formula formula) {
+        expungeStaleReferences();
+        
+        Formula result = null;
+        while (result == null) {
+            NodeReference reference = new NodeReference(formula, staleReferences);
+            NodeReference existing = table.putIfAbsent(reference, reference);
+            
+            if (existing == null) {
+                result = formula;
+            } else {
+                result = existing.get();
+                if (result == null) {
+                    // cleared, but not yet expunged; remove it and try again
+                    table.remove(existing, existing);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Removes the entries of all garbage collected formulas from the unique table.
+     */
+    private void expungeStaleReferences() {
+        Reference<? extends Formula> reference;
+        while ((reference = staleReferences.poll()) != null) {
+            table.remove(reference, reference);
+        }
+    }
+    
+    /**
+     * Checks whether the two formulas are equal, under the assumption that their operands are canonical. Operands are
+     * compared by identity, so (unlike {@link Formula#equals(Object)}) this does not recurse into the operands.
+     * 
+     * @param formula The first formula.
+     * @param other The second formula.
+     * 
+     * @return Whether the two formulas are equal.
+     */
+    private static boolean isSameNode(@NonNull Formula formula, @Nullable Formula other) {
+        boolean result;
+        if (formula == other) {
+            result = true;
+            
+        } else if (other == null || formula.hashCode() != other.hashCode()) {
+            result = false;
+            
+        } else if (formula instanceof Negation) {
+            result = other instanceof Negation
+                    && ((Negation) formula).getFormula() == ((Negation) other).getFormula();
+            
+        } else if (formula instanceof Conjunction) {
+            result = other instanceof Conjunction
+                    && ((Conjunction) formula).getLeft() == ((Conjunction) other).getLeft()
+                    && ((Conjunction) formula).getRight() == ((Conjunction) other).getRight();
+            
+        } else if (formula instanceof Disjunction) {
+            result = other instanceof Disjunction
+                    && ((Disjunction) formula).getLeft() == ((Disjunction) other).getLeft()
+                    && ((Disjunction) formula).getRight() == ((Disjunction) other).getRight();
+            
+        } else {
+            result = formula.equals(other);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of entries in the unique table. This may include formulas that have already been garbage
+     * collected, but not yet been removed from the table.
+     * 
+     * @return The number of entries in the unique table.
+     */
+    public int getSize() {
+        expungeStaleReferences();
+        return table.size();
+    }
+    
+    /**
+     * An entry in the unique table. Two references are equal if they are the same, or if their formulas are
+     * structurally equal (the operands of the formulas in the table are canonical, so they are compared by identity).
+     * A cleared reference is only equal to itself.
+     */
+    private static final class NodeReference extends WeakReference<Formula> {
+        
+        private int hash;
+        
+        /**
+         * Creates a reference to the given formula.
+         * 
+         * @param formula The formula.
+         * @param queue The queue that the reference is enqueued in after the formula has been garbage collected.
+         */
+        public NodeReference(@NonNull Formula formula, @NonNull ReferenceQueue<Formula> queue) {
+            super(formula, queue);
+            this.hash = formula.hashCode();
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            boolean result = obj == this;
+            if (!result && obj instanceof NodeReference) {
+                NodeReference other = (NodeReference) obj;
+                Formula formula = get();
+                result = hash == other.hash && formula != null && isSameNode(formula, other.get());
+            }
+            return result;
+        }
+        
+    }
+    
+    /**
+     * A key for looking up a formula in the unique table, without creating a {@link NodeReference}.
+     */
+    private static final class LookupKey {
+        
+        private @NonNull Formula formula;
+        
+        /**
+         * Creates a key for the given formula.
+         * 
+         * @param formula The formula to look up.
+         */
+        public LookupKey(@NonNull Formula formula) {
+            this.formula = formula;
+        }
+        
+        @Override
+        public int hashCode() {
+            return formula.hashCode();
+        }
+        
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            boolean result = false;
+            if (obj instanceof NodeReference) {
+                Formula other = ((NodeReference) obj).get();
+                result = isSameNode(formula, other);
+            }
+            return result;
+        }
+        
+    }
+    
+}
@@ -48,6 +48,16 @@ public class FormulaSimplifier {
         FormulaSimplifier.simplifier = simplifier;
     }
     
+    /**
+     * Returns the simplifier that is currently used. Can be used to wrap the current simplifier, e.g. in a
+     * {@link CachingSimplifier}.
+     * 
+     * @return The current simplifier.
+     */
+    public static @NonNull Function<@NonNull Formula, @NonNull Formula> getSimplifier() {
+        return simplifier;
+    }
+    
     /**
      * Simplifies the given formula. Uses the previously set simplifier (see {@link #setSimplifier(Function)}).
      * 
@@ -87,13 +97,14 @@ public class FormulaSimplifier {
      * @return A new formula equal to the original, but simplified.
      */
     public static @NonNull Formula defaultSimplifier(@NonNull Formula formula) {
-        return DefaultSimplifierVisitor.INSTANCE.visit(formula);
+        return FormulaTraverser.traverseFormula(formula, DefaultSimplifierVisitor.INSTANCE);
     }
     
     /**
-     * The visitor implementing {@link FormulaSimplifier#defaultSimplifier(Formula)}.
+     * The visitor implementing {@link FormulaSimplifier#defaultSimplifier(Formula)}. Runs without recursion, so that
+     * deeply nested formulas can be simplified.
      */
-    private static class DefaultSimplifierVisitor implements IFormulaVisitor<@NonNull Formula> {
+    private static class DefaultSimplifierVisitor implements IPostOrderFormulaVisitor<@NonNull Formula> {
 
         static final @NonNull DefaultSimplifierVisitor INSTANCE = new DefaultSimplifierVisitor();
         
@@ -113,9 +124,7 @@ public class FormulaSimplifier {
         }
 
         @Override
-        public @NonNull Formula visitNegation(@NonNull Negation formula) {
-            Formula nested = formula.getFormula().accept(this);
-            
+        public @NonNull Formula visitNegation(@NonNull Negation formula, @NonNull Formula nested) {
             Formula result;
             
             if (nested instanceof Negation) {
@@ -140,9 +149,8 @@ public class FormulaSimplifier {
         }
 
         @Override
-        public @NonNull Formula visitDisjunction(@NonNull Disjunction formula) {
-            Formula left = formula.getLeft().accept(this);
-            Formula right = formula.getRight().accept(this);
+        public @NonNull Formula visitDisjunction(@NonNull Disjunction formula, @NonNull Formula left,
+                @NonNull Formula right) {
             
             Formula result;
             
@@ -174,9 +182,8 @@ public class FormulaSimplifier {
         }
 
         @Override
-        public @NonNull Formula visitConjunction(@NonNull Conjunction formula) {
-            Formula left = formula.getLeft().accept(this);
-            Formula right = formula.getRight().accept(this);
+        public @NonNull Formula visitConjunction(@NonNull Conjunction formula, @NonNull Formula left,
+                @NonNull Formula right) {
             
             Formula result;
             
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Traverses {@link Formula}s in post-order without recursion. The pending formulas and the intermediate results are
+ * kept on explicit stacks, so arbitrarily deep formulas (e.g. the left-deep formulas that the parser creates for long
+ * <code>&amp;&amp;</code> or <code>||</code> chains) can be traversed without risking a {@link StackOverflowError}.
+ * The stacks are kept between traversals, so re-using an instance avoids allocations.
+ * <p>
+ * Visitors implement {@link IPostOrderFormulaVisitor}; existing {@link IFormulaVisitor}s can be run through an
+ * {@link IterativeVisitorAdapter}.
+ * </p>
+ * <p>
+ * Instances are not thread-safe. {@link #traverseFormula(Formula, IPostOrderFormulaVisitor)} uses an instance per
+ * thread.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class FormulaTraverser {
+
+    private static final @NonNull ThreadLocal<FormulaTraverser> INSTANCES = new ThreadLocal<>();
+    
+    private @Nullable Formula @NonNull [] nodes;
+    
+    /**
+     * Whether the operands of the node at the same index are already pushed.
+     */
+    private boolean @NonNull [] expanded;
+    
+    private int numNodes;
+    
+    private @Nullable Object @NonNull [] results;
+    
+    private int numResults;
+    
+    /**
+     * The highest number of results during the current traversal; these need to be cleared afterwards.
+     */
+    private int maxResults;
+    
+    private boolean busy;
+    
+    /**
+     * Creates a new traverser.
+     */
+    public FormulaTraverser() {
+        this.nodes = new Formula[32];
+        this.expanded = new boolean[32];
+        this.results = new Object[32];
+    }
+    
+    /**
+     * Traverses the given formula with the traverser of the current thread. If that is already busy (i.e. this is
+     * called from inside a visitor), a new traverser is used.
+     * 
+     * @param <T> The return type of the visitor.
+     * 
+     * @param formula The formula to traverse.
+     * @param visitor The visitor to call for each node.
+     * 
+     * @return The result of the visitor for the given formula.
+     * 
+     * @throws IllegalArgumentException If the formula contains unsupported formula types.
+     */
+    public static <T> T traverseFormula(@NonNull Formula formula, @NonNull IPostOrderFormulaVisitor<T> visitor)
+            throws IllegalArgumentException {
+        
+        FormulaTraverser traverser = INSTANCES.get();
+        if (traverser == null) {
+            traverser = new FormulaTraverser();
+            INSTANCES.set(traverser);
+        } else if (traverser.busy) {
+            traverser = new FormulaTraverser();
+        }
+        return traverser.traverse(formula, visitor);
+    }
+    
+    /**
+     * Traverses the given formula in post-order.
+     * 
+     * @param <T> The return type of the visitor.
+     * 
+     * @param formula The formula to traverse.
+     * @param visitor The visitor to call for each node.
+     * 
+     * @return The result of the visitor for the given formula.
+     * 
+     * @throws IllegalArgumentException If the formula contains unsupported formula types.
+     * @throws IllegalStateException If this traverser is already running (i.e. this is called from inside a visitor).
+     */
+    public <T> T traverse(@NonNull Formula formula, @NonNull IPostOrderFormulaVisitor<T> visitor)
+            throws IllegalArgumentException, IllegalStateException {
+        
+        if (busy) {
+            throw new IllegalStateException("Traverser is already running");
+        }
+        busy = true;
+        
+        T result;
+        try {
+            numNodes = 0;
+            numResults = 0;
+            maxResults = 0;
+            pushNode(formula);
+            
+            while (numNodes > 0) {
+                int top = numNodes - 1;
+                // a node is visited once it has no (more) operands to push
+                if (expanded[top] || !expand(top)) {
+                    Formula node = notNull(nodes[top]);
+                    nodes[top] = null;
+                    numNodes--;
+                    pushResult(visit(node, visitor));
+                }
+            }
+            
+            @SuppressWarnings("unchecked")
+            T top = (T) results[0];
+            result = top;
+            
+        } finally {
+            // don't keep references to the formulas and results
+            Arrays.fill(nodes, 0, numNodes, null);
+            Arrays.fill(results, 0, maxResults, null);
+            numNodes = 0;
+            busy = false;
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Pushes the operands of the node at the given index.
+     * 
+     * @param index The index of the node.
+     * @return Whether operands were pushed (or the node was replaced); <code>false</code> for leaf nodes.
+     */
+    private boolean expand(int index) {
+        Formula node = notNull(nodes[index]);
+        boolean result = true;
+        
+        if (node instanceof Negation) {
+            expanded[index] = true;
+            pushNode(((Negation) node).getFormula());
+            
+        } else if (node instanceof Conjunction) {
+            expanded[index] = true;
+            // the left operand is on top, so it is visited first
+            pushNode(((Conjunction) node).getRight());
+            pushNode(((Conjunction) node).getLeft());
+            
+        } else if (node instanceof Disjunction) {
+            expanded[index] = true;
+            pushNode(((Disjunction) node).getRight());
+            pushNode(((Disjunction) node).getLeft());
+            
+        } else if (node instanceof NaryFormula) {
+            nodes[index] = ((NaryFormula) node).toBinary();
+            
+        } else {
+            result = false;
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Calls the visitor for the given node, with the results of its operands.
+     * 
+     * @param <T> The return type of the visitor.
+     * 
+     * @param node The node to visit; its operands are already visited.
+     * @param visitor The visitor.
+     * 
+     * @return The result of the visitor.
+     * 
+     * @throws IllegalArgumentException If the node has an unsupported formula type.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T visit(@NonNull Formula node, @NonNull IPostOrderFormulaVisitor<T> visitor)
+            throws IllegalArgumentException {
+        
+        T result;
+        if (node instanceof Variable) {
+            result = visitor.visitVariable((Variable) node);
+            
+        } else if (node instanceof True) {
+            result = visitor.visitTrue((True) node);
+            
+        } else if (node instanceof False) {
+            result = visitor.visitFalse((False) node);
+            
+        } else if (node instanceof Negation) {
+            result = visitor.visitNegation((Negation) node, (T) popResult());
+            
+        } else if (node instanceof Conjunction) {
+            T right = (T) popResult();
+            T left = (T) popResult();
+            result = visitor.visitConjunction((Conjunction) node, left, right);
+            
+        } else if (node instanceof Disjunction) {
+            T right = (T) popResult();
+            T left = (T) popResult();
+            result = visitor.visitDisjunction((Disjunction) node, left, right);
+            
+        } else {
+            throw new IllegalArgumentException("Unsupported formula type: " + node.getClass().getName());
+        }
+        return result;
+    }
+    
+    /**
+     * Pushes a node that is not expanded yet.
+     * 
+     * @param node The node to push.
+     */
+    private void pushNode(@NonNull Formula node) {
+        if (numNodes == nodes.length) {
+            nodes = notNull(Arrays.copyOf(nodes, numNodes * 2));
+            expanded = notNull(Arrays.copyOf(expanded, numNodes * 2));
+        }
+        nodes[numNodes] = node;
+        expanded[numNodes] = false;
+        numNodes++;
+    }
+    
+    /**
+     * Pushes the result of a visited node.
+     * 
+     * @param result The result to push.
+     */
+    private void pushResult(@Nullable Object result) {
+        if (numResults == results.length) {
+            results = notNull(Arrays.copyOf(results, numResults * 2));
+        }
+        results[numResults++] = result;
+        maxResults = Math.max(maxResults, numResults);
+    }
+    
+    /**
+     * Pops the result of a visited node.
+     * 
+     * @return The popped result.
+     */
+    private @Nullable Object popResult() {
+        return results[--numResults];
+    }
+    
+    /**
+     * Appends the string representation of the given formula to the given {@link StringBuilder}, without recursion.
+     * Produces the same output as the (recursive) {@link Formula#toString(StringBuilder)} implementations.
+     * 
+     * @param formula The formula to print.
+     * @param result The {@link StringBuilder} to append to.
+     */
+    public static void toString(@NonNull Formula formula, @NonNull StringBuilder result) {
+        // contains Formulas to print and Strings to append literally
+        Deque<@NonNull Object> stack = new ArrayDeque<>();
+        stack.push(formula);
+        
+        while (!stack.isEmpty()) {
+            Object item = notNull(stack.pop());
+            
+            if (item instanceof String) {
+                result.append((String) item);
+                
+            } else if (item instanceof Negation) {
+                Negation negation = (Negation) item;
+                Formula nested = negation.getFormula();
+                result.append('!');
+                pushOperand(stack, nested,
+                        !(nested instanceof Negation) && nested.getPrecedence() <= negation.getPrecedence());
+                
+            } else if (item instanceof Conjunction) {
+                Conjunction conjunction = (Conjunction) item;
+                pushOperand(stack, conjunction.getRight(), needsParentheses(conjunction, conjunction.getRight()));
+                stack.push(" && ");
+                pushOperand(stack, conjunction.getLeft(), needsParentheses(conjunction, conjunction.getLeft()));
+                
+            } else if (item instanceof Disjunction) {
+                Disjunction disjunction = (Disjunction) item;
+                pushOperand(stack, disjunction.getRight(), needsParentheses(disjunction, disjunction.getRight()));
+                stack.push(" || ");
+                pushOperand(stack, disjunction.getLeft(), needsParentheses(disjunction, disjunction.getLeft()));
+                
+            } else if (item instanceof NaryFormula) {
+                NaryFormula nary = (NaryFormula) item;
+                boolean isAnd = nary.getOperator() == NaryFormula.Operator.AND;
+                for (int i = nary.getOperandCount() - 1; i >= 0; i--) {
+                    Formula operand = nary.getOperand(i);
+                    boolean sameOperator = operand instanceof NaryFormula
+                            ? ((NaryFormula) operand).getOperator() == nary.getOperator()
+                            : (isAnd ? operand instanceof Conjunction : operand instanceof Disjunction);
+                    pushOperand(stack, operand, !sameOperator && operand.getPrecedence() <= nary.getPrecedence());
+                    if (i != 0) {
+                        stack.push(nary.getOperator().getSymbol());
+                    }
+                }
+                
+            } else {
+                // leaves and unknown formula types print themselves
+                ((Formula) item).toString(result);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the given operand of a binary {@link Conjunction} or {@link Disjunction} needs parentheses.
+     * 
+     * @param operation The {@link Conjunction} or {@link Disjunction}.
+     * @param operand The operand.
+     * 
+     * @return Whether the operand needs parentheses.
+     */
+    private static boolean needsParentheses(@NonNull Formula operation, @NonNull Formula operand) {
+        return operand.getClass() != operation.getClass() && operand.getPrecedence() <= operation.getPrecedence();
+    }
+    
+    /**
+     * Pushes an operand onto the printing stack, optionally surrounded by parentheses.
+     * 
+     * @param stack The printing stack.
+     * @param operand The operand to push.
+     * @param parentheses Whether to surround the operand with parentheses.
+     */
+    private static void pushOperand(@NonNull Deque<@NonNull Object> stack, @NonNull Formula operand,
+            boolean parentheses) {
+        
+        if (parentheses) {
+            stack.push(")");
+            stack.push(operand);
+            stack.push("(");
+        } else {
+            stack.push(operand);
+        }
+    }
+    
+}
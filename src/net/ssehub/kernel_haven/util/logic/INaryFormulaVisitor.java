@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A {@link IFormulaVisitor} that can handle {@link NaryFormula}s directly. Visitors that do not implement this
+ * interface still work on {@link NaryFormula}s: these adapt themselves to them by passing their balanced binary form
+ * (see {@link NaryFormula#toBinary()}) to the visitor.
+ * 
+ * @param <T> The return type for the visit*() methods. Use {@link Void} if not needed.
+ *
+ * @author Adam
+ */
+public interface INaryFormulaVisitor<T> extends IFormulaVisitor<T> {
+
+    /**
+     * Visits an n-ary <tt>AND</tt> or <tt>OR</tt> formula.
+     * 
+     * @param formula The formula to visit.
+     * @return Some return value.
+     */
+    public T visitNaryFormula(@NonNull NaryFormula formula);
+    
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Visitor interface for the non-recursive traversal of {@link Formula}s by a {@link FormulaTraverser}. In contrast to
+ * {@link IFormulaVisitor}, the visitor does not visit the operands itself: the traverser visits the operands first
+ * (post-order, from left to right) and passes their results to the visit method of the operation.
+ * {@link NaryFormula}s are traversed in their binary form (see {@link NaryFormula#toBinary()}).
+ * 
+ * @param <T> The return type for the visit*() methods.
+ *
+ * @author Adam
+ */
+public interface IPostOrderFormulaVisitor<T> {
+
+    /**
+     * Visits a <tt>FALSE</tt> constant.
+     * 
+     * @param falseConstant The constant expression to visit.
+     * @return Some return value.
+     */
+    public T visitFalse(@NonNull False falseConstant);
+    
+    /**
+     * Visits a <tt>TRUE</tt> constant.
+     * 
+     * @param trueConstant The constant expression to visit.
+     * @return Some return value.
+     */
+    public T visitTrue(@NonNull True trueConstant);
+    
+    /**
+     * Visits a variable.
+     * 
+     * @param variable The variable to visit.
+     * @return Some return value.
+     */
+    public T visitVariable(@NonNull Variable variable);
+    
+    /**
+     * Visits a negated formula.
+     * 
+     * @param formula The formula to visit.
+     * @param nested The result for the nested formula.
+     * @return Some return value.
+     */
+    public T visitNegation(@NonNull Negation formula, T nested);
+    
+    /**
+     * Visits an <tt>OR</tt> formula.
+     * 
+     * @param formula The formula to visit.
+     * @param left The result for the left operand.
+     * @param right The result for the right operand.
+     * @return Some return value.
+     */
+    public T visitDisjunction(@NonNull Disjunction formula, T left, T right);
+    
+    /**
+     * Visits an <tt>AND</tt> formula.
+     * 
+     * @param formula The formula to visit.
+     * @param left The result for the left operand.
+     * @param right The result for the right operand.
+     * @return Some return value.
+     */
+    public T visitConjunction(@NonNull Conjunction formula, T left, T right);
+    
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Runs an existing (recursive) {@link IFormulaVisitor} without recursion, via a {@link FormulaTraverser}. Instead of
+ * the original operation, the visitor is called with a shallow copy whose operands are placeholders; visiting a
+ * placeholder (via {@link Formula#accept(IFormulaVisitor)} or {@link IFormulaVisitor#visit(Formula)}) immediately
+ * returns the result that the traverser already computed for the original operand. Thus, the visitor's own calls
+ * for the operands don't recurse.
+ * <p>
+ * This works for visitors that only use the results of visiting the operands, like all visitors in this package.
+ * The visitor must not otherwise inspect the operand formulas or include them in its result (an operation returned
+ * unchanged is replaced by the original one, though). Visitors for which this doesn't hold should implement
+ * {@link IPostOrderFormulaVisitor} directly.
+ * </p>
+ * 
+ * @param <T> The return type of the visitor.
+ *
+ * @author Adam
+ */
+public class IterativeVisitorAdapter<T> implements IPostOrderFormulaVisitor<T> {
+
+    private @NonNull IFormulaVisitor<T> visitor;
+    
+    /**
+     * Creates an adapter for the given visitor.
+     * 
+     * @param visitor The visitor to run iteratively.
+     */
+    public IterativeVisitorAdapter(@NonNull IFormulaVisitor<T> visitor) {
+        this.visitor = visitor;
+    }
+    
+    /**
+     * Visits the given formula without recursion. Equivalent to <code>visitor.visit(formula)</code>.
+     * 
+     * @param formula The formula to visit.
+     * @return The result of the visitor.
+     * 
+     * @throws IllegalArgumentException If the formula contains unsupported formula types.
+     */
+    public T visit(@NonNull Formula formula) throws IllegalArgumentException {
+        return FormulaTraverser.traverseFormula(formula, this);
+    }
+    
+    @Override
+    public T visitFalse(@NonNull False falseConstant) {
+        return visitor.visitFalse(falseConstant);
+    }
+
+    @Override
+    public T visitTrue(@NonNull True trueConstant) {
+        return visitor.visitTrue(trueConstant);
+    }
+
+    @Override
+    public T visitVariable(@NonNull Variable variable) {
+        return visitor.visitVariable(variable);
+    }
+
+    @Override
+    public T visitNegation(@NonNull Negation formula, T nested) {
+        Negation copy = new Negation(new VisitedFormula(formula.getFormula(), nested));
+        return replaceCopy(visitor.visitNegation(copy), copy, formula);
+    }
+
+    @Override
+    public T visitDisjunction(@NonNull Disjunction formula, T left, T right) {
+        Disjunction copy = new Disjunction(new VisitedFormula(formula.getLeft(), left),
+                new VisitedFormula(formula.getRight(), right));
+        return replaceCopy(visitor.visitDisjunction(copy), copy, formula);
+    }
+
+    @Override
+    public T visitConjunction(@NonNull Conjunction formula, T left, T right) {
+        Conjunction copy = new Conjunction(new VisitedFormula(formula.getLeft(), left),
+                new VisitedFormula(formula.getRight(), right));
+        return replaceCopy(visitor.visitConjunction(copy), copy, formula);
+    }
+    
+    /**
+     * Replaces the shallow copy with the original formula, if the visitor returned it.
+     * 
+     * @param result The result of the visitor.
+     * @param copy The copy that the visitor was called with.
+     * @param original The original formula.
+     * 
+     * @return The result, or the original formula if the result is the copy.
+     */
+    @SuppressWarnings("unchecked")
+    private T replaceCopy(T result, @NonNull Formula copy, @NonNull Formula original) {
+        return result == copy ? (T) original : result;
+    }
+    
+    /**
+     * A placeholder for an operand that was already visited.
+     */
+    private static final class VisitedFormula extends Formula {
+
+        private static final long serialVersionUID = 2526213167467566946L;
+
+        private @NonNull Formula original;
+        
+        private transient @Nullable Object result;
+        
+        /**
+         * Creates a placeholder.
+         * 
+         * @param original The original operand.
+         * @param result The result of the visitor for the original operand.
+         */
+        VisitedFormula(@NonNull Formula original, @Nullable Object result) {
+            this.original = original;
+            this.result = result;
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public <V> V accept(@NonNull IFormulaVisitor<V> visitor) {
+            return (V) result;
+        }
+
+        @Override
+        public void accept(@NonNull IVoidFormulaVisitor visitor) {
+            original.accept(visitor);
+        }
+        
+        @Override
+        protected int getPrecedence() {
+            return original.getPrecedence();
+        }
+
+        @Override
+        public @NonNull String toString() {
+            return original.toString();
+        }
+
+        @Override
+        public void toString(@NonNull StringBuilder result) {
+            original.toString(result);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            return obj instanceof VisitedFormula && original.equals(((VisitedFormula) obj).original);
+        }
+
+        @Override
+        public int hashCode() {
+            return original.hashCode();
+        }
+        
+    }
+    
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A flattened, n-ary conjunction (AND) or disjunction (OR). Nested operations of the same kind are collapsed into a
+ * single operand array, so a condition like <code>A &amp;&amp; B &amp;&amp; C &amp;&amp; D</code> is one node with
+ * four operands instead of a chain of three {@link Conjunction}s.
+ * <p>
+ * Use {@link #flatten(Formula, boolean)} to convert a binary formula into this representation, and
+ * {@link #toBinary(Formula)} to convert it back. Visitors that implement {@link INaryFormulaVisitor} visit this node
+ * directly; all other visitors are passed the balanced binary form of this node (which is only created once). Thus,
+ * existing visitors keep working, but with a nesting depth logarithmic in the number of operands.
+ * </p>
+ * <p>
+ * In contrast to {@link Conjunction} and {@link Disjunction}, the hash code of this formula respects the order of the
+ * operands, just like {@link #equals(Object)} does. Formulas flattened in canonical mode have their operands sorted
+ * and de-duplicated, so that commutated formulas are equal.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class NaryFormula extends Formula {
+
+    /**
+     * The boolean operators that an {@link NaryFormula} can represent.
+     */
+    public static enum Operator {
+        
+        /**
+         * Boolean conjunction (AND).
+         */
+        AND(" && "),
+        
+        /**
+         * Boolean disjunction (OR).
+         */
+        OR(" || ");
+        
+        private @NonNull String symbol;
+        
+        /**
+         * Creates an operator.
+         * 
+         * @param symbol The symbol placed between the operands in {@link NaryFormula#toString()}.
+         */
+        private Operator(@NonNull String symbol) {
+            this.symbol = symbol;
+        }
+        
+        /**
+         * Returns the symbol placed between the operands in {@link NaryFormula#toString()}.
+         * 
+         * @return The symbol, including the surrounding spaces.
+         */
+        @NonNull String getSymbol() {
+            return symbol;
+        }
+        
+    }
+    
+    private static final long serialVersionUID = -4205493402383633473L;
+
+    private @NonNull Operator operator;
+    
+    private @NonNull Formula @NonNull [] operands;
+    
+    /**
+     * The hash code of this formula. Computed once in the constructor, since the formula is immutable.
+     */
+    private int hash;
+    
+    /**
+     * The balanced binary form of this formula. Created on first demand by {@link #toBinary()}.
+     */
+    private transient volatile @Nullable Formula binary;
+    
+    /**
+     * Creates an n-ary formula. The operands are used in the given order; use {@link #flatten(Formula, boolean)} to
+     * get a flattened or canonical formula.
+     * 
+     * @param operator The boolean operator that combines the operands.
+     * @param operands The operands. Must contain at least two elements.
+     * 
+     * @throws IllegalArgumentException If less than two operands are given.
+     */
+    public NaryFormula(@NonNull Operator operator, @NonNull Formula @NonNull ... operands)
+            throws IllegalArgumentException {
+        
+        if (operands.length < 2) {
+            throw new IllegalArgumentException("An n-ary formula needs at least two operands, got " + operands.length);
+        }
+        this.operator = operator;
+        this.operands = notNull(operands.clone());
+        this.hash = Arrays.hashCode(this.operands) * 31 + operator.ordinal();
+    }
+    
+    /**
+     * Returns the boolean operator that combines the operands of this formula.
+     * 
+     * @return The operator.
+     */
+    public @NonNull Operator getOperator() {
+        return operator;
+    }
+    
+    /**
+     * Returns the number of operands of this formula.
+     * 
+     * @return The number of operands; at least two.
+     */
+    public int getOperandCount() {
+        return operands.length;
+    }
+    
+    /**
+     * Returns the operand at the given index.
+     * 
+     * @param index The index of the operand.
+     * @return The operand at the given index.
+     * 
+     * @throws IndexOutOfBoundsException If the index is out of bounds.
+     */
+    public @NonNull Formula getOperand(int index) throws IndexOutOfBoundsException {
+        return operands[index];
+    }
+    
+    /**
+     * Returns the operands of this formula.
+     * 
+     * @return An unmodifiable list of the operands.
+     */
+    public @NonNull List<@NonNull Formula> getOperands() {
+        return notNull(Collections.unmodifiableList(Arrays.asList(operands)));
+    }
+    
+    /**
+     * Returns the balanced binary form of this formula. The operands are nested in {@link Conjunction}s or
+     * {@link Disjunction}s (created via {@link FormulaBuilder}) so that the nesting depth is logarithmic in the number
+     * of operands. Nested {@link NaryFormula}s are converted, too. The result is created only once.
+     * 
+     * @return The binary form of this formula.
+     */
+    public @NonNull Formula toBinary() {
+        Formula result = this.binary;
+        if (result == null) {
+            result = toBinary(0, operands.length);
+            this.binary = result;
+        }
+        return result;
+    }
+    
+    /**
+     * Creates the balanced binary form for a range of the operands.
+     * 
+     * @param from The index of the first operand, inclusive.
+     * @param to The index of the last operand, exclusive.
+     * 
+     * @return The binary form of the given operand range.
+     */
+    private @NonNull Formula toBinary(int from, int to) {
+        Formula result;
+        if (to - from == 1) {
+            result = toBinary(operands[from]);
+        } else {
+            int middle = (from + to) >>> 1;
+            Formula left = toBinary(from, middle);
+            Formula right = toBinary(middle, to);
+            result = operator == Operator.AND ? FormulaBuilder.and(left, right) : FormulaBuilder.or(left, right);
+        }
+        return result;
+    }
+    
+    /**
+     * Converts the given formula to the binary representation, i.e. replaces all {@link NaryFormula}s with their
+     * balanced binary form (see {@link #toBinary()}).
+     * 
+     * @param formula The formula to convert.
+     * @return The binary formula. This is the same instance as the given formula, if it doesn't contain any
+     *      {@link NaryFormula}s.
+     */
+    public static @NonNull Formula toBinary(@NonNull Formula formula) {
+        Formula result = formula;
+        if (formula instanceof NaryFormula) {
+            result = ((NaryFormula) formula).toBinary();
+            
+        } else if (formula instanceof Negation) {
+            Formula nested = ((Negation) formula).getFormula();
+            Formula converted = toBinary(nested);
+            if (converted != nested) {
+                result = FormulaBuilder.not(converted);
+            }
+            
+        } else if (formula instanceof Conjunction) {
+            Conjunction conjunction = (Conjunction) formula;
+            Formula left = toBinary(conjunction.getLeft());
+            Formula right = toBinary(conjunction.getRight());
+            if (left != conjunction.getLeft() || right != conjunction.getRight()) {
+                result = FormulaBuilder.and(left, right);
+            }
+            
+        } else if (formula instanceof Disjunction) {
+            Disjunction disjunction = (Disjunction) formula;
+            Formula left = toBinary(disjunction.getLeft());
+            Formula right = toBinary(disjunction.getRight());
+            if (left != disjunction.getLeft() || right != disjunction.getRight()) {
+                result = FormulaBuilder.or(left, right);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Converts the given formula into the flattened n-ary representation, keeping the order of the operands. See
+     * {@link #flatten(Formula, boolean)}.
+     * 
+     * @param formula The formula to convert.
+     * @return The flattened formula.
+     */
+    public static @NonNull Formula flatten(@NonNull Formula formula) {
+        return flatten(formula, false);
+    }
+    
+    /**
+     * Converts the given formula into the flattened n-ary representation. All directly nested {@link Conjunction}s
+     * (or {@link Disjunction}s) are collapsed into a single {@link NaryFormula}; operations of the same kind are
+     * collected iteratively, so that long chains don't cause deep recursion.
+     * <p>
+     * In canonical mode, duplicate operands are removed and the operands are sorted by their hash code (and their
+     * string representation, if the hash codes are equal). Thus, formulas that only differ in the order of
+     * commutative operands are converted into equal formulas. If only a single operand remains, it is returned
+     * instead of an {@link NaryFormula}.
+     * </p>
+     * 
+     * @param formula The formula to convert.
+     * @param canonical Whether the operands should be de-duplicated and sorted.
+     * 
+     * @return The flattened formula. This is the same instance as the given formula, if it doesn't contain any
+     *      binary operations.
+     */
+    public static @NonNull Formula flatten(@NonNull Formula formula, boolean canonical) {
+        Formula result = formula;
+        Operator op = getOperator(formula);
+        
+        if (op != null) {
+            List<@NonNull Formula> collected = new ArrayList<>();
+            Deque<@NonNull Formula> stack = new ArrayDeque<>();
+            stack.push(formula);
+            while (!stack.isEmpty()) {
+                Formula current = notNull(stack.pop());
+                if (getOperator(current) == op) {
+                    pushOperandsReversed(current, stack);
+                } else {
+                    collected.add(flatten(current, canonical));
+                }
+            }
+            
+            if (canonical) {
+                collected = new ArrayList<>(new LinkedHashSet<>(collected));
+                collected.sort(NaryFormula::compareCanonical);
+            }
+            
+            if (collected.size() == 1) {
+                result = notNull(collected.get(0));
+            } else {
+                result = new NaryFormula(op, notNull(collected.toArray(new @NonNull Formula[collected.size()])));
+            }
+            
+        } else if (formula instanceof Negation) {
+            Formula nested = ((Negation) formula).getFormula();
+            Formula converted = flatten(nested, canonical);
+            if (converted != nested) {
+                result = FormulaBuilder.not(converted);
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Returns the n-ary operator that the given formula represents. Binary {@link Conjunction}s and
+     * {@link Disjunction}s are considered, too.
+     * 
+     * @param formula The formula.
+     * @return The operator, or <code>null</code> if the formula is not an AND or OR operation.
+     */
+    public static @Nullable Operator getOperator(@NonNull Formula formula) {
+        Operator result = null;
+        if (formula instanceof Conjunction) {
+            result = Operator.AND;
+        } else if (formula instanceof Disjunction) {
+            result = Operator.OR;
+        } else if (formula instanceof NaryFormula) {
+            result = ((NaryFormula) formula).getOperator();
+        }
+        return result;
+    }
+    
+    /**
+     * Pushes the operands of the given AND or OR operation on the given stack, last operand first. Thus, the operands
+     * are popped in their original order.
+     * 
+     * @param formula The AND or OR operation.
+     * @param stack The stack to push the operands to.
+     */
+    private static void pushOperandsReversed(@NonNull Formula formula, @NonNull Deque<@NonNull Formula> stack) {
+        if (formula instanceof Conjunction) {
+            stack.push(((Conjunction) formula).getRight());
+            stack.push(((Conjunction) formula).getLeft());
+            
+        } else if (formula instanceof Disjunction) {
+            stack.push(((Disjunction) formula).getRight());
+            stack.push(((Disjunction) formula).getLeft());
+            
+        } else {
+            NaryFormula nary = (NaryFormula) formula;
+            for (int i = nary.operands.length - 1; i >= 0; i--) {
+                stack.push(nary.operands[i]);
+            }
+        }
+    }
+    
+    /**
+     * The canonical order of operands: sorted by hash code, with the string representation as a tie-breaker.
+     * 
+     * @param f1 The first formula.
+     * @param f2 The second formula.
+     * 
+     * @return A negative, zero, or positive number, if f1 is less than, equal to, or greater than f2.
+     */
+    private static int compareCanonical(@NonNull Formula f1, @NonNull Formula f2) {
+        int result = Integer.compare(f1.hashCode(), f2.hashCode());
+        if (result == 0) {
+            result = f1.toString().compareTo(f2.toString());
+        }
+        return result;
+    }
+    
+    @Override
+    public @NonNull String toString() {
+        StringBuilder result = new StringBuilder();
+        toString(result);
+        return notNull(result.toString());
+    }
+
+    @Override
+    public void toString(@NonNull StringBuilder result) {
+        // not recursive, to support deeply nested formulas
+        FormulaTraverser.toString(this, result);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof NaryFormula) {
+            NaryFormula other = (NaryFormula) obj;
+            return hash == other.hash && operator == other.operator && Arrays.equals(operands, other.operands);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T accept(@NonNull IFormulaVisitor<T> visitor) {
+        T result;
+        if (visitor instanceof INaryFormulaVisitor) {
+            result = ((INaryFormulaVisitor<T>) visitor).visitNaryFormula(this);
+        } else {
+            result = toBinary().accept(visitor);
+        }
+        return result;
+    }
+
+    @Override
+    public void accept(@NonNull IVoidFormulaVisitor visitor) {
+        toBinary().accept(visitor);
+    }
+    
+    @Override
+    protected int getPrecedence() {
+        return 1;
+    }
+
+}
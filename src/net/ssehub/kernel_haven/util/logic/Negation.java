@@ -15,6 +15,8 @@
  */
 package net.ssehub.kernel_haven.util.logic;
 
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
@@ -30,6 +32,11 @@ public final class Negation extends Formula {
     
     private @NonNull Formula formula;
     
+    /**
+     * The hash code of this formula. Computed once in the constructor, since the formula is immutable.
+     */
+    private int hash;
+    
     /**
      * Creates a boolean negation (NOT).
      * 
@@ -37,6 +44,7 @@ public final class Negation extends Formula {
      */
     public Negation(@NonNull Formula formula) {
         this.formula = formula;
+        this.hash = formula.hashCode() * 123;
     }
     
     /**
@@ -50,38 +58,32 @@ public final class Negation extends Formula {
 
     @Override
     public @NonNull String toString() {
-        String innerStr = formula.toString();
-        if (!(formula instanceof Negation) && formula.getPrecedence() <= this.getPrecedence()) {
-            innerStr = '(' + innerStr + ')';
-        }
-        
-        return "!" + innerStr;
+        StringBuilder result = new StringBuilder();
+        toString(result);
+        return notNull(result.toString());
     }
     
     @Override
     public void toString(@NonNull StringBuilder result) {
-        result.append('!');
-        if (!(formula instanceof Negation) && formula.getPrecedence() <= this.getPrecedence()) {
-            result.append('(');
-            formula.toString(result);
-            result.append(')');
-        } else {
-            formula.toString(result);
-        }
+        // not recursive, to support deeply nested formulas
+        FormulaTraverser.toString(this, result);
     }
     
     @Override
     public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Negation) {
             Negation other = (Negation) obj;
-            return formula.equals(other.formula);
+            return hash == other.hash && formula.equals(other.formula);
         }
         return false;
     }
     
     @Override
     public int hashCode() {
-        return formula.hashCode() * 123;
+        return hash;
     }
 
     @Override
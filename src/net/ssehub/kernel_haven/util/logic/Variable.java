@@ -30,6 +30,11 @@ public final class Variable extends Formula {
 
     private @NonNull String name;
     
+    /**
+     * The cached ID of this variable in the global {@link VariableIdTable}. 0 if not yet looked up.
+     */
+    private transient int id;
+    
     /**
      * Creates a boolean variable.
      * 
@@ -48,6 +53,22 @@ public final class Variable extends Formula {
         return name;
     }
     
+    /**
+     * Returns the ID of this variable in the global {@link VariableIdTable}. The ID is looked up (or assigned) on the
+     * first call and cached afterwards.
+     * 
+     * @return The ID of this variable; always &gt; 0.
+     */
+    public int getId() {
+        int result = id;
+        if (result == 0) {
+            // benign race: all threads compute the same ID
+            result = VariableIdTable.getInstance().getId(name);
+            id = result;
+        }
+        return result;
+    }
+    
     @Override
     public @NonNull String toString() {
         return name;
@@ -55,6 +76,9 @@ public final class Variable extends Formula {
     
     @Override
     public boolean equals(@Nullable Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof Variable) {
             Variable other = (Variable) obj;
             return name.equals(other.name);
@@ -16,6 +16,7 @@
 package net.ssehub.kernel_haven.util.logic;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,7 +28,7 @@ import net.ssehub.kernel_haven.util.null_checks.NonNull;
  * @author El-Sharkawy
  *
  */
-public class VariableFinder implements IFormulaVisitor<Set<Variable>> {
+public class VariableFinder implements INaryFormulaVisitor<Set<Variable>> {
 
     private @NonNull Set<@NonNull Variable> variables = new HashSet<>();
     
@@ -69,6 +70,14 @@ public class VariableFinder implements IFormulaVisitor<Set<Variable>> {
         return variables;
     }
     
+    @Override
+    public @NonNull Set<Variable> visitNaryFormula(@NonNull NaryFormula formula) {
+        for (Formula operand : formula.getOperands()) {
+            operand.accept(this);
+        }
+        return variables;
+    }
+    
     /**
      * Returns the distinct list of involved variables.
      * @return The variables, which are involved in the visited {@link Formula}.
@@ -89,6 +98,20 @@ public class VariableFinder implements IFormulaVisitor<Set<Variable>> {
         return names;
     }
     
+    /**
+     * Returns the IDs of the involved variables in the global {@link VariableIdTable}. Comparing or intersecting these
+     * sets is much cheaper than for the sets returned by {@link #getVariables()}.
+     * 
+     * @return A set of the IDs of the variables, which are involved in the visited {@link Formula}.
+     */
+    public @NonNull BitSet getVariableIds() {
+        BitSet result = new BitSet();
+        for (Variable variable : variables) {
+            result.set(variable.getId());
+        }
+        return result;
+    }
+    
     /**
      * Facilitate reuse of this instance as it clears all collected elements.
      */
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A thread-safe symbol table that assigns dense integer IDs to variable names. IDs start at 1, so that they can be
+ * aligned with DIMACS variable numbers (see {@link #assign(String, int)}); 0 is never a valid ID. Sets of variables
+ * can be represented as {@link BitSet}s indexed by ID (see {@link #getVariableIds(Formula)}), which makes comparing
+ * and intersecting the variables of many formulas cheap.
+ * <p>
+ * The process-wide instance is available via {@link #getInstance()}; {@link Variable#getId()} refers to this
+ * instance. IDs are never removed from a table.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class VariableIdTable {
+
+    private static final @NonNull VariableIdTable INSTANCE = new VariableIdTable();
+    
+    private @NonNull Map<String, Integer> ids;
+    
+    /**
+     * The name of each ID. Only grows; replaced (under the lock) when it needs to grow, so readers see a consistent
+     * array.
+     */
+    private volatile @Nullable String @NonNull [] names;
+    
+    /**
+     * The next ID to assign to a new variable; one above the highest assigned ID. Guarded by <code>this</code>.
+     */
+    private int nextId;
+    
+    /**
+     * Creates an empty table. Usually, the global instance of {@link #getInstance()} should be used instead.
+     */
+    public VariableIdTable() {
+        this.ids = new ConcurrentHashMap<>();
+        this.names = new String[64];
+        this.nextId = 1;
+    }
+    
+    /**
+     * Returns the process-wide variable table.
+     * 
+     * @return The global instance.
+     */
+    public static @NonNull VariableIdTable getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Returns the ID of the given variable. If the variable has no ID yet, the next free ID is assigned.
+     * 
+     * @param name The name of the variable.
+     * @return The ID of the variable; always &gt; 0.
+     */
+    public int getId(@NonNull String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            synchronized (this) {
+                id = ids.get(name);
+                if (id == null) {
+                    id = nextId;
+                    put(name, id);
+                }
+            }
+        }
+        return id;
+    }
+    
+    /**
+     * Returns the ID of the given variable, without assigning a new one.
+     * 
+     * @param name The name of the variable.
+     * @return The ID of the variable, or 0 if the variable has no ID.
+     */
+    public int getExistingId(@NonNull String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : 0;
+    }
+    
+    /**
+     * Assigns the given ID to the given variable, e.g. to align the IDs with the DIMACS numbers of a variability
+     * model. This should happen before other variables get IDs, since already used IDs can't be re-assigned.
+     * 
+     * @param name The name of the variable.
+     * @param id The ID to assign; must be &gt; 0.
+     * 
+     * @return Whether the variable now has the given ID. <code>false</code> if the variable already has another ID,
+     *      or the ID is already used by another variable.
+     */
+    public synchronized boolean assign(@NonNull String name, int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid variable ID: " + id);
+        }
+        
+        Integer existing = ids.get(name);
+        boolean result;
+        if (existing != null) {
+            result = existing == id;
+        } else if (id < names.length && names[id] != null) {
+            result = false;
+        } else {
+            put(name, id);
+            result = true;
+        }
+        return result;
+    }
+    
+    /**
+     * Stores a new mapping. Must be called while holding the lock.
+     * 
+     * @param name The name of the variable.
+     * @param id The unused ID.
+     */
+    private void put(@NonNull String name, int id) {
+        String[] names = this.names;
+        if (id >= names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, id + 1));
+        }
+        names[id] = name;
+        // publish the array before the ID, so that getName() works for all IDs returned by getId()
+        this.names = names;
+        ids.put(name, id);
+        
+        if (id >= nextId) {
+            nextId = id + 1;
+        }
+    }
+    
+    /**
+     * Returns the name of the variable with the given ID.
+     * 
+     * @param id The ID of the variable.
+     * @return The name of the variable, or <code>null</code> if the ID is not assigned.
+     */
+    public @Nullable String getName(int id) {
+        String[] names = this.names;
+        return id > 0 && id < names.length ? names[id] : null;
+    }
+    
+    /**
+     * Returns the highest assigned ID. The IDs are dense, unless IDs were explicitly assigned via
+     * {@link #assign(String, int)}.
+     * 
+     * @return The highest assigned ID, or 0 if the table is empty.
+     */
+    public synchronized int getMaxId() {
+        return nextId - 1;
+    }
+    
+    /**
+     * Returns the number of variables in this table.
+     * 
+     * @return The number of variables.
+     */
+    public int size() {
+        return ids.size();
+    }
+    
+    /**
+     * Returns the IDs of all variables used in the given formula. Assigns new IDs to unknown variables.
+     * 
+     * @param formula The formula to collect the variables of.
+     * @return A set of the IDs of all variables in the formula.
+     */
+    public @NonNull BitSet getVariableIds(@NonNull Formula formula) {
+        BitSet result = new BitSet();
+        addVariableIds(formula, result);
+        return result;
+    }
+    
+    /**
+     * Adds the IDs of all variables used in the given formula to the given set. Assigns new IDs to unknown variables.
+     * 
+     * @param formula The formula to collect the variables of.
+     * @param result The set to add the IDs to.
+     */
+    public void addVariableIds(@NonNull Formula formula, @NonNull BitSet result) {
+        Deque<@NonNull Formula> stack = new ArrayDeque<>();
+        stack.push(formula);
+        while (!stack.isEmpty()) {
+            Formula current = stack.pop();
+            if (current instanceof Variable) {
+                result.set(getId((Variable) current));
+            } else if (current instanceof Negation) {
+                stack.push(((Negation) current).getFormula());
+            } else if (current instanceof Conjunction) {
+                stack.push(((Conjunction) current).getLeft());
+                stack.push(((Conjunction) current).getRight());
+            } else if (current instanceof Disjunction) {
+                stack.push(((Disjunction) current).getLeft());
+                stack.push(((Disjunction) current).getRight());
+            } else if (current instanceof NaryFormula) {
+                for (Formula operand : ((NaryFormula) current).getOperands()) {
+                    stack.push(operand);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns the ID of the given variable, using the cached ID of the variable for the global table.
+     * 
+     * @param variable The variable.
+     * @return The ID of the variable.
+     */
+    private int getId(@NonNull Variable variable) {
+        return this == INSTANCE ? variable.getId() : getId(variable.getName());
+    }
+    
+    /**
+     * Returns the IDs of the given variables. Assigns new IDs to unknown variables.
+     * 
+     * @param names The names of the variables.
+     * @return A set of the IDs of the variables.
+     */
+    public @NonNull BitSet getVariableIds(@NonNull Iterable<@NonNull String> names) {
+        BitSet result = new BitSet();
+        for (String name : names) {
+            result.set(getId(name));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the names of the variables in the given set of IDs.
+     * 
+     * @param variableIds A set of variable IDs.
+     * @return The names of the variables, ordered by ID. Unassigned IDs are ignored.
+     */
+    public @NonNull List<@NonNull String> getNames(@NonNull BitSet variableIds) {
+        List<@NonNull String> result = new ArrayList<>(variableIds.cardinality());
+        for (int id = variableIds.nextSetBit(0); id >= 0; id = variableIds.nextSetBit(id + 1)) {
+            String name = getName(id);
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+    
+}
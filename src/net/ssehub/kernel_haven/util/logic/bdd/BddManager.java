@@ -0,0 +1,930 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Disjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaBuilder;
+import net.ssehub.kernel_haven.util.logic.FormulaTraverser;
+import net.ssehub.kernel_haven.util.logic.IPostOrderFormulaVisitor;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A manager for reduced ordered binary decision diagrams (ROBDDs). BDD nodes are identified by <code>int</code>
+ * handles; {@link #FALSE} and {@link #TRUE} are the two terminal nodes. Since all nodes are kept unique (via a unique
+ * table), two formulas are equivalent iff their BDD handles are equal. Thus, equivalence, tautology and
+ * satisfiability checks are constant time after the BDDs are constructed.
+ * <p>
+ * Results of the binary operations are cached in a direct-mapped computed table. Variables are ordered in the order
+ * in which they are added (see {@link #addVariable(String)}); the caller can pre-define a static ordering by adding
+ * variables before creating BDDs. Additionally, {@link #sift(int...)} dynamically reorders the variables to reduce the
+ * size of a given set of BDDs.
+ * </p>
+ * <p>
+ * Nodes are never freed implicitly; call {@link #collectGarbage(int...)} to free all nodes that are not reachable from
+ * a given set of roots. This class is not thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class BddManager {
+
+    /**
+     * Thrown if an operation would create more nodes than the node limit of a manager allows
+     * (see {@link BddManager#BddManager(int)}).
+     */
+    public static class NodeLimitExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 6497851734893045571L;
+
+        /**
+         * Creates this exception.
+         * 
+         * @param limit The node limit that was exceeded.
+         */
+        private NodeLimitExceededException(int limit) {
+            super("BDD node limit of " + limit + " exceeded");
+        }
+        
+    }
+    
+    /**
+     * The handle of the terminal node representing <code>false</code>.
+     */
+    public static final int FALSE = 0;
+    
+    /**
+     * The handle of the terminal node representing <code>true</code>.
+     */
+    public static final int TRUE = 1;
+    
+    /**
+     * The variable of terminal nodes, and the marker for free nodes.
+     */
+    private static final int NO_VARIABLE = -1;
+    
+    private static final int OP_AND = 0;
+    
+    private static final int OP_OR = 1;
+    
+    private static final int OP_XOR = 2;
+    
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private static final int MAX_CACHE_SIZE = 1 << 20;
+    
+    private int nodeLimit;
+    
+    /*
+     * Node storage. Free nodes have var NO_VARIABLE and are linked via next.
+     */
+    
+    private int @NonNull [] var;
+    
+    private int @NonNull [] low;
+    
+    private int @NonNull [] high;
+    
+    /**
+     * The next node in the same unique table bucket (or in the free list, for free nodes).
+     */
+    private int @NonNull [] next;
+    
+    /**
+     * The first node of each unique table bucket; <code>-1</code> for empty buckets.
+     */
+    private int @NonNull [] buckets;
+    
+    /**
+     * The number of node slots used so far (including free ones and the terminals).
+     */
+    private int numSlots;
+    
+    private int numFree;
+    
+    private int freeList;
+    
+    /*
+     * Computed table: a direct-mapped cache of (operation, a, b) -> result.
+     */
+    
+    private int @NonNull [] cacheOp;
+    
+    private int @NonNull [] cacheA;
+    
+    private int @NonNull [] cacheB;
+    
+    private int @NonNull [] cacheResult;
+    
+    /*
+     * Variable ordering.
+     */
+    
+    private @NonNull List<@NonNull String> variableNames;
+    
+    private @NonNull Map<String, Integer> variableIndices;
+    
+    private int @NonNull [] var2level;
+    
+    private int @NonNull [] level2var;
+    
+    /**
+     * Marks for traversals; a node is marked if its entry equals {@link #currentMark}.
+     */
+    private int @NonNull [] marks;
+    
+    private int currentMark;
+    
+    /**
+     * Creates a manager without a node limit.
+     */
+    public BddManager() {
+        this(Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Creates a manager.
+     * 
+     * @param nodeLimit The maximum number of nodes this manager may hold. Operations that would exceed this limit throw
+     *      a {@link NodeLimitExceededException}. This guards against the exponential blow-up of BDDs for some formulas.
+     */
+    public BddManager(int nodeLimit) {
+        this.nodeLimit = nodeLimit;
+        
+        var = new int[INITIAL_CAPACITY];
+        low = new int[INITIAL_CAPACITY];
+        high = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        marks = new int[INITIAL_CAPACITY];
+        buckets = new int[INITIAL_CAPACITY];
+        Arrays.fill(buckets, -1);
+        
+        var[FALSE] = NO_VARIABLE;
+        var[TRUE] = NO_VARIABLE;
+        numSlots = 2;
+        freeList = -1;
+        
+        cacheOp = new int[INITIAL_CAPACITY];
+        cacheA = new int[INITIAL_CAPACITY];
+        cacheB = new int[INITIAL_CAPACITY];
+        cacheResult = new int[INITIAL_CAPACITY];
+        Arrays.fill(cacheOp, -1);
+        
+        variableNames = new ArrayList<>();
+        variableIndices = new HashMap<>();
+        var2level = new int[16];
+        level2var = new int[16];
+    }
+    
+    /**
+     * Adds a variable to this manager, if it is not yet known. New variables are placed below all existing variables
+     * in the ordering.
+     * 
+     * @param name The name of the variable.
+     * @return The index of the variable.
+     */
+    public int addVariable(@NonNull String name) {
+        Integer index = variableIndices.get(name);
+        if (index == null) {
+            index = variableNames.size();
+            if (index == var2level.length) {
+                var2level = notNull(Arrays.copyOf(var2level, index * 2));
+                level2var = notNull(Arrays.copyOf(level2var, index * 2));
+            }
+            variableNames.add(name);
+            variableIndices.put(name, index);
+            var2level[index] = index;
+            level2var[index] = index;
+        }
+        return index;
+    }
+    
+    /**
+     * Returns the number of variables known to this manager.
+     * 
+     * @return The number of variables.
+     */
+    public int getNumVariables() {
+        return variableNames.size();
+    }
+    
+    /**
+     * Returns the current variable ordering, from the top-most (root) level to the bottom-most level.
+     * 
+     * @return The variable names in their current order.
+     */
+    public @NonNull List<@NonNull String> getVariableOrder() {
+        List<@NonNull String> result = new ArrayList<>(variableNames.size());
+        for (int level = 0; level < variableNames.size(); level++) {
+            result.add(notNull(variableNames.get(level2var[level])));
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the BDD for a single variable. The variable is added to this manager, if it is not yet known.
+     * 
+     * @param name The name of the variable.
+     * @return The BDD handle.
+     */
+    public int variable(@NonNull String name) {
+        return mk(addVariable(name), FALSE, TRUE);
+    }
+    
+    /**
+     * Computes the conjunction of two BDDs.
+     * 
+     * @param a The first operand.
+     * @param b The second operand.
+     * 
+     * @return The BDD handle for <code>a AND b</code>.
+     */
+    public int and(int a, int b) {
+        return apply(OP_AND, a, b);
+    }
+    
+    /**
+     * Computes the disjunction of two BDDs.
+     * 
+     * @param a The first operand.
+     * @param b The second operand.
+     * 
+     * @return The BDD handle for <code>a OR b</code>.
+     */
+    public int or(int a, int b) {
+        return apply(OP_OR, a, b);
+    }
+    
+    /**
+     * Computes the exclusive disjunction of two BDDs.
+     * 
+     * @param a The first operand.
+     * @param b The second operand.
+     * 
+     * @return The BDD handle for <code>a XOR b</code>.
+     */
+    public int xor(int a, int b) {
+        return apply(OP_XOR, a, b);
+    }
+    
+    /**
+     * Computes the negation of a BDD.
+     * 
+     * @param a The operand.
+     * @return The BDD handle for <code>NOT a</code>.
+     */
+    public int not(int a) {
+        return apply(OP_XOR, a, TRUE);
+    }
+    
+    /**
+     * Checks whether the given BDD is a tautology.
+     * 
+     * @param bdd The BDD handle.
+     * @return Whether the BDD is always true.
+     */
+    public boolean isTautology(int bdd) {
+        return bdd == TRUE;
+    }
+    
+    /**
+     * Checks whether the given BDD is satisfiable.
+     * 
+     * @param bdd The BDD handle.
+     * @return Whether the BDD is true for at least one assignment.
+     */
+    public boolean isSatisfiable(int bdd) {
+        return bdd != FALSE;
+    }
+    
+    /**
+     * Checks whether two formulas are equivalent. Both are converted into BDDs of this manager (see
+     * {@link #fromFormula(Formula)}).
+     * 
+     * @param f1 The first formula.
+     * @param f2 The second formula.
+     * 
+     * @return Whether both formulas have the same value for all assignments.
+     * 
+     * @throws NodeLimitExceededException If the node limit is exceeded.
+     */
+    public boolean isEquivalent(@NonNull Formula f1, @NonNull Formula f2) throws NodeLimitExceededException {
+        return fromFormula(f1) == fromFormula(f2);
+    }
+    
+    /**
+     * Finds a satisfying assignment for the given BDD. Variables that are not contained in the result are irrelevant.
+     * 
+     * @param bdd The BDD handle.
+     * @return A (partial) satisfying assignment, or <code>null</code> if the BDD is not satisfiable.
+     */
+    public @Nullable Map<@NonNull String, @NonNull Boolean> getSatisfyingAssignment(int bdd) {
+        Map<@NonNull String, @NonNull Boolean> result = null;
+        if (bdd != FALSE) {
+            result = new LinkedHashMap<>();
+            int node = bdd;
+            while (node != TRUE) {
+                // each non-terminal node has at least one child that is not FALSE
+                boolean value = high[node] != FALSE;
+                result.put(notNull(variableNames.get(var[node])), value);
+                node = value ? high[node] : low[node];
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the variable index of the given non-terminal node.
+     * 
+     * @param bdd The BDD handle of a non-terminal node.
+     * @return The index of the variable that this node branches on.
+     */
+    int getVariable(int bdd) {
+        return var[bdd];
+    }
+    
+    /**
+     * Returns the child of the given non-terminal node for the <code>false</code> assignment of its variable.
+     * 
+     * @param bdd The BDD handle of a non-terminal node.
+     * @return The low child.
+     */
+    int getLow(int bdd) {
+        return low[bdd];
+    }
+    
+    /**
+     * Returns the child of the given non-terminal node for the <code>true</code> assignment of its variable.
+     * 
+     * @param bdd The BDD handle of a non-terminal node.
+     * @return The high child.
+     */
+    int getHigh(int bdd) {
+        return high[bdd];
+    }
+    
+    /**
+     * Converts the given formula into a BDD. Unknown variables are added to this manager in the order in which they
+     * are encountered.
+     * 
+     * @param formula The formula to convert.
+     * @return The BDD handle.
+     * 
+     * @throws NodeLimitExceededException If the node limit is exceeded.
+     */
+    public int fromFormula(@NonNull Formula formula) throws NodeLimitExceededException {
+        return FormulaTraverser.traverseFormula(formula, new FormulaConverter());
+    }
+    
+    /**
+     * Converts the given BDD into a formula. Each node is converted to the respective if-then-else expression over its
+     * variable (simplified for terminal children); formulas for shared nodes are shared, too.
+     * 
+     * @param bdd The BDD handle.
+     * @return A formula equivalent to the BDD.
+     */
+    public @NonNull Formula toFormula(int bdd) {
+        return toFormula(bdd, new HashMap<>());
+    }
+    
+    /**
+     * Converts the given BDD into a formula.
+     * 
+     * @param bdd The BDD handle.
+     * @param converted The formulas for the already converted nodes.
+     * 
+     * @return A formula equivalent to the BDD.
+     */
+    private @NonNull Formula toFormula(int bdd, @NonNull Map<Integer, @NonNull Formula> converted) {
+        Formula result;
+        if (bdd == FALSE) {
+            result = False.INSTANCE;
+        } else if (bdd == TRUE) {
+            result = True.INSTANCE;
+        } else {
+            result = converted.get(bdd);
+            if (result == null) {
+                Formula variable = FormulaBuilder.variable(notNull(variableNames.get(var[bdd])));
+                int lowChild = low[bdd];
+                int highChild = high[bdd];
+                
+                if (lowChild == FALSE && highChild == TRUE) {
+                    result = variable;
+                } else if (lowChild == TRUE && highChild == FALSE) {
+                    result = FormulaBuilder.not(variable);
+                } else if (lowChild == FALSE) {
+                    result = FormulaBuilder.and(variable, toFormula(highChild, converted));
+                } else if (highChild == FALSE) {
+                    result = FormulaBuilder.and(FormulaBuilder.not(variable), toFormula(lowChild, converted));
+                } else if (highChild == TRUE) {
+                    result = FormulaBuilder.or(variable, toFormula(lowChild, converted));
+                } else if (lowChild == TRUE) {
+                    result = FormulaBuilder.or(FormulaBuilder.not(variable), toFormula(highChild, converted));
+                } else {
+                    result = FormulaBuilder.or(
+                            FormulaBuilder.and(variable, toFormula(highChild, converted)),
+                            FormulaBuilder.and(FormulaBuilder.not(variable), toFormula(lowChild, converted)));
+                }
+                converted.put(bdd, result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of nodes reachable from the given roots, including the terminals.
+     * 
+     * @param roots The BDD handles of the roots.
+     * @return The number of distinct nodes of the given BDDs.
+     */
+    public int getSize(int @NonNull ... roots) {
+        newMark();
+        int count = 0;
+        int[] stack = new int[16];
+        for (int root : roots) {
+            int sp = 0;
+            stack[sp++] = root;
+            while (sp > 0) {
+                int node = stack[--sp];
+                if (marks[node] != currentMark) {
+                    marks[node] = currentMark;
+                    count++;
+                    if (node > TRUE) {
+                        if (sp + 2 > stack.length) {
+                            stack = notNull(Arrays.copyOf(stack, stack.length * 2));
+                        }
+                        stack[sp++] = low[node];
+                        stack[sp++] = high[node];
+                    }
+                }
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the number of nodes that are currently allocated, including the terminals and nodes that are no longer
+     * in use.
+     * 
+     * @return The number of allocated nodes.
+     */
+    public int getNumNodes() {
+        return numSlots - numFree;
+    }
+    
+    /**
+     * Frees all nodes that are not reachable from the given roots, and clears the computed table. All other BDD
+     * handles that the caller holds become invalid.
+     * 
+     * @param roots The BDD handles that should be kept.
+     */
+    public void collectGarbage(int @NonNull ... roots) {
+        getSize(roots); // marks all reachable nodes
+        
+        Arrays.fill(buckets, -1);
+        freeList = -1;
+        numFree = 0;
+        for (int node = numSlots - 1; node > TRUE; node--) {
+            if (marks[node] == currentMark) {
+                insertUnique(node);
+            } else {
+                var[node] = NO_VARIABLE;
+                next[node] = freeList;
+                freeList = node;
+                numFree++;
+            }
+        }
+        Arrays.fill(cacheOp, -1);
+    }
+    
+    /**
+     * Dynamically reorders the variables to reduce the size of the given BDDs (Rudell's sifting algorithm). Each
+     * variable is moved through all levels via swaps of adjacent levels, and then placed at the level where the
+     * total size was minimal. Nodes are modified in place, so the given handles stay valid and still represent the
+     * same functions. All nodes not reachable from the given roots are freed (see {@link #collectGarbage(int...)}).
+     * 
+     * @param roots The BDD handles to minimize.
+     * 
+     * @throws NodeLimitExceededException If the node limit is exceeded while reordering.
+     */
+    public void sift(int @NonNull ... roots) throws NodeLimitExceededException {
+        int numVars = variableNames.size();
+        collectGarbage(roots);
+        
+        // sift variables with many nodes first
+        int[] counts = new int[numVars];
+        for (int node = 2; node < numSlots; node++) {
+            if (var[node] != NO_VARIABLE) {
+                counts[var[node]]++;
+            }
+        }
+        List<Integer> variables = new ArrayList<>(numVars);
+        for (int i = 0; i < numVars; i++) {
+            variables.add(i);
+        }
+        variables.sort((v1, v2) -> Integer.compare(counts[v2], counts[v1]));
+        
+        for (int variable : variables) {
+            int bestSize = getSize(roots);
+            int bestLevel = var2level[variable];
+            int sizeLimit = 2 * bestSize;
+            
+            // move down to the bottom
+            while (var2level[variable] < numVars - 1) {
+                swapLevels(var2level[variable]);
+                int size = getSize(roots);
+                if (size < bestSize) {
+                    bestSize = size;
+                    bestLevel = var2level[variable];
+                } else if (size > sizeLimit) {
+                    break;
+                }
+            }
+            
+            // move up to the top
+            while (var2level[variable] > 0) {
+                swapLevels(var2level[variable] - 1);
+                int size = getSize(roots);
+                if (size < bestSize) {
+                    bestSize = size;
+                    bestLevel = var2level[variable];
+                } else if (size > sizeLimit && var2level[variable] < bestLevel) {
+                    break;
+                }
+            }
+            
+            // move to the best level
+            while (var2level[variable] < bestLevel) {
+                swapLevels(var2level[variable]);
+            }
+            
+            collectGarbage(roots);
+        }
+    }
+    
+    /**
+     * Swaps the variables at the given level and the level below it. All nodes are modified in place, so that each
+     * node still represents the same function afterwards.
+     * 
+     * @param level The upper level to swap; must be less than the number of variables minus one.
+     */
+    private void swapLevels(int level) {
+        int x = level2var[level];
+        int y = level2var[level + 1];
+        
+        int[] xNodes = new int[16];
+        int numXNodes = 0;
+        for (int node = 2; node < numSlots; node++) {
+            if (var[node] == x) {
+                if (numXNodes == xNodes.length) {
+                    xNodes = notNull(Arrays.copyOf(xNodes, numXNodes * 2));
+                }
+                xNodes[numXNodes++] = node;
+            }
+        }
+        
+        level2var[level] = y;
+        level2var[level + 1] = x;
+        var2level[x] = level + 1;
+        var2level[y] = level;
+        
+        for (int i = 0; i < numXNodes; i++) {
+            int node = xNodes[i];
+            int f0 = low[node];
+            int f1 = high[node];
+            boolean f0HasY = f0 > TRUE && var[f0] == y;
+            boolean f1HasY = f1 > TRUE && var[f1] == y;
+            
+            if (f0HasY || f1HasY) {
+                int f00 = f0HasY ? low[f0] : f0;
+                int f01 = f0HasY ? high[f0] : f0;
+                int f10 = f1HasY ? low[f1] : f1;
+                int f11 = f1HasY ? high[f1] : f1;
+                
+                // the new children never match the key of an unprocessed node, since those still have y-children
+                int g0 = mk(x, f00, f10);
+                int g1 = mk(x, f01, f11);
+                
+                removeUnique(node);
+                var[node] = y;
+                low[node] = g0;
+                high[node] = g1;
+                insertUnique(node);
+            }
+        }
+    }
+    
+    /**
+     * Applies a binary operation to two BDDs.
+     * 
+     * @param op The operation.
+     * @param a The first operand.
+     * @param b The second operand.
+     * 
+     * @return The BDD handle of the result.
+     */
+    private int apply(int op, int a, int b) {
+        int result = applyTerminal(op, a, b);
+        
+        if (result == -1) {
+            // all operations are commutative
+            int first = Math.min(a, b);
+            int second = Math.max(a, b);
+            
+            int cacheIndex = hash(op, first, second) & (cacheOp.length - 1);
+            if (cacheOp[cacheIndex] == op && cacheA[cacheIndex] == first && cacheB[cacheIndex] == second) {
+                result = cacheResult[cacheIndex];
+                
+            } else {
+                int levelA = level(a);
+                int levelB = level(b);
+                int top = Math.min(levelA, levelB);
+                
+                int a0 = levelA == top ? low[a] : a;
+                int a1 = levelA == top ? high[a] : a;
+                int b0 = levelB == top ? low[b] : b;
+                int b1 = levelB == top ? high[b] : b;
+                
+                int r0 = apply(op, a0, b0);
+                int r1 = apply(op, a1, b1);
+                result = mk(level2var[top], r0, r1);
+                
+                // the cache may have been resized in the meantime
+                cacheIndex = hash(op, first, second) & (cacheOp.length - 1);
+                cacheOp[cacheIndex] = op;
+                cacheA[cacheIndex] = first;
+                cacheB[cacheIndex] = second;
+                cacheResult[cacheIndex] = result;
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Computes the result of a binary operation, if it is determined by terminal operands or equal operands.
+     * 
+     * @param op The operation.
+     * @param a The first operand.
+     * @param b The second operand.
+     * 
+     * @return The BDD handle of the result, or <code>-1</code> if the result has to be computed recursively.
+     */
+    private static int applyTerminal(int op, int a, int b) {
+        int result = -1;
+        switch (op) {
+        case OP_AND:
+            if (a == FALSE || b == FALSE) {
+                result = FALSE;
+            } else if (a == TRUE || a == b) {
+                result = b;
+            } else if (b == TRUE) {
+                result = a;
+            }
+            break;
+            
+        case OP_OR:
+            if (a == TRUE || b == TRUE) {
+                result = TRUE;
+            } else if (a == FALSE || a == b) {
+                result = b;
+            } else if (b == FALSE) {
+                result = a;
+            }
+            break;
+            
+        default: // OP_XOR
+            if (a == b) {
+                result = FALSE;
+            } else if (a == FALSE) {
+                result = b;
+            } else if (b == FALSE) {
+                result = a;
+            }
+            break;
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the level of the given node. Terminals are below all variables.
+     * 
+     * @param node The node.
+     * @return The level of the node.
+     */
+    private int level(int node) {
+        return node > TRUE ? var2level[var[node]] : Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Returns the unique node for the given variable and children. Creates a new one, if it doesn't exist yet.
+     * 
+     * @param variable The variable of the node.
+     * @param lowChild The child for the <code>false</code> assignment.
+     * @param highChild The child for the <code>true</code> assignment.
+     * 
+     * @return The handle of the node.
+     * 
+     * @throws NodeLimitExceededException If a new node would exceed the node limit.
+     */
+    private int mk(int variable, int lowChild, int highChild) throws NodeLimitExceededException {
+        int result;
+        if (lowChild == highChild) {
+            result = lowChild;
+            
+        } else {
+            result = buckets[hash(variable, lowChild, highChild) & (buckets.length - 1)];
+            while (result != -1
+                    && (var[result] != variable || low[result] != lowChild || high[result] != highChild)) {
+                result = next[result];
+            }
+            
+            if (result == -1) {
+                result = allocateNode();
+                var[result] = variable;
+                low[result] = lowChild;
+                high[result] = highChild;
+                insertUnique(result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Allocates a node slot, either from the free list or by growing the node storage.
+     * 
+     * @return The new node slot.
+     * 
+     * @throws NodeLimitExceededException If the new node would exceed the node limit.
+     */
+    private int allocateNode() throws NodeLimitExceededException {
+        int node;
+        if (freeList != -1) {
+            node = freeList;
+            freeList = next[node];
+            numFree--;
+            
+        } else {
+            if (numSlots >= nodeLimit) {
+                throw new NodeLimitExceededException(nodeLimit);
+            }
+            if (numSlots == var.length) {
+                grow();
+            }
+            node = numSlots++;
+        }
+        return node;
+    }
+    
+    /**
+     * Doubles the node storage, the unique table and (up to its maximum size) the computed table.
+     */
+    private void grow() {
+        int capacity = var.length * 2;
+        var = notNull(Arrays.copyOf(var, capacity));
+        low = notNull(Arrays.copyOf(low, capacity));
+        high = notNull(Arrays.copyOf(high, capacity));
+        next = notNull(Arrays.copyOf(next, capacity));
+        marks = notNull(Arrays.copyOf(marks, capacity));
+        
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        for (int node = 2; node < numSlots; node++) {
+            if (var[node] != NO_VARIABLE) {
+                insertUnique(node);
+            }
+        }
+        
+        if (capacity <= MAX_CACHE_SIZE) {
+            cacheOp = new int[capacity];
+            cacheA = new int[capacity];
+            cacheB = new int[capacity];
+            cacheResult = new int[capacity];
+            Arrays.fill(cacheOp, -1);
+        }
+    }
+    
+    /**
+     * Inserts the given node into the unique table.
+     * 
+     * @param node The node to insert.
+     */
+    private void insertUnique(int node) {
+        int bucket = hash(var[node], low[node], high[node]) & (buckets.length - 1);
+        next[node] = buckets[bucket];
+        buckets[bucket] = node;
+    }
+    
+    /**
+     * Removes the given node from the unique table.
+     * 
+     * @param node The node to remove.
+     */
+    private void removeUnique(int node) {
+        int bucket = hash(var[node], low[node], high[node]) & (buckets.length - 1);
+        if (buckets[bucket] == node) {
+            buckets[bucket] = next[node];
+        } else {
+            int previous = buckets[bucket];
+            while (next[previous] != node) {
+                previous = next[previous];
+            }
+            next[previous] = next[node];
+        }
+    }
+    
+    /**
+     * Starts a new traversal marking.
+     */
+    private void newMark() {
+        currentMark++;
+        if (currentMark == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            currentMark = 1;
+        }
+    }
+    
+    /**
+     * Hashes a triple of integers.
+     * 
+     * @param a The first value.
+     * @param b The second value.
+     * @param c The third value.
+     * 
+     * @return A well-distributed hash.
+     */
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+    
+    /**
+     * Converts {@link Formula}s to BDDs. Used with the {@link FormulaTraverser}, so that deeply nested formulas do not
+     * overflow the stack.
+     */
+    private class FormulaConverter implements IPostOrderFormulaVisitor<@NonNull Integer> {
+
+        @Override
+        public @NonNull Integer visitFalse(@NonNull False falseConstant) {
+            return FALSE;
+        }
+
+        @Override
+        public @NonNull Integer visitTrue(@NonNull True trueConstant) {
+            return TRUE;
+        }
+
+        @Override
+        public @NonNull Integer visitVariable(@NonNull Variable variable) {
+            return variable(variable.getName());
+        }
+
+        @Override
+        public @NonNull Integer visitNegation(@NonNull Negation formula, @NonNull Integer nested) {
+            return not(nested);
+        }
+
+        @Override
+        public @NonNull Integer visitDisjunction(@NonNull Disjunction formula, @NonNull Integer left,
+                @NonNull Integer right) {
+            return or(left, right);
+        }
+
+        @Override
+        public @NonNull Integer visitConjunction(@NonNull Conjunction formula, @NonNull Integer left,
+                @NonNull Integer right) {
+            return and(left, right);
+        }
+        
+    }
+
+}
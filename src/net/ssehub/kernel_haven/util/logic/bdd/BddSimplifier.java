@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import java.util.function.Function;
+
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaLiteralCounter;
+import net.ssehub.kernel_haven.util.logic.FormulaSimplifier;
+import net.ssehub.kernel_haven.util.logic.IterativeVisitorAdapter;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.logic.bdd.BddManager.NodeLimitExceededException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * A simplifier for {@link Formula}s based on BDDs. Can be installed via
+ * <code>FormulaSimplifier.setSimplifier(new BddSimplifier())</code>.
+ * <p>
+ * The formula is first simplified with {@link FormulaSimplifier#defaultSimplifier(Formula)} and then converted into a
+ * BDD. Tautologies and contradictions are thus reduced to {@link True} and {@link False}. Otherwise, the formula
+ * created from the BDD is returned if it contains fewer literals than the input (see
+ * {@link FormulaLiteralCounter}); this removes redundant sub-expressions like in <code>A || A &amp;&amp; B</code>.
+ * If the BDD grows beyond the node limit, the result of the default simplifier is returned.
+ * </p>
+ * <p>
+ * Each call uses its own {@link BddManager}, so this simplifier is thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public class BddSimplifier implements Function<@NonNull Formula, @NonNull Formula> {
+
+    /**
+     * The default maximum number of BDD nodes used for a single formula.
+     */
+    public static final int DEFAULT_NODE_LIMIT = 100000;
+    
+    private int nodeLimit;
+    
+    private boolean sift;
+    
+    /**
+     * Creates a simplifier with the default node limit and without dynamic variable reordering.
+     */
+    public BddSimplifier() {
+        this(DEFAULT_NODE_LIMIT, false);
+    }
+    
+    /**
+     * Creates a simplifier.
+     * 
+     * @param nodeLimit The maximum number of BDD nodes used for a single formula.
+     * @param sift Whether the variable order should be optimized via sifting (see {@link BddManager#sift(int...)})
+     *      before converting the BDD back into a formula. The initial order is the order in which the variables
+     *      appear in the formula.
+     */
+    public BddSimplifier(int nodeLimit, boolean sift) {
+        this.nodeLimit = nodeLimit;
+        this.sift = sift;
+    }
+    
+    @Override
+    public @NonNull Formula apply(@NonNull Formula formula) {
+        Formula result = FormulaSimplifier.defaultSimplifier(formula);
+        
+        if (!(result instanceof True) && !(result instanceof False) && !(result instanceof Variable)) {
+            try {
+                BddManager manager = new BddManager(nodeLimit);
+                int bdd = manager.fromFormula(result);
+                
+                if (bdd == BddManager.TRUE) {
+                    result = True.INSTANCE;
+                } else if (bdd == BddManager.FALSE) {
+                    result = False.INSTANCE;
+                } else {
+                    if (sift) {
+                        manager.sift(bdd);
+                    }
+                    Formula converted = manager.toFormula(bdd);
+                    
+                    IterativeVisitorAdapter<@NonNull Integer> counter
+                            = new IterativeVisitorAdapter<>(new FormulaLiteralCounter());
+                    if (counter.visit(converted) < counter.visit(result)) {
+                        result = converted;
+                    }
+                }
+                
+            } catch (NodeLimitExceededException e) {
+                // keep the result of the default simplifier
+            }
+        }
+        
+        return result;
+    }
+    
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.minimization;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import net.ssehub.kernel_haven.util.logic.CachingSimplifier;
+import net.ssehub.kernel_haven.util.logic.CompiledFormula;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaBuilder;
+import net.ssehub.kernel_haven.util.logic.FormulaLiteralCounter;
+import net.ssehub.kernel_haven.util.logic.FormulaSimplifier;
+import net.ssehub.kernel_haven.util.logic.IterativeVisitorAdapter;
+import net.ssehub.kernel_haven.util.logic.NaryFormula;
+import net.ssehub.kernel_haven.util.logic.NaryFormula.Operator;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A simplifier that minimizes redundant {@link Formula}s, like the presence conditions combined by a
+ * {@link net.ssehub.kernel_haven.util.logic.DisjunctionQueue}. Can be installed via
+ * <code>FormulaSimplifier.setSimplifier(new MinimizingSimplifier())</code>.
+ * <p>
+ * The formula is first simplified with {@link FormulaSimplifier#defaultSimplifier(Formula)}. Then, each AND and OR
+ * operation (bottom-up) is treated as a two-level expression: e.g. an OR of ANDs is a disjunction of cubes, where
+ * each operand of the ANDs that is neither a variable nor a negated variable is treated as an opaque atom. These are
+ * minimized via absorption, subsumption, reduction and consensus; e.g. <code>(A &amp;&amp; B) || (A &amp;&amp; !B)
+ * || A</code> becomes <code>A</code>.
+ * </p>
+ * <p>
+ * If the formula has at most a given number of variables, it is additionally minimized exactly via the
+ * Quine-McCluskey algorithm (both as a sum of products and as a product of sums); this also reduces tautologies and
+ * contradictions to {@link True} and {@link False}. The candidate with the fewest literals (see
+ * {@link FormulaLiteralCounter}) is returned.
+ * </p>
+ * <p>
+ * The results are memorized in a table of limited size. This simplifier is thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public class MinimizingSimplifier implements Function<@NonNull Formula, @NonNull Formula> {
+
+    /**
+     * The default maximum number of variables for which the exact minimization is done.
+     */
+    public static final int DEFAULT_EXACT_THRESHOLD = 8;
+    
+    /**
+     * The default number of memorized results.
+     */
+    public static final int DEFAULT_MEMO_SIZE = 10000;
+    
+    private int exactThreshold;
+    
+    /**
+     * Either {@link #minimize(Formula)}, or a {@link CachingSimplifier} around it.
+     */
+    private @NonNull Function<@NonNull Formula, @NonNull Formula> memo;
+    
+    /**
+     * Creates a simplifier with the default settings.
+     */
+    public MinimizingSimplifier() {
+        this(DEFAULT_EXACT_THRESHOLD, DEFAULT_MEMO_SIZE);
+    }
+    
+    /**
+     * Creates a simplifier.
+     * 
+     * @param exactThreshold The maximum number of variables for which the exact minimization is done. 0 disables
+     *      the exact minimization. At most 16.
+     * @param memoSize The maximum number of memorized results. 0 disables memorization.
+     * 
+     * @throws IllegalArgumentException If the threshold or memo size is out of range.
+     */
+    public MinimizingSimplifier(int exactThreshold, int memoSize) throws IllegalArgumentException {
+        if (exactThreshold < 0 || exactThreshold > QuineMcCluskey.MAX_VARIABLES) {
+            throw new IllegalArgumentException("Invalid threshold for exact minimization: " + exactThreshold);
+        }
+        if (memoSize < 0) {
+            throw new IllegalArgumentException("Invalid memo size: " + memoSize);
+        }
+        
+        this.exactThreshold = exactThreshold;
+        if (memoSize > 0) {
+            this.memo = new CachingSimplifier(this::minimize, memoSize);
+        } else {
+            this.memo = this::minimize;
+        }
+    }
+    
+    @Override
+    public @NonNull Formula apply(@NonNull Formula formula) {
+        return memo.apply(formula);
+    }
+    
+    /**
+     * Minimizes the given formula, without the memo table.
+     * 
+     * @param formula The formula to minimize.
+     * @return The minimized formula.
+     */
+    private @NonNull Formula minimize(@NonNull Formula formula) {
+        Formula result = FormulaSimplifier.defaultSimplifier(formula);
+        
+        if (!(result instanceof True) && !(result instanceof False) && !(result instanceof Variable)) {
+            Formula simplified = result;
+            int literals = countLiterals(result);
+            
+            Formula structural = minimizeStructure(simplified);
+            int structuralLiterals = countLiterals(structural);
+            if (structuralLiterals < literals || structural instanceof True || structural instanceof False) {
+                result = structural;
+                literals = structuralLiterals;
+            }
+            
+            if (!(result instanceof True) && !(result instanceof False)) {
+                Formula exact = minimizeExact(simplified);
+                if (exact != null && (countLiterals(exact) < literals || exact instanceof True
+                        || exact instanceof False)) {
+                    result = exact;
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Counts the literals of the given formula, without recursion.
+     * 
+     * @param formula The formula.
+     * @return The number of literals.
+     */
+    private static int countLiterals(@NonNull Formula formula) {
+        return new IterativeVisitorAdapter<>(new FormulaLiteralCounter()).visit(formula);
+    }
+    
+    /**
+     * Minimizes each AND and OR operation of the given formula as a two-level expression, bottom-up.
+     * 
+     * @param formula The formula to minimize; must not contain constants below the top level (i.e. be simplified by
+     *      the default simplifier).
+     * @return The minimized formula.
+     */
+    private static @NonNull Formula minimizeStructure(@NonNull Formula formula) {
+        Formula result;
+        
+        if (formula instanceof Negation) {
+            Formula nested = minimizeStructure(((Negation) formula).getFormula());
+            if (nested instanceof True) {
+                result = False.INSTANCE;
+            } else if (nested instanceof False) {
+                result = True.INSTANCE;
+            } else if (nested instanceof Negation) {
+                result = ((Negation) nested).getFormula();
+            } else {
+                result = nested == ((Negation) formula).getFormula() ? formula : new Negation(nested);
+            }
+            
+        } else if (NaryFormula.getOperator(formula) != null) {
+            result = minimizeOperation((NaryFormula) NaryFormula.flatten(formula));
+            
+        } else {
+            result = formula;
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Minimizes the given operation as a two-level expression, after minimizing its operands.
+     * 
+     * @param operation The AND or OR operation.
+     * @return The minimized formula.
+     */
+    private static @NonNull Formula minimizeOperation(@NonNull NaryFormula operation) {
+        boolean isOr = operation.getOperator() == Operator.OR;
+        Formula dominant = isOr ? True.INSTANCE : False.INSTANCE;
+        
+        // minimize the operands; these may become constants or operations of the same kind
+        List<@NonNull Formula> operands = new ArrayList<>();
+        boolean isDominant = false;
+        for (int i = 0; i < operation.getOperandCount() && !isDominant; i++) {
+            Formula operand = minimizeStructure(operation.getOperand(i));
+            if (operand.equals(dominant)) {
+                isDominant = true;
+            } else if (NaryFormula.getOperator(operand) == operation.getOperator()) {
+                NaryFormula nested = (NaryFormula) NaryFormula.flatten(operand);
+                for (int j = 0; j < nested.getOperandCount(); j++) {
+                    operands.add(nested.getOperand(j));
+                }
+            } else if (!(operand instanceof True) && !(operand instanceof False)) {
+                operands.add(operand);
+            }
+        }
+        
+        Formula result;
+        if (isDominant) {
+            result = dominant;
+        } else {
+            // each operand is a term of literals; literals of the dual operation are split
+            Map<Formula, Integer> atomIndices = new HashMap<>();
+            List<@NonNull Formula> atoms = new ArrayList<>();
+            List<int @NonNull []> terms = new ArrayList<>();
+            for (Formula operand : operands) {
+                NaryFormula dual = NaryFormula.getOperator(operand) != null
+                        ? (NaryFormula) NaryFormula.flatten(operand) : null;
+                int[] term = new int[dual != null ? dual.getOperandCount() : 1];
+                for (int i = 0; i < term.length; i++) {
+                    term[i] = toLiteral(dual != null ? dual.getOperand(i) : operand, atomIndices, atoms);
+                }
+                terms.add(term);
+            }
+            
+            List<int @NonNull []> minimized = TermMinimizer.minimize(terms);
+            if (minimized == null) {
+                result = dominant;
+            } else if (minimized.isEmpty()) {
+                result = isOr ? False.INSTANCE : True.INSTANCE;
+            } else {
+                result = toFormula(minimized, atoms, isOr);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Converts the given formula into a literal over atoms. Negations are removed from the atoms.
+     * 
+     * @param formula The formula.
+     * @param atomIndices The index of each atom; new atoms are added.
+     * @param atoms The atoms; new atoms are added.
+     * 
+     * @return The literal, encoded as <code>2 * atom + (negated ? 1 : 0)</code>.
+     */
+    private static int toLiteral(@NonNull Formula formula, @NonNull Map<Formula, Integer> atomIndices,
+            @NonNull List<@NonNull Formula> atoms) {
+        
+        Formula atom = formula;
+        int negated = 0;
+        while (atom instanceof Negation) {
+            atom = ((Negation) atom).getFormula();
+            negated ^= 1;
+        }
+        
+        Integer index = atomIndices.get(atom);
+        if (index == null) {
+            index = atoms.size();
+            atoms.add(atom);
+            atomIndices.put(atom, index);
+        }
+        return 2 * index + negated;
+    }
+    
+    /**
+     * Converts the given terms back into a formula.
+     * 
+     * @param terms The terms of literals.
+     * @param atoms The atoms that the literals refer to.
+     * @param isOr Whether the terms are cubes of a disjunction (otherwise clauses of a conjunction).
+     * 
+     * @return The formula.
+     */
+    private static @NonNull Formula toFormula(@NonNull List<int @NonNull []> terms,
+            @NonNull List<@NonNull Formula> atoms, boolean isOr) {
+        
+        List<@NonNull Formula> termFormulas = new ArrayList<>(terms.size());
+        for (int[] term : terms) {
+            List<@NonNull Formula> literals = new ArrayList<>(term.length);
+            for (int literal : term) {
+                Formula atom = atoms.get(literal / 2);
+                literals.add((literal & 1) != 0 ? FormulaBuilder.not(atom) : atom);
+            }
+            termFormulas.add(combine(literals, !isOr));
+        }
+        return combine(termFormulas, isOr);
+    }
+    
+    /**
+     * Combines the given formulas into a left-deep chain of binary operations.
+     * 
+     * @param formulas The formulas to combine; must not be empty.
+     * @param isOr Whether to combine with OR (otherwise AND).
+     * 
+     * @return The combined formula.
+     */
+    private static @NonNull Formula combine(@NonNull List<@NonNull Formula> formulas, boolean isOr) {
+        Formula result = formulas.get(0);
+        for (int i = 1; i < formulas.size(); i++) {
+            result = isOr ? FormulaBuilder.or(result, formulas.get(i)) : FormulaBuilder.and(result, formulas.get(i));
+        }
+        return result;
+    }
+    
+    /**
+     * Minimizes the given formula exactly, if it has at most {@link #exactThreshold} variables. Creates both the
+     * minimal sum of products and the minimal product of sums, and returns the one with fewer literals.
+     * 
+     * @param formula The formula to minimize.
+     * @return The minimized formula, or <code>null</code> if the formula has too many variables or unsupported
+     *      formula types.
+     */
+    private @Nullable Formula minimizeExact(@NonNull Formula formula) {
+        CompiledFormula compiled;
+        try {
+            compiled = new CompiledFormula(formula);
+        } catch (IllegalArgumentException e) {
+            compiled = null;
+        }
+        
+        Formula result = null;
+        if (compiled != null && compiled.getNumVariables() <= exactThreshold) {
+            int numVariables = compiled.getNumVariables();
+            BitSet minterms = getMinterms(compiled);
+            int numRows = 1 << numVariables;
+            
+            if (minterms.isEmpty()) {
+                result = False.INSTANCE;
+            } else if (minterms.cardinality() == numRows) {
+                result = True.INSTANCE;
+            } else {
+                String[] variables = compiled.getVariables();
+                Formula sop = toFormula(QuineMcCluskey.minimize(minterms, numVariables), variables, true);
+                
+                BitSet maxterms = (BitSet) minterms.clone();
+                maxterms.flip(0, numRows);
+                Formula pos = toFormula(QuineMcCluskey.minimize(maxterms, numVariables), variables, false);
+                
+                result = countLiterals(pos) < countLiterals(sop) ? pos : sop;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Calculates the truth table of the given formula, 64 rows at a time.
+     * 
+     * @param compiled The compiled formula.
+     * @return The set of rows (bit <code>i</code> of a row is the value of variable slot <code>i</code>) for which the
+     *      formula is true.
+     */
+    private static @NonNull BitSet getMinterms(@NonNull CompiledFormula compiled) {
+        // the patterns of the first 6 variables within 64 consecutive rows
+        long[] patterns = {
+            0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L,
+        };
+        
+        int numVariables = compiled.getNumVariables();
+        int numRows = 1 << numVariables;
+        long[] words = new long[Math.max(1, numRows / 64)];
+        long[] values = new long[numVariables];
+        
+        for (int word = 0; word < words.length; word++) {
+            for (int v = 0; v < numVariables; v++) {
+                values[v] = v < 6 ? patterns[v] : (((word >> (v - 6)) & 1) != 0 ? -1L : 0L);
+            }
+            words[word] = compiled.evaluate(values);
+        }
+        if (numRows < 64) {
+            words[0] &= (1L << numRows) - 1;
+        }
+        
+        return notNull(BitSet.valueOf(words));
+    }
+    
+    /**
+     * Converts the given implicants into a formula.
+     * 
+     * @param implicants The implicants.
+     * @param variables The variable names, indexed by slot.
+     * @param sumOfProducts Whether the implicants are cubes of the formula; otherwise, they are cubes of the negated
+     *      formula, and a product of sums is created.
+     * 
+     * @return The formula.
+     */
+    private static @NonNull Formula toFormula(@NonNull List<@NonNull Long> implicants,
+            @NonNull String @NonNull [] variables, boolean sumOfProducts) {
+        
+        List<@NonNull Formula> terms = new ArrayList<>(implicants.size());
+        for (long implicant : implicants) {
+            int values = QuineMcCluskey.getValues(implicant);
+            int dontCare = QuineMcCluskey.getDontCare(implicant);
+            
+            List<@NonNull Formula> literals = new ArrayList<>();
+            for (int v = 0; v < variables.length; v++) {
+                if ((dontCare & (1 << v)) == 0) {
+                    // for a product of sums, the literals of the negated cube are negated (De Morgan)
+                    boolean positive = (((values >> v) & 1) != 0) == sumOfProducts;
+                    Formula variable = FormulaBuilder.variable(variables[v]);
+                    literals.add(positive ? variable : FormulaBuilder.not(variable));
+                }
+            }
+            terms.add(combine(literals, !sumOfProducts));
+        }
+        return combine(terms, sumOfProducts);
+    }
+    
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.minimization;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Exact two-level minimization of a truth table via the Quine-McCluskey algorithm. All prime implicants are
+ * calculated; the cover is then selected from the essential prime implicants first, and then greedily (like Espresso
+ * does), so the result is not guaranteed to be minimal in all cases.
+ * <p>
+ * An implicant is represented as a <code>long</code>: the lower 32 bits are the values of the variables, the upper 32
+ * bits are the mask of the variables that don't matter.
+ * </p>
+ *
+ * @author Adam
+ */
+final class QuineMcCluskey {
+
+    /**
+     * The maximum number of variables supported.
+     */
+    static final int MAX_VARIABLES = 16;
+    
+    /**
+     * Don't allow any instances.
+     */
+    private QuineMcCluskey() {
+    }
+    
+    /**
+     * Creates an implicant.
+     * 
+     * @param values The values of the variables (bit <code>i</code> is variable <code>i</code>).
+     * @param dontCare The mask of variables that don't matter.
+     * 
+     * @return The implicant.
+     */
+    static long implicant(int values, int dontCare) {
+        return ((long) dontCare << 32) | (values & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * Returns the values of the variables of the given implicant. Only valid for the variables that matter.
+     * 
+     * @param implicant The implicant.
+     * @return The values of the variables.
+     */
+    static int getValues(long implicant) {
+        return (int) implicant;
+    }
+    
+    /**
+     * Returns the mask of variables that don't matter for the given implicant.
+     * 
+     * @param implicant The implicant.
+     * @return The mask of variables that don't matter.
+     */
+    static int getDontCare(long implicant) {
+        return (int) (implicant >>> 32);
+    }
+    
+    /**
+     * Calculates a minimal sum of products that covers exactly the given minterms.
+     * 
+     * @param minterms The minterms, i.e. the assignments for which the function is true. Bit <code>i</code> of
+     *      an assignment is the value of variable <code>i</code>.
+     * @param numVariables The number of variables; at most {@link #MAX_VARIABLES}.
+     * 
+     * @return The selected implicants.
+     */
+    static @NonNull List<@NonNull Long> minimize(@NonNull BitSet minterms, int numVariables) {
+        List<@NonNull Long> primes = getPrimeImplicants(minterms, numVariables);
+        return selectCover(primes, minterms);
+    }
+    
+    /**
+     * Calculates all prime implicants of the given minterms.
+     * 
+     * @param minterms The minterms.
+     * @param numVariables The number of variables.
+     * 
+     * @return All prime implicants.
+     */
+    private static @NonNull List<@NonNull Long> getPrimeImplicants(@NonNull BitSet minterms, int numVariables) {
+        List<@NonNull Long> primes = new ArrayList<>();
+        
+        Set<@NonNull Long> current = new HashSet<>();
+        for (int m = minterms.nextSetBit(0); m >= 0; m = minterms.nextSetBit(m + 1)) {
+            current.add(implicant(m, 0));
+        }
+        
+        while (!current.isEmpty()) {
+            Set<@NonNull Long> next = new HashSet<>();
+            Set<@NonNull Long> combined = new HashSet<>();
+            
+            for (long implicant : current) {
+                int values = getValues(implicant);
+                int dontCare = getDontCare(implicant);
+                
+                // combine with the implicant that differs only in one variable that is 0 here
+                for (int bit = 0; bit < numVariables; bit++) {
+                    int mask = 1 << bit;
+                    if ((dontCare & mask) == 0 && (values & mask) == 0) {
+                        long partner = implicant(values | mask, dontCare);
+                        if (current.contains(partner)) {
+                            next.add(implicant(values, dontCare | mask));
+                            combined.add(implicant);
+                            combined.add(partner);
+                        }
+                    }
+                }
+            }
+            
+            for (long implicant : current) {
+                if (!combined.contains(implicant)) {
+                    primes.add(implicant);
+                }
+            }
+            current = next;
+        }
+        
+        return primes;
+    }
+    
+    /**
+     * Selects prime implicants that cover all minterms: first the essential ones, then greedily the ones covering
+     * the most uncovered minterms (preferring fewer literals).
+     * 
+     * @param primes All prime implicants.
+     * @param minterms The minterms to cover.
+     * 
+     * @return The selected prime implicants.
+     */
+    private static @NonNull List<@NonNull Long> selectCover(@NonNull List<@NonNull Long> primes,
+            @NonNull BitSet minterms) {
+        
+        List<@NonNull Long> result = new ArrayList<>();
+        BitSet uncovered = (BitSet) minterms.clone();
+        boolean[] selected = new boolean[primes.size()];
+        
+        // essential prime implicants: the only ones covering some minterm
+        for (int m = minterms.nextSetBit(0); m >= 0; m = minterms.nextSetBit(m + 1)) {
+            int coveringIndex = -1;
+            int numCovering = 0;
+            for (int i = 0; i < primes.size() && numCovering < 2; i++) {
+                if (covers(primes.get(i), m)) {
+                    coveringIndex = i;
+                    numCovering++;
+                }
+            }
+            if (numCovering == 1 && !selected[coveringIndex]) {
+                selected[coveringIndex] = true;
+                select(primes.get(coveringIndex), uncovered, result);
+            }
+        }
+        
+        while (!uncovered.isEmpty()) {
+            int best = -1;
+            int bestCount = 0;
+            int bestDontCare = -1;
+            for (int i = 0; i < primes.size(); i++) {
+                if (!selected[i]) {
+                    long prime = primes.get(i);
+                    int count = countCovered(prime, uncovered);
+                    int dontCare = Integer.bitCount(getDontCare(prime));
+                    if (count > bestCount || (count == bestCount && count > 0 && dontCare > bestDontCare)) {
+                        best = i;
+                        bestCount = count;
+                        bestDontCare = dontCare;
+                    }
+                }
+            }
+            selected[best] = true;
+            select(primes.get(best), uncovered, result);
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Adds the given implicant to the result and removes its minterms from the uncovered ones.
+     * 
+     * @param implicant The selected implicant.
+     * @param uncovered The uncovered minterms.
+     * @param result The selected implicants.
+     */
+    private static void select(long implicant, @NonNull BitSet uncovered, @NonNull List<@NonNull Long> result) {
+        result.add(implicant);
+        for (int m = uncovered.nextSetBit(0); m >= 0; m = uncovered.nextSetBit(m + 1)) {
+            if (covers(implicant, m)) {
+                uncovered.clear(m);
+            }
+        }
+    }
+    
+    /**
+     * Counts the given minterms that are covered by the given implicant.
+     * 
+     * @param implicant The implicant.
+     * @param minterms The minterms.
+     * 
+     * @return The number of covered minterms.
+     */
+    private static int countCovered(long implicant, @NonNull BitSet minterms) {
+        int result = 0;
+        for (int m = minterms.nextSetBit(0); m >= 0; m = minterms.nextSetBit(m + 1)) {
+            if (covers(implicant, m)) {
+                result++;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Checks whether the given implicant covers the given minterm.
+     * 
+     * @param implicant The implicant.
+     * @param minterm The minterm.
+     * 
+     * @return Whether the minterm is covered.
+     */
+    private static boolean covers(long implicant, int minterm) {
+        return (minterm & ~getDontCare(implicant)) == getValues(implicant);
+    }
+    
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.minimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * Minimizes a two-level expression, i.e. a disjunction of cubes (conjunctions of literals) or a conjunction of clauses
+ * (disjunctions of literals). Due to duality, the same rules apply to both; they are described for cubes here:
+ * <ul>
+ *      <li>Contradictory cubes (<code>x &amp;&amp; !x &amp;&amp; ...</code>) are removed.</li>
+ *      <li>Absorption / subsumption: a cube that contains all literals of another cube is removed
+ *          (<code>a || a &amp;&amp; b -&gt; a</code>).</li>
+ *      <li>Reduction: if all literals of a cube are contained in another cube, except for one literal whose
+ *          negation is contained, the negated literal is removed from the other cube
+ *          (<code>a || !a &amp;&amp; b -&gt; a || b</code>; <code>a &amp;&amp; b || a &amp;&amp; !b -&gt; a</code>).
+ *          </li>
+ *      <li>Consensus: a cube that contains the consensus of two other cubes is removed
+ *          (<code>a &amp;&amp; b || !a &amp;&amp; c || b &amp;&amp; c -&gt; a &amp;&amp; b || !a &amp;&amp; c</code>).
+ *          </li>
+ * </ul>
+ * <p>
+ * Literals are encoded as <code>2 * atom + (negated ? 1 : 0)</code>, so <code>literal ^ 1</code> is the negated
+ * literal.
+ * </p>
+ *
+ * @author Adam
+ */
+final class TermMinimizer {
+
+    /**
+     * The maximum number of terms for which the pairwise rules (subsumption and reduction) are applied.
+     */
+    static final int MAX_PAIRWISE_TERMS = 1000;
+    
+    /**
+     * The maximum number of terms for which the consensus rule (which needs cubic time) is applied.
+     */
+    static final int MAX_CONSENSUS_TERMS = 100;
+    
+    private static final int NONE = -1;
+    
+    private static final int SUBSET = -2;
+    
+    /**
+     * Don't allow any instances.
+     */
+    private TermMinimizer() {
+    }
+    
+    /**
+     * Minimizes the given terms.
+     * 
+     * @param input The terms; each term is an array of literals. Not modified.
+     * 
+     * @return The minimized terms, in their original order. <code>null</code> if a term became empty, i.e. the
+     *      whole expression is <code>true</code> (for cubes) or <code>false</code> (for clauses).
+     */
+    static @Nullable List<int @NonNull []> minimize(@NonNull List<int @NonNull []> input) {
+        int[][] terms = new int[input.size()][];
+        int count = 0;
+        boolean empty = false;
+        for (int[] term : input) {
+            int[] normalized = normalize(term);
+            if (normalized != null) {
+                terms[count++] = normalized;
+                empty |= normalized.length == 0;
+            }
+        }
+        
+        boolean changed = true;
+        while (changed && !empty) {
+            changed = false;
+            if (count <= MAX_PAIRWISE_TERMS) {
+                for (int i = 0; i < count && !empty; i++) {
+                    for (int j = 0; j < count && terms[i] != null && !empty; j++) {
+                        if (i != j && terms[j] != null) {
+                            int result = compare(terms[j], terms[i]);
+                            if (result == SUBSET && (j < i || terms[j].length != terms[i].length)) {
+                                terms[i] = null;
+                                changed = true;
+                                
+                            } else if (result >= 0) {
+                                terms[i] = remove(terms[i], result);
+                                empty = terms[i].length == 0;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+            if (!changed && !empty && count <= MAX_CONSENSUS_TERMS) {
+                changed = removeConsensusTerms(terms, count);
+            }
+        }
+        
+        List<int @NonNull []> result = null;
+        if (!empty) {
+            result = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (terms[i] != null) {
+                    result.add(terms[i]);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Sorts the literals of the given term and removes duplicates.
+     * 
+     * @param term The term to normalize. Not modified.
+     * @return The normalized term, or <code>null</code> if the term contains a literal and its negation.
+     */
+    private static int @Nullable [] normalize(int @NonNull [] term) {
+        int[] sorted = term.clone();
+        Arrays.sort(sorted);
+        
+        int length = 0;
+        boolean trivial = false;
+        for (int i = 0; i < sorted.length && !trivial; i++) {
+            if (length == 0 || sorted[length - 1] != sorted[i]) {
+                // negated literals are adjacent in sorted order
+                trivial = length > 0 && sorted[length - 1] == (sorted[i] ^ 1);
+                sorted[length++] = sorted[i];
+            }
+        }
+        
+        return trivial ? null : Arrays.copyOf(sorted, length);
+    }
+    
+    /**
+     * Compares two terms.
+     * 
+     * @param smaller The term that may subsume or reduce the other term.
+     * @param other The other term.
+     * 
+     * @return {@link #SUBSET} if all literals of <code>smaller</code> are in <code>other</code>; the index of the
+     *      literal in <code>other</code> that can be removed, if the reduction rule applies; {@link #NONE} otherwise.
+     */
+    private static int compare(int @NonNull [] smaller, int @NonNull [] other) {
+        int outside = 0;
+        int reduceIndex = NONE;
+        for (int i = 0; i < smaller.length && outside <= 1; i++) {
+            if (Arrays.binarySearch(other, smaller[i]) < 0) {
+                outside++;
+                reduceIndex = Arrays.binarySearch(other, smaller[i] ^ 1);
+                if (reduceIndex < 0) {
+                    // can't be reduced
+                    outside = 2;
+                }
+            }
+        }
+        
+        int result;
+        if (outside == 0) {
+            result = SUBSET;
+        } else if (outside == 1) {
+            result = reduceIndex;
+        } else {
+            result = NONE;
+        }
+        return result;
+    }
+    
+    /**
+     * Removes terms that contain the consensus of two other terms.
+     * 
+     * @param terms The terms; removed terms are set to <code>null</code>.
+     * @param count The number of terms.
+     * 
+     * @return Whether a term was removed.
+     */
+    private static boolean removeConsensusTerms(int @Nullable [] @NonNull [] terms, int count) {
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count && terms[i] != null; j++) {
+                int[] consensus = terms[j] != null ? consensus(terms[i], terms[j]) : null;
+                for (int k = 0; consensus != null && k < count; k++) {
+                    if (k != i && k != j && terms[k] != null && compare(consensus, terms[k]) == SUBSET) {
+                        terms[k] = null;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * Calculates the consensus of two terms, i.e. the union of their literals except for the single literal that is
+     * negated in the other term.
+     * 
+     * @param term1 The first term.
+     * @param term2 The second term.
+     * 
+     * @return The consensus, or <code>null</code> if the terms don't clash in exactly one variable.
+     */
+    private static int @Nullable [] consensus(int @NonNull [] term1, int @NonNull [] term2) {
+        int clashes = 0;
+        int clash = 0;
+        for (int i = 0; i < term1.length && clashes <= 1; i++) {
+            if (Arrays.binarySearch(term2, term1[i] ^ 1) >= 0) {
+                clashes++;
+                clash = term1[i];
+            }
+        }
+        
+        int[] result = null;
+        if (clashes == 1) {
+            int[] union = new int[term1.length + term2.length];
+            int length = 0;
+            for (int literal : term1) {
+                if (literal != clash) {
+                    union[length++] = literal;
+                }
+            }
+            for (int literal : term2) {
+                if (literal != (clash ^ 1)) {
+                    union[length++] = literal;
+                }
+            }
+            result = normalize(Arrays.copyOf(union, length));
+        }
+        return result;
+    }
+    
+    /**
+     * Removes the literal at the given index from the given term.
+     * 
+     * @param term The term.
+     * @param index The index of the literal to remove.
+     * 
+     * @return A new term without the literal.
+     */
+    private static int @NonNull [] remove(int @NonNull [] term, int index) {
+        int[] result = new int[term.length - 1];
+        System.arraycopy(term, 0, result, 0, index);
+        System.arraycopy(term, index + 1, result, index, result.length - index);
+        return result;
+    }
+    
+}
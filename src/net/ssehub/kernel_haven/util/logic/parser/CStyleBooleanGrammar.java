@@ -19,10 +19,12 @@ import net.ssehub.kernel_haven.util.logic.Conjunction;
 import net.ssehub.kernel_haven.util.logic.Disjunction;
 import net.ssehub.kernel_haven.util.logic.False;
 import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
 import net.ssehub.kernel_haven.util.logic.Negation;
 import net.ssehub.kernel_haven.util.logic.True;
 import net.ssehub.kernel_haven.util.logic.Variable;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * A {@link Grammar} for C-style boolean expressions.
@@ -47,6 +49,8 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
     protected static final Operator NOT = new Operator("!", false, 1);
 
     private VariableCache cache;
+    
+    private @Nullable FormulaFactory factory;
 
     /**
      * Creates this grammar with the given variable cache. The cache is used to
@@ -59,6 +63,17 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
     public CStyleBooleanGrammar(VariableCache cache) {
         this.cache = cache;
     }
+    
+    /**
+     * Creates this grammar with the given {@link FormulaFactory}. All formulas are created through the factory, so
+     * that the parsed formulas are canonical instances of it.
+     * 
+     * @param factory
+     *            The factory to create the formulas with.
+     */
+    public CStyleBooleanGrammar(@NonNull FormulaFactory factory) {
+        this.factory = factory;
+    }
 
     @Override
     public Operator getOperator(char[] str, int it) {
@@ -110,7 +125,8 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
     @Override
     public Formula makeUnaryFormula(Operator operator, Formula child) throws ExpressionFormatException {
         if (operator.equals(NOT)) {
-            return new Negation(child);
+            FormulaFactory factory = this.factory;
+            return factory != null ? factory.not(child) : new Negation(child);
         } else {
             throw new ExpressionFormatException("Unknown operator: " + operator);
         }
@@ -119,11 +135,12 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
     @Override
     public Formula makeBinaryFormula(Operator operator, Formula left, Formula right) throws ExpressionFormatException {
         Formula result = null;
+        FormulaFactory factory = this.factory;
 
         if (operator.equals(AND)) {
-            result = new Conjunction(left, right);
+            result = factory != null ? factory.and(left, right) : new Conjunction(left, right);
         } else if (operator.equals(OR)) {
-            result = new Disjunction(left, right);
+            result = factory != null ? factory.or(left, right) : new Disjunction(left, right);
         } else {
             throw new ExpressionFormatException("Unknown operator: " + operator);
         }
@@ -140,7 +157,10 @@ public class CStyleBooleanGrammar extends Grammar<@NonNull Formula> {
         } else if (identifier.equals("0")) {
             result = False.INSTANCE;
         } else {
-            if (this.cache != null) {
+            FormulaFactory factory = this.factory;
+            if (factory != null) {
+                result = factory.variable(identifier);
+            } else if (this.cache != null) {
                 result = this.cache.getVariable(identifier);
             } else {
                 result = new Variable(identifier);
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.sat;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Writes clauses in DIMACS format to a {@link Writer}. Numbers are written digit by digit without creating
+ * intermediate strings, so large CNFs can be streamed with constant memory. The caller should pass a buffered writer,
+ * and is responsible for closing it.
+ *
+ * @author Adam
+ */
+public class DimacsWriter implements TseitinTransformer.ClauseSink {
+
+    private @NonNull Writer out;
+    
+    private char @NonNull [] digits;
+    
+    /**
+     * Creates a DIMACS writer.
+     * 
+     * @param out The writer to write to.
+     */
+    public DimacsWriter(@NonNull Writer out) {
+        this.out = out;
+        this.digits = new char[11];
+    }
+    
+    /**
+     * Writes a comment line. KernelHaven uses comments of the form <code>c &lt;number&gt; &lt;name&gt;</code> to
+     * store the variable names.
+     * 
+     * @param comment The comment text. Must not contain line breaks.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void writeComment(@NonNull String comment) throws IOException {
+        out.write("c ");
+        out.write(comment);
+        out.write('\n');
+    }
+    
+    /**
+     * Writes a variable name comment of the form <code>c &lt;number&gt; &lt;name&gt;</code>, as read by the
+     * DIMACS variability model extractor.
+     * 
+     * @param number The DIMACS number of the variable.
+     * @param name The name of the variable.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void writeVariable(int number, @NonNull String name) throws IOException {
+        out.write("c ");
+        writeNumber(number);
+        out.write(' ');
+        out.write(name);
+        out.write('\n');
+    }
+    
+    /**
+     * Writes the problem line (<code>p cnf &lt;variables&gt; &lt;clauses&gt;</code>).
+     * 
+     * @param numVariables The number of variables.
+     * @param numClauses The number of clauses.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public void writeHeader(int numVariables, long numClauses) throws IOException {
+        out.write("p cnf ");
+        writeNumber(numVariables);
+        out.write(' ');
+        out.write(Long.toString(numClauses));
+        out.write('\n');
+    }
+    
+    @Override
+    public void addClause(int @NonNull ... literals) throws IOException {
+        for (int literal : literals) {
+            writeNumber(literal);
+            out.write(' ');
+        }
+        out.write("0\n");
+    }
+    
+    /**
+     * Writes a number without creating a string.
+     * 
+     * @param number The number to write.
+     * 
+     * @throws IOException If writing fails.
+     */
+    private void writeNumber(int number) throws IOException {
+        if (number == Integer.MIN_VALUE) {
+            out.write(Integer.toString(number));
+        } else {
+            int value = Math.abs(number);
+            int start = digits.length;
+            do {
+                digits[--start] = (char) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            
+            if (number < 0) {
+                digits[--start] = '-';
+            }
+            out.write(digits, start, digits.length - start);
+        }
+    }
+    
+}
@@ -0,0 +1,1000 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.ssehub.kernel_haven.util.logic.sat;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
+
+/**
+ * A conflict-driven clause learning (CDCL) SAT solver. Variables and literals use the DIMACS convention: variables are
+ * numbered from 1, and a negative number denotes the negated variable.
+ * <p>
+ * The solver uses two watched literals per clause for unit propagation, VSIDS branching with phase saving,
+ * first-UIP clause learning with clause minimization, Luby restarts and activity-based deletion of learned clauses.
+ * </p>
+ * <p>
+ * The solver is incremental: clauses can be added between calls to {@link #solve(int...)}, and each call can be
+ * given a set of assumptions (literals that are temporarily assumed to be true). Learned clauses are kept between
+ * calls, since they are implied by the clauses alone. Thus, a large CNF (e.g. the constraints of a variability model)
+ * only needs to be loaded once and can then be queried many times. This class is not thread-safe.
+ * </p>
+ *
+ * @author Adam
+ */
+public final class SatSolver {
+
+    /**
+     * A clause in the solver. The first two literals are the watched ones.
+     */
+    private static final class Clause {
+        
+        private int @NonNull [] literals;
+        
+        private boolean learned;
+        
+        private boolean deleted;
+        
+        private double activity;
+        
+        /**
+         * Creates a clause.
+         * 
+         * @param literals The internal literals of this clause.
+         * @param learned Whether this clause was learned from a conflict.
+         */
+        Clause(int @NonNull [] literals, boolean learned) {
+            this.literals = literals;
+            this.learned = learned;
+        }
+        
+    }
+    
+    private static final byte UNDEFINED = 0;
+    
+    private static final byte TRUE = 1;
+    
+    private static final byte FALSE = -1;
+    
+    private static final double VARIABLE_DECAY = 0.95;
+    
+    private static final double CLAUSE_DECAY = 0.999;
+    
+    private static final int RESTART_BASE = 100;
+    
+    private static final int MIN_MAX_LEARNED = 5000;
+    
+    /**
+     * Whether the clauses added so far are (not yet known to be) satisfiable.
+     */
+    private boolean ok;
+    
+    private int numVariables;
+    
+    private int numClauses;
+    
+    private @NonNull List<@NonNull Clause> learnedClauses;
+    
+    private double maxLearned;
+    
+    /*
+     * Per internal literal (2 * variable + sign).
+     */
+    
+    private byte @NonNull [] values;
+    
+    private @NonNull Clause @NonNull [] @NonNull [] watches;
+    
+    private int @NonNull [] watchCounts;
+    
+    /*
+     * Per variable.
+     */
+    
+    private int @NonNull [] levels;
+    
+    private @Nullable Clause @NonNull [] reasons;
+    
+    private boolean @NonNull [] phases;
+    
+    private boolean @NonNull [] seen;
+    
+    private double @NonNull [] activities;
+    
+    private boolean @NonNull [] model;
+    
+    /*
+     * Trail of assigned literals.
+     */
+    
+    private int @NonNull [] trail;
+    
+    private int trailSize;
+    
+    private int @NonNull [] trailLimits;
+    
+    private int decisionLevel;
+    
+    private int propagationHead;
+    
+    /*
+     * Max-heap of the variables, ordered by activity.
+     */
+    
+    private int @NonNull [] heap;
+    
+    private int heapSize;
+    
+    private int @NonNull [] heapIndices;
+    
+    private double variableIncrement;
+    
+    private double clauseIncrement;
+    
+    private long numConflicts;
+    
+    private long numDecisions;
+    
+    private long numPropagations;
+    
+    /**
+     * Creates an empty solver.
+     */
+    public SatSolver() {
+        ok = true;
+        learnedClauses = new ArrayList<>();
+        maxLearned = MIN_MAX_LEARNED;
+        
+        values = new byte[2];
+        watches = new @NonNull Clause[2][];
+        watchCounts = new int[2];
+        levels = new int[1];
+        reasons = new @Nullable Clause[1];
+        phases = new boolean[1];
+        seen = new boolean[1];
+        activities = new double[1];
+        model = new boolean[1];
+        trail = new int[1];
+        trailLimits = new int[1];
+        heap = new int[1];
+        heapIndices = new int[1];
+        
+        variableIncrement = 1;
+        clauseIncrement = 1;
+    }
+    
+    /**
+     * Returns the number of variables in this solver.
+     * 
+     * @return The highest variable number.
+     */
+    public int getNumVariables() {
+        return numVariables;
+    }
+    
+    /**
+     * Returns the number of (non-learned) clauses with at least two literals that were added to this solver. Unit
+     * clauses and satisfied clauses are not stored.
+     * 
+     * @return The number of stored clauses.
+     */
+    public int getNumClauses() {
+        return numClauses;
+    }
+    
+    /**
+     * Returns the number of conflicts that occurred in all calls to {@link #solve(int...)} so far.
+     * 
+     * @return The number of conflicts.
+     */
+    public long getNumConflicts() {
+        return numConflicts;
+    }
+    
+    /**
+     * Returns the number of decisions made in all calls to {@link #solve(int...)} so far.
+     * 
+     * @return The number of decisions.
+     */
+    public long getNumDecisions() {
+        return numDecisions;
+    }
+    
+    /**
+     * Returns the number of literals assigned by unit propagation so far.
+     * 
+     * @return The number of propagations.
+     */
+    public long getNumPropagations() {
+        return numPropagations;
+    }
+    
+    /**
+     * Creates a new variable.
+     * 
+     * @return The number of the new variable.
+     */
+    public int newVariable() {
+        ensureVariables(numVariables + 1);
+        return numVariables;
+    }
+    
+    /**
+     * Makes sure that this solver knows all variables up to the given number.
+     * 
+     * @param number The highest variable number that should be known.
+     */
+    public void ensureVariables(int number) {
+        if (number > numVariables) {
+            int capacity = levels.length;
+            if (number >= capacity) {
+                capacity = Math.max(number + 1, capacity * 2);
+                grow(capacity);
+            }
+            for (int var = numVariables + 1; var <= number; var++) {
+                watches[2 * var] = new @NonNull Clause[4];
+                watches[2 * var + 1] = new @NonNull Clause[4];
+                heapIndices[var] = -1;
+                heapInsert(var);
+            }
+            numVariables = number;
+        }
+    }
+    
+    /**
+     * Grows all per-variable arrays to the given capacity.
+     * 
+     * @param capacity The new number of variable slots (including the unused slot 0).
+     */
+    private void grow(int capacity) {
+        values = notNull(Arrays.copyOf(values, 2 * capacity));
+        watches = notNull(Arrays.copyOf(watches, 2 * capacity));
+        watchCounts = notNull(Arrays.copyOf(watchCounts, 2 * capacity));
+        levels = notNull(Arrays.copyOf(levels, capacity));
+        reasons = notNull(Arrays.copyOf(reasons, capacity));
+        phases = notNull(Arrays.copyOf(phases, capacity));
+        seen = notNull(Arrays.copyOf(seen, capacity));
+        activities = notNull(Arrays.copyOf(activities, capacity));
+        model = notNull(Arrays.copyOf(model, capacity));
+        trail = notNull(Arrays.copyOf(trail, capacity));
+        trailLimits = notNull(Arrays.copyOf(trailLimits, Math.max(capacity, trailLimits.length)));
+        heap = notNull(Arrays.copyOf(heap, capacity));
+        heapIndices = notNull(Arrays.copyOf(heapIndices, capacity));
+    }
+    
+    /**
+     * Adds a clause. Unknown variables are created implicitly.
+     * 
+     * @param literals The literals of the clause, in DIMACS notation. Duplicate literals are allowed.
+     * @return <code>false</code> if the solver is now known to be unsatisfiable (without any assumptions).
+     * 
+     * @throws IllegalArgumentException If one of the literals is 0.
+     */
+    public boolean addClause(int @NonNull ... literals) throws IllegalArgumentException {
+        if (ok) {
+            int[] clause = new int[literals.length];
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i] == 0) {
+                    throw new IllegalArgumentException("0 is not a valid literal");
+                }
+                ensureVariables(Math.abs(literals[i]));
+                clause[i] = toInternal(literals[i]);
+            }
+            addInternalClause(clause);
+        }
+        return ok;
+    }
+    
+    /**
+     * Adds a clause of internal literals at decision level 0.
+     * 
+     * @param clause The internal literals; may be modified.
+     */
+    private void addInternalClause(int @NonNull [] clause) {
+        Arrays.sort(clause);
+        
+        // remove duplicates and literals that are false at level 0; skip tautologies and satisfied clauses
+        int size = 0;
+        boolean satisfied = false;
+        for (int i = 0; i < clause.length && !satisfied; i++) {
+            int lit = clause[i];
+            if (values[lit] == TRUE || (i > 0 && lit == (clause[i - 1] ^ 1))) {
+                satisfied = true;
+            } else if (values[lit] == UNDEFINED && (size == 0 || clause[size - 1] != lit)) {
+                clause[size++] = lit;
+            }
+        }
+        
+        if (!satisfied) {
+            if (size == 0) {
+                ok = false;
+            } else if (size == 1) {
+                assign(clause[0], null);
+                ok = propagate() == null;
+            } else {
+                Clause c = new Clause(notNull(Arrays.copyOf(clause, size)), false);
+                attach(c);
+                numClauses++;
+            }
+        }
+    }
+    
+    /**
+     * Adds all clauses of a CNF in DIMACS format. Comment lines (starting with <code>c</code>) are ignored, the
+     * problem line (<code>p cnf &lt;variables&gt; &lt;clauses&gt;</code>) is used to create the variables.
+     * 
+     * @param dimacs The DIMACS content, e.g. a mapped file. Read from its position to its limit.
+     * @return <code>false</code> if the solver is now known to be unsatisfiable (without any assumptions).
+     * 
+     * @throws FormatException If the content is not valid DIMACS.
+     */
+    public boolean addDimacs(@NonNull ByteBuffer dimacs) throws FormatException {
+        int[] clause = new int[16];
+        int clauseSize = 0;
+        
+        while (dimacs.hasRemaining()) {
+            byte b = dimacs.get();
+            if (b == 'c' || b == 'p') {
+                int start = dimacs.position() - 1;
+                while (dimacs.hasRemaining() && b != '\n') {
+                    b = dimacs.get();
+                }
+                if (dimacs.get(start) == 'p') {
+                    parseProblemLine(dimacs, start);
+                }
+                
+            } else if (b == '-' || (b >= '0' && b <= '9')) {
+                int literal = parseNumber(dimacs, b);
+                if (literal == 0) {
+                    addClause(notNull(Arrays.copyOf(clause, clauseSize)));
+                    clauseSize = 0;
+                } else {
+                    if (clauseSize == clause.length) {
+                        clause = notNull(Arrays.copyOf(clause, clauseSize * 2));
+                    }
+                    clause[clauseSize++] = literal;
+                }
+                
+            } else if (b == '%') {
+                // end marker used by some benchmark files
+                dimacs.position(dimacs.limit());
+                
+            } else if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                throw new FormatException("Unexpected character '" + (char) b + "' in DIMACS at byte "
+                        + (dimacs.position() - 1));
+            }
+        }
+        
+        if (clauseSize > 0) {
+            addClause(notNull(Arrays.copyOf(clause, clauseSize)));
+        }
+        return ok;
+    }
+    
+    /**
+     * Parses the DIMACS problem line, and creates the variables it declares.
+     * 
+     * @param dimacs The DIMACS buffer, positioned after the problem line.
+     * @param start The position where the problem line starts.
+     * 
+     * @throws FormatException If the problem line is malformed.
+     */
+    private void parseProblemLine(@NonNull ByteBuffer dimacs, int start) throws FormatException {
+        byte[] bytes = new byte[dimacs.position() - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = dimacs.get(start + i);
+        }
+        String[] parts = new String(bytes, StandardCharsets.US_ASCII).trim().split("\\s+");
+        if (parts.length != 4 || !parts[1].equals("cnf")) {
+            throw new FormatException("Invalid DIMACS problem line: " + String.join(" ", parts));
+        }
+        try {
+            ensureVariables(Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new FormatException(e);
+        }
+    }
+    
+    /**
+     * Parses a (possibly negative) number.
+     * 
+     * @param dimacs The DIMACS buffer, positioned after the first character of the number.
+     * @param first The first character of the number.
+     * 
+     * @return The parsed number.
+     * 
+     * @throws FormatException If the number is malformed.
+     */
+    private static int parseNumber(@NonNull ByteBuffer dimacs, byte first) throws FormatException {
+        boolean negative = first == '-';
+        long value = negative ? 0 : first - '0';
+        int numDigits = negative ? 0 : 1;
+        
+        while (dimacs.hasRemaining() && dimacs.get(dimacs.position()) >= '0' && dimacs.get(dimacs.position()) <= '9') {
+            value = value * 10 + (dimacs.get() - '0');
+            numDigits++;
+            if (value > Integer.MAX_VALUE) {
+                throw new FormatException("Literal too large in DIMACS at byte " + dimacs.position());
+            }
+        }
+        if (numDigits == 0) {
+            throw new FormatException("Missing number after '-' in DIMACS at byte " + dimacs.position());
+        }
+        return (int) (negative ? -value : value);
+    }
+    
+    /**
+     * Checks whether the clauses are satisfiable under the given assumptions. The assumptions only hold for this call.
+     * 
+     * @param assumptions Literals (in DIMACS notation) that are assumed to be true. Unknown variables are created.
+     * @return Whether a satisfying assignment exists. If so, it can be retrieved via {@link #getModelValue(int)}.
+     */
+    public boolean solve(int @NonNull ... assumptions) {
+        int[] internalAssumptions = new int[assumptions.length];
+        for (int i = 0; i < assumptions.length; i++) {
+            ensureVariables(Math.abs(assumptions[i]));
+            internalAssumptions[i] = toInternal(assumptions[i]);
+        }
+        
+        byte status = ok ? UNDEFINED : FALSE;
+        int numRestarts = 0;
+        while (status == UNDEFINED) {
+            status = search(internalAssumptions, luby(numRestarts++) * RESTART_BASE);
+            maxLearned *= 1.05;
+        }
+        cancelUntil(0);
+        maxLearned = Math.max(MIN_MAX_LEARNED, numClauses / 3.0);
+        
+        return status == TRUE;
+    }
+    
+    /**
+     * Returns the value of a variable in the satisfying assignment found by the last successful call to
+     * {@link #solve(int...)}.
+     * 
+     * @param variable The variable number.
+     * @return The value of the variable in the model.
+     */
+    public boolean getModelValue(int variable) {
+        return variable <= numVariables && model[variable];
+    }
+    
+    /**
+     * Searches for a satisfying assignment, until the given number of conflicts is reached.
+     * 
+     * @param assumptions The internal assumption literals.
+     * @param maxConflicts The number of conflicts after which the search is restarted.
+     * 
+     * @return {@link #TRUE} if satisfiable, {@link #FALSE} if unsatisfiable (under the assumptions), or
+     *      {@link #UNDEFINED} if a restart is due.
+     */
+    private byte search(int @NonNull [] assumptions, long maxConflicts) {
+        byte result = UNDEFINED;
+        long conflicts = 0;
+        
+        while (result == UNDEFINED) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                numConflicts++;
+                conflicts++;
+                if (decisionLevel == 0) {
+                    ok = false;
+                    result = FALSE;
+                } else {
+                    learn(conflict);
+                }
+                
+            } else if (conflicts >= maxConflicts) {
+                cancelUntil(0);
+                break;
+                
+            } else {
+                if (learnedClauses.size() - trailSize >= maxLearned) {
+                    reduceLearnedClauses();
+                }
+                
+                int next = -1;
+                while (next == -1 && decisionLevel < assumptions.length) {
+                    int assumption = assumptions[decisionLevel];
+                    if (values[assumption] == TRUE) {
+                        newDecisionLevel(); // already implied; use a dummy level to keep the indices in sync
+                    } else if (values[assumption] == FALSE) {
+                        result = FALSE; // the assumptions contradict the clauses
+                        break;
+                    } else {
+                        next = assumption;
+                    }
+                }
+                
+                if (result == UNDEFINED) {
+                    if (next == -1) {
+                        next = pickBranchLiteral();
+                    }
+                    if (next == -1) {
+                        saveModel();
+                        result = TRUE;
+                    } else {
+                        numDecisions++;
+                        newDecisionLevel();
+                        assign(next, null);
+                    }
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Analyzes the given conflict, backtracks and adds the learned clause.
+     * 
+     * @param conflict The conflicting clause.
+     */
+    private void learn(@NonNull Clause conflict) {
+        int[] learned = analyze(conflict);
+        
+        // backtrack to the second highest level in the learned clause, and put the literal of that level second
+        int backtrackLevel = 0;
+        if (learned.length > 1) {
+            int maxIndex = 1;
+            for (int i = 2; i < learned.length; i++) {
+                if (levels[learned[i] >> 1] > levels[learned[maxIndex] >> 1]) {
+                    maxIndex = i;
+                }
+            }
+            int tmp = learned[1];
+            learned[1] = learned[maxIndex];
+            learned[maxIndex] = tmp;
+            backtrackLevel = levels[learned[1] >> 1];
+        }
+        cancelUntil(backtrackLevel);
+        
+        if (learned.length == 1) {
+            assign(learned[0], null);
+        } else {
+            Clause c = new Clause(learned, true);
+            attach(c);
+            learnedClauses.add(c);
+            bumpClause(c);
+            assign(learned[0], c);
+        }
+        
+        variableIncrement /= VARIABLE_DECAY;
+        clauseIncrement /= CLAUSE_DECAY;
+    }
+    
+    /**
+     * Computes the first-UIP clause for the given conflict, and minimizes it.
+     * 
+     * @param conflict The conflicting clause.
+     * @return The learned clause; the first literal is the asserting one.
+     */
+    private int @NonNull [] analyze(@NonNull Clause conflict) {
+        int[] learned = new int[8];
+        int learnedSize = 1; // slot 0 is reserved for the asserting literal
+        
+        int pathCount = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        Clause reason = conflict;
+        do {
+            if (reason.learned) {
+                bumpClause(reason);
+            }
+            int[] lits = reason.literals;
+            for (int i = lit == -1 ? 0 : 1; i < lits.length; i++) {
+                int var = lits[i] >> 1;
+                if (!seen[var] && levels[var] > 0) {
+                    bumpVariable(var);
+                    seen[var] = true;
+                    if (levels[var] >= decisionLevel) {
+                        pathCount++;
+                    } else {
+                        if (learnedSize == learned.length) {
+                            learned = notNull(Arrays.copyOf(learned, learnedSize * 2));
+                        }
+                        learned[learnedSize++] = lits[i];
+                    }
+                }
+            }
+            
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            lit = trail[index--];
+            reason = reasons[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learned[0] = lit ^ 1;
+        
+        // remove literals that are implied by the other literals of the clause
+        int[] result = new int[learnedSize];
+        result[0] = learned[0];
+        int size = 1;
+        for (int i = 1; i < learnedSize; i++) {
+            if (!isRedundant(learned[i])) {
+                result[size++] = learned[i];
+            }
+        }
+        for (int i = 1; i < learnedSize; i++) {
+            seen[learned[i] >> 1] = false;
+        }
+        
+        return notNull(Arrays.copyOf(result, size));
+    }
+    
+    /**
+     * Checks whether the given literal of a learned clause is redundant, i.e. whether all other literals of its reason
+     * are already in the learned clause (or assigned at level 0).
+     * 
+     * @param lit The literal of the learned clause.
+     * @return Whether the literal can be removed from the learned clause.
+     */
+    private boolean isRedundant(int lit) {
+        Clause reason = reasons[lit >> 1];
+        boolean redundant = reason != null;
+        if (reason != null) {
+            int[] lits = reason.literals;
+            for (int i = 1; i < lits.length && redundant; i++) {
+                int var = lits[i] >> 1;
+                redundant = seen[var] || levels[var] == 0;
+            }
+        }
+        return redundant;
+    }
+    
+    /**
+     * Propagates all assignments on the trail that were not yet propagated.
+     * 
+     * @return The conflicting clause, or <code>null</code> if no conflict occurred.
+     */
+    private @Nullable Clause propagate() {
+        Clause conflict = null;
+        while (conflict == null && propagationHead < trailSize) {
+            int falseLit = trail[propagationHead++] ^ 1;
+            numPropagations++;
+            
+            Clause[] watchList = watches[falseLit];
+            int count = watchCounts[falseLit];
+            int kept = 0;
+            int i = 0;
+            while (i < count) {
+                Clause c = notNull(watchList[i++]);
+                if (c.deleted) {
+                    continue; // lazily removed
+                }
+                
+                int[] lits = c.literals;
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                
+                if (values[lits[0]] != TRUE && !findNewWatch(c)) {
+                    watchList[kept++] = c;
+                    if (values[lits[0]] == FALSE) {
+                        conflict = c;
+                        while (i < count) {
+                            watchList[kept++] = watchList[i++];
+                        }
+                    } else {
+                        assign(lits[0], c);
+                    }
+                } else if (lits[1] == falseLit) {
+                    watchList[kept++] = c;
+                }
+            }
+            Arrays.fill(watchList, kept, count, null);
+            watchCounts[falseLit] = kept;
+        }
+        if (conflict != null) {
+            propagationHead = trailSize;
+        }
+        return conflict;
+    }
+    
+    /**
+     * Tries to find a new literal to watch instead of the second literal of the given clause, which became false.
+     * 
+     * @param clause The clause.
+     * @return Whether a new (non-false) literal was found and is now watched.
+     */
+    private boolean findNewWatch(@NonNull Clause clause) {
+        boolean found = false;
+        int[] lits = clause.literals;
+        for (int k = 2; k < lits.length && !found; k++) {
+            if (values[lits[k]] != FALSE) {
+                int tmp = lits[1];
+                lits[1] = lits[k];
+                lits[k] = tmp;
+                addWatch(lits[1], clause);
+                found = true;
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Adds the watches for the first two literals of the given clause.
+     * 
+     * @param clause The clause to watch.
+     */
+    private void attach(@NonNull Clause clause) {
+        addWatch(clause.literals[0], clause);
+        addWatch(clause.literals[1], clause);
+    }
+    
+    /**
+     * Adds a clause to the watch list of a literal.
+     * 
+     * @param lit The watched literal.
+     * @param clause The clause that watches the literal.
+     */
+    private void addWatch(int lit, @NonNull Clause clause) {
+        Clause[] watchList = watches[lit];
+        int count = watchCounts[lit];
+        if (count == watchList.length) {
+            watchList = notNull(Arrays.copyOf(watchList, count * 2));
+            watches[lit] = watchList;
+        }
+        watchList[count] = clause;
+        watchCounts[lit] = count + 1;
+    }
+    
+    /**
+     * Removes the less active half of the learned clauses. Binary clauses and clauses that are the reason for a
+     * current assignment are kept.
+     */
+    private void reduceLearnedClauses() {
+        learnedClauses.sort((c1, c2) -> Double.compare(c1.activity, c2.activity));
+        
+        int half = learnedClauses.size() / 2;
+        List<@NonNull Clause> kept = new ArrayList<>(learnedClauses.size() - half);
+        for (int i = 0; i < learnedClauses.size(); i++) {
+            Clause c = notNull(learnedClauses.get(i));
+            int first = c.literals[0];
+            boolean locked = values[first] == TRUE && reasons[first >> 1] == c;
+            if (i < half && c.literals.length > 2 && !locked) {
+                c.deleted = true;
+            } else {
+                kept.add(c);
+            }
+        }
+        learnedClauses = kept;
+    }
+    
+    /**
+     * Assigns the given literal to true.
+     * 
+     * @param lit The internal literal.
+     * @param reason The clause that implied the literal, or <code>null</code> for decisions and level 0 facts.
+     */
+    private void assign(int lit, @Nullable Clause reason) {
+        int var = lit >> 1;
+        values[lit] = TRUE;
+        values[lit ^ 1] = FALSE;
+        levels[var] = decisionLevel;
+        reasons[var] = reason;
+        trail[trailSize++] = lit;
+    }
+    
+    /**
+     * Opens a new decision level.
+     */
+    private void newDecisionLevel() {
+        if (decisionLevel == trailLimits.length) {
+            // dummy levels for duplicate assumptions may exceed the number of variables
+            trailLimits = notNull(Arrays.copyOf(trailLimits, decisionLevel * 2));
+        }
+        trailLimits[decisionLevel++] = trailSize;
+    }
+    
+    /**
+     * Reverts all assignments above the given decision level.
+     * 
+     * @param level The decision level to backtrack to.
+     */
+    private void cancelUntil(int level) {
+        if (decisionLevel > level) {
+            for (int i = trailSize - 1; i >= trailLimits[level]; i--) {
+                int lit = trail[i];
+                int var = lit >> 1;
+                values[lit] = UNDEFINED;
+                values[lit ^ 1] = UNDEFINED;
+                reasons[var] = null;
+                phases[var] = (lit & 1) == 0;
+                if (heapIndices[var] == -1) {
+                    heapInsert(var);
+                }
+            }
+            trailSize = trailLimits[level];
+            propagationHead = trailSize;
+            decisionLevel = level;
+        }
+    }
+    
+    /**
+     * Picks the unassigned variable with the highest activity, and returns it in its saved phase.
+     * 
+     * @return The internal literal to decide, or <code>-1</code> if all variables are assigned.
+     */
+    private int pickBranchLiteral() {
+        int result = -1;
+        while (result == -1 && heapSize > 0) {
+            int var = heapRemoveMax();
+            if (values[2 * var] == UNDEFINED) {
+                result = 2 * var + (phases[var] ? 0 : 1);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Stores the current (complete) assignment as the model.
+     */
+    private void saveModel() {
+        for (int var = 1; var <= numVariables; var++) {
+            model[var] = values[2 * var] == TRUE;
+        }
+    }
+    
+    /**
+     * Increases the activity of a variable.
+     * 
+     * @param var The variable.
+     */
+    private void bumpVariable(int var) {
+        activities[var] += variableIncrement;
+        if (activities[var] > 1e100) {
+            for (int i = 1; i <= numVariables; i++) {
+                activities[i] *= 1e-100;
+            }
+            variableIncrement *= 1e-100;
+        }
+        if (heapIndices[var] != -1) {
+            heapUp(heapIndices[var]);
+        }
+    }
+    
+    /**
+     * Increases the activity of a learned clause.
+     * 
+     * @param clause The clause.
+     */
+    private void bumpClause(@NonNull Clause clause) {
+        clause.activity += clauseIncrement;
+        if (clause.activity > 1e20) {
+            for (Clause c : learnedClauses) {
+                c.activity *= 1e-20;
+            }
+            clauseIncrement *= 1e-20;
+        }
+    }
+    
+    /**
+     * Inserts a variable into the activity heap.
+     * 
+     * @param var The variable.
+     */
+    private void heapInsert(int var) {
+        heap[heapSize] = var;
+        heapIndices[var] = heapSize;
+        heapUp(heapSize++);
+    }
+    
+    /**
+     * Removes the variable with the highest activity from the heap.
+     * 
+     * @return The removed variable.
+     */
+    private int heapRemoveMax() {
+        int result = heap[0];
+        heapIndices[result] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndices[heap[0]] = 0;
+            heapDown(0);
+        }
+        return result;
+    }
+    
+    /**
+     * Moves the heap element at the given index up, until the heap property is restored.
+     * 
+     * @param index The index of the element.
+     */
+    private void heapUp(int index) {
+        int var = heap[index];
+        int i = index;
+        while (i > 0 && activities[heap[(i - 1) / 2]] < activities[var]) {
+            int parent = (i - 1) / 2;
+            heap[i] = heap[parent];
+            heapIndices[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = var;
+        heapIndices[var] = i;
+    }
+    
+    /**
+     * Moves the heap element at the given index down, until the heap property is restored.
+     * 
+     * @param index The index of the element.
+     */
+    private void heapDown(int index) {
+        int var = heap[index];
+        int i = index;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) {
+                child++;
+            }
+            if (activities[heap[child]] <= activities[var]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndices[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = var;
+        heapIndices[var] = i;
+    }
+    
+    /**
+     * Converts a DIMACS literal into an internal literal (<code>2 * variable + sign</code>).
+     * 
+     * @param literal The DIMACS literal.
+     * @return The internal literal.
+     */
+    private static int toInternal(int literal) {
+        return literal > 0 ? 2 * literal : -2 * literal + 1;
+    }
+    
+    /**
+     * Computes the Luby sequence (1, 1, 2, 1, 1, 2, 4, 1, ...), used for the restart intervals.
+     * 
+     * @param index The index in the sequence, starting at 0.
+     * @return The value of the sequence at the given index.
+     */
+    static long luby(int index) {
+        int size = 1;
+        int sequence = 0;
+        while (size < index + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        
+        int x = index;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            sequence--;
+            x = x % size;
+        }
+        return 1L << sequence;
+    }
+    
+}
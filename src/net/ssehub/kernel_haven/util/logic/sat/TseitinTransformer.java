@@ -0,0 +1,395 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.sat;
+
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.NaryFormula;
+import net.ssehub.kernel_haven.util.logic.NaryFormula.Operator;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Converts {@link Formula}s into equisatisfiable CNF, using the Tseitin transformation. Instead of distributing
+ * operations (which may grow exponentially), each AND or OR operation is represented by a fresh auxiliary variable
+ * that is defined by a linear number of clauses. Nested operations of the same kind are flattened first (see
+ * {@link NaryFormula}), so that a chain of n conjuncts needs only one auxiliary variable.
+ * <p>
+ * In Plaisted-Greenbaum mode, only the direction of each definition that is required by the polarity in which the
+ * operation occurs is created; this roughly halves the number of clauses. Top-level conjunctions and disjunctions are
+ * converted into clauses directly, without auxiliary variables.
+ * </p>
+ * <p>
+ * Variables with a known number (e.g. the DIMACS numbers of the variability model) use that number; all other
+ * variables and the auxiliary variables get fresh numbers above the highest known number. The clauses are passed to a
+ * {@link ClauseSink} as soon as they are created, e.g. a {@link DimacsWriter} or a {@link SatSolver}.
+ * </p>
+ *
+ * @author Adam
+ */
+public class TseitinTransformer {
+
+    /**
+     * Receives the clauses created by a {@link TseitinTransformer}.
+     */
+    public static interface ClauseSink {
+        
+        /**
+         * Receives a clause.
+         * 
+         * @param literals The literals of the clause, in DIMACS notation. Must not be modified.
+         * 
+         * @throws IOException If writing the clause fails.
+         */
+        public void addClause(int @NonNull ... literals) throws IOException;
+        
+    }
+    
+    private static final int POSITIVE = 1;
+    
+    private static final int NEGATIVE = 2;
+    
+    private static final int BOTH = POSITIVE | NEGATIVE;
+    
+    private @NonNull ClauseSink sink;
+    
+    private boolean plaistedGreenbaum;
+    
+    private @NonNull Map<String, Integer> variables;
+    
+    private int numVariables;
+    
+    private long numClauses;
+    
+    /**
+     * The defined operations, mapped to <code>{variable, created polarities}</code>.
+     */
+    private @NonNull Map<NaryFormula, int[]> definitions;
+    
+    private int trueLiteral;
+    
+    /**
+     * Creates a transformer.
+     * 
+     * @param sink The sink to pass the created clauses to.
+     * @param knownVariables The known variable numbers, e.g. the DIMACS numbers of the variability model.
+     * @param plaistedGreenbaum Whether only the required direction of each definition should be created.
+     */
+    public TseitinTransformer(@NonNull ClauseSink sink, @NonNull Map<String, Integer> knownVariables,
+            boolean plaistedGreenbaum) {
+        
+        this.sink = sink;
+        this.plaistedGreenbaum = plaistedGreenbaum;
+        this.variables = new HashMap<>(knownVariables);
+        for (Integer number : knownVariables.values()) {
+            numVariables = Math.max(numVariables, number);
+        }
+        this.definitions = new HashMap<>();
+    }
+    
+    /**
+     * Makes sure that fresh variables are numbered above the given number. Useful if the target already contains
+     * variables that are not in the known variables.
+     * 
+     * @param number The highest number that must not be used for fresh variables.
+     */
+    public void reserveVariables(int number) {
+        numVariables = Math.max(numVariables, number);
+    }
+    
+    /**
+     * Returns the highest variable number used so far.
+     * 
+     * @return The number of variables.
+     */
+    public int getNumVariables() {
+        return numVariables;
+    }
+    
+    /**
+     * Returns the number of clauses created so far.
+     * 
+     * @return The number of clauses.
+     */
+    public long getNumClauses() {
+        return numClauses;
+    }
+    
+    /**
+     * Returns the numbers of all named variables (the known ones and those created for unknown names). Auxiliary
+     * variables are not contained.
+     * 
+     * @return An unmodifiable mapping of variable names to numbers.
+     */
+    public @NonNull Map<String, Integer> getVariables() {
+        return notNull(Collections.unmodifiableMap(variables));
+    }
+    
+    /**
+     * Returns the number of the given variable. A fresh number is assigned to unknown variables.
+     * 
+     * @param name The name of the variable.
+     * @return The variable number.
+     */
+    public int getVariable(@NonNull String name) {
+        Integer result = variables.get(name);
+        if (result == null) {
+            result = ++numVariables;
+            variables.put(name, result);
+        }
+        return result;
+    }
+    
+    /**
+     * Forgets all definitions of operations. Subsequent formulas will define their operations anew. This keeps the
+     * memory constant when many independent formulas are converted, at the cost of not sharing definitions between
+     * them.
+     */
+    public void clearDefinitions() {
+        definitions.clear();
+    }
+    
+    /**
+     * Adds clauses that require the given formula to be true.
+     * 
+     * @param formula The formula to assert.
+     * 
+     * @throws IOException If the sink throws an exception.
+     */
+    public void addFormula(@NonNull Formula formula) throws IOException {
+        Deque<@NonNull Formula> conjuncts = new ArrayDeque<>();
+        conjuncts.push(formula);
+        while (!conjuncts.isEmpty()) {
+            Formula current = notNull(conjuncts.pop());
+            Operator op = NaryFormula.getOperator(current);
+            
+            if (op == Operator.AND) {
+                NaryFormula nary = (NaryFormula) NaryFormula.flatten(current);
+                for (int i = nary.getOperandCount() - 1; i >= 0; i--) {
+                    conjuncts.push(nary.getOperand(i));
+                }
+                
+            } else if (op == Operator.OR) {
+                NaryFormula nary = (NaryFormula) NaryFormula.flatten(current);
+                int[] clause = new int[nary.getOperandCount()];
+                for (int i = 0; i < clause.length; i++) {
+                    clause[i] = encode(nary.getOperand(i), POSITIVE);
+                }
+                emit(clause);
+                
+            } else if (!(current instanceof True)) {
+                emit(encode(current, POSITIVE));
+            }
+        }
+    }
+    
+    /**
+     * Returns a literal that represents the given formula, adding the required definitions. Asserting the literal
+     * (e.g. as an assumption of a {@link SatSolver}) is equisatisfiable to asserting the formula. In Tseitin mode, the
+     * literal is equivalent to the formula.
+     * 
+     * @param formula The formula to encode.
+     * @return The literal representing the formula.
+     * 
+     * @throws IOException If the sink throws an exception.
+     */
+    public int encode(@NonNull Formula formula) throws IOException {
+        return encode(formula, POSITIVE);
+    }
+    
+    /**
+     * Returns a literal that represents the given formula in the given polarity.
+     * 
+     * @param formula The formula to encode.
+     * @param polarity {@link #POSITIVE}, {@link #NEGATIVE} or {@link #BOTH}.
+     * 
+     * @return The literal representing the formula.
+     * 
+     * @throws IOException If the sink throws an exception.
+     */
+    private int encode(@NonNull Formula formula, int polarity) throws IOException {
+        int result;
+        if (formula instanceof Variable) {
+            result = getVariable(((Variable) formula).getName());
+            
+        } else if (formula instanceof Negation) {
+            result = -encode(((Negation) formula).getFormula(), flip(polarity));
+            
+        } else if (formula instanceof True) {
+            result = getTrueLiteral();
+            
+        } else if (formula instanceof False) {
+            result = -getTrueLiteral();
+            
+        } else if (NaryFormula.getOperator(formula) != null) {
+            // canonical flattening lets equal operations share a definition, but may remove duplicate operands
+            Formula flattened = NaryFormula.flatten(formula, true);
+            if (flattened instanceof NaryFormula) {
+                result = define((NaryFormula) flattened, plaistedGreenbaum ? polarity : BOTH);
+            } else {
+                result = encode(flattened, polarity);
+            }
+            
+        } else {
+            throw new IllegalArgumentException("Unsupported formula type: " + formula.getClass().getName());
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the auxiliary variable for the given operation, and creates the missing directions of its definition.
+     * 
+     * @param formula The operation.
+     * @param polarity The polarities in which the definition is required.
+     * 
+     * @return The auxiliary variable.
+     * 
+     * @throws IOException If the sink throws an exception.
+     */
+    private int define(@NonNull NaryFormula formula, int polarity) throws IOException {
+        int[] definition = definitions.get(formula);
+        if (definition == null) {
+            definition = new int[] {++numVariables, 0};
+            definitions.put(formula, definition);
+        }
+        
+        int missing = polarity & ~definition[1];
+        if (missing != 0) {
+            definition[1] |= missing;
+            int x = definition[0];
+            
+            int[] operands = new int[formula.getOperandCount()];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = encode(formula.getOperand(i), missing);
+            }
+            
+            // AND: x -> each operand (positive), all operands -> x (negative)
+            // OR is the dual: x -> some operand (positive), each operand -> x (negative)
+            boolean isAnd = formula.getOperator() == Operator.AND;
+            if ((missing & (isAnd ? POSITIVE : NEGATIVE)) != 0) {
+                for (int operand : operands) {
+                    emit(isAnd ? -x : x, isAnd ? operand : -operand);
+                }
+            }
+            if ((missing & (isAnd ? NEGATIVE : POSITIVE)) != 0) {
+                int[] clause = new int[operands.length + 1];
+                clause[0] = isAnd ? x : -x;
+                for (int i = 0; i < operands.length; i++) {
+                    clause[i + 1] = isAnd ? -operands[i] : operands[i];
+                }
+                emit(clause);
+            }
+        }
+        
+        return definition[0];
+    }
+    
+    /**
+     * Returns a literal that is always true, creating it on first use.
+     * 
+     * @return The literal for <code>true</code>.
+     * 
+     * @throws IOException If the sink throws an exception.
+     */
+    private int getTrueLiteral() throws IOException {
+        if (trueLiteral == 0) {
+            trueLiteral = ++numVariables;
+            emit(trueLiteral);
+        }
+        return trueLiteral;
+    }
+    
+    /**
+     * Passes a clause to the sink.
+     * 
+     * @param clause The clause.
+     * 
+     * @throws IOException If the sink throws an exception.
+     */
+    private void emit(int @NonNull ... clause) throws IOException {
+        numClauses++;
+        sink.addClause(clause);
+    }
+    
+    /**
+     * Swaps the positive and negative polarity.
+     * 
+     * @param polarity The polarity.
+     * @return The flipped polarity.
+     */
+    private static int flip(int polarity) {
+        return ((polarity & POSITIVE) << 1) | ((polarity & NEGATIVE) >> 1);
+    }
+    
+    /**
+     * Converts the given formulas to CNF and writes them as a DIMACS file. The formulas are converted twice: first to
+     * count the variables and clauses for the problem line, then to write the clauses. Thus, the given formulas must
+     * be iterable twice, but don't need to be kept in memory (e.g. if they are parsed lazily). Definitions are not
+     * shared between formulas, so the memory is bounded by the largest formula.
+     * <p>
+     * The output starts with a <code>c &lt;number&gt; &lt;name&gt;</code> comment for each named variable, as read by
+     * the DIMACS variability model extractor.
+     * </p>
+     * 
+     * @param formulas The formulas to write; all of them are asserted.
+     * @param knownVariables The known variable numbers, e.g. the DIMACS numbers of the variability model.
+     * @param plaistedGreenbaum Whether to use the Plaisted-Greenbaum transformation.
+     * @param out The writer to write to. Should be buffered; is not closed.
+     * 
+     * @throws IOException If writing fails.
+     */
+    public static void writeDimacs(@NonNull Iterable<@NonNull Formula> formulas,
+            @NonNull Map<String, Integer> knownVariables, boolean plaistedGreenbaum, @NonNull Writer out)
+            throws IOException {
+        
+        TseitinTransformer counter = new TseitinTransformer((clause) -> { }, knownVariables, plaistedGreenbaum);
+        for (Formula formula : formulas) {
+            counter.addFormula(formula);
+            counter.clearDefinitions();
+        }
+        
+        DimacsWriter writer = new DimacsWriter(out);
+        Map<Integer, String> names = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : counter.getVariables().entrySet()) {
+            names.put(entry.getValue(), entry.getKey());
+        }
+        for (Map.Entry<Integer, String> entry : names.entrySet()) {
+            writer.writeVariable(notNull(entry.getKey()), notNull(entry.getValue()));
+        }
+        writer.writeHeader(counter.getNumVariables(), counter.getNumClauses());
+        
+        // the second pass assigns the same numbers, since the conversion is deterministic
+        TseitinTransformer transformer = new TseitinTransformer(writer, knownVariables, plaistedGreenbaum);
+        for (Formula formula : formulas) {
+            transformer.addFormula(formula);
+            transformer.clearDefinitions();
+        }
+    }
+    
+}
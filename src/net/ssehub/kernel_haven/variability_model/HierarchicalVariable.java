@@ -33,8 +33,6 @@ import net.ssehub.kernel_haven.util.null_checks.Nullable;
 /**
  * A {@link VariabilityVariable} that has additional information about the hierarchy of variables.
  * 
- * TODO: serialization
- * 
  * @author Adam
  */
 public class HierarchicalVariable extends VariabilityVariable {
@@ -45,6 +43,16 @@ public class HierarchicalVariable extends VariabilityVariable {
     
     private int nestingDepth;
     
+    /**
+     * The table that the lazy hierarchy below points into. <code>null</code> if the hierarchy is resolved.
+     * Volatile, so that the resolved parent and children are visible once this is <code>null</code>.
+     */
+    private volatile @Nullable VariableTable lazyTable;
+    
+    private int lazyParent;
+    
+    private int @Nullable [] lazyChildren;
+    
     /**
      * Creates a {@link HierarchicalVariable}.
      * 
@@ -91,6 +99,7 @@ public class HierarchicalVariable extends VariabilityVariable {
      * @return The parent variable. <code>null</code> if this variable has no parent.
      */
     public @Nullable HierarchicalVariable getParent() {
+        resolveLazyHierarchy();
         return parent;
     }
     
@@ -104,16 +113,18 @@ public class HierarchicalVariable extends VariabilityVariable {
      * @param parent The new parent for this variable.
      */
     public void setParent(@Nullable HierarchicalVariable parent) {
+        resolveLazyHierarchy();
+        
         // remove from previous
         HierarchicalVariable previousParent = this.parent;
         if (previousParent != null) {
-            previousParent.children.remove(this);
+            previousParent.getChildren().remove(this);
         }
         
         // add to new
         this.parent = parent;
         if (null != parent) {
-            parent.children.add(this);
+            parent.getChildren().add(this);
             this.nestingDepth = parent.nestingDepth + 1;
         } else {
             this.nestingDepth = 0;
@@ -135,9 +146,48 @@ public class HierarchicalVariable extends VariabilityVariable {
      * @return The children of this variable.
      */
     public @NonNull Set<@NonNull HierarchicalVariable> getChildren() {
+        resolveLazyHierarchy();
         return children;
     }
     
+    /**
+     * Sets the parent and children as indices into a {@link VariableTable}. They are resolved when they are first
+     * accessed. This should only be called by the {@link JsonVariabilityModelCache}, which ensures that all indices
+     * point to {@link HierarchicalVariable}s.
+     * 
+     * @param table The table that the indices point into.
+     * @param parent The index of the parent; -1 if this variable has no parent.
+     * @param children The indices of the children.
+     */
+    synchronized void setLazyHierarchy(@NonNull VariableTable table, int parent, int @NonNull [] children) {
+        this.lazyParent = parent;
+        this.lazyChildren = children;
+        this.lazyTable = table;
+    }
+    
+    /**
+     * Resolves the hierarchy set by {@link #setLazyHierarchy(VariableTable, int, int[])}, if this hasn't happened
+     * yet.
+     */
+    private void resolveLazyHierarchy() {
+        if (lazyTable == null) {
+            return;
+        }
+        synchronized (this) {
+            VariableTable table = lazyTable;
+            if (table != null) {
+                this.parent = lazyParent >= 0 ? (HierarchicalVariable) table.get(lazyParent) : null;
+                int[] lazyChildren = this.lazyChildren;
+                if (lazyChildren != null) {
+                    this.children = table.resolve(lazyChildren);
+                }
+                
+                this.lazyChildren = null;
+                this.lazyTable = null;
+            }
+        }
+    }
+    
     /**
      * Returns the nesting depth of this variable. This is the number of parents above this variable. 0 means top level.
      * 
@@ -151,6 +201,7 @@ public class HierarchicalVariable extends VariabilityVariable {
     protected @NonNull JsonObject toJson() {
         JsonObject result = super.toJson();
         
+        HierarchicalVariable parent = getParent();
         if (parent != null) {
             result.putElement("parent", new JsonString(parent.getName()));
         } else {
@@ -158,7 +209,7 @@ public class HierarchicalVariable extends VariabilityVariable {
         }
         
         JsonList childrenList = new JsonList();
-        for (VariabilityVariable child : children) {
+        for (VariabilityVariable child : getChildren()) {
             childrenList.addElement(new JsonString(child.getName()));
         }
         result.putElement("children", childrenList);
@@ -173,7 +224,9 @@ public class HierarchicalVariable extends VariabilityVariable {
             throws FormatException {
         super.setJsonData(data, vars);
         
-        if (data.getElement("parent") != JsonNull.INSTANCE) {
+        // parent and children are missing if the cache sets them via setLazyHierarchy()
+        JsonElement parentJson = data.getElement("parent");
+        if (parentJson != null && parentJson != JsonNull.INSTANCE) {
             VariabilityVariable var = vars.get(data.getString("parent"));
             
             if (var == null) {
@@ -187,23 +240,25 @@ public class HierarchicalVariable extends VariabilityVariable {
             this.parent = (HierarchicalVariable) var;
         }
         
-        for (JsonElement element : data.getList("children")) {
-            if (!(element instanceof JsonString)) {
-                throw new FormatException("Expected JsonString, but got " + element.getClass().getSimpleName());
-            }
-            
-            String varName = ((JsonString) element).getValue();
-            VariabilityVariable var = vars.get(varName);
-            
-            if (var == null) {
-                throw new FormatException("Unknown variable " + varName);
-            }
-            if (!(var instanceof HierarchicalVariable)) {
-                throw new FormatException(varName + " is not a hierarchical variable");
+        if (data.getElement("children") != null) {
+            for (JsonElement element : data.getList("children")) {
+                if (!(element instanceof JsonString)) {
+                    throw new FormatException("Expected JsonString, but got " + element.getClass().getSimpleName());
+                }
+                
+                String varName = ((JsonString) element).getValue();
+                VariabilityVariable var = vars.get(varName);
                 
+                if (var == null) {
+                    throw new FormatException("Unknown variable " + varName);
+                }
+                if (!(var instanceof HierarchicalVariable)) {
+                    throw new FormatException(varName + " is not a hierarchical variable");
+                
+                }
+                
+                children.add((HierarchicalVariable) var);
             }
-            
-            children.add((HierarchicalVariable) var);
         }
         
         this.nestingDepth = data.getInt("nestingDepth");
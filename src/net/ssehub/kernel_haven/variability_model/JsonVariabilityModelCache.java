@@ -17,15 +17,20 @@ package net.ssehub.kernel_haven.variability_model;
 
 import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
 
-import java.io.BufferedWriter;
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -34,14 +39,15 @@ import java.util.Set;
 
 import net.ssehub.kernel_haven.provider.AbstractCache;
 import net.ssehub.kernel_haven.util.FormatException;
-import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
 import net.ssehub.kernel_haven.util.io.json.JsonElement;
 import net.ssehub.kernel_haven.util.io.json.JsonList;
+import net.ssehub.kernel_haven.util.io.json.JsonNull;
 import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
-import net.ssehub.kernel_haven.util.io.json.JsonParser;
-import net.ssehub.kernel_haven.util.io.json.JsonPrettyPrinter;
+import net.ssehub.kernel_haven.util.io.json.JsonReader;
 import net.ssehub.kernel_haven.util.io.json.JsonString;
+import net.ssehub.kernel_haven.util.io.json.JsonWriter;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.util.null_checks.Nullable;
 import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.Attribute;
@@ -50,15 +56,38 @@ import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.Vari
 
 /**
  * A cache for permanently saving (and reading) a {@link VariabilityModel} to a file. Uses JSON for data representation.
+ * <p>
+ * The constraint model is not part of the JSON file. It is copied as-is into a side file in the cache directory, whose
+ * name contains the SHA-256 hash of its content. When reading, the {@link VariabilityModel} directly points to this
+ * side file, so that it can be read (or memory-mapped, see {@link VariabilityModel#mapConstraintModel()}) on demand
+ * instead of being copied. The side file is never compressed.
+ * <p>
+ * The variables are stored in a compact, indexed form: the class names are stored once in a table, and the relations
+ * between variables (constraint usage and hierarchy) are stored as indices into the list of variables. These
+ * relations are only resolved into sets of variables when they are first accessed.
  * 
  * @author Adam
  */
 public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
 
-    private static final int VERSION = 5;
+    private static final int VERSION = 6;
+    
+    /**
+     * The oldest version that can still be read. Version 5 contains the constraint model as a JSON string and refers
+     * to variables by name.
+     */
+    private static final int MIN_VERSION = 5;
+    
+    private static final @NonNull String CONSTRAINT_FILE_PREFIX = "vmCache.";
+    
+    private static final @NonNull String CONSTRAINT_FILE_SUFFIX = ".constraints";
+    
+    private @NonNull File cacheDir;
     
     private @NonNull File cacheFile;
     
+    private @NonNull CompressionCodec codec;
+    
     /**
      * Creates a new cache in the given cache directory.
      * 
@@ -66,51 +95,165 @@ public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
      *      read and write to it.
      */
     public JsonVariabilityModelCache(@NonNull File cacheDir) {
+        this(cacheDir, CompressionCodec.NONE);
+    }
+    
+    /**
+     * Creates a new cache in the given cache directory.
+     * 
+     * @param cacheDir The directory where to store the cache files. This must be a directory, and we must be able to
+     *      read and write to it.
+     * @param codec The codec that the cache file is written with. A cache file written by any other codec is still
+     *      read. The constraint model side file is never compressed.
+     */
+    public JsonVariabilityModelCache(@NonNull File cacheDir, @NonNull CompressionCodec codec) {
+        this.cacheDir = cacheDir;
         this.cacheFile = new File(cacheDir, "vmCache.json");
+        this.codec = codec;
     }
     
     @Override
     public @Nullable VariabilityModel read(@NonNull File target) throws FormatException, IOException {
-        JsonObject data = null;
-        VariabilityModel result = null;
+        InputStream in = CompressionCodec.openFile(cacheFile);
         
-        try (JsonParser parser = new JsonParser(cacheFile)) {
-            
-            JsonElement parsed = parser.parse();
-            if (!(parsed instanceof JsonObject)) {
-                throw new FormatException("Expected JSON object, got " + parsed.getClass().getSimpleName());
+        VariabilityModel result = null;
+        if (in != null) {
+            try (JsonReader reader = new JsonReader(in)) {
+                result = read(reader);
             }
-            
-            data = (JsonObject) parsed;
-            
-        } catch (FileNotFoundException e) {
-            // ignore and return null
         }
         
-        if (data != null) {
-            if (data.getInt("version") != VERSION) {
-                throw new FormatException("Got invalid version " + data.getInt("version") + ", we only support "
-                        + VERSION);
-            }
-            
-            VariabilityModelDescriptor descriptor = readDescriptor(data.getObject("descriptor"));
-            // TODO: removed null annotations because jacoco report fails with it
-            Map</*@NonNull*/ String, VariabilityVariable> vars = readVariables(data.getList("variables"));
-            
-            File constraintCopy = File.createTempFile("constraintModel", "");
-            constraintCopy.deleteOnExit();
-            try (FileOutputStream out = new FileOutputStream(constraintCopy)) {
-                Util.copyStream(new ByteArrayInputStream(data.getString("constraintModel").getBytes()), out);
+        return result;
+    }
+    
+    /**
+     * Reads the variability model from the given reader. The variables are instantiated after the whole document is
+     * read. A constraint model that is embedded in the document (version 5) is copied directly from the stream into
+     * a temporary file.
+     * 
+     * @param reader The reader to read from.
+     * 
+     * @return The read variability model.
+     * 
+     * @throws FormatException If the JSON does not contain the expected data.
+     * @throws IOException If reading the JSON or writing the constraint model file fails.
+     */
+    private @NonNull VariabilityModel read(@NonNull JsonReader reader) throws FormatException, IOException {
+        int version = -1;
+        VariabilityModelDescriptor descriptor = null;
+        List<@NonNull String> classes = null;
+        List<@NonNull JsonObject> variables = null;
+        File constraintModel = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+            case "version":
+                version = reader.nextInt();
+                if (version < MIN_VERSION || version > VERSION) {
+                    throw new FormatException("Got invalid version " + version + ", we only support "
+                            + MIN_VERSION + " to " + VERSION);
+                }
+                break;
+                
+            case "descriptor":
+                descriptor = readDescriptor(toObject(reader.nextElement()));
+                break;
+                
+            case "classes":
+                classes = new ArrayList<>();
+                reader.beginList();
+                while (reader.hasNext()) {
+                    classes.add(reader.nextString());
+                }
+                reader.endList();
+                break;
+                
+            case "variables":
+                variables = new ArrayList<>();
+                reader.beginList();
+                while (reader.hasNext()) {
+                    variables.add(toObject(reader.nextElement()));
+                }
+                reader.endList();
+                break;
+                
+            case "constraintModel":
+                if (reader.peek() == JsonReader.Token.STRING) {
+                    constraintModel = File.createTempFile("constraintModel", "");
+                    constraintModel.deleteOnExit();
+                    try (Writer out = new OutputStreamWriter(new FileOutputStream(constraintModel),
+                            StandardCharsets.UTF_8)) {
+                        reader.nextString(out);
+                    }
+                } else {
+                    constraintModel = readConstraintModelReference(toObject(reader.nextElement()));
+                }
+                break;
+                
+            default:
+                reader.skipValue();
+                break;
             }
-            
-            @SuppressWarnings("null") // TODO: null annotation missing, see above
-            VariabilityModel tmp = new VariabilityModel(constraintCopy, vars);
-            tmp.setDescriptor(descriptor);
-            result = tmp;
         }
+        reader.endObject();
+        reader.peek(); // make sure that the end of the document is reached
         
+        if (version == -1) {
+            throw new FormatException("Missing version");
+        }
+        if (descriptor == null || variables == null || constraintModel == null) {
+            throw new FormatException("Missing descriptor, variables or constraintModel");
+        }
+        if (version > MIN_VERSION && classes == null) {
+            throw new FormatException("Missing classes");
+        }
+        
+        Map<@NonNull String, VariabilityVariable> vars = version == MIN_VERSION
+                ? readLegacyVariables(variables) : readVariables(variables, notNull(classes));
+        
+        VariabilityModel result = new VariabilityModel(constraintModel, vars);
+        result.setDescriptor(descriptor);
         return result;
     }
+    
+    /**
+     * Checks that the given element is a {@link JsonObject}.
+     * 
+     * @param element The element to check.
+     * 
+     * @return The element as a {@link JsonObject}.
+     * 
+     * @throws FormatException If the element is not a {@link JsonObject}.
+     */
+    private static @NonNull JsonObject toObject(@NonNull JsonElement element) throws FormatException {
+        if (!(element instanceof JsonObject)) {
+            throw new FormatException("Expected JsonObject, but got " + element.getClass().getSimpleName());
+        }
+        return (JsonObject) element;
+    }
+    
+    /**
+     * Resolves the reference to the constraint model side file. Only the size of the file is checked, since hashing
+     * the full file would defeat reading it on demand.
+     * 
+     * @param data The JSON object with the file name and size.
+     * 
+     * @return The side file.
+     * 
+     * @throws FormatException If the side file is missing or has the wrong size.
+     */
+    private @NonNull File readConstraintModelReference(@NonNull JsonObject data) throws FormatException {
+        File file = new File(cacheDir, data.getString("file"));
+        if (!file.isFile()) {
+            throw new FormatException("Constraint model file " + file + " does not exist");
+        }
+        if (file.length() != data.getLong("size")) {
+            throw new FormatException("Constraint model file " + file + " has size " + file.length() + ", expected "
+                    + data.getLong("size"));
+        }
+        return file;
+    }
 
     /**
      * Reads the {@link VariabilityModelDescriptor} from the given DIMACS.
@@ -144,61 +287,184 @@ public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
     }
     
     /**
-     * Reads and initializes the variables stored in the given JSON object.
+     * Instantiates a variable via its (String, String) constructor.
+     * 
+     * @param className The fully qualified name of the variable class.
+     * @param data The JSON data of the variable; contains the name and type.
+     * 
+     * @return The new variable.
+     * 
+     * @throws FormatException If instantiating the variable fails.
+     */
+    private static @NonNull VariabilityVariable instantiate(@NonNull String className, @NonNull JsonObject data)
+            throws FormatException {
+        
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends VariabilityVariable> clazz =
+                    (Class<? extends VariabilityVariable>) ClassLoader.getSystemClassLoader().loadClass(className);
+            
+            return notNull(clazz.getConstructor(String.class, String.class)
+                    .newInstance(data.getString("name"), data.getString("type")));
+            
+        } catch (InvocationTargetException e) {
+            throw new FormatException(e.getTargetException());
+            
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new FormatException(e);
+        }
+    }
+    
+    /**
+     * Instantiates and initializes the variables from the given list of JSON objects in the indexed form. The
+     * relations between the variables are removed from the JSON objects and set as lazy indices; the remaining data
+     * is passed to {@link VariabilityVariable#setJsonData(JsonObject, Map)}.
      * 
-     * @param data The JSON to read from.
+     * @param data The JSON objects of the variables.
+     * @param classes The class name table.
      * 
      * @return The read and initialized variables; a mapping of {@code variable name -> variable}.
      * 
      * @throws FormatException If reading the variables fails.
      */
-    private @NonNull Map<@NonNull String, VariabilityVariable> readVariables(@NonNull JsonList data)
-            throws FormatException {
+    private @NonNull Map<@NonNull String, VariabilityVariable> readVariables(@NonNull List<@NonNull JsonObject> data,
+            @NonNull List<@NonNull String> classes) throws FormatException {
         
-        Map<@NonNull String, VariabilityVariable> vars = new HashMap<>();
+        Map<@NonNull String, VariabilityVariable> vars = new HashMap<>((int) (data.size() / 0.75f) + 1);
+        @NonNull VariabilityVariable[] array = new @NonNull VariabilityVariable[data.size()];
+        VariableTable table = new VariableTable(array);
         
         /*
          * Round 1: Instantiate all variables; this sets name and type
          */
+        for (int i = 0; i < array.length; i++) {
+            JsonObject obj = notNull(data.get(i));
+            int classIndex = obj.getInt("class");
+            if (classIndex < 0 || classIndex >= classes.size()) {
+                throw new FormatException("Invalid class index " + classIndex);
+            }
+            
+            VariabilityVariable var = instantiate(notNull(classes.get(classIndex)), obj);
+            array[i] = var;
+            vars.put(var.getName(), var);
+        }
         
-        for (JsonElement element : data) {
-            if (!(element instanceof JsonObject)) {
-                throw new FormatException("Expected variable JsonObject, but got "
-                        + element.getClass().getSimpleName());
+        /*
+         * Round 2: Set the lazy relations and call setJsonData with the remaining data
+         */
+        for (int i = 0; i < array.length; i++) {
+            JsonObject obj = notNull(data.get(i));
+            VariabilityVariable var = array[i];
+            
+            int[] references = readIndices(obj, "references", table, false);
+            int[] referencedBy = readIndices(obj, "referenced-by", table, false);
+            if (references != null || referencedBy != null) {
+                var.setLazyRelations(table, references, referencedBy);
             }
-            JsonObject obj = (JsonObject) element;
             
-            try {
-                @SuppressWarnings("unchecked")
-                Class<? extends VariabilityVariable> clazz =
-                        (Class<? extends VariabilityVariable>) ClassLoader.getSystemClassLoader().loadClass(
-                                obj.getString("class"));
-                
-                VariabilityVariable var = notNull(clazz.getConstructor(String.class, String.class)
-                        .newInstance(obj.getString("name"), obj.getString("type")));
-                
-                vars.put(obj.getString("name"), var);
-                
-            } catch (InvocationTargetException e) {
-                throw new FormatException(e.getTargetException());
+            if (var instanceof HierarchicalVariable) {
+                int parent = -1;
+                JsonElement parentJson = obj.getElement("parent");
+                if (parentJson != null && parentJson != JsonNull.INSTANCE) {
+                    parent = checkIndex(parentJson, table, true);
+                }
+                int[] children = readIndices(obj, "children", table, true);
+                obj.removeElement("parent");
                 
-            } catch (ReflectiveOperationException e) {
-                throw new FormatException(e);
-            } 
+                ((HierarchicalVariable) var).setLazyHierarchy(table, parent, children != null ? children : new int[0]);
+            }
             
+            var.setJsonData(obj, vars);
+        }
+        
+        return vars;
+    }
+    
+    /**
+     * Reads and removes a list of variable indices from the given JSON object.
+     * 
+     * @param data The JSON object of the variable.
+     * @param key The key of the list.
+     * @param table The table that the indices point into.
+     * @param hierarchical Whether the indices must point to {@link HierarchicalVariable}s.
+     * 
+     * @return The indices, or <code>null</code> if the key is not present.
+     * 
+     * @throws FormatException If the list or one of the indices is invalid.
+     */
+    private static int @Nullable [] readIndices(@NonNull JsonObject data, @NonNull String key,
+            @NonNull VariableTable table, boolean hierarchical) throws FormatException {
+        
+        if (data.getElement(key) == null) {
+            return null;
+        }
+        
+        JsonList list = data.getList(key);
+        int[] result = new int[list.getSize()];
+        int i = 0;
+        for (JsonElement element : list) {
+            result[i++] = checkIndex(element, table, hierarchical);
+        }
+        
+        data.removeElement(key);
+        return result;
+    }
+    
+    /**
+     * Checks that the given element is a valid index into the variable table.
+     * 
+     * @param element The element to check.
+     * @param table The table that the index points into.
+     * @param hierarchical Whether the index must point to a {@link HierarchicalVariable}.
+     * 
+     * @return The index.
+     * 
+     * @throws FormatException If the element is not a valid index.
+     */
+    private static int checkIndex(@NonNull JsonElement element, @NonNull VariableTable table, boolean hierarchical)
+            throws FormatException {
+        
+        if (!(element instanceof JsonNumber)) {
+            throw new FormatException("Expected JsonNumber, but got " + element.getClass().getSimpleName());
+        }
+        
+        int index = ((JsonNumber) element).getValue().intValue();
+        if (index < 0 || index >= table.getSize()) {
+            throw new FormatException("Invalid variable index " + index);
         }
+        if (hierarchical && !(table.get(index) instanceof HierarchicalVariable)) {
+            throw new FormatException(table.get(index).getName() + " is not a hierarchical variable");
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Reads and initializes the variables from the given list of JSON objects in the legacy form (version 5), where
+     * each variable contains its fully qualified class name and relations refer to variables by name.
+     * 
+     * @param data The JSON objects of the variables.
+     * 
+     * @return The read and initialized variables; a mapping of {@code variable name -> variable}.
+     * 
+     * @throws FormatException If reading the variables fails.
+     */
+    private @NonNull Map<@NonNull String, VariabilityVariable> readLegacyVariables(
+            @NonNull List<@NonNull JsonObject> data) throws FormatException {
+        
+        Map<@NonNull String, VariabilityVariable> vars = new HashMap<>();
         
         /*
-         * Round 2: Pass through all instantiated variables and call setJsonData
+         * Round 1: Instantiate all variables; this sets name and type
          */
+        for (JsonObject obj : data) {
+            vars.put(obj.getString("name"), instantiate(obj.getString("class"), obj));
+        }
         
-        for (JsonElement element : data) {
-            if (!(element instanceof JsonObject)) {
-                throw new FormatException("Expected variable JsonObject, but got "
-                        + element.getClass().getSimpleName());
-            }
-            JsonObject obj = (JsonObject) element;
-            
+        /*
+         * Round 2: Pass through all instantiated variables and call setJsonData
+         */
+        for (JsonObject obj : data) {
             VariabilityVariable var = vars.get(obj.getString("name"));
             var.setJsonData(obj, vars);
         }
@@ -208,16 +474,75 @@ public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
 
     @Override
     public void write(@NonNull VariabilityModel result) throws IOException {
-        JsonObject mainJson = new JsonObject();
+        String constraintFileName = writeConstraintModel(result.getConstraintModel());
         
-        mainJson.putElement("version", new JsonNumber(VERSION));
-        mainJson.putElement("descriptor", descriptorToJson(result.getDescriptor()));
-        mainJson.putElement("variables", variablesToJson(result.getVariables()));
-        mainJson.putElement("constraintModel",
-                new JsonString(Util.readStream(new FileInputStream(result.getConstraintModel()))));
+        try (JsonWriter out = new JsonWriter(codec.createFile(cacheFile))) {
+            out.beginObject();
+            
+            out.name("version").value(VERSION);
+            out.name("descriptor").value(descriptorToJson(result.getDescriptor()));
+            writeVariables(result.getVariables(), out);
+            
+            out.name("constraintModel").beginObject();
+            out.name("file").value(constraintFileName);
+            out.name("size").value(new File(cacheDir, constraintFileName).length());
+            out.endObject();
+            
+            out.endObject();
+        }
+    }
+    
+    /**
+     * Copies the constraint model into a side file in the cache directory. The name of the side file contains the
+     * SHA-256 hash of the content. Side files of previously cached models are deleted.
+     * 
+     * @param constraintModel The constraint model file to copy.
+     * 
+     * @return The name of the side file in the cache directory.
+     * 
+     * @throws IOException If copying the file fails.
+     */
+    private @NonNull String writeConstraintModel(@NonNull File constraintModel) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e); // every Java platform is required to support SHA-256
+        }
         
-        try (BufferedWriter out = new BufferedWriter(new FileWriter(cacheFile))) {
-            out.write(mainJson.accept(new JsonPrettyPrinter()));
+        File tmpFile = File.createTempFile(CONSTRAINT_FILE_PREFIX, ".tmp", cacheDir);
+        try {
+            try (OutputStream out = new DigestOutputStream(new FileOutputStream(tmpFile), digest)) {
+                Files.copy(constraintModel.toPath(), out);
+            }
+            
+            StringBuilder name = new StringBuilder(CONSTRAINT_FILE_PREFIX);
+            for (byte b : digest.digest()) {
+                name.append(String.format("%02x", b));
+            }
+            name.append(CONSTRAINT_FILE_SUFFIX);
+            String result = notNull(name.toString());
+            
+            File target = new File(cacheDir, result);
+            if (target.isFile() && target.length() == tmpFile.length()) {
+                // same content is already cached; this also happens if the model was read from this cache
+                Files.delete(tmpFile.toPath());
+            } else {
+                Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            
+            File[] oldFiles = cacheDir.listFiles((dir, fileName) -> fileName.startsWith(CONSTRAINT_FILE_PREFIX)
+                    && fileName.endsWith(CONSTRAINT_FILE_SUFFIX) && !fileName.equals(result));
+            if (oldFiles != null) {
+                for (File oldFile : oldFiles) {
+                    oldFile.delete();
+                }
+            }
+            
+            return result;
+            
+        } finally {
+            tmpFile.delete();
         }
     }
     
@@ -244,25 +569,97 @@ public class JsonVariabilityModelCache extends AbstractCache<VariabilityModel> {
     }
     
     /**
-     * Turns the given {@link VariabilityVariable}s into a {@link JsonList} of {@link JsonObject}s.
+     * Writes the class name table and the given {@link VariabilityVariable}s as a list of JSON objects, sorted by name.
+     * Class names and references to other variables are replaced by indices. Only the JSON representation of a
+     * single variable is held in memory at a time.
      * 
-     * @param variables The variables to convert.
+     * @param variables The variables to write.
+     * @param out The writer to write the variables to.
      * 
-     * @return The JSON representation of the variables.
+     * @throws IOException If writing fails.
      */
-    private @NonNull JsonElement variablesToJson(@NonNull Set<@NonNull VariabilityVariable> variables) {
+    private void writeVariables(@NonNull Set<@NonNull VariabilityVariable> variables, @NonNull JsonWriter out)
+            throws IOException {
+        
         List<@NonNull VariabilityVariable> sorted = new ArrayList<>(variables);
         sorted.sort((v1, v2) -> v1.getName().compareTo(v2.getName()));
         
-        JsonList result = new JsonList();
+        Map<@NonNull String, Integer> indices = new HashMap<>((int) (sorted.size() / 0.75f) + 1);
+        Map<@NonNull String, Integer> classIndices = new HashMap<>();
+        out.name("classes").beginList();
+        for (VariabilityVariable var : sorted) {
+            indices.put(var.getName(), indices.size());
+            String className = notNull(var.getClass().getName());
+            if (!classIndices.containsKey(className)) {
+                classIndices.put(className, classIndices.size());
+                out.value(className);
+            }
+        }
+        out.endList();
         
+        out.name("variables").beginList();
         for (VariabilityVariable var : sorted) {
             JsonObject json = var.toJson();
-            json.putElement("class", new JsonString(notNull(var.getClass().getName())));
-            result.addElement(json);
+            json.putElement("class", new JsonNumber(notNull(classIndices.get(var.getClass().getName()))));
+            
+            replaceNames(json, "references", indices);
+            replaceNames(json, "referenced-by", indices);
+            if (var instanceof HierarchicalVariable) {
+                replaceNames(json, "children", indices);
+                JsonElement parent = json.getElement("parent");
+                if (parent instanceof JsonString) {
+                    json.putElement("parent", toIndex((JsonString) parent, indices));
+                }
+            }
+            
+            out.value(json);
         }
+        out.endList();
+    }
+    
+    /**
+     * Replaces a list of variable names in the given JSON object with a list of indices.
+     * 
+     * @param json The JSON object of a variable.
+     * @param key The key of the list of names.
+     * @param indices The mapping of variable names to indices.
+     * 
+     * @throws IOException If a name does not belong to a variable of the model.
+     */
+    private static void replaceNames(@NonNull JsonObject json, @NonNull String key,
+            @NonNull Map<@NonNull String, Integer> indices) throws IOException {
         
-        return result;
+        JsonElement element = json.getElement(key);
+        if (element instanceof JsonList) {
+            JsonList result = new JsonList();
+            for (JsonElement name : (JsonList) element) {
+                if (!(name instanceof JsonString)) {
+                    throw new IOException("Expected variable name in " + key + ", but got " + name);
+                }
+                result.addElement(toIndex((JsonString) name, indices));
+            }
+            json.putElement(key, result);
+        }
+    }
+    
+    /**
+     * Converts a variable name into its index.
+     * 
+     * @param name The name of the variable.
+     * @param indices The mapping of variable names to indices.
+     * 
+     * @return The index of the variable.
+     * 
+     * @throws IOException If the name does not belong to a variable of the model.
+     */
+    private static @NonNull JsonNumber toIndex(@NonNull JsonString name, @NonNull Map<@NonNull String, Integer> indices)
+            throws IOException {
+        
+        Integer index = indices.get(name.getValue());
+        if (index == null) {
+            throw new IOException("Variable " + name.getValue() + " is not part of the variability model");
+        }
+        return new JsonNumber(index);
     }
 
 }
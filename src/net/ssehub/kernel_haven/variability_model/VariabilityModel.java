@@ -15,13 +15,23 @@
  */
 package net.ssehub.kernel_haven.variability_model;
 
+import static net.ssehub.kernel_haven.util.null_checks.NullHelpers.notNull;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import net.ssehub.kernel_haven.util.Logger;
+import net.ssehub.kernel_haven.util.logic.VariableIdTable;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
+import net.ssehub.kernel_haven.util.null_checks.Nullable;
 
 /**
  * Representation of variability models.
@@ -46,6 +56,24 @@ public class VariabilityModel {
      * The key is the name of the variable for easier access.
      */
     private @NonNull Map<@NonNull String, VariabilityVariable> variables;
+    
+    /**
+     * The memory-mapped content of {@link #constraintModel}. <code>null</code> until
+     * {@link #mapConstraintModel()} is called.
+     */
+    private @Nullable ByteBuffer mappedConstraintModel;
+    
+    /**
+     * The ID of the source tree that this model was extracted from; only set if multiple source trees are analyzed in
+     * one run.
+     */
+    private @Nullable String treeId;
+    
+    /**
+     * The IDs of the variables of this model, aligned with their DIMACS numbers. <code>null</code> until
+     * {@link #getVariableIdTable()} is called.
+     */
+    private @Nullable VariableIdTable variableIds;
 
     /**
      * Creates a new variability model.
@@ -94,6 +122,33 @@ public class VariabilityModel {
         return constraintModel;
     }
 
+    /**
+     * Returns the content of the constraint model as a read-only, memory-mapped buffer. The file is mapped on the
+     * first call; later calls return a new view on the same mapping. This avoids copying large constraint models
+     * (e.g. DIMACS files) into the heap.
+     * 
+     * @return A read-only buffer with the content of the constraint model, positioned at the start.
+     * 
+     * @throws IOException If mapping the file fails, or the file is too large to be mapped (more than 2 GiB).
+     */
+    public @NonNull ByteBuffer mapConstraintModel() throws IOException {
+        ByteBuffer result;
+        synchronized (this) {
+            result = mappedConstraintModel;
+            if (result == null) {
+                try (FileChannel channel = FileChannel.open(constraintModel.toPath(), StandardOpenOption.READ)) {
+                    long size = channel.size();
+                    if (size > Integer.MAX_VALUE) {
+                        throw new IOException("Constraint model " + constraintModel + " is too large to be mapped");
+                    }
+                    result = channel.map(MapMode.READ_ONLY, 0, size);
+                }
+                mappedConstraintModel = result;
+            }
+        }
+        return notNull(result.duplicate());
+    }
+
     /**
      * Returns the variables defined by this variability model.
      * 
@@ -113,6 +168,66 @@ public class VariabilityModel {
         return variables; 
     }
     
+    /**
+     * Returns the mapping of DIMACS numbers to variable names of all variables of this model, as created by
+     * {@link VariabilityVariable#getDimacsMapping(Map)}. This includes e.g. the <code>_MODULE</code> variables of
+     * tristates.
+     * 
+     * @return The DIMACS mapping. Numbers &lt;= 0 indicate variables without DIMACS representation.
+     */
+    public @NonNull Map<Integer, String> getDimacsMapping() {
+        Map<Integer, String> mapping = new HashMap<>();
+        for (VariabilityVariable variable : variables.values()) {
+            variable.getDimacsMapping(mapping);
+        }
+        return mapping;
+    }
+    
+    /**
+     * Aligns the IDs of the given {@link VariableIdTable} with the DIMACS numbers of the variables of this model, i.e.
+     * assigns the numbers of {@link VariabilityVariable#getDimacsMapping(Map)} (e.g. also the <code>_MODULE</code>
+     * variables of tristates) as IDs. This should be called before any other variables get IDs in the table, since
+     * IDs that are already used for other variables can't be re-assigned. {@link #getVariableIdTable()} does this for
+     * the table of this model.
+     * 
+     * @param table The table to assign the IDs in; usually {@link VariableIdTable#getInstance()}.
+     * @return The number of DIMACS variables that could not be aligned.
+     */
+    public int alignVariableIds(@NonNull VariableIdTable table) {
+        int failed = 0;
+        for (Map.Entry<Integer, String> entry : getDimacsMapping().entrySet()) {
+            int number = entry.getKey();
+            String name = entry.getValue();
+            if (number > 0 && name != null && !table.assign(name, number)) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+    
+    /**
+     * Returns a {@link VariableIdTable} whose IDs are aligned with the DIMACS numbers of this model (see
+     * {@link #alignVariableIds(VariableIdTable)}). The table is created on the first call. Variables that are not
+     * part of this model get IDs above the highest DIMACS number when they are first looked up. Each model has its
+     * own table, so that the models of different source trees don't clash; the global table used by
+     * {@link net.ssehub.kernel_haven.util.logic.Variable#getId()} is not aligned.
+     * 
+     * @return The variable table of this model.
+     */
+    public synchronized @NonNull VariableIdTable getVariableIdTable() {
+        VariableIdTable result = variableIds;
+        if (result == null) {
+            result = new VariableIdTable();
+            int failed = alignVariableIds(result);
+            if (failed > 0) {
+                Logger.get().logWarning("Could not align the IDs of " + failed
+                        + " variables with their DIMACS numbers, since they have multiple DIMACS numbers");
+            }
+            variableIds = result;
+        }
+        return result;
+    }
+    
     /**
      * Returns the descriptor for this model.
      * 
@@ -131,4 +246,23 @@ public class VariabilityModel {
         this.descriptor = descriptor;
     }
     
+    /**
+     * Returns the ID of the source tree that this model was extracted from. This is only set if multiple source trees
+     * are analyzed in a single execution (see {@link net.ssehub.kernel_haven.config.DefaultSettings#SOURCE_TREES}).
+     * 
+     * @return The ID of the source tree, or <code>null</code> if not set.
+     */
+    public @Nullable String getTreeId() {
+        return treeId;
+    }
+    
+    /**
+     * Sets the ID of the source tree that this model was extracted from.
+     * 
+     * @param treeId The ID of the source tree.
+     */
+    public void setTreeId(@Nullable String treeId) {
+        this.treeId = treeId;
+    }
+    
 }
@@ -44,9 +44,15 @@ public class VariabilityModelProvider extends AbstractProvider<VariabilityModel>
         return result;
     }
 
+    @Override
+    protected void tagResult(@NonNull VariabilityModel result, @NonNull String treeId) {
+        result.setTreeId(treeId);
+    }
+    
     @Override
     protected @NonNull AbstractCache<VariabilityModel> createCache() {
-        return new JsonVariabilityModelCache(config.getValue(DefaultSettings.CACHE_DIR));
+        return new JsonVariabilityModelCache(config.getValue(DefaultSettings.CACHE_DIR),
+                createCompressionCodec(config.getValue(DefaultSettings.VARIABILITY_PROVIDER_CACHE_COMPRESS)));
     }
 
     @Override
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.variability_model;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.NaryFormula;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.sat.SatSolver;
+import net.ssehub.kernel_haven.util.logic.sat.TseitinTransformer;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Checks whether {@link Formula}s (e.g. presence conditions) are satisfiable under the constraints of a
+ * {@link VariabilityModel}. The DIMACS constraint model is loaded into a {@link SatSolver} only once, via
+ * {@link VariabilityModel#mapConstraintModel()}; each query is then answered incrementally through assumptions.
+ * <p>
+ * Conjunctions of literals are passed to the solver as assumptions directly. Other sub-formulas are encoded by a
+ * {@link TseitinTransformer} (in Plaisted-Greenbaum mode) into definitions of fresh variables, which are added
+ * permanently (they don't restrict the model, since they only constrain the fresh variables). Definitions are cached,
+ * so repeated queries don't add clauses again. Variables of the formula that are not part of the variability model
+ * are unconstrained.
+ * </p>
+ * <p>
+ * This class is thread-safe, but queries are serialized.
+ * </p>
+ *
+ * @author Adam
+ */
+public class VariabilityModelSatChecker {
+
+    private @NonNull SatSolver solver;
+    
+    private @NonNull TseitinTransformer transformer;
+    
+    /**
+     * Creates a checker for the given variability model. The constraint model must be in DIMACS format.
+     * 
+     * @param vm The variability model.
+     * 
+     * @throws IOException If reading the constraint model fails.
+     * @throws FormatException If the constraint model is not valid DIMACS.
+     */
+    public VariabilityModelSatChecker(@NonNull VariabilityModel vm) throws IOException, FormatException {
+        this.solver = new SatSolver();
+        this.solver.addDimacs(vm.mapConstraintModel());
+        
+        // via the DIMACS mapping, so that e.g. the _MODULE variables of tristates are known, too
+        Map<String, Integer> variables = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : vm.getDimacsMapping().entrySet()) {
+            int number = entry.getKey();
+            String name = entry.getValue();
+            if (number > 0 && name != null) {
+                variables.put(name, number);
+            }
+        }
+        
+        SatSolver solver = this.solver;
+        this.transformer = new TseitinTransformer(solver::addClause, variables, true);
+        this.transformer.reserveVariables(solver.getNumVariables());
+    }
+    
+    /**
+     * Returns the underlying solver. Can be used to retrieve statistics.
+     * 
+     * @return The SAT solver.
+     */
+    public @NonNull SatSolver getSolver() {
+        return solver;
+    }
+    
+    /**
+     * Checks whether the constraints of the variability model are satisfiable at all.
+     * 
+     * @return Whether the variability model has at least one valid configuration.
+     */
+    public synchronized boolean isSatisfiable() {
+        return solver.solve();
+    }
+    
+    /**
+     * Checks whether the given formula is satisfiable together with the constraints of the variability model.
+     * 
+     * @param formula The formula to check, e.g. a presence condition.
+     * @return Whether a valid configuration of the variability model exists, in which the formula is true.
+     */
+    public synchronized boolean isSatisfiable(@NonNull Formula formula) {
+        int[] assumptions = new int[8];
+        int numAssumptions = 0;
+        boolean contradiction = false;
+        
+        // the top-level conjuncts become assumptions
+        Deque<@NonNull Formula> conjuncts = new ArrayDeque<>();
+        conjuncts.push(formula);
+        while (!conjuncts.isEmpty() && !contradiction) {
+            Formula current = conjuncts.pop();
+            if (current instanceof Conjunction) {
+                conjuncts.push(((Conjunction) current).getRight());
+                conjuncts.push(((Conjunction) current).getLeft());
+                
+            } else if (current instanceof NaryFormula
+                    && ((NaryFormula) current).getOperator() == NaryFormula.Operator.AND) {
+                for (Formula operand : ((NaryFormula) current).getOperands()) {
+                    conjuncts.push(operand);
+                }
+                
+            } else if (current instanceof False) {
+                contradiction = true;
+                
+            } else if (!(current instanceof True)) {
+                if (numAssumptions == assumptions.length) {
+                    assumptions = Arrays.copyOf(assumptions, numAssumptions * 2);
+                }
+                assumptions[numAssumptions++] = encode(current);
+            }
+        }
+        
+        // variables that only appear in assumptions are not known to the solver yet
+        solver.ensureVariables(transformer.getNumVariables());
+        return !contradiction && solver.solve(Arrays.copyOf(assumptions, numAssumptions));
+    }
+    
+    /**
+     * Encodes the given formula into a solver literal, adding the required definitions to the solver.
+     * 
+     * @param formula The formula to encode.
+     * @return The solver literal that implies the formula.
+     */
+    private int encode(@NonNull Formula formula) {
+        int result = 0;
+        try {
+            result = transformer.encode(formula);
+        } catch (IOException e) {
+            // can't happen, because the solver doesn't throw any exceptions
+        }
+        return result;
+    }
+    
+}
@@ -83,6 +83,16 @@ public class VariabilityVariable {
     private @Nullable Set<@NonNull VariabilityVariable> variablesUsedInConstraints;
     
     private @Nullable Set<@NonNull VariabilityVariable> usedInConstraintsOfOtherVariables;
+    
+    /**
+     * The table that the lazy relations below point into. <code>null</code> if there are no unresolved relations.
+     * Volatile, so that the resolved sets are visible once this is <code>null</code>.
+     */
+    private volatile @Nullable VariableTable lazyTable;
+    
+    private int @Nullable [] lazyVariablesUsedInConstraints;
+    
+    private int @Nullable [] lazyUsedInConstraintsOfOtherVariables;
 
     /**
      * Creates a new variable.
@@ -199,6 +209,7 @@ public class VariabilityVariable {
      * @param variablesUsedInConstraints The other variables that are used.
      */
     public void setVariablesUsedInConstraints(@NonNull Set<@NonNull VariabilityVariable> variablesUsedInConstraints) {
+        resolveLazyRelations();
         this.variablesUsedInConstraints = variablesUsedInConstraints;
     }
     
@@ -209,6 +220,7 @@ public class VariabilityVariable {
      * @return The other variables used in the constraints.
      */
     public @Nullable Set<@NonNull VariabilityVariable> getVariablesUsedInConstraints() {
+        resolveLazyRelations();
         return variablesUsedInConstraints;
     }
     
@@ -221,6 +233,7 @@ public class VariabilityVariable {
     public void setUsedInConstraintsOfOtherVariables(
             @NonNull Set<@NonNull VariabilityVariable> usedInConstraintsOfOtherVariables) {
         
+        resolveLazyRelations();
         this.usedInConstraintsOfOtherVariables = usedInConstraintsOfOtherVariables;
     }
     
@@ -231,9 +244,55 @@ public class VariabilityVariable {
      * @return Other variables that have conditions that use this variable.
      */
     public @Nullable Set<@NonNull VariabilityVariable> getUsedInConstraintsOfOtherVariables() {
+        resolveLazyRelations();
         return usedInConstraintsOfOtherVariables;
     }
     
+    /**
+     * Sets the constraint usage relations as indices into a {@link VariableTable}. They are resolved into sets when
+     * they are first accessed. This should only be called by the {@link JsonVariabilityModelCache}.
+     * 
+     * @param table The table that the indices point into.
+     * @param variablesUsedInConstraints The indices of the variables used in the constraints of this variable.
+     *      <code>null</code> if not known.
+     * @param usedInConstraintsOfOtherVariables The indices of the variables that use this variable in their
+     *      constraints. <code>null</code> if not known.
+     */
+    synchronized void setLazyRelations(@NonNull VariableTable table, int @Nullable [] variablesUsedInConstraints,
+            int @Nullable [] usedInConstraintsOfOtherVariables) {
+        
+        this.lazyVariablesUsedInConstraints = variablesUsedInConstraints;
+        this.lazyUsedInConstraintsOfOtherVariables = usedInConstraintsOfOtherVariables;
+        this.lazyTable = table;
+    }
+    
+    /**
+     * Resolves the relations set by {@link #setLazyRelations(VariableTable, int[], int[])}, if this hasn't happened
+     * yet.
+     */
+    private void resolveLazyRelations() {
+        if (lazyTable == null) {
+            return;
+        }
+        synchronized (this) {
+            VariableTable table = lazyTable;
+            if (table != null) {
+                int[] indices = lazyVariablesUsedInConstraints;
+                if (indices != null) {
+                    this.variablesUsedInConstraints = table.resolve(indices);
+                }
+                indices = lazyUsedInConstraintsOfOtherVariables;
+                if (indices != null) {
+                    this.usedInConstraintsOfOtherVariables = table.resolve(indices);
+                }
+                
+                this.lazyVariablesUsedInConstraints = null;
+                this.lazyUsedInConstraintsOfOtherVariables = null;
+                this.lazyTable = null;
+            }
+        }
+    }
+    
     /**
      * Converts this variable into a JSON object. Sub-classes may overwrite this method to add their own data, but
      * should always call the super method.
@@ -256,7 +315,7 @@ public class VariabilityVariable {
             result.putElement("sourceLocations", sls);
         }
         
-        Set<@NonNull VariabilityVariable> variablesUsedInConstraints = this.variablesUsedInConstraints;
+        Set<@NonNull VariabilityVariable> variablesUsedInConstraints = getVariablesUsedInConstraints();
         if (variablesUsedInConstraints != null) {
             JsonList vars = new JsonList();
             variablesUsedInConstraints.stream()
@@ -266,7 +325,7 @@ public class VariabilityVariable {
             result.putElement("references", vars);
         }
         
-        Set<@NonNull VariabilityVariable> usedInConstraintsOfOtherVariables = this.usedInConstraintsOfOtherVariables;
+        Set<@NonNull VariabilityVariable> usedInConstraintsOfOtherVariables = getUsedInConstraintsOfOtherVariables();
         if (usedInConstraintsOfOtherVariables != null) {
             JsonList vars = new JsonList();
             usedInConstraintsOfOtherVariables.stream()
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.variability_model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * An indexed table of all variables of a {@link VariabilityModel}, as read by the {@link JsonVariabilityModelCache}.
+ * Relations between variables are stored as indices into this table and only resolved into objects when they are
+ * first accessed. The indices are checked by the cache when reading, so resolving never fails.
+ *
+ * @author Adam
+ */
+final class VariableTable {
+
+    private final @NonNull VariabilityVariable @NonNull [] variables;
+    
+    /**
+     * Creates a table.
+     * 
+     * @param variables The variables, in index order.
+     */
+    VariableTable(@NonNull VariabilityVariable @NonNull [] variables) {
+        this.variables = variables;
+    }
+    
+    /**
+     * Returns the variable at the given index.
+     * 
+     * @param index The index of the variable.
+     * 
+     * @return The variable.
+     */
+    @NonNull VariabilityVariable get(int index) {
+        return variables[index];
+    }
+    
+    /**
+     * Returns the number of variables in this table.
+     * 
+     * @return The number of variables.
+     */
+    int getSize() {
+        return variables.length;
+    }
+    
+    /**
+     * Resolves the given indices into a set of variables.
+     * 
+     * @param indices The indices of the variables.
+     * @param <T> The type of the variables. The cache checks that all indices point to variables of this type.
+     * 
+     * @return A new, modifiable set with the variables.
+     */
+    @SuppressWarnings("unchecked")
+    <T extends VariabilityVariable> @NonNull Set<@NonNull T> resolve(int @NonNull [] indices) {
+        Set<@NonNull T> result = new HashSet<>((int) (indices.length / 0.75f) + 1);
+        for (int index : indices) {
+            result.add((@NonNull T) variables[index]);
+        }
+        return result;
+    }
+    
+}
@@ -19,15 +19,22 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.junit.Assert.assertThat;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.junit.Test;
 
@@ -40,6 +47,7 @@ import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.config.DefaultSettings;
 import net.ssehub.kernel_haven.test_utils.TestConfiguration;
 import net.ssehub.kernel_haven.util.ExtractorException;
+import net.ssehub.kernel_haven.util.Util;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.variability_model.AbstractVariabilityModelExtractor;
 import net.ssehub.kernel_haven.variability_model.VariabilityModel;
@@ -568,4 +576,198 @@ public class PipelineConfiguratiorTest {
         
     }
 
+    /**
+     * Tests that the pipeline runs the extractors and the analysis once for each of multiple source trees.
+     * 
+     * @throws IOException unwanted.
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testMultipleSourceTrees() throws IOException, SetUpException {
+        File baseDir = new File("testdata/multipleSourceTrees");
+        File outputDir = new File(baseDir, "output");
+        File cacheDir = new File(baseDir, "cache");
+        File archiveDir = new File(baseDir, "archive");
+        File pluginsDir = new File(baseDir, "plugins");
+        
+        try {
+            for (File dir : new File[] {new File(baseDir, "tree1"), new File(baseDir, "tree2"), outputDir, cacheDir,
+                archiveDir, pluginsDir}) {
+                assertThat(dir.mkdirs(), is(true));
+            }
+            new File(baseDir, "tree1/a.c").createNewFile();
+            new File(baseDir, "tree2/b.c").createNewFile();
+            
+            Properties props = new Properties();
+            props.setProperty("source_tree", baseDir.getPath());
+            props.setProperty("source_trees", "tree1,tree2");
+            props.setProperty("output_dir", outputDir.getPath());
+            props.setProperty("cache_dir", cacheDir.getPath());
+            props.setProperty("plugins_dir", pluginsDir.getPath());
+            props.setProperty("archive", "true");
+            props.setProperty("archive.dir", archiveDir.getPath());
+            props.setProperty("variability.extractor.class", TreeVmExtractor.class.getName());
+            props.setProperty("build.extractor.class", TreeBmExtractor.class.getName());
+            props.setProperty("code.extractor.class", TreeCmExtractor.class.getName());
+            props.setProperty("analysis.class", TreeAnalysis.class.getName());
+            Configuration config = new TestConfiguration(props);
+            
+            TreeAnalysis.RESULTS.clear();
+            TreeVmExtractor.INITIALIZED.clear();
+            TreeBmExtractor.INITIALIZED.clear();
+            TreeCmExtractor.INITIALIZED.clear();
+            
+            PipelineConfigurator configurator = new PipelineConfigurator();
+            configurator.init(config);
+            // same steps as execute(), without loading plugins
+            configurator.instantiateExtractors();
+            configurator.runOnSourceTrees(config.getValue(DefaultSettings.SOURCE_TREES));
+            configurator.archive();
+            
+            // extractors are re-initialized with the configuration of each source tree
+            assertThat(TreeVmExtractor.INITIALIZED, is(Arrays.asList("tree1", "tree2")));
+            assertThat(TreeBmExtractor.INITIALIZED, is(Arrays.asList("tree1", "tree2")));
+            assertThat(TreeCmExtractor.INITIALIZED, is(Arrays.asList("tree1", "tree2")));
+            
+            // the analysis gets its own output and cache directory, and results tagged with the tree ID
+            assertThat(TreeAnalysis.RESULTS, is(Arrays.asList(
+                    "tree1 output=" + new File(outputDir, "tree1") + " cache=" + new File(cacheDir, "tree1")
+                            + " vm=tree1 bm=tree1 cm=tree1:a.c",
+                    "tree2 output=" + new File(outputDir, "tree2") + " cache=" + new File(cacheDir, "tree2")
+                            + " vm=tree2 bm=tree2 cm=tree2:b.c")));
+            assertThat(new File(outputDir, "tree1/result.txt").isFile(), is(true));
+            assertThat(new File(outputDir, "tree2/result.txt").isFile(), is(true));
+            
+            // the original configuration is restored
+            assertThat(config.getValue(DefaultSettings.OUTPUT_DIR), is(outputDir));
+            assertThat(config.getValue(DefaultSettings.SOURCE_TREE_ID), nullValue());
+            
+            // the output files of all source trees are archived
+            File[] archives = archiveDir.listFiles();
+            assertThat(archives.length, is(1));
+            List<String> archivedOutput = new ArrayList<>();
+            try (ZipFile zip = new ZipFile(archives[0])) {
+                for (ZipEntry entry : Collections.list(zip.entries())) {
+                    if (entry.getName().endsWith("result.txt")) {
+                        archivedOutput.add(new File(entry.getName()).getParentFile().getName());
+                    }
+                }
+            }
+            Collections.sort(archivedOutput);
+            assertThat(archivedOutput, is(Arrays.asList("tree1", "tree2")));
+            
+        } finally {
+            Util.deleteFolder(baseDir);
+        }
+    }
+    
+    /**
+     * An analysis that records the results and directories of each source tree it runs on.
+     */
+    public static class TreeAnalysis extends AbstractAnalysis {
+        
+        private static final @NonNull List<@NonNull String> RESULTS = new ArrayList<>();
+
+        /**
+         * Creates this analysis.
+         * 
+         * @param config The pipeline configuration.
+         */
+        public TreeAnalysis(@NonNull Configuration config) {
+            super(config);
+        }
+
+        @Override
+        public void run() {
+            StringBuilder result = new StringBuilder(config.getValue(DefaultSettings.SOURCE_TREE_ID));
+            result.append(" output=").append(getOutputDir());
+            result.append(" cache=").append(config.getValue(DefaultSettings.CACHE_DIR));
+            result.append(" vm=").append(vmProvider.getResult().getTreeId());
+            result.append(" bm=").append(bmProvider.getResult().getTreeId());
+            result.append(" cm=");
+            SourceFile<?> file;
+            while ((file = cmProvider.getNextResult()) != null) {
+                result.append(file.getTreeId()).append(':').append(file.getPath().getName());
+            }
+            RESULTS.add(result.toString());
+            
+            try (PrintStream out = createResultStream("result.txt")) {
+                out.println(result);
+            }
+        }
+        
+    }
+    
+    /**
+     * A variability model extractor that records the source trees it is initialized with.
+     */
+    public static class TreeVmExtractor extends AbstractVariabilityModelExtractor {
+        
+        private static final @NonNull List<@NonNull String> INITIALIZED = new ArrayList<>();
+
+        @Override
+        protected void init(Configuration config) throws SetUpException {
+            INITIALIZED.add(config.getValue(DefaultSettings.SOURCE_TREE).getName());
+        }
+
+        @Override
+        protected VariabilityModel runOnFile(File target) throws ExtractorException {
+            return new VariabilityModel(new File("irrelevant"), new HashSet<>());
+        }
+
+        @Override
+        protected String getName() {
+            return "TreeVmExtractor";
+        }
+        
+    }
+    
+    /**
+     * A build model extractor that records the source trees it is initialized with.
+     */
+    public static class TreeBmExtractor extends AbstractBuildModelExtractor {
+        
+        private static final @NonNull List<@NonNull String> INITIALIZED = new ArrayList<>();
+
+        @Override
+        protected void init(Configuration config) throws SetUpException {
+            INITIALIZED.add(config.getValue(DefaultSettings.SOURCE_TREE).getName());
+        }
+
+        @Override
+        protected BuildModel runOnFile(File target) throws ExtractorException {
+            return new BuildModel();
+        }
+
+        @Override
+        protected String getName() {
+            return "TreeBmExtractor";
+        }
+        
+    }
+    
+    /**
+     * A code model extractor that records the source trees it is initialized with.
+     */
+    public static class TreeCmExtractor extends AbstractCodeModelExtractor {
+        
+        private static final @NonNull List<@NonNull String> INITIALIZED = new ArrayList<>();
+
+        @Override
+        protected void init(Configuration config) throws SetUpException {
+            INITIALIZED.add(config.getValue(DefaultSettings.SOURCE_TREE).getName());
+        }
+
+        @Override
+        protected SourceFile<?> runOnFile(File target) throws ExtractorException {
+            return new SourceFile<>(target);
+        }
+
+        @Override
+        protected String getName() {
+            return "TreeCmExtractor";
+        }
+        
+    }
+
 }
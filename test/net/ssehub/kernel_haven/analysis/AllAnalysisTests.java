@@ -25,9 +25,12 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     AnalysisTest.class,
+    ComponentPublisherTest.class,
     ConfiguredPipelineAnalysisTest.class,
+    LimitComponentTest.class,
     PipelineAnalysisTest.class,
     ObservableAnalysisTest.class,
+    SampleComponentTest.class,
     })
 public class AllAnalysisTests {
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.test_utils.TestAnalysisComponentProvider;
+import net.ssehub.kernel_haven.test_utils.TestSubscriber;
+
+/**
+ * Tests the {@link ComponentPublisher}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class ComponentPublisherTest {
+
+    /**
+     * Tests that all results of a component are published.
+     * 
+     * @throws SetUpException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testAllResults() throws SetUpException, InterruptedException {
+        ComponentPublisher<String> publisher = new ComponentPublisher<>(
+                new TestAnalysisComponentProvider<>(Arrays.asList("a", "b", "c")));
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.getSubscription().request(1);
+        subscriber.awaitItems(1);
+        assertThat(subscriber.getItems(), is(Arrays.asList("a")));
+        
+        subscriber.getSubscription().request(Long.MAX_VALUE);
+        subscriber.awaitTermination();
+        
+        assertThat(subscriber.getItems(), is(Arrays.asList("a", "b", "c")));
+        assertThat(subscriber.isCompleted(), is(true));
+    }
+    
+    /**
+     * Tests that a component without results completes immediately.
+     * 
+     * @throws SetUpException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testNoResults() throws SetUpException, InterruptedException {
+        ComponentPublisher<String> publisher = new ComponentPublisher<>(new TestAnalysisComponentProvider<String>());
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.awaitTermination();
+        
+        assertThat(subscriber.getItems().size(), is(0));
+        assertThat(subscriber.isCompleted(), is(true));
+    }
+    
+}
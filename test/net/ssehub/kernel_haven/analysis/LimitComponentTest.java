@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.test_utils.AnalysisComponentExecuter;
+import net.ssehub.kernel_haven.test_utils.TestConfiguration;
+
+/**
+ * Tests the {@link LimitComponent} and the cancellation of {@link AnalysisComponent}s.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class LimitComponentTest {
+
+    /**
+     * A component that produces an endless stream of integers, until it is cancelled.
+     */
+    private static class EndlessComponent extends AnalysisComponent<Integer> {
+
+        private volatile boolean finished;
+        
+        /**
+         * Creates this component.
+         * 
+         * @param config The configuration.
+         */
+        public EndlessComponent(Configuration config) {
+            super(config);
+        }
+
+        @Override
+        protected void execute() {
+            int i = 0;
+            while (!isCancelled()) {
+                addResult(i++);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                }
+            }
+            finished = true;
+        }
+
+        @Override
+        public String getResultName() {
+            return "Endless";
+        }
+        
+    }
+    
+    /**
+     * Tests that only the first N results are passed.
+     */
+    @Test
+    public void testLimit() {
+        Properties props = new Properties();
+        props.setProperty("analysis.limit", "2");
+        Configuration config;
+        try {
+            config = new TestConfiguration(props);
+        } catch (SetUpException e) {
+            throw new RuntimeException(e);
+        }
+        
+        List<String> result = AnalysisComponentExecuter.executeComponent(LimitComponent.class, config,
+                new String[] {"a", "b", "c", "d"});
+        
+        assertThat(result, is(Arrays.asList("a", "b")));
+    }
+    
+    /**
+     * Tests that a limit larger than the number of results passes all results.
+     */
+    @Test
+    public void testLimitNotReached() {
+        Properties props = new Properties();
+        props.setProperty("analysis.limit", "10");
+        Configuration config;
+        try {
+            config = new TestConfiguration(props);
+        } catch (SetUpException e) {
+            throw new RuntimeException(e);
+        }
+        
+        List<String> result = AnalysisComponentExecuter.executeComponent(LimitComponent.class, config,
+                new String[] {"a", "b"});
+        
+        assertThat(result, is(Arrays.asList("a", "b")));
+    }
+    
+    /**
+     * Tests that the cancellation of the limit component propagates upstream through another component, and stops
+     * an endless source.
+     * 
+     * @throws SetUpException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testCancellationPropagates() throws SetUpException, InterruptedException {
+        Configuration config = new TestConfiguration(new Properties());
+        
+        EndlessComponent source = new EndlessComponent(config);
+        SampleComponent<Integer> middle = new SampleComponent<>(config, source, 100, null);
+        LimitComponent<Integer> limit = new LimitComponent<>(config, middle, 3);
+        
+        assertThat(limit.getNextResult(), is(0));
+        assertThat(limit.getNextResult(), is(1));
+        assertThat(limit.getNextResult(), is(2));
+        assertThat(limit.getNextResult(), is((Integer) null));
+        
+        while (!source.finished) {
+            Thread.sleep(10);
+        }
+        
+        assertThat(middle.isCancelled(), is(true));
+        assertThat(source.isCancelled(), is(true));
+        assertThat(limit.isCancelled(), is(false));
+    }
+    
+    /**
+     * Tests that a component with multiple consumers is only cancelled if all consumers are cancelled.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testSplitCancelledByAllConsumers() throws SetUpException {
+        Configuration config = new TestConfiguration(new Properties());
+        
+        EndlessComponent source = new EndlessComponent(config);
+        SplitComponent<Integer> split = new SplitComponent<>(config, source);
+        AnalysisComponent<Integer> out1 = split.createOutputComponent();
+        AnalysisComponent<Integer> out2 = split.createOutputComponent();
+        
+        assertThat(out1.getNextResult(), is(0));
+        assertThat(out2.getNextResult(), is(0));
+        
+        out1.cancel();
+        assertThat(source.isCancelled(), is(false));
+        assertThat(out2.getNextResult(), is(1));
+        
+        out2.cancel();
+        assertThat(split.isCancelled(), is(true));
+        assertThat(source.isCancelled(), is(true));
+    }
+    
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.analysis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.SetUpException;
+import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.test_utils.AnalysisComponentExecuter;
+import net.ssehub.kernel_haven.test_utils.TestConfiguration;
+
+/**
+ * Tests the {@link SampleComponent}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class SampleComponentTest {
+
+    /**
+     * Creates a configuration with the given sample percentage and a fixed seed.
+     * 
+     * @param percentage The sample percentage.
+     * 
+     * @return The configuration.
+     */
+    private static Configuration createConfig(int percentage) {
+        Properties props = new Properties();
+        props.setProperty("analysis.sample.percentage", String.valueOf(percentage));
+        props.setProperty("analysis.sample.seed", "42");
+        try {
+            return new TestConfiguration(props);
+        } catch (SetUpException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * Tests that 100 percent passes all results.
+     */
+    @Test
+    public void testAll() {
+        List<String> result = AnalysisComponentExecuter.executeComponent(SampleComponent.class, createConfig(100),
+                new String[] {"a", "b", "c"});
+        
+        assertThat(result, is(Arrays.asList("a", "b", "c")));
+    }
+    
+    /**
+     * Tests that 0 percent passes no results.
+     */
+    @Test
+    public void testNone() {
+        List<String> result = AnalysisComponentExecuter.executeComponent(SampleComponent.class, createConfig(0),
+                new String[] {"a", "b", "c"});
+        
+        assertThat(result.size(), is(0));
+    }
+    
+    /**
+     * Tests that roughly the given percentage of results is passed.
+     */
+    @Test
+    public void testPercentage() {
+        Integer[] input = new Integer[1000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = i;
+        }
+        
+        List<Integer> result = AnalysisComponentExecuter.executeComponent(SampleComponent.class, createConfig(30),
+                (Object[]) input);
+        
+        assertThat(result.size() > 200 && result.size() < 400, is(true));
+    }
+    
+}
@@ -26,6 +26,7 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
     BuildModelTest.class,
     BuildModelCacheTest.class,
+    BinaryBuildModelCacheTest.class,
     BuildModelProviderTest.class,
     })
 public class AllBuildModelTests {
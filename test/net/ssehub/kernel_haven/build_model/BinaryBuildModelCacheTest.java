@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.build_model;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.build_model.BuildModelDescriptor.KeyType;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.True;
+
+/**
+ * Tests the {@link BinaryBuildModelCache}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BinaryBuildModelCacheTest {
+
+    private File cacheDir;
+
+    /**
+     * Creates the cache directory for each test.
+     */
+    @Before
+    public void setUp() {
+        cacheDir = new File("testdata/tmp_binary_bm_cache");
+        cacheDir.mkdir();
+        assertThat(cacheDir.isDirectory(), is(true));
+    }
+
+    /**
+     * Deletes the cache directory after each test.
+     * 
+     * @throws IOException unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(cacheDir);
+    }
+    
+    /**
+     * Tests writing and reading a build model.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCaching() throws IOException, FormatException {
+        BuildModel originalBm = new BuildModel();
+        originalBm.add(new File("dir/file.c"), or("CONFIG_A", "CONFIG_A_MODULE"));
+        originalBm.add(new File("dir/sub/file2.c"), and("CONFIG_A", not("CONFIG_B")));
+        originalBm.add(new File("file3.c"), True.INSTANCE);
+        originalBm.add(new File("dir/file4.c"), False.INSTANCE);
+        
+        BinaryBuildModelCache cache = new BinaryBuildModelCache(cacheDir);
+        cache.write(originalBm);
+        assertThat(new File(cacheDir, "bmCache.bin").isFile(), is(true));
+        
+        BuildModel readBm = cache.read(new File(""));
+        
+        assertThat(readBm.getSize(), is(4));
+        for (File file : originalBm) {
+            assertThat(readBm.getPc(file), is(originalBm.getPc(file)));
+        }
+    }
+    
+    /**
+     * Tests that structurally equal sub-formulas are the same object after reading.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testSharedFormulas() throws IOException, FormatException {
+        BuildModel originalBm = new BuildModel();
+        originalBm.add(new File("a.c"), and(or("A", "B"), "C"));
+        originalBm.add(new File("b.c"), and(or("A", "B"), "D"));
+        originalBm.add(new File("c.c"), and(or("A", "B"), "C"));
+        
+        BinaryBuildModelCache cache = new BinaryBuildModelCache(cacheDir);
+        cache.write(originalBm);
+        BuildModel readBm = cache.read(new File(""));
+        
+        Formula pcA = readBm.getPc(new File("a.c"));
+        Formula pcB = readBm.getPc(new File("b.c"));
+        Formula pcC = readBm.getPc(new File("c.c"));
+        
+        assertThat(pcA, is(and(or("A", "B"), "C")));
+        assertThat(pcB, is(and(or("A", "B"), "D")));
+        assertThat(pcC, sameInstance(pcA));
+        assertThat(((Conjunction) pcB).getLeft(), sameInstance(((Conjunction) pcA).getLeft()));
+    }
+    
+    /**
+     * Tests that the descriptor is written and read.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testDescriptor() throws IOException, FormatException {
+        BinaryBuildModelCache cache = new BinaryBuildModelCache(cacheDir);
+        
+        for (KeyType keyType : KeyType.values()) {
+            BuildModel originalBm = new BuildModel();
+            originalBm.getDescriptor().setKeyType(keyType);
+            originalBm.getDescriptor().setCaseSensitive(false);
+            originalBm.add(new File("dir"), True.INSTANCE);
+            cache.write(originalBm);
+            
+            BuildModel readBm = cache.read(new File(""));
+            assertThat(readBm.getDescriptor().getKeyType(), is(keyType));
+            assertThat(readBm.getDescriptor().isCaseSensitive(), is(false));
+            assertThat(readBm.getPcDirect(new File("DIR")), is(True.INSTANCE));
+        }
+    }
+    
+    /**
+     * Tests that a compressed cache is written with the suffix of the codec and can be read by an uncompressed cache.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCachingCompressed() throws IOException, FormatException {
+        BuildModel originalBm = new BuildModel();
+        originalBm.add(new File("dir/file.c"), or("CONFIG_A", "CONFIG_A_MODULE"));
+        
+        new BinaryBuildModelCache(cacheDir, CompressionCodec.DEFAULT).write(originalBm);
+        assertThat(new File(cacheDir, "bmCache.bin.gz").isFile(), is(true));
+        assertThat(new File(cacheDir, "bmCache.bin").exists(), is(false));
+        
+        BuildModel readBm = new BinaryBuildModelCache(cacheDir).read(new File(""));
+        assertThat(readBm.getSize(), is(1));
+        assertThat(readBm.getPc(new File("dir/file.c")), is(originalBm.getPc(new File("dir/file.c"))));
+    }
+    
+    /**
+     * Tests that a file that is not a binary build model cache is rejected.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidMagic() throws IOException, FormatException {
+        try (FileOutputStream out = new FileOutputStream(new File(cacheDir, "bmCache.bin"))) {
+            out.write("{\"version\": 2}".getBytes());
+        }
+        
+        new BinaryBuildModelCache(cacheDir).read(new File(""));
+    }
+    
+    /**
+     * Tests that a truncated cache file is rejected.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testTruncated() throws IOException, FormatException {
+        BuildModel originalBm = new BuildModel();
+        originalBm.add(new File("dir/file.c"), or("CONFIG_A", "CONFIG_A_MODULE"));
+        new BinaryBuildModelCache(cacheDir).write(originalBm);
+        
+        File cacheFile = new File(cacheDir, "bmCache.bin");
+        byte[] content = Files.readAllBytes(cacheFile.toPath());
+        try (FileOutputStream out = new FileOutputStream(cacheFile)) {
+            out.write(content, 0, content.length - 3);
+        }
+        
+        new BinaryBuildModelCache(cacheDir).read(new File(""));
+    }
+    
+    /**
+     * Tests that reading an empty cache directory returns <code>null</code>.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testEmptyCache() throws IOException, FormatException {
+        assertThat(new BinaryBuildModelCache(cacheDir).read(new File("")), nullValue());
+    }
+
+}
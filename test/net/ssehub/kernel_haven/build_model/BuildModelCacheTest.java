@@ -30,6 +30,7 @@ import org.junit.Test;
 import net.ssehub.kernel_haven.build_model.BuildModelDescriptor.KeyType;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.BlockCompressionCodec;
 import net.ssehub.kernel_haven.util.logic.True;
 
 /**
@@ -94,6 +95,28 @@ public class BuildModelCacheTest {
         assertThat(readBm.getPc(new File("dir/file2.c")), is(originalBm.getPc(new File("dir/file2.c"))));
     }
 
+    /**
+     * Tests that a compressed cache is written with the suffix of the codec and can be read by an uncompressed cache.
+     * 
+     * @throws IOException
+     *             unwanted.
+     * @throws FormatException
+     *             unwanted.
+     */
+    @Test
+    public void testCachingCompressed() throws IOException, FormatException {
+        BuildModel originalBm = new BuildModel();
+        originalBm.add(new File("dir/file.c"), or("CONFIG_A", "CONFIG_A_MODULE"));
+        
+        new JsonBuildModelCache(cacheDir, new BlockCompressionCodec(6)).write(originalBm);
+        assertThat(new File(cacheDir, "bmCache.json.khz").isFile(), is(true));
+        assertThat(new File(cacheDir, "bmCache.json").exists(), is(false));
+        
+        BuildModel readBm = new JsonBuildModelCache(cacheDir).read(new File(""));
+        assertThat(readBm.getSize(), is(1));
+        assertThat(readBm.getPc(new File("dir/file.c")), is(originalBm.getPc(new File("dir/file.c"))));
+    }
+
     /**
      * Tests if an invalid cache file correctly throws an
      * {@link FormatException} with an invalid CSV.
@@ -31,6 +31,8 @@ import net.ssehub.kernel_haven.code_model.simple_ast.SyntaxElementTest;
     
     CodeBlockTest.class,
     JsonCodeModelCacheTest.class,
+    BinaryCodeModelCacheTest.class,
+    CodeElementRegistryTest.class,
     CodeModelProviderTest.class,
     SyntaxElementTest.class,
     })
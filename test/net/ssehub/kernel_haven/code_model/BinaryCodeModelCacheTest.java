@@ -0,0 +1,417 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.ast.AllAstTests;
+import net.ssehub.kernel_haven.code_model.ast.ISyntaxElement;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.BlockCompressionCodec;
+import net.ssehub.kernel_haven.util.io.CompressionCodec;
+import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.FormulaFactory;
+import net.ssehub.kernel_haven.util.logic.Negation;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link BinaryCodeModelCache}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BinaryCodeModelCacheTest {
+
+    private File cacheDir;
+
+    /**
+     * Creates the cache directory for each test.
+     */
+    @Before
+    public void setUp() {
+        cacheDir = new File("testdata/tmp_cache");
+        cacheDir.mkdir();
+        assertThat(cacheDir.isDirectory(), is(true));
+    }
+
+    /**
+     * Deletes the cache directory after each test.
+     * 
+     * @throws IOException
+     *             unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(cacheDir);
+    }
+    
+    /**
+     * Creates a simple source file consisting of {@link CodeBlock}s.
+     * 
+     * @return The source file.
+     */
+    private static SourceFile<CodeBlock> createBlockSourceFile() {
+        SourceFile<CodeBlock> sourceFile = new SourceFile<>(new File("dir/test.c"));
+        Variable a = new Variable("A");
+        Variable b = new Variable("B");
+        CodeBlock block1 = new CodeBlock(1, 2, new File("file"), a, a);
+        CodeBlock block2 = new CodeBlock(3, 15, new File("file"), new Negation(a), new Negation(a));
+        CodeBlock block21 = new CodeBlock(4, 5, new File("file"), b, new Conjunction(b, new Negation(a)));
+        block2.addNestedElement(block21);
+        CodeBlock block3 = new CodeBlock(100000, 100001, new File("file"), null, True.INSTANCE);
+
+        sourceFile.addElement(block1);
+        sourceFile.addElement(block2);
+        sourceFile.addElement(block3);
+        return sourceFile;
+    }
+    
+    /**
+     * Asserts that the given source files are equal.
+     * 
+     * @param <T> The type of elements in the source files.
+     * @param expected The expected source file.
+     * @param actual The actual source file.
+     */
+    private static <T extends CodeElement<T>> void assertSourceFilesEqual(SourceFile<T> expected,
+            SourceFile<T> actual) {
+        
+        assertThat(actual.getPath(), is(expected.getPath()));
+        assertThat(actual.getTopElementCount(), is(expected.getTopElementCount()));
+
+        Iterator<T> expectedIt = expected.iterator();
+        Iterator<T> actualIt = actual.iterator();
+        while (expectedIt.hasNext()) {
+            assertThat(actualIt.next(), is(expectedIt.next()));
+        }
+        assertThat(actualIt.hasNext(), is(false));
+    }
+
+    /**
+     * Writes and reads a code model consisting of {@link CodeBlock}s to the cache, and asserts that contents are equal.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testBlockCaching() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        cache.write(original);
+        
+        SourceFile<CodeBlock> read = cache.read(original.getPath()).castTo(CodeBlock.class);
+        assertSourceFilesEqual(original, read);
+    }
+    
+    /**
+     * Tests that equal formulas are only stored once, and thus are read as the same instance.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFormulasShared() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        cache.write(original);
+        
+        SourceFile<CodeBlock> read = cache.read(original.getPath()).castTo(CodeBlock.class);
+        CodeBlock block2 = read.getElement(1);
+        CodeBlock block21 = block2.getNestedElement(0);
+        
+        // !A is the presence condition of block2 and the right operand of the presence condition of block21
+        assertThat(((Conjunction) block21.getPresenceCondition()).getRight(),
+                sameInstance(block2.getPresenceCondition()));
+    }
+
+    /**
+     * Tests caching if compression is turned on.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCachingCompressed() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir, true);
+        cache.write(original);
+        assertThat(new File(cacheDir, "dir.test.c.bin.gz").isFile(), is(true));
+        assertThat(new File(cacheDir, "dir.test.c.bin").exists(), is(false));
+        
+        // reading compressed files is supported even if compression is turned off
+        SourceFile<CodeBlock> read = new BinaryCodeModelCache(cacheDir, false).read(original.getPath())
+                .castTo(CodeBlock.class);
+        assertSourceFilesEqual(original, read);
+    }
+    
+    /**
+     * Tests caching with the block compression codec, in single files and in a pack.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testCachingBlockCompressed() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+        CompressionCodec codec = new BlockCompressionCodec(1);
+        
+        new BinaryCodeModelCache(cacheDir, true).write(original);
+        new BinaryCodeModelCache(cacheDir, codec, false).write(original);
+        assertThat(new File(cacheDir, "dir.test.c.bin.khz").isFile(), is(true));
+        assertThat(new File(cacheDir, "dir.test.c.bin.gz").exists(), is(false));
+        
+        SourceFile<CodeBlock> read = new BinaryCodeModelCache(cacheDir).read(original.getPath())
+                .castTo(CodeBlock.class);
+        assertSourceFilesEqual(original, read);
+        
+        BinaryCodeModelCache packCache = new BinaryCodeModelCache(cacheDir, codec, true);
+        packCache.write(original);
+        packCache.flush();
+        read = new BinaryCodeModelCache(cacheDir, false, true).read(original.getPath()).castTo(CodeBlock.class);
+        assertSourceFilesEqual(original, read);
+    }
+    
+    /**
+     * Tests caching in a single pack file, with and without compression.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testPackCaching() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+        SourceFile<ISyntaxElement> ast = new SourceFile<>(new File("ast.c"));
+        ast.addElement(AllAstTests.createFullAst());
+
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir, false, true);
+        cache.write(original);
+        new BinaryCodeModelCache(cacheDir, true, true).write(ast);
+        cache.flush();
+        
+        assertThat(new File(cacheDir, "code_model.bin.pack").isFile(), is(true));
+        assertThat(new File(cacheDir, "dir.test.c.bin").exists(), is(false));
+        
+        BinaryCodeModelCache readCache = new BinaryCodeModelCache(cacheDir, false, true);
+        assertSourceFilesEqual(original, readCache.read(original.getPath()).castTo(CodeBlock.class));
+        assertSourceFilesEqual(ast, readCache.read(ast.getPath()).castTo(ISyntaxElement.class));
+        assertThat(readCache.read(new File("other.c")), nullValue());
+        
+        // closing releases the pack; it is opened again on the next access
+        cache.close();
+        readCache.close();
+        assertSourceFilesEqual(original, readCache.read(original.getPath()).castTo(CodeBlock.class));
+        readCache.close();
+    }
+    
+    /**
+     * Writes and reads a code model consisting of {@link ISyntaxElement}s to the cache, and asserts that contents
+     * are equal.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testAstCaching() throws IOException, FormatException {
+        SourceFile<ISyntaxElement> original = new SourceFile<>(new File("test.c"));
+        original.addElement(AllAstTests.createFullAst());
+
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        cache.write(original);
+        
+        SourceFile<ISyntaxElement> read = cache.read(original.getPath()).castTo(ISyntaxElement.class);
+        assertSourceFilesEqual(original, read);
+    }
+    
+    /**
+     * Tests that in lazy mode, the nested elements are only read when they are accessed.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testLazyBlockCaching() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+
+        new BinaryCodeModelCache(cacheDir).write(original);
+        
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir, CompressionCodec.NONE, false, true);
+        SourceFile<CodeBlock> read = cache.read(original.getPath()).castTo(CodeBlock.class);
+        
+        CodeBlock block2 = read.getElement(1);
+        assertThat(block2.isNestedElementLoaderPending(), is(true));
+        assertThat(block2.getNestedElementCount(), is(1));
+        assertThat(block2.isNestedElementLoaderPending(), is(true));
+        assertThat(block2.getPresenceCondition(), is(original.getElement(1).getPresenceCondition()));
+        
+        assertThat(block2.getNestedElement(0), is(original.getElement(1).getNestedElement(0)));
+        assertThat(block2.isNestedElementLoaderPending(), is(false));
+        
+        assertSourceFilesEqual(original, read);
+    }
+    
+    /**
+     * Tests that in lazy mode, the formulas of lazily read elements are still shared with the eagerly read elements.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testLazyFormulasShared() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+        
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir, CompressionCodec.DEFAULT, true, true);
+        cache.write(original);
+        cache.flush();
+        
+        SourceFile<CodeBlock> read = cache.read(original.getPath()).castTo(CodeBlock.class);
+        CodeBlock block2 = read.getElement(1);
+        CodeBlock block21 = block2.getNestedElement(0);
+        
+        Conjunction pc = (Conjunction) block21.getPresenceCondition();
+        assertThat(pc.getRight(), sameInstance(block2.getPresenceCondition()));
+    }
+    
+    /**
+     * Tests that the formulas read from the cache are created through the {@link FormulaFactory} of the cache.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFormulaFactory() throws IOException, FormatException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+        FormulaFactory factory = new FormulaFactory();
+        
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        cache.setFormulaFactory(factory);
+        cache.write(original);
+        
+        SourceFile<CodeBlock> read1 = cache.read(original.getPath()).castTo(CodeBlock.class);
+        SourceFile<CodeBlock> read2 = cache.read(original.getPath()).castTo(CodeBlock.class);
+        
+        assertSourceFilesEqual(original, read1);
+        CodeBlock block21 = read1.getElement(1).getNestedElement(0);
+        assertThat(block21.getPresenceCondition(),
+                sameInstance(factory.intern(original.getElement(1).getNestedElement(0).getPresenceCondition())));
+        assertThat(read2.getElement(1).getNestedElement(0).getPresenceCondition(),
+                sameInstance(block21.getPresenceCondition()));
+    }
+    
+    /**
+     * Tests that an AST with references between elements (e.g. siblings of CPP blocks, cases of switch statements) is
+     * read correctly in lazy mode.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testLazyAstCaching() throws IOException, FormatException {
+        SourceFile<ISyntaxElement> original = new SourceFile<>(new File("test.c"));
+        original.addElement(AllAstTests.createFullAst());
+
+        new BinaryCodeModelCache(cacheDir).write(original);
+        
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir, CompressionCodec.NONE, false, true);
+        SourceFile<ISyntaxElement> read = cache.read(original.getPath()).castTo(ISyntaxElement.class);
+        assertSourceFilesEqual(original, read);
+    }
+    
+    /**
+     * Tests that the binary cache file is smaller than the JSON cache file.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSmallerThanJson() throws IOException {
+        SourceFile<ISyntaxElement> original = new SourceFile<>(new File("test.c"));
+        original.addElement(AllAstTests.createFullAst());
+        
+        new BinaryCodeModelCache(cacheDir).write(original);
+        new JsonCodeModelCache(cacheDir).write(original);
+        
+        long binarySize = new File(cacheDir, "test.c.bin").length();
+        long jsonSize = new File(cacheDir, "test.c.json").length();
+        assertThat(binarySize * 3 < jsonSize, is(true));
+    }
+    
+    /**
+     * Tests if the cache correctly returns <code>null</code> on empty cache.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testEmptyCache() throws FormatException, IOException {
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        assertThat(cache.read(new File("test.c")), nullValue());
+    }
+    
+    /**
+     * Tests that an invalid cache file correctly throws an {@link FormatException}.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidFile() throws FormatException, IOException {
+        try (OutputStream out = new FileOutputStream(new File(cacheDir, "test.c.bin"))) {
+            out.write("{ \"not\": \"binary\" }".getBytes());
+        }
+        
+        new BinaryCodeModelCache(cacheDir).read(new File("test.c"));
+    }
+    
+    /**
+     * Tests that a truncated cache file correctly throws an {@link FormatException}.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testTruncatedFile() throws FormatException, IOException {
+        SourceFile<CodeBlock> original = createBlockSourceFile();
+        BinaryCodeModelCache cache = new BinaryCodeModelCache(cacheDir);
+        cache.write(original);
+        
+        File cacheFile = new File(cacheDir, "dir.test.c.bin");
+        byte[] content = Files.readAllBytes(cacheFile.toPath());
+        try (OutputStream out = new FileOutputStream(cacheFile)) {
+            out.write(content, 0, content.length - 3);
+        }
+        
+        cache.read(original.getPath());
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.code_model;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.code_model.CodeElementRegistry.CodeElementFactory;
+import net.ssehub.kernel_haven.code_model.ast.Code;
+import net.ssehub.kernel_haven.code_model.ast.SingleStatement;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link CodeElementRegistry}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class CodeElementRegistryTest {
+
+    /**
+     * A function for secondary nested elements that must not be called.
+     * 
+     * @param json Ignored.
+     * 
+     * @return Nothing.
+     * 
+     * @throws FormatException Always.
+     */
+    private static CodeElement<?> noSecondary(JsonElement json) throws FormatException {
+        throw new FormatException("Unexpected secondary element");
+    }
+    
+    /**
+     * Serializes the given element with its own serialization method.
+     * 
+     * @param element The element to serialize.
+     * 
+     * @return The serialized JSON.
+     */
+    private static JsonObject serialize(CodeElement<?> element) {
+        JsonObject json = new JsonObject();
+        element.serializeToJson(json, (e) -> new JsonObject(), (e) -> 1);
+        return json;
+    }
+    
+    /**
+     * Tests creating an element with the explicitly registered {@link CodeBlock} factory.
+     * 
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testRegisteredFactory() throws FormatException {
+        CodeBlock original = new CodeBlock(1, 5, new File("test.c"), new Variable("A"), new Variable("A"));
+        
+        CodeElement<?> created = CodeElementRegistry.create(CodeBlock.class.getName(), serialize(original),
+                CodeElementRegistryTest::noSecondary);
+        
+        assertThat(created, is(original));
+    }
+    
+    /**
+     * Tests creating an element via its (protected) de-serialization constructor.
+     * 
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testConstructorFactory() throws FormatException {
+        Code original = new Code(True.INSTANCE, "a = b;");
+        original.setSourceFile(new File("test.c"));
+        original.setLineStart(3);
+        original.setLineEnd(4);
+        
+        CodeElement<?> created = CodeElementRegistry.create(Code.class.getName(), serialize(original),
+                CodeElementRegistryTest::noSecondary);
+        
+        assertThat(created, instanceOf(Code.class));
+        assertThat(created, is(original));
+    }
+    
+    /**
+     * Tests that the factory for a class is only created once.
+     * 
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFactoryCached() throws FormatException {
+        CodeElementFactory factory = CodeElementRegistry.getFactory(SingleStatement.class.getName());
+        assertThat(CodeElementRegistry.getFactory(SingleStatement.class.getName()), sameInstance(factory));
+    }
+    
+    /**
+     * Tests that concurrent lookups all get the same factory.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testConcurrentLookup() throws InterruptedException {
+        String className = "net.ssehub.kernel_haven.code_model.ast.Comment";
+        List<CodeElementFactory> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    CodeElementFactory factory = CodeElementRegistry.getFactory(className);
+                    synchronized (results) {
+                        results.add(factory);
+                    }
+                } catch (FormatException e) {
+                    // results will be too short
+                }
+            }));
+        }
+        for (Thread th : threads) {
+            th.start();
+        }
+        for (Thread th : threads) {
+            th.join();
+        }
+        
+        assertThat(results.size(), is(8));
+        for (CodeElementFactory factory : results) {
+            assertThat(factory, sameInstance(results.get(0)));
+        }
+    }
+    
+    /**
+     * Tests that an explicitly registered factory is used.
+     * 
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testExplicitRegistration() throws FormatException {
+        CodeBlock block = new CodeBlock(True.INSTANCE);
+        CodeElementRegistry.register(CodeElementRegistryTest.class, (json, function) -> block);
+        
+        assertThat(CodeElementRegistry.create(CodeElementRegistryTest.class.getName(), new JsonObject(),
+                CodeElementRegistryTest::noSecondary), sameInstance(block));
+    }
+    
+    /**
+     * Tests that an unknown class throws an exception.
+     * 
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testUnknownClass() throws FormatException {
+        CodeElementRegistry.getFactory("does.not.Exist");
+    }
+    
+    /**
+     * Tests that a class that is not a {@link CodeElement} throws an exception.
+     * 
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testNotACodeElement() throws FormatException {
+        CodeElementRegistry.getFactory(String.class.getName());
+    }
+    
+    /**
+     * Tests that a {@link FormatException} thrown by the constructor is passed through.
+     * 
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testConstructorException() throws FormatException {
+        CodeElementRegistry.create(SingleStatement.class.getName(), new JsonObject(),
+                CodeElementRegistryTest::noSecondary);
+    }
+    
+}
@@ -31,7 +31,9 @@ import org.junit.Test;
 
 import net.ssehub.kernel_haven.SetUpException;
 import net.ssehub.kernel_haven.config.Configuration;
+import net.ssehub.kernel_haven.provider.ProviderPublisher;
 import net.ssehub.kernel_haven.test_utils.TestConfiguration;
+import net.ssehub.kernel_haven.test_utils.TestSubscriber;
 import net.ssehub.kernel_haven.util.CodeExtractorException;
 import net.ssehub.kernel_haven.util.ExtractorException;
 import net.ssehub.kernel_haven.util.Util;
@@ -93,6 +95,50 @@ public class CodeModelProviderTest {
 
     }
 
+    /**
+     * Small extractor that hangs on all files named "test.c". Hangs are interruptible, unless specified otherwise.
+     */
+    private static class HangingExtractor extends AbstractCodeModelExtractor {
+
+        private boolean ignoreInterrupts;
+        
+        /**
+         * Creates a new hanging extractor.
+         * 
+         * @param ignoreInterrupts Whether the hang should ignore interrupts (for a maximum of 3 seconds).
+         */
+        public HangingExtractor(boolean ignoreInterrupts) {
+            this.ignoreInterrupts = ignoreInterrupts;
+        }
+        
+        @Override
+        protected void init(Configuration config) throws SetUpException {
+        }
+
+        @Override
+        protected SourceFile<?> runOnFile(File target) throws ExtractorException {
+            if (target.getName().equals("test.c")) {
+                long start = System.currentTimeMillis();
+                while (System.currentTimeMillis() - start < 3000) {
+                    try {
+                        Thread.sleep(3000);
+                    } catch (InterruptedException e) {
+                        if (!ignoreInterrupts) {
+                            throw new ExtractorException("Interrupted");
+                        }
+                    }
+                }
+            }
+            return new SourceFile<CodeElement<?>>(target);
+        }
+
+        @Override
+        protected String getName() {
+            return "HangingCodeExtractor";
+        }
+
+    }
+
     /**
      * Tests whether the set() and get() Methods for the result properly wait
      * for each other.
@@ -115,6 +161,31 @@ public class CodeModelProviderTest {
         assertThat(provider.getNextResult(), notNullValue());
     }
 
+    /**
+     * Tests that results are tagged with the configured source tree ID.
+     * 
+     * @throws SetUpException
+     *             unwanted.
+     */
+    @Test
+    public void testSourceTreeId() throws SetUpException {
+        Properties config = new Properties();
+        config.setProperty("code.extractor.files", "test.c");
+        config.setProperty("code.extractor.file_pattern", ".*");
+        config.setProperty("source_tree", SOURCE_TREE.getAbsolutePath());
+        config.setProperty("source_tree.id", "v1");
+        CodeModelProvider provider = new CodeModelProvider();
+        PseudoExtractor extractor = new PseudoExtractor(false);
+        provider.setExtractor(extractor);
+
+        provider.setConfig(new TestConfiguration(config));
+        provider.start();
+        
+        SourceFile<?> result = provider.getNextResult();
+        assertThat(result, notNullValue());
+        assertThat(result.getTreeId(), is("v1"));
+    }
+
     /**
      * Tests whether exceptions are properly passed to get().
      * 
@@ -320,7 +391,7 @@ public class CodeModelProviderTest {
         // test if cache is now not empty
         File[] cacheFiles = cacheDir.listFiles();
         assertThat(cacheFiles.length, is(1));
-        assertThat(cacheFiles[0].getName(), endsWith(".zip"));
+        assertThat(cacheFiles[0].getName(), endsWith(".json.gz"));
         
         // cleanup
         Util.deleteFolder(cacheDir);
@@ -499,4 +570,129 @@ public class CodeModelProviderTest {
         assertThat(provider.getNextResult(), notNullValue());
     }
     
+    /**
+     * Tests that the per-target deadline abandons hanging workers and reports exceptions for the hanging targets.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 2500)
+    public void testTargetTimeout() throws SetUpException {
+        runTargetTimeoutTest(false);
+    }
+    
+    /**
+     * Tests that the per-target deadline abandons hanging workers that ignore interrupts, and that their late results
+     * are discarded.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test(timeout = 2500)
+    public void testTargetTimeoutIgnoringInterrupts() throws SetUpException {
+        runTargetTimeoutTest(true);
+    }
+    
+    /**
+     * Runs the {@link HangingExtractor} on the complete source tree with a per-target deadline.
+     * 
+     * @param ignoreInterrupts Whether the extractor should ignore interrupts.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    private void runTargetTimeoutTest(boolean ignoreInterrupts) throws SetUpException {
+        Properties config = new Properties();
+        config.setProperty("code.extractor.files", "");
+        config.setProperty("source_tree", SOURCE_TREE.getAbsolutePath());
+        config.setProperty("code.extractor.threads", "1");
+        config.setProperty("code.extractor.target_timeout", "200");
+        CodeModelProvider provider = new CodeModelProvider();
+        provider.setExtractor(new HangingExtractor(ignoreInterrupts));
+        provider.setConfig(new TestConfiguration(config));
+        provider.start();
+        
+        Set<File> results = new HashSet<>();
+        SourceFile<?> file;
+        while ((file = provider.getNextResult()) != null) {
+            results.add(file.getPath());
+        }
+        
+        Set<File> exceptions = new HashSet<>();
+        ExtractorException exc;
+        while ((exc = provider.getNextException()) != null) {
+            exceptions.add(((CodeExtractorException) exc).getCausingFile());
+        }
+        
+        Set<File> expected = new HashSet<>();
+        expected.add(new File("test.c"));
+        expected.add(new File("dir/test.c"));
+        assertThat(exceptions, is(expected));
+        assertThat(results.size(), is(3));
+    }
+    
+    /**
+     * Tests that the extractor only works on as many targets as are requested via a {@link ProviderPublisher}.
+     * 
+     * @throws SetUpException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testDemandDrivenExtraction() throws SetUpException, InterruptedException {
+        Properties config = new Properties();
+        config.setProperty("code.extractor.files", "");
+        config.setProperty("source_tree", SOURCE_TREE.getAbsolutePath());
+        config.setProperty("code.extractor.threads", "1");
+        CodeModelProvider provider = new CodeModelProvider();
+        PseudoExtractor extractor = new PseudoExtractor(false);
+        provider.setExtractor(extractor);
+        provider.setConfig(new TestConfiguration(config));
+        
+        ProviderPublisher<SourceFile<?>> publisher = new ProviderPublisher<>(provider);
+        TestSubscriber<SourceFile<?>> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.getSubscription().request(2);
+        subscriber.awaitItems(2);
+        Thread.sleep(400); // give the extractor the chance to (wrongly) parse more files
+        
+        assertThat(extractor.filesToParse.size(), is(2));
+        assertThat(subscriber.getItems().size(), is(2));
+        
+        subscriber.getSubscription().request(Long.MAX_VALUE);
+        subscriber.awaitTermination();
+        
+        assertThat(subscriber.isCompleted(), is(true));
+        assertThat(subscriber.getItems().size(), is(5));
+        assertThat(extractor.filesToParse.size(), is(5));
+    }
+    
+    /**
+     * Tests that cancelling the provider stops the extractor from working on further targets.
+     * 
+     * @throws SetUpException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testCancel() throws SetUpException, InterruptedException {
+        Properties config = new Properties();
+        config.setProperty("code.extractor.files", "");
+        config.setProperty("source_tree", SOURCE_TREE.getAbsolutePath());
+        config.setProperty("code.extractor.threads", "1");
+        CodeModelProvider provider = new CodeModelProvider();
+        PseudoExtractor extractor = new PseudoExtractor(false);
+        provider.setExtractor(extractor);
+        provider.setConfig(new TestConfiguration(config));
+        provider.start();
+        
+        assertThat(provider.getNextResult(), notNullValue());
+        provider.cancel();
+        
+        assertThat(provider.isCancelled(), is(true));
+        assertThat(provider.getNextResult(), nullValue());
+        
+        extractor.awaitFinished();
+        assertThat(extractor.isRunning(), is(false));
+        
+        // the first file is done, the second one may have been started before cancel() was called
+        assertThat(extractor.filesToParse.size() <= 2, is(true));
+    }
+    
 }
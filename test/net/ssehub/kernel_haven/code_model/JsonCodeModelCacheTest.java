@@ -20,24 +20,35 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.function.Function;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import net.ssehub.kernel_haven.code_model.JsonCodeModelCache.CheckedFunction;
 import net.ssehub.kernel_haven.code_model.ast.AllAstTests;
 import net.ssehub.kernel_haven.code_model.ast.ISyntaxElement;
 import net.ssehub.kernel_haven.code_model.simple_ast.SyntaxElement;
 import net.ssehub.kernel_haven.code_model.simple_ast.SyntaxElementTypes;
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.json.JsonElement;
+import net.ssehub.kernel_haven.util.io.json.JsonList;
+import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.io.json.JsonParser;
+import net.ssehub.kernel_haven.util.io.json.JsonString;
 import net.ssehub.kernel_haven.util.logic.Conjunction;
+import net.ssehub.kernel_haven.util.logic.Formula;
 import net.ssehub.kernel_haven.util.logic.Negation;
 import net.ssehub.kernel_haven.util.logic.True;
 import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
 
 /**
  * Tests the {@link JsonCodeModelCache}.
@@ -110,6 +121,88 @@ public class JsonCodeModelCacheTest {
         assertThat(readIt.hasNext(), is(false));
     }
     
+    /**
+     * Tests that a field named <code>formulas</code> of an element does not clash with the references to the formula
+     * table.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFormulasField() throws IOException, FormatException {
+        File location = new File("test.c");
+        SourceFile<FormulasBlock> original = new SourceFile<>(location);
+        original.addElement(new FormulasBlock(new Variable("A"), "no formula"));
+        original.addElement(new FormulasBlock(new Negation(new Variable("A")), "A"));
+        
+        JsonCodeModelCache cache = new JsonCodeModelCache(cacheDir);
+        cache.write(original);
+        SourceFile<FormulasBlock> read = cache.read(location).castTo(FormulasBlock.class);
+        
+        assertThat(read.getTopElementCount(), is(2));
+        assertThat(read.getElement(0).formulas, is("no formula"));
+        assertThat(read.getElement(0).getPresenceCondition(), is(new Variable("A")));
+        assertThat(read.getElement(1).formulas, is("A"));
+        assertThat(read.getElement(1).getPresenceCondition(), is(new Negation(new Variable("A"))));
+    }
+    
+    /**
+     * Tests that equal formulas are stored only once in the formula table, and are shared between the read elements.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testSharedFormulas() throws IOException, FormatException {
+        File location = new File("test.c");
+        SourceFile<CodeBlock> originalSourceFile = new SourceFile<>(location);
+        Variable a = new Variable("A");
+        CodeBlock block1 = new CodeBlock(1, 2, new File("file"), a, new Negation(a));
+        CodeBlock block2 = new CodeBlock(3, 4, new File("file"), new Negation(new Variable("A")), True.INSTANCE);
+        originalSourceFile.addElement(block1);
+        originalSourceFile.addElement(block2);
+        
+        JsonCodeModelCache cache = new JsonCodeModelCache(cacheDir);
+        cache.write(originalSourceFile);
+        
+        JsonList formulas;
+        try (JsonParser parser = new JsonParser(new File(cacheDir, "test.c.json"))) {
+            formulas = ((JsonObject) parser.parse()).getList("formulas");
+        }
+        assertThat(formulas.toString(), is("[ [ \"v\", \"A\" ], [ \"!\", 0 ], [ \"1\" ] ]"));
+        
+        SourceFile<CodeBlock> readSourceFile = cache.read(location).castTo(CodeBlock.class);
+        CodeBlock read1 = readSourceFile.getElement(0);
+        CodeBlock read2 = readSourceFile.getElement(1);
+        
+        assertThat(read1, is(block1));
+        assertThat(read2, is(block2));
+        assertThat(read1.getPresenceCondition() == read2.getCondition(), is(true));
+        assertThat(((Negation) read1.getPresenceCondition()).getFormula() == read1.getCondition(), is(true));
+    }
+    
+    /**
+     * Tests reading a cache file where the formula table comes after the elements.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testFormulasAfterElements() throws IOException, FormatException {
+        try (FileWriter out = new FileWriter(new File(cacheDir, "test.c.json"))) {
+            out.write("{\"elements\": [{\"class\": \"net.ssehub.kernel_haven.code_model.CodeBlock\", \"id\": 1, "
+                    + "\"sourceFile\": \"file\", \"lineStart\": 1, \"lineEnd\": 2, "
+                    + "\"#formulas\": {\"condition\": 0, \"presenceCondition\": 1}}], "
+                    + "\"version\": 3, \"path\": \"test.c\", \"formulas\": [[\"v\", \"A\"], [\"!\", 0]]}");
+        }
+        
+        SourceFile<CodeBlock> read = new JsonCodeModelCache(cacheDir).read(new File("test.c")).castTo(CodeBlock.class);
+        
+        Variable a = new Variable("A");
+        assertThat(read.getTopElementCount(), is(1));
+        assertThat(read.getElement(0), is(new CodeBlock(1, 2, new File("file"), a, new Negation(a))));
+    }
+    
     /**
      * Tests if an invalid cache file correctly throws an
      * {@link FormatException} with an invalid CSV.
@@ -268,6 +361,44 @@ public class JsonCodeModelCacheTest {
         assertThat(readIt.hasNext(), is(false));
     }
     
+    /**
+     * Tests caching in a single pack file, with and without compression.
+     * 
+     * @throws IOException
+     *             unwanted.
+     * @throws FormatException
+     *             unwanted.
+     */
+    @Test
+    public void testPackCaching() throws IOException, FormatException {
+        SourceFile<ISyntaxElement> uncompressed = new SourceFile<>(new File("test.c"));
+        uncompressed.addElement(AllAstTests.createFullAst());
+        SourceFile<ISyntaxElement> compressed = new SourceFile<>(new File("dir/test.c"));
+        compressed.addElement(AllAstTests.createFullAst());
+
+        JsonCodeModelCache cache = new JsonCodeModelCache(cacheDir, false, true);
+        cache.write(uncompressed);
+        new JsonCodeModelCache(cacheDir, true, true).write(compressed);
+        cache.flush();
+        
+        assertThat(new File(cacheDir, "code_model.json.pack").isFile(), is(true));
+        
+        JsonCodeModelCache readCache = new JsonCodeModelCache(cacheDir, false, true);
+        for (SourceFile<ISyntaxElement> original : Arrays.asList(uncompressed, compressed)) {
+            SourceFile<ISyntaxElement> read = readCache.read(original.getPath()).castTo(ISyntaxElement.class);
+            assertThat(read.getPath(), is(original.getPath()));
+            assertThat(read.getTopElementCount(), is(1));
+            assertThat(read.getElement(0), is(original.getElement(0)));
+        }
+        assertThat(readCache.read(new File("other.c")), nullValue());
+        
+        // closing releases the pack; it is opened again on the next access
+        cache.close();
+        readCache.close();
+        assertThat(readCache.read(uncompressed.getPath()).getElement(0), is(uncompressed.getElement(0)));
+        readCache.close();
+    }
+    
     /**
      * Tests reading a compressed cache if compression is turned off.
      * 
@@ -343,4 +474,50 @@ public class JsonCodeModelCacheTest {
         assertThat(readIt.hasNext(), is(false));
     }
 
+    /**
+     * A {@link CodeBlock} with an additional field named <code>formulas</code>.
+     */
+    private static class FormulasBlock extends CodeBlock {
+        
+        private @NonNull String formulas;
+        
+        /**
+         * Creates a block.
+         * 
+         * @param presenceCondition The presence condition.
+         * @param formulas The value of the additional field.
+         */
+        FormulasBlock(@NonNull Formula presenceCondition, @NonNull String formulas) {
+            super(1, 2, new File("test.c"), null, presenceCondition);
+            this.formulas = formulas;
+        }
+        
+        /**
+         * De-serializes the given JSON to a block.
+         * 
+         * @param json The JSON do de-serialize.
+         * @param deserializeFunction The function to use for de-serializing secondary nested elements.
+         * 
+         * @throws FormatException If the JSON does not have the expected format.
+         */
+        @SuppressWarnings("unused") // used via reflection
+        protected FormulasBlock(@NonNull JsonObject json,
+                @NonNull CheckedFunction<@NonNull JsonElement, @NonNull CodeElement<?>, FormatException>
+                deserializeFunction) throws FormatException {
+            
+            super(json, deserializeFunction);
+            this.formulas = json.getString("formulas");
+        }
+        
+        @Override
+        public void serializeToJson(JsonObject result,
+                @NonNull Function<@NonNull CodeElement<?>, @NonNull JsonElement> serializeFunction,
+                @NonNull Function<@NonNull CodeElement<?>, @NonNull Integer> idFunction) {
+            
+            super.serializeToJson(result, serializeFunction, idFunction);
+            result.putElement("formulas", new JsonString(formulas));
+        }
+        
+    }
+    
 }
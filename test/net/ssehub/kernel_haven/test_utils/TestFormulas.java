@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.test_utils;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+
+import java.util.Random;
+
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Utilities to create {@link Formula}s for test cases.
+ *
+ * @author Adam
+ */
+public class TestFormulas {
+
+    /**
+     * Creates a random formula over the variables V0 to V(numVars-1).
+     * 
+     * @param random The random generator.
+     * @param numVars The number of variables.
+     * @param depth The maximum depth of the formula.
+     * 
+     * @return A random formula.
+     */
+    public static @NonNull Formula random(@NonNull Random random, int numVars, int depth) {
+        return random(random, numVars, depth, false);
+    }
+    
+    /**
+     * Creates a random formula over the variables V0 to V(numVars-1).
+     * 
+     * @param random The random generator.
+     * @param numVars The number of variables.
+     * @param depth The maximum depth of the formula.
+     * @param constants Whether some of the leaves should be {@link True} or {@link False} instead of variables.
+     * 
+     * @return A random formula.
+     */
+    public static @NonNull Formula random(@NonNull Random random, int numVars, int depth, boolean constants) {
+        Formula result;
+        int kind = depth == 0 ? 0 : random.nextInt(6);
+        switch (kind) {
+        case 0:
+            if (constants && random.nextInt(10) == 0) {
+                result = random.nextBoolean() ? True.INSTANCE : False.INSTANCE;
+            } else {
+                result = new Variable("V" + random.nextInt(numVars));
+            }
+            break;
+        case 1:
+            result = not(random(random, numVars, depth - 1, constants));
+            break;
+        case 2:
+        case 3:
+            result = and(random(random, numVars, depth - 1, constants),
+                    random(random, numVars, depth - 1, constants));
+            break;
+        default:
+            result = or(random(random, numVars, depth - 1, constants),
+                    random(random, numVars, depth - 1, constants));
+            break;
+        }
+        return result;
+    }
+    
+}
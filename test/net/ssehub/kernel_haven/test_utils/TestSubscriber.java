@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.test_utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.ssehub.kernel_haven.util.flow.Publisher;
+import net.ssehub.kernel_haven.util.flow.Subscriber;
+import net.ssehub.kernel_haven.util.flow.Subscription;
+
+/**
+ * A {@link Subscriber} for tests that records all received items and signals. Test methods can wait for a given
+ * number of items or for the termination of the {@link Publisher}.
+ *
+ * @param <T> The type of items.
+ *
+ * @author Adam
+ */
+public class TestSubscriber<T> implements Subscriber<T> {
+
+    private Subscription subscription;
+    
+    private List<T> items = new ArrayList<>();
+    
+    private Throwable error;
+    
+    private boolean completed;
+    
+    @Override
+    public synchronized void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    @Override
+    public synchronized void onNext(T item) {
+        items.add(item);
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        this.error = throwable;
+        notifyAll();
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        this.completed = true;
+        notifyAll();
+    }
+    
+    /**
+     * Returns the subscription that was passed to {@link #onSubscribe(Subscription)}.
+     * 
+     * @return The subscription.
+     */
+    public synchronized Subscription getSubscription() {
+        return subscription;
+    }
+    
+    /**
+     * Returns a copy of the items received so far.
+     * 
+     * @return The received items.
+     */
+    public synchronized List<T> getItems() {
+        return new ArrayList<>(items);
+    }
+    
+    /**
+     * Returns the error passed to {@link #onError(Throwable)}.
+     * 
+     * @return The error, or <code>null</code> if none was received.
+     */
+    public synchronized Throwable getError() {
+        return error;
+    }
+    
+    /**
+     * Returns whether {@link #onComplete()} was called.
+     * 
+     * @return Whether the publisher completed.
+     */
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+    
+    /**
+     * Waits until at least the given number of items have been received, or the publisher terminated.
+     * 
+     * @param numItems The number of items to wait for.
+     * 
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void awaitItems(int numItems) throws InterruptedException {
+        while (items.size() < numItems && !completed && error == null) {
+            wait();
+        }
+    }
+    
+    /**
+     * Waits until the publisher terminated via {@link #onComplete()} or {@link #onError(Throwable)}.
+     * 
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void awaitTermination() throws InterruptedException {
+        while (!completed && error == null) {
+            wait();
+        }
+    }
+    
+}
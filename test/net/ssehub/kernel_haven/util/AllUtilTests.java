@@ -19,6 +19,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import net.ssehub.kernel_haven.util.flow.AllFlowTests;
 import net.ssehub.kernel_haven.util.io.AllIoTests;
 import net.ssehub.kernel_haven.util.logic.AllLogicTests;
 
@@ -27,6 +28,7 @@ import net.ssehub.kernel_haven.util.logic.AllLogicTests;
  */
 @RunWith(Suite.class)
 @SuiteClasses({
+    AllFlowTests.class,
     AllIoTests.class,
     AllLogicTests.class,
     
@@ -36,6 +38,7 @@ import net.ssehub.kernel_haven.util.logic.AllLogicTests;
     OrderPreservingParallelizerTest.class,
     PerformanceProbeTest.class,
     PipelineArchiverTest.class,
+    ProcessPoolTest.class,
     StaticClassLoaderTest.class,
     UtilTest.class,
     ZipArchiveTest.class,
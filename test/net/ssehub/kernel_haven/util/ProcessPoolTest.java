@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import net.ssehub.kernel_haven.test_utils.RunOnlyOnLinux;
+import net.ssehub.kernel_haven.util.ProcessPool.Protocol;
+
+/**
+ * Tests the {@link ProcessPool}.
+ *
+ * @author Adam
+ */
+@RunWith(value = RunOnlyOnLinux.class)
+@SuppressWarnings("null")
+public class ProcessPoolTest {
+
+    /**
+     * Tests that multiple requests in line mode are answered by the same process.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testLineProtocol() throws IOException {
+        try (ProcessPool pool = new ProcessPool(new ProcessBuilder("cat"), "cat", 1, Protocol.LINE)) {
+            assertThat(pool.execute("hello", 5000), is("hello"));
+            assertThat(pool.execute("world", 5000), is("world"));
+            assertThat(pool.execute("", 5000), is(""));
+
+            assertThat(pool.getNumStarts(), is(1));
+        }
+    }
+
+    /**
+     * Tests that the length-prefixed protocol allows line breaks in requests and responses.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testLengthPrefixedProtocol() throws IOException {
+        try (ProcessPool pool = new ProcessPool(new ProcessBuilder("cat"), "cat", 2, Protocol.LENGTH_PREFIXED)) {
+            assertThat(pool.execute("hello\nworld", 5000), is("hello\nworld"));
+            assertThat(pool.execute("äöü", 5000), is("äöü"));
+        }
+    }
+
+    /**
+     * Tests that line breaks are rejected in line mode.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testLineBreakInLineProtocol() throws IOException {
+        try (ProcessPool pool = new ProcessPool(new ProcessBuilder("cat"), "cat", 1, Protocol.LINE)) {
+            pool.execute("a\nb", 5000);
+        }
+    }
+
+    /**
+     * Tests that a process that crashes while handling a request causes an exception, and is restarted for the next
+     * request.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testRestartOnCrash() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder("sh", "-c",
+                "while read line; do if [ \"$line\" = crash ]; then exit 1; fi; echo $line; done");
+        try (ProcessPool pool = new ProcessPool(builder, "crash", 1, Protocol.LINE)) {
+            assertThat(pool.execute("a", 5000), is("a"));
+
+            try {
+                pool.execute("crash", 5000);
+                fail("Expected exception");
+            } catch (IOException e) {
+                // expected
+            }
+
+            assertThat(pool.execute("b", 5000), is("b"));
+            assertThat(pool.getNumStarts(), is(2));
+        }
+    }
+
+    /**
+     * Tests that a process that does not answer in time is killed and restarted.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testTimeout() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder("sh", "-c",
+                "while read line; do if [ \"$line\" = hang ]; then sleep 100; fi; echo $line; done");
+        try (ProcessPool pool = new ProcessPool(builder, "hang", 1, Protocol.LINE)) {
+            assertThat(pool.execute("a", 5000), is("a"));
+
+            try {
+                pool.execute("hang", 200);
+                fail("Expected timeout");
+            } catch (InterruptedIOException e) {
+                // expected
+            }
+
+            assertThat(pool.execute("b", 5000), is("b"));
+            assertThat(pool.getNumStarts(), is(2));
+        }
+    }
+
+    /**
+     * Tests that the health check is executed on start.
+     *
+     * @throws IOException unwanted.
+     */
+    @Test(timeout = 10000)
+    public void testHealthCheck() throws IOException {
+        try (ProcessPool pool = new ProcessPool(new ProcessBuilder("cat"), "cat", 2, Protocol.LINE)) {
+            pool.setHealthCheck("ping", "ping");
+            assertThat(pool.execute("a", 5000), is("a"));
+
+            assertThat(pool.checkHealth(), is(0));
+        }
+    }
+
+    /**
+     * Tests that a failing health check causes an exception.
+     *
+     * @throws IOException wanted.
+     */
+    @Test(timeout = 10000, expected = IOException.class)
+    public void testFailingHealthCheck() throws IOException {
+        try (ProcessPool pool = new ProcessPool(new ProcessBuilder("cat"), "cat", 1, Protocol.LINE)) {
+            pool.setHealthCheck("ping", "pong");
+            pool.execute("a", 5000);
+        }
+    }
+
+    /**
+     * Tests that a closed pool rejects requests.
+     *
+     * @throws IOException wanted.
+     */
+    @Test(timeout = 10000, expected = IOException.class)
+    public void testClosed() throws IOException {
+        ProcessPool pool = new ProcessPool(new ProcessBuilder("cat"), "cat", 1, Protocol.LINE);
+        assertThat(pool.execute("a", 5000), is("a"));
+        pool.close();
+        pool.execute("b", 5000);
+    }
+
+}
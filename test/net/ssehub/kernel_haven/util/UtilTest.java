@@ -156,6 +156,41 @@ public class UtilTest {
         assertThat(process.isAlive(), is(false));
     }
     
+    /**
+     * Tests that waitForProcess without a timeout kills the process and still returns its exit code if the waiting
+     * thread is interrupted.
+     * 
+     * @throws IOException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 30000)
+    public void testWaitForProcessInterrupted() throws IOException, InterruptedException {
+        ProcessBuilder builder = setUpTestProcess("sleep_long", 0);
+        Process process = builder.start();
+        
+        Integer[] exitCode = new Integer[1];
+        boolean[] interrupted = new boolean[1];
+        Throwable[] error = new Throwable[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                exitCode[0] = Util.waitForProcess(process);
+                interrupted[0] = Thread.currentThread().isInterrupted();
+            } catch (Throwable e) {
+                error[0] = e;
+            }
+        });
+        waiter.start();
+        
+        Thread.sleep(500);
+        waiter.interrupt();
+        waiter.join();
+        
+        assertThat(error[0], nullValue());
+        assertThat(exitCode[0], not(nullValue()));
+        assertThat(interrupted[0], is(true));
+        assertThat(process.isAlive(), is(false));
+    }
+    
     /**
      * Tests whether waitForProcess returns the correct exit code.
      * @throws IOException unwanted.
@@ -241,7 +276,7 @@ public class UtilTest {
      * A main method that is launched as a process for the process testing methods.
      * @param args An array with the following fields:
      *      <ul>
-     *          <li>[0] either "sleep" or "none"</li>
+     *          <li>[0] either "sleep", "sleep_long", "print" or "none"</li>
      *          <li>[1] The exit code</li>
      *      </ul>
      */
@@ -251,6 +286,11 @@ public class UtilTest {
                 Thread.sleep(200);
             } catch (InterruptedException e) {
             }
+        } else if (args[0].equals("sleep_long")) {
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException e) {
+            }
         } else if (args[0].equals("print")) {
             System.out.println("This is the standard output stream");
             System.err.println("This is the standard error stream");
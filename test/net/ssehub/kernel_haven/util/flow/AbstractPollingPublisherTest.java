@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.flow;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestSubscriber;
+
+/**
+ * Tests the {@link AbstractPollingPublisher}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class AbstractPollingPublisherTest {
+
+    /**
+     * A publisher over a fixed list of items, that counts how many items were polled.
+     */
+    private static class ListPublisher extends AbstractPollingPublisher<String> {
+
+        private Iterator<String> iterator;
+        
+        private int numPolled;
+        
+        private boolean cancelled;
+        
+        /**
+         * Creates a publisher for the given items.
+         * 
+         * @param items The items to publish.
+         */
+        public ListPublisher(String... items) {
+            this.iterator = Arrays.asList(items).iterator();
+        }
+        
+        @Override
+        protected synchronized String poll() {
+            String result = null;
+            if (iterator.hasNext()) {
+                numPolled++;
+                result = iterator.next();
+            }
+            return result;
+        }
+
+        @Override
+        protected void onCancel() {
+            cancelled = true;
+        }
+        
+        @Override
+        protected String getName() {
+            return "ListPublisher";
+        }
+        
+    }
+    
+    /**
+     * Tests that items are only delivered if they are requested.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testRequest() throws InterruptedException {
+        ListPublisher publisher = new ListPublisher("a", "b", "c", "d");
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.getSubscription().request(2);
+        subscriber.awaitItems(2);
+        Thread.sleep(100);
+        
+        assertThat(subscriber.getItems(), is(Arrays.asList("a", "b")));
+        assertThat(subscriber.isCompleted(), is(false));
+        // one item is polled ahead of the demand
+        assertThat(publisher.numPolled, is(3));
+        
+        subscriber.getSubscription().request(10);
+        subscriber.awaitTermination();
+        
+        assertThat(subscriber.getItems(), is(Arrays.asList("a", "b", "c", "d")));
+        assertThat(subscriber.isCompleted(), is(true));
+        assertThat(subscriber.getError(), nullValue());
+    }
+    
+    /**
+     * Tests that the end of the source is signaled without outstanding demand.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testCompleteWithoutDemand() throws InterruptedException {
+        ListPublisher publisher = new ListPublisher("a");
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.getSubscription().request(1);
+        subscriber.awaitTermination();
+        
+        List<String> items = subscriber.getItems();
+        assertThat(items, is(Arrays.asList("a")));
+        assertThat(subscriber.isCompleted(), is(true));
+    }
+    
+    /**
+     * Tests that no more items are delivered after cancelling.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testCancel() throws InterruptedException {
+        ListPublisher publisher = new ListPublisher("a", "b", "c");
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.getSubscription().request(1);
+        subscriber.awaitItems(1);
+        subscriber.getSubscription().cancel();
+        subscriber.getSubscription().request(5);
+        Thread.sleep(100);
+        
+        assertThat(subscriber.getItems(), is(Arrays.asList("a")));
+        assertThat(subscriber.isCompleted(), is(false));
+        assertThat(publisher.cancelled, is(true));
+    }
+    
+    /**
+     * Tests that a non-positive request causes an error.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 5000)
+    public void testInvalidRequest() throws InterruptedException {
+        ListPublisher publisher = new ListPublisher("a", "b", "c");
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        publisher.subscribe(subscriber);
+        
+        subscriber.getSubscription().request(0);
+        subscriber.awaitTermination();
+        
+        assertThat(subscriber.getError(), instanceOf(IllegalArgumentException.class));
+        assertThat(subscriber.getItems().size(), is(0));
+    }
+    
+    /**
+     * Tests that a second subscriber is rejected.
+     */
+    @Test(timeout = 5000)
+    public void testSecondSubscriber() {
+        ListPublisher publisher = new ListPublisher("a");
+        publisher.subscribe(new TestSubscriber<>());
+        
+        TestSubscriber<String> second = new TestSubscriber<>();
+        publisher.subscribe(second);
+        
+        assertThat(second.getError(), instanceOf(IllegalStateException.class));
+    }
+    
+    /**
+     * Tests the {@link DemandCounter}.
+     */
+    @Test
+    public void testDemandCounter() {
+        DemandCounter counter = new DemandCounter();
+        counter.add(2);
+        assertThat(counter.take(), is(true));
+        assertThat(counter.get(), is(1L));
+        
+        counter.add(Long.MAX_VALUE);
+        assertThat(counter.get(), is(Long.MAX_VALUE));
+        assertThat(counter.take(), is(true));
+        assertThat(counter.get(), is(Long.MAX_VALUE));
+        
+        counter.cancel();
+        assertThat(counter.take(), is(false));
+    }
+    
+}
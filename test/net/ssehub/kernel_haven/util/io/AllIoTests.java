@@ -32,6 +32,9 @@ import net.ssehub.kernel_haven.util.io.void_io.AllVoidIoTests;
     AllJsonTests.class,
     AllVoidIoTests.class,
     
+    CompactDataStreamTest.class,
+    CompressionCodecTest.class,
+    PackFileTest.class,
     TableRowMetadataTest.class,
     TableCollectionReaderFactoryTest.class,
     TableCollectionReaderFactoryTest.class,
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link CompactDataOutputStream} and {@link CompactDataInputStream}.
+ *
+ * @author Adam
+ */
+public class CompactDataStreamTest {
+
+    /**
+     * Tests writing and reading varints.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testVarInts() throws IOException {
+        int[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CompactDataOutputStream out = new CompactDataOutputStream(bytes)) {
+            for (int value : values) {
+                out.writeVarInt(value);
+            }
+        }
+        
+        try (CompactDataInputStream in = new CompactDataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int value : values) {
+                assertThat(in.readVarInt(), is(value));
+            }
+            assertThat(in.read(), is(-1));
+        }
+    }
+    
+    /**
+     * Tests that small values only take up a single byte.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testVarIntSize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CompactDataOutputStream out = new CompactDataOutputStream(bytes)) {
+            out.writeVarInt(127);
+            out.writeSignedVarLong(-64);
+        }
+        assertThat(bytes.size(), is(2));
+    }
+    
+    /**
+     * Tests writing and reading signed varlongs.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSignedVarLongs() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, Long.MAX_VALUE, Long.MIN_VALUE};
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CompactDataOutputStream out = new CompactDataOutputStream(bytes)) {
+            for (long value : values) {
+                out.writeSignedVarLong(value);
+            }
+        }
+        
+        try (CompactDataInputStream in = new CompactDataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (long value : values) {
+                assertThat(in.readSignedVarLong(), is(value));
+            }
+        }
+    }
+    
+    /**
+     * Tests writing and reading strings.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testStrings() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CompactDataOutputStream out = new CompactDataOutputStream(bytes)) {
+            out.writeString("");
+            out.writeString("hello äöü");
+        }
+        
+        try (CompactDataInputStream in = new CompactDataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertThat(in.readString(), is(""));
+            assertThat(in.readString(), is("hello äöü"));
+        }
+    }
+    
+    /**
+     * Tests that a malformed varint throws an exception.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = IOException.class)
+    public void testMalformedVarInt() throws IOException {
+        byte[] bytes = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+        try (CompactDataInputStream in = new CompactDataInputStream(new ByteArrayInputStream(bytes))) {
+            in.readVarInt();
+        }
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.Util;
+
+/**
+ * Tests the {@link CompressionCodec} implementations.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class CompressionCodecTest {
+
+    private File tmpDir;
+    
+    /**
+     * Creates a temporary directory for each test.
+     */
+    @Before
+    public void setUp() {
+        tmpDir = new File("testdata/tmp_codec");
+        tmpDir.mkdir();
+        assertThat(tmpDir.isDirectory(), is(true));
+    }
+    
+    /**
+     * Deletes the temporary directory after each test.
+     * 
+     * @throws IOException unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(tmpDir);
+    }
+    
+    /**
+     * Creates test data that is partly compressible and partly random.
+     * 
+     * @param size The number of bytes.
+     * 
+     * @return The test data.
+     */
+    private static byte[] createData(int size) {
+        byte[] result = new byte[size];
+        Random random = new Random(42);
+        for (int i = 0; i < size; i++) {
+            result[i] = (i / 1000) % 2 == 0 ? (byte) ('a' + i % 7) : (byte) random.nextInt();
+        }
+        return result;
+    }
+    
+    /**
+     * Compresses the given data with the given codec.
+     * 
+     * @param codec The codec to use.
+     * @param data The data to compress.
+     * 
+     * @return The compressed data.
+     * 
+     * @throws IOException unwanted.
+     */
+    private static byte[] compress(CompressionCodec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = codec.compress(bytes)) {
+            // write in uneven chunks and single bytes
+            int pos = 0;
+            while (pos < data.length) {
+                if (pos % 3 == 0) {
+                    out.write(data[pos]);
+                    pos++;
+                } else {
+                    int length = Math.min(data.length - pos, 4093);
+                    out.write(data, pos, length);
+                    pos += length;
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Reads the given stream fully.
+     * 
+     * @param in The stream to read.
+     * 
+     * @return The read bytes.
+     * 
+     * @throws IOException unwanted.
+     */
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return result.toByteArray();
+    }
+    
+    /**
+     * Tests a round trip through all codecs and levels, reading with the codec itself and with the detection.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] data = createData(100000);
+        
+        for (CompressionCodec.Type type : CompressionCodec.Type.values()) {
+            for (int level = -1; level <= 9; level++) {
+                CompressionCodec codec = CompressionCodec.create(type, level);
+                byte[] compressed = compress(codec, data);
+                
+                assertThat(type + " " + level,
+                        readAll(codec.decompress(new ByteArrayInputStream(compressed))), is(data));
+                assertThat(type + " " + level,
+                        readAll(CompressionCodec.decompressAny(new ByteArrayInputStream(compressed))), is(data));
+            }
+        }
+    }
+    
+    /**
+     * Tests that empty data is handled correctly.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testEmpty() throws IOException {
+        for (CompressionCodec.Type type : CompressionCodec.Type.values()) {
+            CompressionCodec codec = CompressionCodec.create(type, 6);
+            byte[] compressed = compress(codec, new byte[0]);
+            assertThat(readAll(CompressionCodec.decompressAny(new ByteArrayInputStream(compressed))),
+                    is(new byte[0]));
+        }
+    }
+    
+    /**
+     * Tests the block codec with many small blocks that are compressed in parallel.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testParallelBlocks() throws IOException {
+        byte[] data = createData(500000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CompressionCodec codec = new BlockCompressionCodec(6, 4096, executor);
+            byte[] compressed = compress(codec, data);
+            
+            assertThat(compressed.length < data.length, is(true));
+            assertThat(readAll(codec.decompress(new ByteArrayInputStream(compressed))), is(data));
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Tests that incompressible blocks are stored instead of growing.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testIncompressibleBlock() throws IOException {
+        byte[] data = new byte[10000];
+        new Random(1).nextBytes(data);
+        
+        byte[] compressed = compress(new BlockCompressionCodec(9), data);
+        
+        // magic + two lengths + data + end marker
+        assertThat(compressed.length, is(4 + 8 + data.length + 4));
+        assertThat(readAll(CompressionCodec.decompressAny(new ByteArrayInputStream(compressed))), is(data));
+    }
+    
+    /**
+     * Tests that truncated block data is detected.
+     * 
+     * @throws IOException wanted.
+     */
+    @Test(expected = ZipException.class)
+    public void testTruncatedBlock() throws IOException {
+        byte[] compressed = compress(new BlockCompressionCodec(6), createData(10000));
+        compressed = Arrays.copyOf(compressed, compressed.length - 10);
+        
+        readAll(CompressionCodec.decompressAny(new ByteArrayInputStream(compressed)));
+    }
+    
+    /**
+     * Tests that invalid compression levels are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        CompressionCodec.create(CompressionCodec.Type.GZIP, 10);
+    }
+    
+    /**
+     * Tests that files written by one codec are found and read, and that writing replaces the files of other codecs.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testFiles() throws IOException {
+        File baseFile = new File(tmpDir, "test.bin");
+        byte[] data = createData(5000);
+        
+        assertThat(CompressionCodec.openFile(baseFile), nullValue());
+        
+        try (OutputStream out = new GzipCompressionCodec(6).createFile(baseFile)) {
+            out.write(data);
+        }
+        assertThat(new File(tmpDir, "test.bin.gz").isFile(), is(true));
+        assertThat(readAll(CompressionCodec.openFile(baseFile)), is(data));
+        
+        try (OutputStream out = new BlockCompressionCodec(1).createFile(baseFile)) {
+            out.write(data);
+        }
+        assertThat(new File(tmpDir, "test.bin.gz").exists(), is(false));
+        assertThat(new File(tmpDir, "test.bin.khz").isFile(), is(true));
+        assertThat(readAll(CompressionCodec.openFile(baseFile)), is(data));
+        
+        try (OutputStream out = CompressionCodec.NONE.createFile(baseFile)) {
+            out.write(data);
+        }
+        assertThat(new File(tmpDir, "test.bin.khz").exists(), is(false));
+        assertThat(baseFile.length(), is((long) data.length));
+        assertThat(readAll(CompressionCodec.openFile(baseFile)), is(data));
+    }
+    
+    /**
+     * Tests that compressed data differs from uncompressed data, i.e. that compression actually happens.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testCompresses() throws IOException {
+        byte[] data = new byte[100000];
+        Arrays.fill(data, (byte) 'x');
+        
+        assertThat(compress(CompressionCodec.NONE, data), is(data));
+        assertThat(compress(new GzipCompressionCodec(6), data).length < 1000, is(true));
+        assertThat(compress(new BlockCompressionCodec(6), data).length < 1000, is(true));
+        assertThat(compress(new GzipCompressionCodec(0), data), not(is(data)));
+    }
+    
+}
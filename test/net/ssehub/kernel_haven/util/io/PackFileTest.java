@@ -0,0 +1,404 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.Util;
+
+/**
+ * Tests the {@link PackFile}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class PackFileTest {
+
+    private File tmpDir;
+    
+    private File packFile;
+    
+    /**
+     * Creates a temporary directory for each test.
+     */
+    @Before
+    public void setUp() {
+        tmpDir = new File("testdata/tmp_pack");
+        tmpDir.mkdir();
+        assertThat(tmpDir.isDirectory(), is(true));
+        packFile = new File(tmpDir, "test.pack");
+    }
+    
+    /**
+     * Deletes the temporary directory after each test.
+     * 
+     * @throws IOException unwanted.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteFolder(tmpDir);
+    }
+    
+    /**
+     * Reads the given entry as a string.
+     * 
+     * @param pack The pack to read from.
+     * @param key The key of the entry.
+     * 
+     * @return The entry as a string, or <code>null</code> if it doesn't exist.
+     * 
+     * @throws IOException unwanted.
+     */
+    private static String readString(PackFile pack, String key) throws IOException {
+        ByteBuffer buffer = pack.read(key);
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Tests writing and reading entries.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+            pack.write("b/c.c", "second".getBytes(StandardCharsets.UTF_8));
+            pack.write("empty", new byte[0]);
+            
+            assertThat(readString(pack, "a"), is("first"));
+            assertThat(readString(pack, "b/c.c"), is("second"));
+            assertThat(readString(pack, "empty"), is(""));
+            assertThat(readString(pack, "d"), nullValue());
+            assertThat(pack.getSize(), is(3));
+            assertThat(pack.contains("a"), is(true));
+            assertThat(pack.contains("d"), is(false));
+        }
+    }
+    
+    /**
+     * Tests that writing an existing key replaces the entry.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testOverwrite() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", "old".getBytes(StandardCharsets.UTF_8));
+            pack.write("a", "new".getBytes(StandardCharsets.UTF_8));
+            
+            assertThat(readString(pack, "a"), is("new"));
+            assertThat(pack.getSize(), is(1));
+        }
+    }
+    
+    /**
+     * Tests reading an entry as a stream.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testInputStream() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", new byte[] {1, 2, 3});
+            
+            try (InputStream in = pack.getInputStream("a")) {
+                assertThat(in.read(), is(1));
+                byte[] rest = new byte[5];
+                assertThat(in.read(rest), is(2));
+                assertThat(rest[0], is((byte) 2));
+                assertThat(rest[1], is((byte) 3));
+                assertThat(in.read(), is(-1));
+            }
+            assertThat(pack.getInputStream("b"), nullValue());
+        }
+    }
+    
+    /**
+     * Tests that entries are found again after re-opening the pack, using the index file.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testReopen() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+            pack.write("b", "second".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(new File(tmpDir, "test.pack.idx").isFile(), is(true));
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(readString(pack, "a"), is("first"));
+            assertThat(readString(pack, "b"), is("second"));
+            
+            pack.write("c", "third".getBytes(StandardCharsets.UTF_8));
+            assertThat(readString(pack, "c"), is("third"));
+        }
+    }
+    
+    /**
+     * Tests that entries written after the index was flushed are recovered by scanning the pack.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testRecoverUnindexedEntries() throws IOException {
+        PackFile pack = new PackFile(packFile);
+        pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+        pack.flush();
+        pack.write("b", "second".getBytes(StandardCharsets.UTF_8));
+        // simulate a crash: the index is not written again
+        
+        try (PackFile reopened = new PackFile(packFile)) {
+            assertThat(readString(reopened, "a"), is("first"));
+            assertThat(readString(reopened, "b"), is("second"));
+        }
+        pack.close();
+    }
+    
+    /**
+     * Tests that the pack is completely scanned if the index file is missing.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testMissingIndex() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+            pack.write("b", "second".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(new File(tmpDir, "test.pack.idx").delete(), is(true));
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(readString(pack, "a"), is("first"));
+            assertThat(readString(pack, "b"), is("second"));
+        }
+    }
+    
+    /**
+     * Tests that an incomplete record at the end of the pack is discarded.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+            pack.write("b", "second".getBytes(StandardCharsets.UTF_8));
+        }
+        new File(tmpDir, "test.pack.idx").delete();
+        try (RandomAccessFile file = new RandomAccessFile(packFile, "rw")) {
+            file.setLength(file.length() - 2);
+        }
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(readString(pack, "a"), is("first"));
+            assertThat(readString(pack, "b"), nullValue());
+            
+            pack.write("c", "third".getBytes(StandardCharsets.UTF_8));
+        }
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(readString(pack, "c"), is("third"));
+        }
+    }
+    
+    /**
+     * Tests that multiple threads can write concurrently.
+     * 
+     * @throws Exception unwanted.
+     */
+    @Test(timeout = 20000)
+    public void testConcurrentWrites() throws Exception {
+        try (PackFile pack = new PackFile(packFile)) {
+            List<Thread> threads = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 500; i++) {
+                            pack.write(thread + "/" + i, ("value " + thread + "/" + i)
+                                    .getBytes(StandardCharsets.UTF_8));
+                            if (i == 250) {
+                                pack.flush();
+                            }
+                        }
+                    } catch (IOException e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }));
+            }
+            for (Thread th : threads) {
+                th.start();
+            }
+            for (Thread th : threads) {
+                th.join();
+            }
+            assertThat(errors.isEmpty(), is(true));
+            assertThat(pack.getSize(), is(2000));
+        }
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(pack.getSize(), is(2000));
+            for (int t = 0; t < 4; t++) {
+                for (int i = 0; i < 500; i++) {
+                    assertThat(readString(pack, t + "/" + i), is("value " + t + "/" + i));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Tests that entries written after the first read are visible (i.e. the memory mapping grows).
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testReadWhileGrowing() throws IOException {
+        try (PackFile pack = new PackFile(packFile)) {
+            pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+            assertThat(readString(pack, "a"), is("first"));
+            
+            byte[] big = new byte[100000];
+            big[big.length - 1] = 42;
+            pack.write("big", big);
+            
+            ByteBuffer read = pack.read("big");
+            assertThat(read, notNullValue());
+            assertThat(read.remaining(), is(big.length));
+            assertThat(read.get(big.length - 1), is((byte) 42));
+        }
+    }
+    
+    /**
+     * A pack that fails the next write of a record after writing a part of it.
+     */
+    private static class FailingPackFile extends PackFile {
+        
+        /**
+         * The number of bytes to write before the next write fails; -1 if it should not fail.
+         */
+        private int failAfter = -1;
+        
+        /**
+         * Opens the given pack.
+         * 
+         * @param packFile The pack file.
+         * 
+         * @throws IOException unwanted.
+         */
+        public FailingPackFile(File packFile) throws IOException {
+            super(packFile);
+        }
+        
+        @Override
+        void writeFully(ByteBuffer buffer, long position) throws IOException {
+            if (failAfter >= 0) {
+                ByteBuffer part = buffer.duplicate();
+                part.limit(part.position() + failAfter);
+                failAfter = -1;
+                super.writeFully(part, position);
+                throw new IOException("Simulated write failure");
+            }
+            super.writeFully(buffer, position);
+        }
+        
+    }
+    
+    /**
+     * Tests that a failed write does not cause the entries behind it to be discarded when the pack is scanned.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testFailedWrite() throws IOException {
+        // nothing, a part of the header, and a part of the data is written before the failure
+        for (int written : new int[] {0, 6, 15}) {
+            packFile.delete();
+            new File(tmpDir, "test.pack.idx").delete();
+            
+            testFailedWrite(written);
+        }
+    }
+    
+    /**
+     * Writes three entries, where writing the second one fails, and checks that the other entries are found when the
+     * pack is scanned.
+     * 
+     * @param written The number of bytes of the second entry that are written before the failure.
+     * 
+     * @throws IOException unwanted.
+     */
+    private void testFailedWrite(int written) throws IOException {
+        try (FailingPackFile pack = new FailingPackFile(packFile)) {
+            pack.write("a", "first".getBytes(StandardCharsets.UTF_8));
+            
+            pack.failAfter = written;
+            try {
+                pack.write("b", "second".getBytes(StandardCharsets.UTF_8));
+                fail("Expected exception");
+            } catch (IOException e) {
+                // expected
+            }
+            
+            pack.write("c", "third".getBytes(StandardCharsets.UTF_8));
+            assertThat(readString(pack, "b"), nullValue());
+            assertThat(readString(pack, "c"), is("third"));
+        }
+        
+        assertThat(new File(tmpDir, "test.pack.idx").delete(), is(true));
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(readString(pack, "a"), is("first"));
+            assertThat(readString(pack, "b"), nullValue());
+            assertThat(readString(pack, "c"), is("third"));
+            assertThat(pack.getSize(), is(2));
+            
+            pack.write("d", "fourth".getBytes(StandardCharsets.UTF_8));
+        }
+        
+        try (PackFile pack = new PackFile(packFile)) {
+            assertThat(readString(pack, "c"), is("third"));
+            assertThat(readString(pack, "d"), is("fourth"));
+        }
+    }
+
+}
@@ -30,6 +30,9 @@ import org.junit.runners.Suite.SuiteClasses;
     ParameterizedJsonParserNegativeTest.class,
     JsonTestSuite.class,
     JsonToStringTest.class,
+    JsonWriterTest.class,
+    JsonReaderTest.class,
+    JsonReaderTestSuite.class,
     })
 public class AllJsonTests {
 
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonReader.Token;
+
+/**
+ * Tests the {@link JsonReader}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class JsonReaderTest {
+
+    /**
+     * Tests reading tokens one after another.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testTokens() throws IOException, FormatException {
+        try (JsonReader reader = new JsonReader(new StringReader(
+                "{\n\t\"a\": [1, -2.5, 3000000000],\n\t\"b\": {},\n\t\"c\": [true, false, null, \"x\\ty\"]\n}"))) {
+            
+            assertThat(reader.peek(), is(Token.BEGIN_OBJECT));
+            reader.beginObject();
+            
+            assertThat(reader.hasNext(), is(true));
+            assertThat(reader.nextName(), is("a"));
+            reader.beginList();
+            assertThat(reader.nextInt(), is(1));
+            assertThat(reader.nextNumber(), is(-2.5));
+            assertThat(reader.nextNumber(), is(3000000000L));
+            assertThat(reader.hasNext(), is(false));
+            reader.endList();
+            
+            assertThat(reader.nextName(), is("b"));
+            reader.beginObject();
+            assertThat(reader.hasNext(), is(false));
+            reader.endObject();
+            
+            assertThat(reader.nextName(), is("c"));
+            reader.beginList();
+            assertThat(reader.nextBoolean(), is(true));
+            assertThat(reader.nextBoolean(), is(false));
+            assertThat(reader.peek(), is(Token.NULL));
+            reader.nextNull();
+            assertThat(reader.nextString(), is("x\ty"));
+            reader.endList();
+            
+            assertThat(reader.hasNext(), is(false));
+            assertThat(reader.getLineNumber(), is(5));
+            reader.endObject();
+            
+            assertThat(reader.peek(), is(Token.END_DOCUMENT));
+        }
+    }
+    
+    /**
+     * Tests skipping values.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testSkipValue() throws IOException, FormatException {
+        try (JsonReader reader = new JsonReader(new StringReader(
+                "{\"skip\": {\"a\": [1, {\"b\": null}], \"c\": \"d\"}, \"keep\": 5}"))) {
+            
+            reader.beginObject();
+            assertThat(reader.nextName(), is("skip"));
+            reader.skipValue();
+            assertThat(reader.nextName(), is("keep"));
+            assertThat(reader.nextInt(), is(5));
+            reader.endObject();
+        }
+    }
+    
+    /**
+     * Tests reading a string into a writer, across buffer boundaries.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testStringToWriter() throws IOException, FormatException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            expected.append("line ").append(i).append('\n');
+        }
+        
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.value(expected.toString());
+        }
+        
+        StringWriter out = new StringWriter();
+        try (JsonReader reader = new JsonReader(new StringReader(json.toString()))) {
+            reader.nextString(out);
+        }
+        
+        assertThat(out.toString(), is(expected.toString()));
+    }
+    
+    /**
+     * Tests that reading an unexpected token throws an exception.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testUnexpectedToken() throws IOException, FormatException {
+        try (JsonReader reader = new JsonReader(new StringReader("[\"a\"]"))) {
+            reader.beginList();
+            reader.nextInt();
+        }
+    }
+    
+}
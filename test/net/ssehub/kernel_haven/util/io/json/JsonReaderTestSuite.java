@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.io.json.JsonReader.Token;
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Tests the {@link JsonReader} with the same
+ * <a href="https://github.com/nst/JSONTestSuite">test suite from Nicolas Seriot</a> as {@link JsonTestSuite}. Also
+ * checks that the result is equal to the result of the {@link JsonParser}.
+ *
+ * @author Adam
+ */
+@RunWith(Parameterized.class)
+@SuppressWarnings("null")
+public class JsonReaderTestSuite {
+
+    private static final File TESTDATA = new File("testdata/json/test_suite");
+    
+    private @NonNull File file;
+    
+    /**
+     * Creates this test instance.
+     * 
+     * @param file The file to run on.
+     */
+    public JsonReaderTestSuite(@NonNull File file) {
+        this.file = file;
+    }
+    
+    /**
+     * Creates the parameters for this test.
+     * 
+     * @return The parameters of this test.
+     * 
+     * @throws IOException unwanted. 
+     */
+    @Parameters(name = "{0}")
+    public static Object[] getParameters() throws IOException {
+        return Files.walk(TESTDATA.toPath())
+                .map((path) -> path.toFile())
+                .filter((file) -> file.isFile())
+                .filter((file) -> file.getName().endsWith(".json"))
+                .filter((file) -> !file.getName().startsWith("i_"))
+                .sorted()
+                .toArray();
+    }
+    
+    /**
+     * Reads the whole file with {@link JsonReader#nextElement()}.
+     * 
+     * @param file The file to read.
+     * 
+     * @return The read element.
+     * 
+     * @throws FormatException If the file is malformed.
+     * @throws IOException unwanted.
+     */
+    private static @NonNull JsonElement read(@NonNull File file) throws FormatException, IOException {
+        try (JsonReader reader = new JsonReader(file)) {
+            JsonElement result = reader.nextElement();
+            assertThat(reader.peek(), is(Token.END_DOCUMENT));
+            return result;
+        }
+    }
+    
+    /**
+     * Tests the file from the test suite.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSuiteFile() throws IOException {
+        // n_ -> must throw exception
+        // y_ -> must not throw exception
+        boolean expectedException = file.getName().startsWith("n_");
+        
+        try {
+            JsonElement result = read(file);
+            
+            if (expectedException) {
+                fail("Didn't get exception");
+            }
+            try (JsonParser parser = new JsonParser(file)) {
+                assertThat(result, is(parser.parse()));
+            }
+            
+        } catch (FormatException e) {
+            if (!expectedException) {
+                fail("Got exception: " + e.getMessage());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.io.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link JsonWriter}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class JsonWriterTest {
+
+    /**
+     * Tests that the streamed output is equal to the output of the {@link JsonPrettyPrinter}.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSameAsPrettyPrinter() throws IOException {
+        JsonObject inner = new JsonObject();
+        inner.putElement("a", new JsonNumber(1));
+        inner.putElement("b", new JsonList());
+        inner.putElement("c", new JsonObject());
+        
+        JsonList list = new JsonList();
+        list.addElement(new JsonString("x\"y\n"));
+        list.addElement(JsonBoolean.TRUE);
+        list.addElement(JsonNull.INSTANCE);
+        list.addElement(inner);
+        
+        JsonObject root = new JsonObject();
+        root.putElement("version", new JsonNumber(2));
+        root.putElement("list", list);
+        root.putElement("double", new JsonNumber(4.5));
+        
+        StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+            writer.name("version").value(2);
+            writer.name("list").beginList();
+            writer.value("x\"y\n").value(true).nullValue();
+            writer.beginObject().name("a").value(1).name("b").beginList().endList().name("c").beginObject()
+                    .endObject().endObject();
+            writer.endList();
+            writer.name("double").value(4.5);
+            writer.endObject();
+        }
+        
+        assertThat(out.toString(), is(root.accept(new JsonPrettyPrinter())));
+    }
+    
+    /**
+     * Tests writing an existing {@link JsonElement} tree.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testElementValue() throws IOException {
+        JsonObject nested = new JsonObject();
+        nested.putElement("key", new JsonString("value"));
+        JsonList list = new JsonList();
+        list.addElement(nested);
+        list.addElement(JsonBoolean.FALSE);
+        list.addElement(new JsonNumber(-3));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginList().value(list).value(new JsonString("äö")).endList();
+        }
+        
+        JsonList expected = new JsonList();
+        expected.addElement(list);
+        expected.addElement(new JsonString("äö"));
+        
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), is(expected.accept(new JsonPrettyPrinter())));
+    }
+    
+    /**
+     * Tests writing a string value from a reader.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testReaderValue() throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.value(new StringReader("line 1\nline \"2\"\t\\"));
+        }
+        
+        assertThat(out.toString(), is("\"line 1\\nline \\\"2\\\"\\t\\\\\""));
+    }
+    
+    /**
+     * Tests that a value without a name in an object is rejected.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testValueWithoutName() throws IOException {
+        try (JsonWriter writer = new JsonWriter(new StringWriter())) {
+            writer.beginObject().value(1);
+        }
+    }
+    
+    /**
+     * Tests that a name in a list is rejected.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testNameInList() throws IOException {
+        try (JsonWriter writer = new JsonWriter(new StringWriter())) {
+            writer.beginList().name("a");
+        }
+    }
+    
+    /**
+     * Tests that closing a list with the object end is rejected.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMismatchedEnd() throws IOException {
+        try (JsonWriter writer = new JsonWriter(new StringWriter())) {
+            writer.beginList().endObject();
+        }
+    }
+    
+    /**
+     * Tests that a second top-level value is rejected.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testMultipleTopLevelValues() throws IOException {
+        try (JsonWriter writer = new JsonWriter(new StringWriter())) {
+            writer.value(1).value(2);
+        }
+    }
+    
+}
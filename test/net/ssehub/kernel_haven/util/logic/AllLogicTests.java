@@ -19,6 +19,12 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
+import net.ssehub.kernel_haven.util.logic.bdd.BddManagerTest;
+import net.ssehub.kernel_haven.util.logic.bdd.BddSimplifierTest;
+import net.ssehub.kernel_haven.util.logic.minimization.MinimizingSimplifierTest;
+import net.ssehub.kernel_haven.util.logic.sat.SatSolverTest;
+import net.ssehub.kernel_haven.util.logic.sat.TseitinTransformerTest;
+
 /**
  * Tests for util.logic package.
  */
@@ -35,6 +41,18 @@ import org.junit.runners.Suite.SuiteClasses;
     DepthCalculatorTest.class,
     FormulaLiteralCounterTest.class,
     VariableValueReplacerTest.class,
+    FormulaDictionaryTest.class,
+    FormulaFactoryTest.class,
+    NaryFormulaTest.class,
+    CompiledFormulaTest.class,
+    VariableIdTableTest.class,
+    FormulaTraverserTest.class,
+    CachingSimplifierTest.class,
+    BddManagerTest.class,
+    BddSimplifierTest.class,
+    SatSolverTest.class,
+    TseitinTransformerTest.class,
+    MinimizingSimplifierTest.class,
     })
 public class AllLogicTests {
 
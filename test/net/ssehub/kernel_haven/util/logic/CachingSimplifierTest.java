@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.null_checks.NonNull;
+
+/**
+ * Tests the {@link CachingSimplifier}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class CachingSimplifierTest {
+
+    /**
+     * Resets the global simplifier.
+     */
+    @After
+    public void resetSimplifier() {
+        FormulaSimplifier.setSimplifier(FormulaSimplifier::defaultSimplifier);
+    }
+    
+    /**
+     * Tests that structurally equal formulas are answered from the cache.
+     */
+    @Test
+    public void testHitsAndMisses() {
+        AtomicInteger calls = new AtomicInteger();
+        CachingSimplifier cache = new CachingSimplifier(f -> {
+            calls.incrementAndGet();
+            return FormulaSimplifier.defaultSimplifier(f);
+        }, 100);
+        
+        Formula result = cache.apply(new Disjunction(new Variable("A"), new Variable("A")));
+        assertThat(result, is(new Variable("A")));
+        
+        // a new, but equal instance
+        assertThat(cache.apply(new Disjunction(new Variable("A"), new Variable("A"))), sameInstance(result));
+        assertThat(cache.apply(new Conjunction(new Variable("A"), True.INSTANCE)), is(new Variable("A")));
+        
+        assertThat(calls.get(), is(2));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getMisses(), is(2L));
+        assertThat(cache.getSize(), is(2));
+        
+        cache.clear();
+        assertThat(cache.getSize(), is(0));
+        cache.apply(new Disjunction(new Variable("A"), new Variable("A")));
+        assertThat(calls.get(), is(3));
+    }
+    
+    /**
+     * Tests that the cache does not grow above its maximum size.
+     */
+    @Test
+    public void testBounded() {
+        CachingSimplifier cache = new CachingSimplifier(FormulaSimplifier::defaultSimplifier, 64);
+        
+        for (int i = 0; i < 1000; i++) {
+            cache.apply(new Negation(new Variable("V" + i)));
+        }
+        
+        assertThat(cache.getMisses(), is(1000L));
+        assertTrue(cache.getSize() <= 64);
+        assertThat(cache.getEvictions(), is(1000L - cache.getSize()));
+    }
+    
+    /**
+     * Tests that a cache of size 1 keeps the last result.
+     */
+    @Test
+    public void testSingleEntry() {
+        CachingSimplifier cache = new CachingSimplifier(FormulaSimplifier::defaultSimplifier, 1);
+        cache.apply(new Variable("A"));
+        cache.apply(new Variable("B"));
+        cache.apply(new Variable("B"));
+        
+        assertThat(cache.getSize(), is(1));
+        assertThat(cache.getHits(), is(1L));
+        assertThat(cache.getEvictions(), is(1L));
+    }
+    
+    /**
+     * Tests that an invalid size is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new CachingSimplifier(FormulaSimplifier::defaultSimplifier, 0);
+    }
+    
+    /**
+     * Tests that the cache can wrap the installed simplifier of the {@link FormulaSimplifier}.
+     */
+    @Test
+    public void testWrapInstalledSimplifier() {
+        Function<@NonNull Formula, @NonNull Formula> installed = f -> new Negation(f);
+        FormulaSimplifier.setSimplifier(installed);
+        
+        CachingSimplifier cache = new CachingSimplifier(FormulaSimplifier.getSimplifier(), 10);
+        FormulaSimplifier.setSimplifier(cache);
+        
+        assertThat(cache.getSimplifier(), sameInstance(installed));
+        assertThat(FormulaSimplifier.simplify(new Variable("A")), is(new Negation(new Variable("A"))));
+        assertThat(FormulaSimplifier.simplify(new Variable("A")), is(new Negation(new Variable("A"))));
+        assertThat(cache.getHits(), is(1L));
+    }
+    
+    /**
+     * Tests that concurrent threads get correct results.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test(timeout = 20000)
+    public void testConcurrent() throws InterruptedException {
+        CachingSimplifier cache = new CachingSimplifier(FormulaSimplifier::defaultSimplifier, 50);
+        List<Throwable> errors = new ArrayList<>();
+        
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 5000; i++) {
+                        Variable var = new Variable("V" + (i % 100));
+                        Formula result = cache.apply(new Conjunction(var, new Disjunction(var, var)));
+                        assertThat(result, is(var));
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertThat(errors.toString(), errors.isEmpty(), is(true));
+        assertThat(cache.getHits() + cache.getMisses(), is(8L * 5000));
+        assertTrue(cache.getSize() <= 50 + 15);
+    }
+    
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestFormulas;
+
+/**
+ * Tests the {@link CompiledFormula}.
+ * 
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class CompiledFormulaTest {
+
+    /**
+     * Tests the slots and the program of a simple formula.
+     */
+    @Test
+    public void testCompile() {
+        // (A && B && C) || !A
+        CompiledFormula compiled = new CompiledFormula(or(and(and("A", "B"), "C"), not("A")));
+        
+        assertThat(compiled.getVariables(), is(new String[] {"A", "B", "C"}));
+        assertThat(compiled.getNumVariables(), is(3));
+        assertThat(compiled.getSlot("B"), is(1));
+        assertThat(compiled.getSlot("D"), is(-1));
+        
+        // A B C AND(3) A NOT OR(2)
+        assertThat(compiled.getProgramLength(), is(7));
+    }
+    
+    /**
+     * Tests evaluation of single configurations.
+     */
+    @Test
+    public void testSingleConfiguration() {
+        CompiledFormula compiled = new CompiledFormula(or(and("A", not("B")), False.INSTANCE));
+        
+        assertTrue(compiled.evaluate(new boolean[] {true, false}));
+        assertFalse(compiled.evaluate(new boolean[] {true, true}));
+        assertFalse(compiled.evaluate(new boolean[] {false, false}));
+        
+        assertTrue(new CompiledFormula(True.INSTANCE).evaluate(new boolean[0]));
+        assertFalse(new CompiledFormula(not(True.INSTANCE)).evaluate(new boolean[0]));
+    }
+    
+    /**
+     * Tests the bit-parallel evaluation of all 4 assignments of two variables.
+     */
+    @Test
+    public void testBitParallel() {
+        // configurations: bit 0: A=0,B=0; bit 1: A=1,B=0; bit 2: A=0,B=1; bit 3: A=1,B=1
+        long[] values = {0b1010, 0b1100};
+        
+        assertThat(new CompiledFormula(and("A", "B")).evaluate(values) & 0xF, is(0b1000L));
+        assertThat(new CompiledFormula(or("A", "B")).evaluate(values) & 0xF, is(0b1110L));
+        assertThat(new CompiledFormula(not("A")).evaluate(values) & 0xF, is(0b0101L));
+        assertThat(new CompiledFormula(or(and("A", not("B")), and(not("A"), "B"))).evaluate(values) & 0xF,
+                is(0b0110L));
+    }
+    
+    /**
+     * Tests the three-valued evaluation.
+     */
+    @Test
+    public void testThreeValued() {
+        CompiledFormula and = new CompiledFormula(and("A", "B"));
+        CompiledFormula or = new CompiledFormula(or("A", "B"));
+        Map<String, Boolean> values = new HashMap<>();
+        
+        values.put("A", false);
+        assertThat(and.evaluate(values), is(false));
+        assertThat(or.evaluate(values), is((Boolean) null));
+        
+        values.put("A", true);
+        assertThat(and.evaluate(values), is((Boolean) null));
+        assertThat(or.evaluate(values), is(true));
+        
+        values.put("B", true);
+        assertThat(and.evaluate(values), is(true));
+        assertThat(new CompiledFormula(not("C")).evaluate(values), is((Boolean) null));
+    }
+    
+    /**
+     * Compares the bit-parallel three-valued evaluation against the {@link FormulaEvaluator} for random formulas and
+     * random configurations.
+     */
+    @Test
+    public void testRandomAgainstFormulaEvaluator() {
+        Random random = new Random(123);
+        int numVars = 6;
+        
+        for (int i = 0; i < 300; i++) {
+            Formula formula = TestFormulas.random(random, numVars, 6, true);
+            CompiledFormula compiled = new CompiledFormula(formula);
+            String[] variables = compiled.getVariables();
+            
+            // 64 random three-valued configurations
+            long[] trueValues = new long[variables.length];
+            long[] falseValues = new long[variables.length];
+            for (int v = 0; v < variables.length; v++) {
+                long known = random.nextLong() | random.nextLong();
+                trueValues[v] = random.nextLong() & known;
+                falseValues[v] = ~trueValues[v] & known;
+            }
+            long[] result = new long[2];
+            compiled.evaluate(trueValues, falseValues, result);
+            long twoValued = compiled.evaluate(trueValues);
+            
+            for (int bit = 0; bit < 64; bit++) {
+                Map<String, Boolean> values = new HashMap<>();
+                Map<String, Boolean> twoValuedValues = new HashMap<>();
+                for (int v = 0; v < variables.length; v++) {
+                    boolean isTrue = ((trueValues[v] >>> bit) & 1) != 0;
+                    if (isTrue || ((falseValues[v] >>> bit) & 1) != 0) {
+                        values.put(variables[v], isTrue);
+                    }
+                    twoValuedValues.put(variables[v], isTrue);
+                }
+                
+                Boolean expected = new FormulaEvaluator(values).visit(formula);
+                assertThat(formula.toString(), ((result[0] >>> bit) & 1) != 0, is(expected == Boolean.TRUE));
+                assertThat(formula.toString(), ((result[1] >>> bit) & 1) != 0, is(expected == Boolean.FALSE));
+                
+                assertThat(formula.toString(), ((twoValued >>> bit) & 1) != 0,
+                        is(new FormulaEvaluator(twoValuedValues).visit(formula)));
+            }
+        }
+    }
+    
+    /**
+     * Tests that an unsupported formula type is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFormula() {
+        new CompiledFormula(new Formula() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected int getPrecedence() {
+                return 0;
+            }
+
+            @Override
+            public String toString() {
+                return "unsupported";
+            }
+
+            @Override
+            public void toString(StringBuilder result) {
+                result.append(toString());
+            }
+
+            @Override
+            public <T> T accept(IFormulaVisitor<T> visitor) {
+                return null;
+            }
+
+            @Override
+            public void accept(IVoidFormulaVisitor visitor) {
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return obj == this;
+            }
+
+            @Override
+            public int hashCode() {
+                return 0;
+            }
+        });
+    }
+    
+}
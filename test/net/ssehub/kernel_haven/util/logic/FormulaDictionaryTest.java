@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link FormulaDictionary}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class FormulaDictionaryTest {
+
+    /**
+     * Tests that operands are added before the formulas that use them.
+     */
+    @Test
+    public void testPostOrder() {
+        FormulaDictionary dict = new FormulaDictionary();
+        Variable a = new Variable("A");
+        Variable b = new Variable("B");
+        Formula f = new Disjunction(new Conjunction(a, new Negation(b)), True.INSTANCE);
+        
+        assertThat(dict.add(f), is(5));
+        assertThat(dict.getSize(), is(6));
+        
+        assertThat(dict.get(0), sameInstance(a));
+        assertThat(dict.get(1), sameInstance(b));
+        assertThat(dict.getIndex(new Negation(b)), is(2));
+        assertThat(dict.getIndex(new Conjunction(a, new Negation(b))), is(3));
+        assertThat(dict.get(4), sameInstance(True.INSTANCE));
+        assertThat(dict.get(5), sameInstance(f));
+    }
+    
+    /**
+     * Tests that structurally equal formulas are only stored once.
+     */
+    @Test
+    public void testSharing() {
+        FormulaDictionary dict = new FormulaDictionary();
+        
+        int first = dict.add(new Conjunction(new Variable("A"), new Negation(new Variable("A"))));
+        assertThat(dict.getSize(), is(3));
+        
+        assertThat(dict.add(new Conjunction(new Variable("A"), new Negation(new Variable("A")))), is(first));
+        assertThat(dict.add(new Negation(new Variable("A"))), is(1));
+        assertThat(dict.getSize(), is(3));
+        
+        // different type with same operands is a different entry
+        assertThat(dict.add(new Disjunction(new Variable("A"), new Negation(new Variable("A")))), is(3));
+        assertThat(dict.getSize(), is(4));
+    }
+    
+    /**
+     * Tests that looking up a formula that has not been added throws an exception.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFormula() {
+        FormulaDictionary dict = new FormulaDictionary();
+        dict.add(new Variable("A"));
+        dict.getIndex(new Variable("B"));
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.logic.parser.CStyleBooleanGrammar;
+import net.ssehub.kernel_haven.util.logic.parser.ExpressionFormatException;
+import net.ssehub.kernel_haven.util.logic.parser.Parser;
+
+/**
+ * Tests the {@link FormulaFactory}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class FormulaFactoryTest {
+    
+    /**
+     * Resets the factory of the {@link FormulaBuilder}.
+     */
+    @After
+    public void tearDown() {
+        FormulaBuilder.setFactory(null);
+    }
+
+    /**
+     * Tests that structurally equal formulas created by the factory are the same instance.
+     */
+    @Test
+    public void testIdentity() {
+        FormulaFactory factory = new FormulaFactory();
+        
+        Formula f1 = factory.or(factory.and(factory.variable("A"), factory.not(factory.variable("B"))), True.INSTANCE);
+        Formula f2 = factory.or(factory.and(factory.variable("A"), factory.not(factory.variable("B"))), True.INSTANCE);
+        
+        assertThat(f2, sameInstance(f1));
+        assertThat(factory.variable("A"), sameInstance(factory.variable("A")));
+        assertThat(factory.and(factory.variable("A"), factory.variable("B")),
+                not(sameInstance(factory.and(factory.variable("B"), factory.variable("A")))));
+        
+        // A, B, !B, A && !B, (A && !B) || 1, A && B, B && A
+        assertThat(factory.getSize(), is(7));
+    }
+    
+    /**
+     * Tests that formulas not created by the factory are converted to their canonical instance.
+     */
+    @Test
+    public void testIntern() {
+        FormulaFactory factory = new FormulaFactory();
+        
+        Formula canonical = factory.and(factory.variable("A"), factory.not(factory.variable("B")));
+        Formula external = new Conjunction(new Variable("A"), new Negation(new Variable("B")));
+        
+        assertThat(factory.intern(external), sameInstance(canonical));
+        assertThat(factory.intern(canonical), sameInstance(canonical));
+        assertThat(factory.intern(True.INSTANCE), sameInstance(True.INSTANCE));
+        
+        // not yet interned: the operands are replaced by canonical instances
+        Disjunction newFormula = (Disjunction) factory.intern(new Disjunction(new Variable("A"), new Variable("C")));
+        assertThat(newFormula.getLeft(), sameInstance(factory.variable("A")));
+        assertThat(factory.intern(new Disjunction(new Variable("A"), new Variable("C"))), sameInstance(newFormula));
+    }
+    
+    /**
+     * Tests that deeply nested formulas are interned without overflowing the stack.
+     */
+    @Test
+    public void testDeepFormula() {
+        FormulaFactory factory = new FormulaFactory();
+        
+        Formula first = createChain(20000);
+        Formula canonical = factory.intern(first);
+        
+        assertThat(factory.intern(createChain(20000)), sameInstance(canonical));
+        assertThat(factory.intern(canonical), sameInstance(canonical));
+        // first was not yet in the table and all its leaves are new, so the formula itself is canonical
+        assertThat(canonical, sameInstance(first));
+    }
+    
+    /**
+     * Creates a left-deep chain of conjunctions, which alternates between positive and negated variables.
+     * 
+     * @param length The number of variables in the chain.
+     * 
+     * @return The chain; a new instance for each call.
+     */
+    private static Formula createChain(int length) {
+        Formula result = new Variable("V0");
+        for (int i = 1; i < length; i++) {
+            Formula variable = new Variable("V" + i);
+            result = new Conjunction(result, i % 2 == 0 ? variable : new Negation(variable));
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that different factories don't share their formulas.
+     */
+    @Test
+    public void testSeparateFactories() {
+        FormulaFactory factory1 = new FormulaFactory();
+        FormulaFactory factory2 = new FormulaFactory();
+        
+        assertThat(factory1.variable("A"), not(sameInstance(factory2.variable("A"))));
+        assertThat(factory1.variable("A"), is(factory2.variable("A")));
+    }
+    
+    /**
+     * Tests that formulas that are not referenced anymore are removed from the unique table.
+     */
+    @Test
+    public void testWeakReferences() {
+        FormulaFactory factory = new FormulaFactory();
+        for (int i = 0; i < 1000; i++) {
+            factory.not(factory.variable("VAR_" + i));
+        }
+        assertThat(factory.getSize() > 0, is(true));
+        
+        for (int i = 0; i < 50 && factory.getSize() > 0; i++) {
+            System.gc();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+        
+        assertThat(factory.getSize() < 2000, is(true));
+    }
+    
+    /**
+     * Tests that concurrent calls to the factory return the same instances.
+     * 
+     * @throws ExecutionException unwanted.
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException, ExecutionException {
+        FormulaFactory factory = new FormulaFactory();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        
+        try {
+            List<Future<List<Formula>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Formula> result = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        result.add(factory.or(factory.variable("A" + i), factory.not(factory.variable("B" + i))));
+                    }
+                    return result;
+                }));
+            }
+            
+            List<Formula> first = futures.get(0).get();
+            for (Future<List<Formula>> future : futures) {
+                List<Formula> other = future.get();
+                for (int i = 0; i < first.size(); i++) {
+                    assertThat(other.get(i), sameInstance(first.get(i)));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Tests that the precomputed hash codes are consistent with {@link Formula#equals(Object)}.
+     */
+    @Test
+    public void testHashCodes() {
+        Formula f1 = new Disjunction(new Conjunction(new Variable("A"), new Negation(new Variable("B"))),
+                new Variable("C"));
+        Formula f2 = new Disjunction(new Conjunction(new Variable("A"), new Negation(new Variable("B"))),
+                new Variable("C"));
+        Formula f3 = new Disjunction(new Conjunction(new Variable("A"), new Variable("B")),
+                new Variable("C"));
+        
+        assertThat(f1.hashCode(), is(f2.hashCode()));
+        assertThat(f1, is(f2));
+        assertThat(f1.equals(f3), is(false));
+    }
+    
+    /**
+     * Tests that the {@link FormulaBuilder} can create its formulas through a factory.
+     */
+    @Test
+    public void testFormulaBuilder() {
+        FormulaFactory factory = new FormulaFactory();
+        FormulaBuilder.setFactory(factory);
+        
+        assertThat(FormulaBuilder.and("A", FormulaBuilder.not("B")),
+                sameInstance(factory.and(factory.variable("A"), factory.not(factory.variable("B")))));
+    }
+    
+    /**
+     * Tests that the {@link CStyleBooleanGrammar} can create its formulas through a factory.
+     * 
+     * @throws ExpressionFormatException unwanted.
+     */
+    @Test
+    public void testGrammar() throws ExpressionFormatException {
+        FormulaFactory factory = new FormulaFactory();
+        Parser<Formula> parser = new Parser<>(new CStyleBooleanGrammar(factory));
+        
+        Formula parsed = parser.parse("(A && !B) || (A && !B)");
+        Disjunction disjunction = (Disjunction) parsed;
+        assertThat(disjunction.getRight(), sameInstance(disjunction.getLeft()));
+        assertThat(parser.parse("(A && !B) || (A && !B)"), sameInstance(parsed));
+    }
+    
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestFormulas;
+
+/**
+ * Tests the {@link FormulaTraverser} and the {@link IterativeVisitorAdapter}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class FormulaTraverserTest {
+
+    private static final int DEEP = 100000;
+    
+    /**
+     * A visitor that records the order in which the nodes are visited.
+     */
+    private static class RecordingVisitor implements IPostOrderFormulaVisitor<String> {
+
+        private List<String> order = new ArrayList<>();
+        
+        @Override
+        public String visitFalse(False falseConstant) {
+            order.add("0");
+            return "0";
+        }
+
+        @Override
+        public String visitTrue(True trueConstant) {
+            order.add("1");
+            return "1";
+        }
+
+        @Override
+        public String visitVariable(Variable variable) {
+            order.add(variable.getName());
+            return variable.getName();
+        }
+
+        @Override
+        public String visitNegation(Negation formula, String nested) {
+            order.add("!");
+            return "!" + nested;
+        }
+
+        @Override
+        public String visitDisjunction(Disjunction formula, String left, String right) {
+            order.add("|");
+            return "(" + left + "|" + right + ")";
+        }
+
+        @Override
+        public String visitConjunction(Conjunction formula, String left, String right) {
+            order.add("&");
+            return "(" + left + "&" + right + ")";
+        }
+        
+    }
+    
+    /**
+     * Creates a left-deep chain of alternating conjunctions and disjunctions, with some negations, like the parser
+     * creates for long chains.
+     * 
+     * @param length The number of operations.
+     * @return The deep formula.
+     */
+    private static Formula createDeepFormula(int length) {
+        Formula result = new Variable("V0");
+        for (int i = 1; i <= length; i++) {
+            Formula operand = i % 7 == 0 ? not("V" + (i % 10)) : new Variable("V" + (i % 10));
+            result = i % 3 == 0 ? new Disjunction(result, operand) : new Conjunction(result, operand);
+            if (i % 1000 == 0) {
+                result = new Negation(result);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Runs the given code in a thread with a small stack, so that recursive implementations fail reliably.
+     * 
+     * @param code The code to run.
+     * 
+     * @throws Throwable If the code throws something.
+     */
+    private static void runWithSmallStack(Runnable code) throws Throwable {
+        Throwable[] error = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                code.run();
+            } catch (Throwable e) {
+                error[0] = e;
+            }
+        }, "small-stack", 256 * 1024);
+        thread.start();
+        thread.join();
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+    
+    /**
+     * Tests that the nodes are visited in post-order, from left to right.
+     */
+    @Test
+    public void testPostOrder() {
+        RecordingVisitor visitor = new RecordingVisitor();
+        String result = new FormulaTraverser().traverse(or(and("A", not("B")), True.INSTANCE), visitor);
+        
+        assertThat(result, is("((A&!B)|1)"));
+        assertThat(String.join(" ", visitor.order), is("A B ! & 1 |"));
+    }
+    
+    /**
+     * Tests that {@link NaryFormula}s are traversed in their binary form.
+     */
+    @Test
+    public void testNaryFormula() {
+        NaryFormula nary = new NaryFormula(NaryFormula.Operator.AND, new Variable("A"), new Variable("B"),
+                new Variable("C"), new Variable("D"));
+        
+        String result = FormulaTraverser.traverseFormula(nary, new RecordingVisitor());
+        assertThat(result, is("((A&B)&(C&D))"));
+    }
+    
+    /**
+     * Tests that a traverser can be re-used, and the thread-local traverser can be used from inside a visitor.
+     */
+    @Test
+    public void testReuse() {
+        FormulaTraverser traverser = new FormulaTraverser();
+        assertThat(traverser.traverse(and("A", "B"), new RecordingVisitor()), is("(A&B)"));
+        assertThat(traverser.traverse(not("C"), new RecordingVisitor()), is("!C"));
+        
+        // nested traversal from inside a visitor
+        String result = FormulaTraverser.traverseFormula(and("A", "B"), new RecordingVisitor() {
+            
+            @Override
+            public String visitVariable(Variable variable) {
+                return FormulaTraverser.traverseFormula(not(variable), new RecordingVisitor());
+            }
+            
+        });
+        assertThat(result, is("(!A&!B)"));
+    }
+    
+    /**
+     * Tests that a traverser can't be used while it is running.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testBusy() {
+        FormulaTraverser traverser = new FormulaTraverser();
+        traverser.traverse(new Variable("A"), new RecordingVisitor() {
+            
+            @Override
+            public String visitVariable(Variable variable) {
+                return traverser.traverse(variable, new RecordingVisitor());
+            }
+            
+        });
+    }
+    
+    /**
+     * Tests that the adapter produces the same results as the recursive visitors for random formulas.
+     */
+    @Test
+    public void testAdapterRandom() {
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            Formula formula = TestFormulas.random(random, 5, 6, true);
+            
+            Map<String, Boolean> values = new HashMap<>();
+            for (int v = 0; v < 5; v++) {
+                if (random.nextInt(4) != 0) {
+                    values.put("V" + v, random.nextBoolean());
+                }
+            }
+            
+            assertThat(new IterativeVisitorAdapter<>(new FormulaEvaluator(values)).visit(formula),
+                    is(new FormulaEvaluator(values).visit(formula)));
+            assertThat(new IterativeVisitorAdapter<>(new DepthCalculator()).visit(formula),
+                    is(new DepthCalculator().visit(formula)));
+            assertThat(new IterativeVisitorAdapter<>(new FormulaLiteralCounter()).visit(formula),
+                    is(new FormulaLiteralCounter().visit(formula)));
+            assertThat(new IterativeVisitorAdapter<>(new VariableValueReplacer("V1", true, true)).visit(formula),
+                    is(new VariableValueReplacer("V1", true, true).visit(formula)));
+            
+            VariableFinder finder = new VariableFinder();
+            new IterativeVisitorAdapter<>(finder).visit(formula);
+            VariableFinder recursiveFinder = new VariableFinder();
+            recursiveFinder.visit(formula);
+            assertThat(finder.getVariableNames(), is(recursiveFinder.getVariableNames()));
+        }
+    }
+    
+    /**
+     * Tests that the adapter replaces unchanged operations by the original formula.
+     */
+    @Test
+    public void testAdapterReturnsOriginal() {
+        Formula formula = and("A", not("B"));
+        Formula result = new IterativeVisitorAdapter<>(new IFormulaVisitor<Formula>() {
+
+            @Override
+            public Formula visitFalse(False falseConstant) {
+                return falseConstant;
+            }
+
+            @Override
+            public Formula visitTrue(True trueConstant) {
+                return trueConstant;
+            }
+
+            @Override
+            public Formula visitVariable(Variable variable) {
+                return variable;
+            }
+
+            @Override
+            public Formula visitNegation(Negation formula) {
+                formula.getFormula().accept(this);
+                return formula;
+            }
+
+            @Override
+            public Formula visitDisjunction(Disjunction formula) {
+                return formula;
+            }
+
+            @Override
+            public Formula visitConjunction(Conjunction formula) {
+                formula.getLeft().accept(this);
+                formula.getRight().accept(this);
+                return formula;
+            }
+        }).visit(formula);
+        
+        assertThat(result, sameInstance(formula));
+    }
+    
+    /**
+     * Tests the adapter with existing visitors on a very deep formula.
+     * 
+     * @throws Throwable unwanted.
+     */
+    @Test
+    public void testAdapterDeep() throws Throwable {
+        Formula formula = createDeepFormula(DEEP);
+        runWithSmallStack(() -> {
+            assertThat(new IterativeVisitorAdapter<>(new DepthCalculator()).visit(formula), is(DEEP + DEEP / 1000));
+            
+            VariableFinder finder = new VariableFinder();
+            new IterativeVisitorAdapter<>(finder).visit(formula);
+            assertThat(finder.getVariables().size(), is(10));
+            
+            Map<String, Boolean> values = new HashMap<>();
+            for (int i = 0; i < 10; i++) {
+                values.put("V" + i, true);
+            }
+            new IterativeVisitorAdapter<>(new FormulaEvaluator(values)).visit(formula);
+        });
+    }
+    
+    /**
+     * Tests that the default simplifier works on very deep formulas.
+     * 
+     * @throws Throwable unwanted.
+     */
+    @Test
+    public void testSimplifierDeep() throws Throwable {
+        Formula formula = createDeepFormula(DEEP);
+        Formula withConstant = new Conjunction(new Disjunction(formula, False.INSTANCE), True.INSTANCE);
+        runWithSmallStack(() -> {
+            // unchanged formulas are returned as-is
+            assertThat(FormulaSimplifier.defaultSimplifier(formula), sameInstance(formula));
+            assertThat(FormulaSimplifier.defaultSimplifier(withConstant), sameInstance(formula));
+        });
+    }
+    
+    /**
+     * Tests that {@link Formula#toString()} works on very deep formulas.
+     * 
+     * @throws Throwable unwanted.
+     */
+    @Test
+    public void testToStringDeep() throws Throwable {
+        Formula formula = createDeepFormula(DEEP);
+        runWithSmallStack(() -> {
+            String string = formula.toString();
+            // the last operation is a negated conjunction with V0
+            assertThat(string.startsWith("!("), is(true));
+            assertThat(string.endsWith(" && V0)"), is(true));
+        });
+    }
+    
+    /**
+     * Tests the parentheses of {@link FormulaTraverser#toString(Formula, StringBuilder)}.
+     */
+    @Test
+    public void testToString() {
+        assertThat(and(or("A", "B"), and("C", not(not("D")))).toString(), is("(A || B) && C && !!D"));
+        assertThat(or(and("A", "B"), or("C", not(or("D", "E")))).toString(), is("(A && B) || C || !(D || E)"));
+        assertThat(not(and("A", True.INSTANCE)).toString(), is("!(A && 1)"));
+        
+        NaryFormula nary = new NaryFormula(NaryFormula.Operator.OR, and("A", "B"), or("C", "D"),
+                new NaryFormula(NaryFormula.Operator.OR, new Variable("E"), new Variable("F")), not("G"));
+        assertThat(nary.toString(), is("(A && B) || C || D || E || F || !G"));
+    }
+    
+}
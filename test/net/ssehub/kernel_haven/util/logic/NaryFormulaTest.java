@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.logic.NaryFormula.Operator;
+
+/**
+ * Tests the {@link NaryFormula} class.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class NaryFormulaTest {
+
+    /**
+     * Creates a left-deep chain of conjunctions over the variables V0 to V(n-1), like the parser does.
+     * 
+     * @param n The number of variables.
+     * @return The conjunction chain.
+     */
+    private static Formula createChain(int n) {
+        Formula result = new Variable("V0");
+        for (int i = 1; i < n; i++) {
+            result = and(result, "V" + i);
+        }
+        return result;
+    }
+    
+    /**
+     * Tests that chains of the same operation are flattened into a single node.
+     */
+    @Test
+    public void testFlatten() {
+        Formula binary = or(and(and("A", "B"), and("C", or("D", "E"))), "F");
+        
+        NaryFormula flat = (NaryFormula) NaryFormula.flatten(binary);
+        assertThat(flat.getOperator(), is(Operator.OR));
+        assertThat(flat.getOperandCount(), is(2));
+        assertThat(flat.getOperand(1), is(new Variable("F")));
+        
+        NaryFormula conjunction = (NaryFormula) flat.getOperand(0);
+        assertThat(conjunction.getOperator(), is(Operator.AND));
+        assertThat(conjunction.getOperands().subList(0, 3),
+                is(Arrays.asList(new Variable("A"), new Variable("B"), new Variable("C"))));
+        assertThat(conjunction.getOperand(3), is(new NaryFormula(Operator.OR, new Variable("D"), new Variable("E"))));
+        
+        assertThat(flat.toString(), is(binary.toString()));
+    }
+    
+    /**
+     * Tests that negations are flattened, and that formulas without binary operations are returned as-is.
+     */
+    @Test
+    public void testFlattenNegation() {
+        Formula var = new Variable("A");
+        assertThat(NaryFormula.flatten(var), sameInstance(var));
+        
+        Formula negatedVar = not("A");
+        assertThat(NaryFormula.flatten(negatedVar), sameInstance(negatedVar));
+        
+        Formula negation = not(and(and("A", "B"), "C"));
+        Formula flat = NaryFormula.flatten(negation);
+        assertThat(flat, instanceOf(Negation.class));
+        assertThat(((Negation) flat).getFormula(), instanceOf(NaryFormula.class));
+        assertThat(flat.toString(), is("!(A && B && C)"));
+    }
+    
+    /**
+     * Tests that long chains are flattened into a single node.
+     */
+    @Test
+    public void testLongChain() {
+        Formula chain = createChain(10000);
+        
+        NaryFormula flat = (NaryFormula) NaryFormula.flatten(chain);
+        assertThat(flat.getOperandCount(), is(10000));
+        assertThat(flat.getOperand(0), is(new Variable("V0")));
+        assertThat(flat.getOperand(9999), is(new Variable("V9999")));
+    }
+    
+    /**
+     * Tests that the canonical form is independent of the operand order and removes duplicates.
+     */
+    @Test
+    public void testCanonical() {
+        Formula f1 = and(and("A", or("B", "C")), "D");
+        Formula f2 = and("D", and(or("C", "B"), and("A", "D")));
+        assertThat(f1, CoreMatchers.not(f2));
+        
+        Formula c1 = NaryFormula.flatten(f1, true);
+        Formula c2 = NaryFormula.flatten(f2, true);
+        assertThat(c1, is(c2));
+        assertThat(c1.hashCode(), is(c2.hashCode()));
+        assertThat(((NaryFormula) c1).getOperandCount(), is(3));
+        
+        // without canonical mode, the order is kept
+        assertThat(NaryFormula.flatten(f1), CoreMatchers.not(NaryFormula.flatten(f2)));
+        
+        // a single remaining operand is returned directly
+        assertThat(NaryFormula.flatten(or("A", "A"), true), is(new Variable("A")));
+    }
+    
+    /**
+     * Tests that equals() and hashCode() respect the operand order and the operator.
+     */
+    @Test
+    public void testEquals() {
+        Variable a = new Variable("A");
+        Variable b = new Variable("B");
+        
+        assertThat(new NaryFormula(Operator.AND, a, b), is(new NaryFormula(Operator.AND, a, b)));
+        assertThat(new NaryFormula(Operator.AND, a, b).hashCode(), is(new NaryFormula(Operator.AND, a, b).hashCode()));
+        assertThat(new NaryFormula(Operator.AND, a, b), CoreMatchers.not(new NaryFormula(Operator.AND, b, a)));
+        assertThat(new NaryFormula(Operator.AND, a, b), CoreMatchers.not(new NaryFormula(Operator.OR, a, b)));
+        assertThat(new NaryFormula(Operator.AND, a, b).equals(and(a, b)), is(false));
+    }
+    
+    /**
+     * Tests that less than two operands are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewOperands() {
+        new NaryFormula(Operator.OR, new Variable("A"));
+    }
+    
+    /**
+     * Tests the conversion to the balanced binary form.
+     */
+    @Test
+    public void testToBinary() {
+        Formula chain = createChain(1024);
+        NaryFormula flat = (NaryFormula) NaryFormula.flatten(chain);
+        
+        Formula binary = flat.toBinary();
+        assertThat(binary.toString(), is(chain.toString()));
+        assertThat(new DepthCalculator().visit(chain), is(1023));
+        assertThat(new DepthCalculator().visit(binary), is(10));
+        assertThat(flat.toBinary(), sameInstance(binary));
+        
+        Formula mixed = not(or(flat, "X"));
+        Formula mixedBinary = NaryFormula.toBinary(mixed);
+        assertThat(mixedBinary.toString(), is(mixed.toString()));
+        assertThat(new DepthCalculator().visit(mixedBinary), is(12));
+        
+        Formula pure = and("A", not("B"));
+        assertThat(NaryFormula.toBinary(pure), sameInstance(pure));
+    }
+    
+    /**
+     * Tests that visitors that don't know about n-ary formulas work on the binary form.
+     */
+    @Test
+    public void testVisitorAdapter() {
+        Formula flat = NaryFormula.flatten(or(and(and("A", "B"), "C"), not("D")));
+        
+        // DepthCalculator doesn't implement INaryFormulaVisitor
+        assertThat(new DepthCalculator().visit(flat), is(3));
+        
+        FormulaLiteralCounter counter = new FormulaLiteralCounter();
+        assertThat(counter.visit(flat), is(4));
+    }
+    
+    /**
+     * Tests the {@link VariableFinder} on n-ary formulas.
+     */
+    @Test
+    public void testVariableFinder() {
+        Formula flat = NaryFormula.flatten(createChain(500));
+        
+        VariableFinder finder = new VariableFinder();
+        finder.visit(flat);
+        assertThat(finder.getVariables().size(), is(500));
+    }
+    
+    /**
+     * Tests the {@link FormulaEvaluator} on n-ary formulas, including undefined values.
+     */
+    @Test
+    public void testEvaluator() {
+        Formula and = NaryFormula.flatten(and(and("A", "B"), "C"));
+        Formula or = NaryFormula.flatten(or(or("A", "B"), "C"));
+        
+        Map<String, Boolean> values = new HashMap<>();
+        values.put("A", true);
+        values.put("B", true);
+        values.put("C", true);
+        FormulaEvaluator evaluator = new FormulaEvaluator(values);
+        assertThat(evaluator.visit(and), is(true));
+        assertThat(evaluator.visit(or), is(true));
+        
+        values.put("B", false);
+        assertThat(evaluator.visit(and), is(false));
+        assertThat(evaluator.visit(or), is(true));
+        
+        values.put("A", null);
+        values.put("C", false);
+        assertThat(evaluator.visit(and), is(false));
+        assertThat(evaluator.visit(or), nullValue());
+        
+        values.put("B", true);
+        values.put("C", true);
+        assertThat(evaluator.visit(and), nullValue());
+        
+        values.put("A", false);
+        values.put("B", false);
+        values.put("C", false);
+        assertThat(evaluator.visit(or), is(false));
+    }
+    
+    /**
+     * Tests {@link NaryFormula#getOperator(Formula)} for binary and n-ary operations and other formulas.
+     */
+    @Test
+    public void testGetOperatorOfFormula() {
+        Variable a = new Variable("A");
+        Variable b = new Variable("B");
+        
+        assertThat(NaryFormula.getOperator(and(a, b)), is(Operator.AND));
+        assertThat(NaryFormula.getOperator(or(a, b)), is(Operator.OR));
+        assertThat(NaryFormula.getOperator(new NaryFormula(Operator.OR, a, b, a)), is(Operator.OR));
+        assertThat(NaryFormula.getOperator(not(a)), nullValue());
+        assertThat(NaryFormula.getOperator(a), nullValue());
+        assertThat(NaryFormula.getOperator(True.INSTANCE), nullValue());
+    }
+    
+}
@@ -20,8 +20,10 @@ import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
 import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 
 import org.junit.Test;
@@ -92,4 +94,19 @@ public class VariableFinderTest {
         assertThat(finder.getVariables(), is(new HashSet<>(Arrays.asList(a, b))));
     }
     
+    /**
+     * Tests that the variable IDs match the global {@link VariableIdTable}.
+     */
+    @Test
+    public void testVariableIds() {
+        VariableFinder finder = new VariableFinder();
+        finder.visit(and(or("A", not("B")), "A"));
+        
+        BitSet ids = finder.getVariableIds();
+        VariableIdTable table = VariableIdTable.getInstance();
+        assertThat(ids.cardinality(), is(2));
+        assertTrue(ids.get(table.getId("A")));
+        assertTrue(ids.get(table.getId("B")));
+    }
+    
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.variability_model.VariabilityModel;
+import net.ssehub.kernel_haven.variability_model.VariabilityVariable;
+
+/**
+ * Tests the {@link VariableIdTable}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class VariableIdTableTest {
+
+    /**
+     * Tests that IDs are assigned densely, starting at 1.
+     */
+    @Test
+    public void testDenseIds() {
+        VariableIdTable table = new VariableIdTable();
+        
+        assertThat(table.getId("A"), is(1));
+        assertThat(table.getId("B"), is(2));
+        assertThat(table.getId("A"), is(1));
+        
+        assertThat(table.getName(1), is("A"));
+        assertThat(table.getName(2), is("B"));
+        assertThat(table.getName(3), nullValue());
+        assertThat(table.getName(0), nullValue());
+        
+        assertThat(table.getExistingId("B"), is(2));
+        assertThat(table.getExistingId("C"), is(0));
+        assertThat(table.size(), is(2));
+        assertThat(table.getMaxId(), is(2));
+    }
+    
+    /**
+     * Tests explicitly assigned IDs.
+     */
+    @Test
+    public void testAssign() {
+        VariableIdTable table = new VariableIdTable();
+        
+        assertTrue(table.assign("A", 5));
+        assertTrue(table.assign("A", 5));
+        assertFalse(table.assign("A", 6));
+        assertFalse(table.assign("B", 5));
+        assertTrue(table.assign("C", 200));
+        
+        // new variables are numbered above the highest assigned ID
+        assertThat(table.getId("D"), is(201));
+        assertThat(table.getName(200), is("C"));
+        assertThat(table.getMaxId(), is(201));
+    }
+    
+    /**
+     * Tests that invalid IDs are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAssignInvalid() {
+        new VariableIdTable().assign("A", 0);
+    }
+    
+    /**
+     * Tests the {@link BitSet} queries.
+     */
+    @Test
+    public void testVariableIds() {
+        VariableIdTable table = new VariableIdTable();
+        table.getId("A");
+        table.getId("B");
+        table.getId("C");
+        
+        Formula f1 = and(or("A", not("C")), True.INSTANCE);
+        Formula f2 = new NaryFormula(NaryFormula.Operator.OR, new Variable("B"), new Variable("C"), not("D"));
+        
+        BitSet ids1 = table.getVariableIds(f1);
+        BitSet ids2 = table.getVariableIds(f2);
+        
+        assertThat(ids1, is(bitSet(1, 3)));
+        assertThat(ids2, is(bitSet(2, 3, 4)));
+        assertThat(table.getNames(ids2), is(Arrays.asList("B", "C", "D")));
+        
+        assertTrue(ids1.intersects(ids2));
+        BitSet common = (BitSet) ids1.clone();
+        common.and(ids2);
+        assertThat(table.getNames(common), is(Arrays.asList("C")));
+        
+        assertThat(table.getVariableIds(Arrays.asList("D", "A")), is(bitSet(1, 4)));
+    }
+    
+    /**
+     * Tests that {@link Variable#getId()} uses the global table.
+     */
+    @Test
+    public void testGlobalVariableIds() {
+        Variable var = new Variable("VariableTableTest_global");
+        int id = var.getId();
+        
+        assertThat(VariableIdTable.getInstance().getId("VariableTableTest_global"), is(id));
+        assertThat(VariableIdTable.getInstance().getName(id), is("VariableTableTest_global"));
+        assertThat(new Variable("VariableTableTest_global").getId(), is(id));
+        assertThat(VariableIdTable.getInstance().getVariableIds(var), is(bitSet(id)));
+    }
+    
+    /**
+     * Tests that concurrent lookups assign each variable exactly one unique ID.
+     * 
+     * @throws InterruptedException unwanted.
+     */
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        VariableIdTable table = new VariableIdTable();
+        Set<String> results = ConcurrentHashMap.newKeySet();
+        
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String name = "V" + i;
+                    int id = table.getId(name);
+                    if (name.equals(table.getName(id))) {
+                        results.add(name + "=" + id);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertThat(table.size(), is(2000));
+        assertThat(table.getMaxId(), is(2000));
+        // each variable has exactly one ID, and getName() worked for every returned ID
+        assertThat(results.size(), is(2000));
+    }
+    
+    /**
+     * Tests aligning the IDs with the DIMACS numbers of a {@link VariabilityModel}.
+     */
+    @Test
+    public void testAlignWithVariabilityModel() {
+        Set<VariabilityVariable> variables = new HashSet<>();
+        variables.add(new VariabilityVariable("ALPHA", "bool", 1));
+        variables.add(new VariabilityVariable("BETA", "bool", 3));
+        variables.add(new VariabilityVariable("GAMMA", "bool", 2));
+        variables.add(new VariabilityVariable("NO_DIMACS", "bool"));
+        VariabilityModel vm = new VariabilityModel(new File("irrelevant"), variables);
+        
+        VariableIdTable table = new VariableIdTable();
+        assertThat(vm.alignVariableIds(table), is(0));
+        assertThat(table.getExistingId("ALPHA"), is(1));
+        assertThat(table.getExistingId("GAMMA"), is(2));
+        assertThat(table.getExistingId("BETA"), is(3));
+        assertThat(table.getId("NO_DIMACS"), is(4));
+        
+        VariableIdTable conflicting = new VariableIdTable();
+        conflicting.getId("OTHER");
+        assertThat(vm.alignVariableIds(conflicting), is(1));
+        assertThat(conflicting.getExistingId("ALPHA"), is(0));
+    }
+    
+    /**
+     * Tests that each {@link VariabilityModel} has its own table aligned with its DIMACS numbers, even if the numbers
+     * of different models clash.
+     */
+    @Test
+    public void testVariabilityModelTable() {
+        Set<VariabilityVariable> variables1 = new HashSet<>();
+        variables1.add(new VariabilityVariable("ALPHA", "bool", 1));
+        variables1.add(new VariabilityVariable("BETA", "bool", 2));
+        VariabilityModel vm1 = new VariabilityModel(new File("irrelevant"), variables1);
+        
+        Set<VariabilityVariable> variables2 = new HashSet<>();
+        variables2.add(new VariabilityVariable("BETA", "bool", 1));
+        variables2.add(new VariabilityVariable("GAMMA", "bool", 2));
+        VariabilityModel vm2 = new VariabilityModel(new File("irrelevant"), variables2);
+        
+        VariableIdTable table1 = vm1.getVariableIdTable();
+        assertThat(vm1.getVariableIdTable(), sameInstance(table1));
+        assertThat(table1.getExistingId("ALPHA"), is(1));
+        assertThat(table1.getExistingId("BETA"), is(2));
+        assertThat(table1.getId("OTHER"), is(3));
+        
+        VariableIdTable table2 = vm2.getVariableIdTable();
+        assertThat(table2.getExistingId("BETA"), is(1));
+        assertThat(table2.getExistingId("GAMMA"), is(2));
+        assertThat(table2.getExistingId("ALPHA"), is(0));
+        assertThat(table2.getVariableIds(and("GAMMA", "BETA")), is(bitSet(1, 2)));
+    }
+    
+    /**
+     * Creates a {@link BitSet} with the given bits set.
+     * 
+     * @param bits The bits to set.
+     * @return The {@link BitSet}.
+     */
+    private static BitSet bitSet(int... bits) {
+        BitSet result = new BitSet();
+        for (int bit : bits) {
+            result.set(bit);
+        }
+        return result;
+    }
+    
+}
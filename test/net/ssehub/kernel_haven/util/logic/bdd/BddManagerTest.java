@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestFormulas;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaEvaluator;
+import net.ssehub.kernel_haven.util.logic.NaryFormula;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.logic.bdd.BddManager.NodeLimitExceededException;
+
+/**
+ * Tests the {@link BddManager}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BddManagerTest {
+
+    /**
+     * Checks that two formulas evaluate to the same values for all assignments of the variables V0 to V(numVars-1).
+     * 
+     * @param expected The expected formula.
+     * @param actual The actual formula.
+     * @param numVars The number of variables.
+     */
+    static void assertEquivalent(Formula expected, Formula actual, int numVars) {
+        Map<String, Boolean> values = new HashMap<>();
+        FormulaEvaluator evaluator = new FormulaEvaluator(values);
+        for (int assignment = 0; assignment < (1 << numVars); assignment++) {
+            for (int i = 0; i < numVars; i++) {
+                values.put("V" + i, (assignment & (1 << i)) != 0);
+            }
+            assertThat(expected + " vs. " + actual, evaluator.visit(actual), is(evaluator.visit(expected)));
+        }
+    }
+    
+    /**
+     * Tests the terminal cases.
+     */
+    @Test
+    public void testConstants() {
+        BddManager manager = new BddManager();
+        
+        assertThat(manager.fromFormula(True.INSTANCE), is(BddManager.TRUE));
+        assertThat(manager.fromFormula(False.INSTANCE), is(BddManager.FALSE));
+        assertThat(manager.fromFormula(or("A", not("A"))), is(BddManager.TRUE));
+        assertThat(manager.fromFormula(and("A", not("A"))), is(BddManager.FALSE));
+        assertThat(manager.isTautology(manager.fromFormula(or(and("A", "B"), or(not("A"), not("B"))))), is(true));
+        assertThat(manager.isSatisfiable(manager.fromFormula(and(and("A", "B"), not(and("B", "A"))))), is(false));
+        
+        assertThat(manager.toFormula(BddManager.TRUE), is(True.INSTANCE));
+        assertThat(manager.toFormula(BddManager.FALSE), is(False.INSTANCE));
+    }
+    
+    /**
+     * Tests that equivalent formulas result in the same BDD.
+     */
+    @Test
+    public void testEquivalence() {
+        BddManager manager = new BddManager();
+        
+        // commutativity
+        assertThat(manager.fromFormula(and("A", "B")), is(manager.fromFormula(and("B", "A"))));
+        // De Morgan
+        assertThat(manager.isEquivalent(not(and("A", "B")), or(not("A"), not("B"))), is(true));
+        // distributivity
+        assertThat(manager.isEquivalent(and("A", or("B", "C")), or(and("A", "B"), and("A", "C"))), is(true));
+        // absorption
+        assertThat(manager.isEquivalent(or("A", and("A", "B")), new Variable("A")), is(true));
+        
+        assertThat(manager.isEquivalent(and("A", "B"), or("A", "B")), is(false));
+        
+        int a = manager.variable("A");
+        int b = manager.variable("B");
+        assertThat(manager.xor(a, b), is(manager.fromFormula(or(and("A", not("B")), and(not("A"), "B")))));
+        assertThat(manager.not(manager.not(a)), is(a));
+    }
+    
+    /**
+     * Tests that n-ary formulas are converted.
+     */
+    @Test
+    public void testNaryFormula() {
+        BddManager manager = new BddManager();
+        Formula binary = or(and(and("A", "B"), "C"), and("D", not("E")));
+        
+        assertThat(manager.fromFormula(NaryFormula.flatten(binary, true)), is(manager.fromFormula(binary)));
+    }
+    
+    /**
+     * Tests that converting a BDD back to a formula results in an equivalent formula.
+     */
+    @Test
+    public void testToFormula() {
+        Random random = new Random(42);
+        BddManager manager = new BddManager();
+        
+        for (int i = 0; i < 200; i++) {
+            Formula formula = TestFormulas.random(random, 6, 6);
+            int bdd = manager.fromFormula(formula);
+            
+            Formula converted = manager.toFormula(bdd);
+            assertEquivalent(formula, converted, 6);
+            assertThat(manager.fromFormula(converted), is(bdd));
+        }
+    }
+    
+    /**
+     * Tests the variable ordering.
+     */
+    @Test
+    public void testStaticOrder() {
+        BddManager manager = new BddManager();
+        manager.addVariable("C");
+        manager.addVariable("B");
+        
+        manager.fromFormula(and(and("A", "B"), "C"));
+        assertThat(manager.getVariableOrder(), is(Arrays.asList("C", "B", "A")));
+        assertThat(manager.getNumVariables(), is(3));
+        
+        // the top-most variable is the outermost one
+        assertThat(manager.toFormula(manager.fromFormula(and("A", "C"))).toString(), is("C && A"));
+    }
+    
+    /**
+     * Tests sifting on a formula with a known bad initial ordering.
+     */
+    @Test
+    public void testSift() {
+        BddManager manager = new BddManager();
+        for (String name : new String[] {"X1", "X2", "X3", "X4", "Y1", "Y2", "Y3", "Y4"}) {
+            manager.addVariable(name);
+        }
+        
+        Formula formula = or(or(and("X1", "Y1"), and("X2", "Y2")), or(and("X3", "Y3"), and("X4", "Y4")));
+        int bdd = manager.fromFormula(formula);
+        int before = manager.getSize(bdd);
+        
+        manager.sift(bdd);
+        
+        int after = manager.getSize(bdd);
+        assertTrue("Expected " + after + " < " + before, after < before);
+        // the optimal order has 2 nodes per pair, plus terminals
+        assertThat(after, is(10));
+        assertThat(manager.getVariableOrder(), is(Arrays.asList("X1", "Y1", "X2", "Y2", "X3", "Y3", "X4", "Y4")));
+        // sifting collects the garbage
+        assertThat(manager.getNumNodes(), is(after));
+        
+        // the handle still represents the same function
+        assertThat(manager.fromFormula(formula), is(bdd));
+    }
+    
+    /**
+     * Tests that sifting with multiple roots keeps all functions intact.
+     */
+    @Test
+    public void testSiftRandom() {
+        Random random = new Random(1234);
+        
+        for (int run = 0; run < 20; run++) {
+            BddManager manager = new BddManager();
+            Formula[] formulas = new Formula[5];
+            int[] bdds = new int[formulas.length];
+            for (int i = 0; i < formulas.length; i++) {
+                formulas[i] = TestFormulas.random(random, 8, 7);
+                bdds[i] = manager.fromFormula(formulas[i]);
+            }
+            int before = manager.getSize(bdds);
+            
+            manager.sift(bdds);
+            
+            assertTrue(manager.getSize(bdds) <= before);
+            for (int i = 0; i < formulas.length; i++) {
+                assertEquivalent(formulas[i], manager.toFormula(bdds[i]), 8);
+                assertThat(manager.fromFormula(formulas[i]), is(bdds[i]));
+            }
+        }
+    }
+    
+    /**
+     * Tests that garbage collection frees unreachable nodes and re-uses them.
+     */
+    @Test
+    public void testCollectGarbage() {
+        BddManager manager = new BddManager();
+        int kept = manager.fromFormula(and("A", "B"));
+        manager.fromFormula(or(and("C", "D"), and("E", "F")));
+        int numNodes = manager.getNumNodes();
+        
+        manager.collectGarbage(kept);
+        
+        assertThat(manager.getNumNodes(), is(manager.getSize(kept)));
+        assertTrue(manager.getNumNodes() < numNodes);
+        assertThat(manager.fromFormula(and("B", "A")), is(kept));
+        
+        assertThat(manager.isEquivalent(or(and("C", "D"), and("E", "F")), or(and("F", "E"), and("D", "C"))), is(true));
+    }
+    
+    /**
+     * Tests finding satisfying assignments.
+     */
+    @Test
+    public void testSatisfyingAssignment() {
+        BddManager manager = new BddManager();
+        Formula formula = and(or("A", "B"), not("A"));
+        
+        Map<String, Boolean> assignment = manager.getSatisfyingAssignment(manager.fromFormula(formula));
+        Map<String, Boolean> expected = new HashMap<>();
+        expected.put("A", false);
+        expected.put("B", true);
+        assertThat(assignment, is(expected));
+        
+        assertThat(manager.getSatisfyingAssignment(manager.fromFormula(and("A", not("A")))), nullValue());
+        assertThat(manager.getSatisfyingAssignment(BddManager.TRUE), is(new HashMap<>()));
+    }
+    
+    /**
+     * Tests that the node limit is enforced.
+     */
+    @Test(expected = NodeLimitExceededException.class)
+    public void testNodeLimit() {
+        BddManager manager = new BddManager(10);
+        manager.fromFormula(or(or(and("X1", "Y1"), and("X2", "Y2")), or(and("X3", "Y3"), and("X4", "Y4"))));
+    }
+    
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.bdd;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestFormulas;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaLiteralCounter;
+import net.ssehub.kernel_haven.util.logic.FormulaSimplifier;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link BddSimplifier}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class BddSimplifierTest {
+
+    /**
+     * Resets the global simplifier.
+     */
+    @After
+    public void resetSimplifier() {
+        FormulaSimplifier.setSimplifier(FormulaSimplifier::defaultSimplifier);
+    }
+    
+    /**
+     * Tests that tautologies and contradictions are detected.
+     */
+    @Test
+    public void testConstants() {
+        BddSimplifier simplifier = new BddSimplifier();
+        
+        assertThat(simplifier.apply(or(and("A", "B"), or(not("A"), not("B")))), is(True.INSTANCE));
+        assertThat(simplifier.apply(and(or("A", "B"), and(not("A"), not("B")))), is(False.INSTANCE));
+    }
+    
+    /**
+     * Tests that redundant sub-expressions are removed.
+     */
+    @Test
+    public void testRedundancy() {
+        BddSimplifier simplifier = new BddSimplifier();
+        
+        assertThat(simplifier.apply(or("A", and("A", "B"))), is(new Variable("A")));
+        assertThat(simplifier.apply(and(or("A", "B"), or("A", not("B")))), is(new Variable("A")));
+        
+        // nothing to simplify: the original formula is kept
+        Formula formula = or(and("A", "B"), and("C", "D"));
+        assertThat(simplifier.apply(formula), is(formula));
+    }
+    
+    /**
+     * Tests that the simplified formulas are equivalent and never larger, with and without sifting.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(99);
+        BddSimplifier simplifier = new BddSimplifier();
+        BddSimplifier siftingSimplifier = new BddSimplifier(BddSimplifier.DEFAULT_NODE_LIMIT, true);
+        FormulaLiteralCounter counter = new FormulaLiteralCounter();
+        
+        for (int i = 0; i < 100; i++) {
+            Formula formula = TestFormulas.random(random, 6, 6);
+            int defaultSize = counter.visit(FormulaSimplifier.defaultSimplifier(formula));
+            
+            for (BddSimplifier s : new BddSimplifier[] {simplifier, siftingSimplifier}) {
+                Formula simplified = s.apply(formula);
+                BddManagerTest.assertEquivalent(formula, simplified, 6);
+                assertThat(counter.visit(simplified) <= defaultSize, is(true));
+            }
+        }
+    }
+    
+    /**
+     * Tests that deeply nested formulas do not overflow the stack.
+     */
+    @Test
+    public void testDeepFormula() {
+        Formula chain = new Variable("V0");
+        for (int i = 1; i < 5000; i++) {
+            chain = and(chain, "V" + (i % 10));
+        }
+        
+        BddSimplifier simplifier = new BddSimplifier();
+        assertThat(simplifier.apply(and(chain, not("V0"))), is(False.INSTANCE));
+        assertThat(simplifier.apply(or(chain, not("V0"))) instanceof True, is(false));
+    }
+    
+    /**
+     * Tests that the default simplification is used if the node limit is exceeded.
+     */
+    @Test
+    public void testNodeLimit() {
+        BddSimplifier simplifier = new BddSimplifier(3, false);
+        
+        Formula formula = or("A", and("A", True.INSTANCE));
+        assertThat(simplifier.apply(formula), is(FormulaSimplifier.defaultSimplifier(formula)));
+    }
+    
+    /**
+     * Tests that the simplifier can be installed in the {@link FormulaSimplifier}.
+     */
+    @Test
+    public void testInstall() {
+        FormulaSimplifier.setSimplifier(new BddSimplifier());
+        
+        assertThat(FormulaSimplifier.simplify(or(not("A"), "A")), is(True.INSTANCE));
+    }
+    
+}
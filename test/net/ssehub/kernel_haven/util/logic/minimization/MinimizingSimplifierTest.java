@@ -0,0 +1,208 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.minimization;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestFormulas;
+import net.ssehub.kernel_haven.util.logic.DisjunctionQueue;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaLiteralCounter;
+import net.ssehub.kernel_haven.util.logic.FormulaSimplifier;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+import net.ssehub.kernel_haven.util.logic.bdd.BddManager;
+
+/**
+ * Tests the {@link MinimizingSimplifier}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class MinimizingSimplifierTest {
+
+    /**
+     * Resets the global simplifier.
+     */
+    @After
+    public void resetSimplifier() {
+        FormulaSimplifier.setSimplifier(FormulaSimplifier::defaultSimplifier);
+    }
+    
+    /**
+     * Checks that the simplifier returns an equivalent formula with at most as many literals as the default
+     * simplifier.
+     * 
+     * @param simplifier The simplifier to test.
+     * @param formula The formula to simplify.
+     * 
+     * @return The simplified formula.
+     */
+    private static Formula check(MinimizingSimplifier simplifier, Formula formula) {
+        Formula result = simplifier.apply(formula);
+        
+        assertTrue(formula + " not equivalent to " + result, new BddManager().isEquivalent(formula, result));
+        FormulaLiteralCounter counter = new FormulaLiteralCounter();
+        assertTrue(counter.visit(result) <= counter.visit(FormulaSimplifier.defaultSimplifier(formula)));
+        return result;
+    }
+    
+    /**
+     * Tests absorption, subsumption and reduction without the exact minimization.
+     */
+    @Test
+    public void testStructural() {
+        MinimizingSimplifier simplifier = new MinimizingSimplifier(0, 0);
+        
+        assertThat(check(simplifier, or(or(and("A", "B"), and("A", not("B"))), "A")), is(new Variable("A")));
+        assertThat(check(simplifier, or("A", and("A", "B"))), is(new Variable("A")));
+        assertThat(check(simplifier, and("A", or("A", "B"))), is(new Variable("A")));
+        assertThat(check(simplifier, or("A", and(not("A"), "B"))), is(or("A", "B")));
+        assertThat(check(simplifier, and(or("A", "B"), or("A", not("B")))), is(new Variable("A")));
+        assertThat(check(simplifier, and("C", or(or(and("A", "B"), and("A", not("B"))), "A"))), is(and("C", "A")));
+    }
+    
+    /**
+     * Tests that the consensus rule removes redundant terms.
+     */
+    @Test
+    public void testConsensus() {
+        MinimizingSimplifier simplifier = new MinimizingSimplifier(0, 0);
+        
+        // A && B || !A && C || B && C -> A && B || !A && C
+        Formula formula = or(or(and("A", "B"), and(not("A"), "C")), and("B", "C"));
+        assertThat(check(simplifier, formula), is(or(and("A", "B"), and(not("A"), "C"))));
+        
+        // dual: (A || B) && (!A || C) && (B || C)
+        formula = and(and(or("A", "B"), or(not("A"), "C")), or("B", "C"));
+        assertThat(check(simplifier, formula), is(and(or("A", "B"), or(not("A"), "C"))));
+    }
+    
+    /**
+     * Tests that sub-formulas that are not literals are treated as atoms.
+     */
+    @Test
+    public void testAtoms() {
+        MinimizingSimplifier simplifier = new MinimizingSimplifier(0, 0);
+        
+        // X = (C || D) is an atom in: A && X || A && !X -> A
+        Formula x = or("C", "D");
+        Formula formula = or(and("A", x), and("A", not(x)));
+        assertThat(check(simplifier, formula), is(new Variable("A")));
+        
+        // (B && (C || D)) || B -> B
+        assertThat(check(simplifier, or(and("B", x), "B")), is(new Variable("B")));
+    }
+    
+    /**
+     * Tests tautologies and contradictions.
+     */
+    @Test
+    public void testConstants() {
+        MinimizingSimplifier simplifier = new MinimizingSimplifier();
+        
+        assertThat(check(simplifier, or(and("A", "B"), or(not("A"), not("B")))), is(True.INSTANCE));
+        assertThat(check(simplifier, and(or("A", "B"), and(not("A"), not("B")))), is(False.INSTANCE));
+        
+        // detected structurally, too
+        MinimizingSimplifier structural = new MinimizingSimplifier(0, 0);
+        assertThat(check(structural, or(and("A", "B"), or(not("A"), and("A", not("B"))))), is(True.INSTANCE));
+        assertThat(check(structural, and("A", not("A"))), is(False.INSTANCE));
+    }
+    
+    /**
+     * Tests the exact minimization of a formula that the structural rules can't minimize.
+     */
+    @Test
+    public void testExact() {
+        // A && !B || !A && B || A && B -> A || B
+        Formula formula = or(or(and("A", not("B")), and(not("A"), "B")), and("A", "B"));
+        
+        Formula result = check(new MinimizingSimplifier(), formula);
+        assertThat(new FormulaLiteralCounter().visit(result), is(2));
+        
+        // product of sums: (A || B) && (A || C) && (A || D) has 6 literals; A || (B && C && D) only 4
+        formula = and(and(or("A", "B"), or("A", "C")), or("A", "D"));
+        result = check(new MinimizingSimplifier(), formula);
+        assertThat(new FormulaLiteralCounter().visit(result), is(4));
+    }
+    
+    /**
+     * Tests that results are memorized.
+     */
+    @Test
+    public void testMemo() {
+        MinimizingSimplifier simplifier = new MinimizingSimplifier();
+        Formula formula = or("A", and("A", "B"));
+        
+        Formula result = simplifier.apply(formula);
+        assertThat(simplifier.apply(or("A", and("A", "B"))), sameInstance(result));
+    }
+    
+    /**
+     * Tests random formulas, with and without exact minimization.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(11);
+        MinimizingSimplifier exact = new MinimizingSimplifier();
+        MinimizingSimplifier structural = new MinimizingSimplifier(0, 0);
+        
+        for (int i = 0; i < 300; i++) {
+            Formula small = TestFormulas.random(random, 5, 6);
+            check(exact, small);
+            check(structural, small);
+            
+            check(exact, TestFormulas.random(random, 12, 8));
+        }
+    }
+    
+    /**
+     * Tests the simplifier as the global simplifier of a {@link DisjunctionQueue}.
+     */
+    @Test
+    public void testDisjunctionQueue() {
+        FormulaSimplifier.setSimplifier(new MinimizingSimplifier());
+        
+        DisjunctionQueue queue = new DisjunctionQueue(FormulaSimplifier::simplify);
+        queue.add(and("A", "B"));
+        queue.add(and("A", not("B")));
+        queue.add(and(and("A", "C"), "D"));
+        
+        assertThat(queue.getDisjunction(), is(new Variable("A")));
+    }
+    
+    /**
+     * Tests that invalid thresholds are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new MinimizingSimplifier(17, 0);
+    }
+    
+}
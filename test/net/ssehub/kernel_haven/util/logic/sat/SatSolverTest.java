@@ -0,0 +1,290 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.sat;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.util.FormatException;
+
+/**
+ * Tests the {@link SatSolver}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class SatSolverTest {
+
+    /**
+     * Checks that the model of the solver satisfies all given clauses.
+     * 
+     * @param solver The solver after a successful {@link SatSolver#solve(int...)}.
+     * @param clauses The clauses to check.
+     */
+    private static void assertModel(SatSolver solver, List<int[]> clauses) {
+        for (int[] clause : clauses) {
+            boolean satisfied = false;
+            for (int lit : clause) {
+                satisfied |= solver.getModelValue(Math.abs(lit)) == lit > 0;
+            }
+            assertTrue("Clause not satisfied by model", satisfied);
+        }
+    }
+    
+    /**
+     * Brute-forces the satisfiability of the given clauses.
+     * 
+     * @param numVars The number of variables.
+     * @param clauses The clauses.
+     * @param assumptions Literals that must be true.
+     * 
+     * @return Whether the clauses are satisfiable.
+     */
+    private static boolean bruteForce(int numVars, List<int[]> clauses, int... assumptions) {
+        boolean result = false;
+        for (int assignment = 0; assignment < (1 << numVars) && !result; assignment++) {
+            boolean satisfied = true;
+            for (int lit : assumptions) {
+                satisfied &= ((assignment >> (Math.abs(lit) - 1)) & 1) == (lit > 0 ? 1 : 0);
+            }
+            for (int i = 0; i < clauses.size() && satisfied; i++) {
+                boolean clauseSatisfied = false;
+                for (int lit : clauses.get(i)) {
+                    clauseSatisfied |= ((assignment >> (Math.abs(lit) - 1)) & 1) == (lit > 0 ? 1 : 0);
+                }
+                satisfied = clauseSatisfied;
+            }
+            result = satisfied;
+        }
+        return result;
+    }
+    
+    /**
+     * Tests simple satisfiable and unsatisfiable problems.
+     */
+    @Test
+    public void testSimple() {
+        SatSolver solver = new SatSolver();
+        assertThat(solver.solve(), is(true));
+        
+        solver.addClause(1, 2);
+        solver.addClause(-1, 2);
+        assertThat(solver.solve(), is(true));
+        assertThat(solver.getModelValue(2), is(true));
+        
+        solver.addClause(1, -2);
+        assertThat(solver.solve(), is(true));
+        assertThat(solver.getModelValue(1), is(true));
+        
+        solver.addClause(-1, -2);
+        assertThat(solver.solve(), is(false));
+        assertThat(solver.addClause(3), is(false));
+    }
+    
+    /**
+     * Tests that tautologies, duplicate literals and the empty clause are handled.
+     */
+    @Test
+    public void testSpecialClauses() {
+        SatSolver solver = new SatSolver();
+        solver.addClause(1, -1);
+        solver.addClause(2, 2, 2);
+        assertThat(solver.getNumClauses(), is(0));
+        assertThat(solver.solve(-1), is(true));
+        assertThat(solver.solve(-2), is(false));
+        
+        assertThat(solver.addClause(), is(false));
+        assertThat(solver.solve(), is(false));
+    }
+    
+    /**
+     * Tests solving under assumptions, and that the assumptions don't persist.
+     */
+    @Test
+    public void testAssumptions() {
+        SatSolver solver = new SatSolver();
+        solver.addClause(-1, 2);  // 1 -> 2
+        solver.addClause(-2, 3);  // 2 -> 3
+        solver.addClause(-3, -4); // 3 -> !4
+        
+        assertThat(solver.solve(1), is(true));
+        assertThat(solver.getModelValue(3), is(true));
+        assertThat(solver.solve(1, 4), is(false));
+        assertThat(solver.solve(4), is(true));
+        assertThat(solver.getModelValue(1), is(false));
+        assertThat(solver.solve(1, 1, 2, 3), is(true));
+        assertThat(solver.solve(1, -1), is(false));
+        assertThat(solver.solve(), is(true));
+        
+        // assumptions with unknown variables
+        assertThat(solver.solve(10, -11), is(true));
+        assertThat(solver.getNumVariables(), is(11));
+    }
+    
+    /**
+     * Tests the pigeon hole problem, which requires a lot of conflict analysis.
+     */
+    @Test(timeout = 20000)
+    public void testPigeonHole() {
+        int holes = 6;
+        int pigeons = holes + 1;
+        SatSolver solver = new SatSolver();
+        
+        // variable for pigeon p in hole h: p * holes + h + 1
+        for (int p = 0; p < pigeons; p++) {
+            int[] clause = new int[holes];
+            for (int h = 0; h < holes; h++) {
+                clause[h] = p * holes + h + 1;
+            }
+            solver.addClause(clause);
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p1 = 0; p1 < pigeons; p1++) {
+                for (int p2 = p1 + 1; p2 < pigeons; p2++) {
+                    solver.addClause(-(p1 * holes + h + 1), -(p2 * holes + h + 1));
+                }
+            }
+        }
+        
+        assertThat(solver.solve(), is(false));
+        assertTrue(solver.getNumConflicts() > 0);
+    }
+    
+    /**
+     * Compares the solver against brute force on random 3-SAT problems around the phase transition, with and without
+     * assumptions. The same solver instance is re-used for multiple queries.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(4711);
+        int numVars = 12;
+        
+        for (int run = 0; run < 100; run++) {
+            SatSolver solver = new SatSolver();
+            List<int[]> clauses = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                int[] clause = new int[3];
+                for (int j = 0; j < 3; j++) {
+                    clause[j] = (random.nextInt(numVars) + 1) * (random.nextBoolean() ? 1 : -1);
+                }
+                clauses.add(clause);
+                solver.addClause(clause);
+            }
+            
+            boolean expected = bruteForce(numVars, clauses);
+            assertThat(solver.solve(), is(expected));
+            if (expected) {
+                assertModel(solver, clauses);
+            }
+            
+            for (int query = 0; query < 10; query++) {
+                int[] assumptions = {(random.nextInt(numVars) + 1) * (random.nextBoolean() ? 1 : -1),
+                    (random.nextInt(numVars) + 1) * (random.nextBoolean() ? 1 : -1)};
+                boolean expectedWithAssumptions = bruteForce(numVars, clauses, assumptions);
+                assertThat(solver.solve(assumptions), is(expectedWithAssumptions));
+                if (expectedWithAssumptions) {
+                    assertModel(solver, clauses);
+                    for (int lit : assumptions) {
+                        assertThat(solver.getModelValue(Math.abs(lit)), is(lit > 0));
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Tests a larger satisfiable random problem, to exercise restarts and the deletion of learned clauses.
+     */
+    @Test(timeout = 30000)
+    public void testLargeRandom() {
+        Random random = new Random(123);
+        int numVars = 250;
+        SatSolver solver = new SatSolver();
+        List<int[]> clauses = new ArrayList<>();
+        
+        // plant a solution, so the problem is guaranteed to be satisfiable
+        boolean[] solution = new boolean[numVars + 1];
+        for (int i = 1; i <= numVars; i++) {
+            solution[i] = random.nextBoolean();
+        }
+        while (clauses.size() < 4.2 * numVars) {
+            int[] clause = new int[3];
+            boolean satisfied = false;
+            for (int j = 0; j < 3; j++) {
+                int var = random.nextInt(numVars) + 1;
+                clause[j] = random.nextBoolean() ? var : -var;
+                satisfied |= solution[var] == clause[j] > 0;
+            }
+            if (satisfied) {
+                clauses.add(clause);
+                solver.addClause(clause);
+            }
+        }
+        
+        assertThat(solver.solve(), is(true));
+        assertModel(solver, clauses);
+    }
+    
+    /**
+     * Tests reading DIMACS.
+     * 
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testDimacs() throws FormatException {
+        String dimacs = "c 1 ALPHA\nc 2 BETA\np cnf 3 3\n-1 2 0\n-2 -3\n-2 0\r\n1 2 3 0\n";
+        SatSolver solver = new SatSolver();
+        assertThat(solver.addDimacs(ByteBuffer.wrap(dimacs.getBytes(StandardCharsets.US_ASCII))), is(true));
+        
+        assertThat(solver.getNumVariables(), is(3));
+        assertThat(solver.getNumClauses(), is(3));
+        assertThat(solver.solve(), is(true));
+        assertThat(solver.solve(1, 3), is(false));
+        assertThat(solver.solve(-1, -2), is(true));
+        assertThat(solver.getModelValue(3), is(true));
+    }
+    
+    /**
+     * Tests that malformed DIMACS is rejected.
+     * 
+     * @throws FormatException wanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testInvalidDimacs() throws FormatException {
+        new SatSolver().addDimacs(ByteBuffer.wrap("p cnf 2 1\n1 x 0\n".getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    /**
+     * Tests the Luby sequence.
+     */
+    @Test
+    public void testLuby() {
+        long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        for (int i = 0; i < expected.length; i++) {
+            assertThat(SatSolver.luby(i), is(expected[i]));
+        }
+    }
+    
+}
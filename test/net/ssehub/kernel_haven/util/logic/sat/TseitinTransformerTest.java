@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.util.logic.sat;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.test_utils.TestFormulas;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.Formula;
+import net.ssehub.kernel_haven.util.logic.FormulaEvaluator;
+
+/**
+ * Tests the {@link TseitinTransformer} and the {@link DimacsWriter}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class TseitinTransformerTest {
+
+    /**
+     * Creates the known variable numbers V0 = 1 to V(numVars-1) = numVars.
+     * 
+     * @param numVars The number of variables.
+     * @return The mapping of names to numbers.
+     */
+    private static Map<String, Integer> createKnownVariables(int numVars) {
+        Map<String, Integer> result = new HashMap<>();
+        for (int i = 0; i < numVars; i++) {
+            result.put("V" + i, i + 1);
+        }
+        return result;
+    }
+    
+    /**
+     * Checks that the clauses created by {@link TseitinTransformer#addFormula(Formula)} are satisfiable for exactly
+     * those assignments of the known variables, that satisfy the formula.
+     * 
+     * @param plaistedGreenbaum Whether to use the Plaisted-Greenbaum mode.
+     * 
+     * @throws IOException unwanted.
+     */
+    private void checkRandomFormulas(boolean plaistedGreenbaum) throws IOException {
+        Random random = new Random(42);
+        int numVars = 5;
+        for (int i = 0; i < 200; i++) {
+            Formula formula = TestFormulas.random(random, numVars, 5, true);
+            
+            SatSolver solver = new SatSolver();
+            solver.ensureVariables(numVars);
+            TseitinTransformer transformer = new TseitinTransformer(solver::addClause,
+                    createKnownVariables(numVars), plaistedGreenbaum);
+            transformer.addFormula(formula);
+            
+            for (int assignment = 0; assignment < (1 << numVars); assignment++) {
+                Map<String, Boolean> values = new HashMap<>();
+                int[] assumptions = new int[numVars];
+                for (int v = 0; v < numVars; v++) {
+                    boolean value = ((assignment >> v) & 1) == 1;
+                    values.put("V" + v, value);
+                    assumptions[v] = value ? v + 1 : -(v + 1);
+                }
+                
+                boolean expected = new FormulaEvaluator(values).visit(formula);
+                assertThat(formula.toString(), solver.solve(assumptions), is(expected));
+            }
+        }
+    }
+    
+    /**
+     * Tests the Tseitin transformation with random formulas.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testTseitinRandom() throws IOException {
+        checkRandomFormulas(false);
+    }
+    
+    /**
+     * Tests the Plaisted-Greenbaum transformation with random formulas.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testPlaistedGreenbaumRandom() throws IOException {
+        checkRandomFormulas(true);
+    }
+    
+    /**
+     * Tests that the literal returned by {@link TseitinTransformer#encode(Formula)} is equivalent to the formula in
+     * Tseitin mode.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testEncodeEquivalence() throws IOException {
+        Random random = new Random(7);
+        int numVars = 4;
+        SatSolver solver = new SatSolver();
+        solver.ensureVariables(numVars);
+        TseitinTransformer transformer = new TseitinTransformer(solver::addClause,
+                createKnownVariables(numVars), false);
+        
+        for (int i = 0; i < 100; i++) {
+            Formula formula = TestFormulas.random(random, numVars, 4, true);
+            int literal = transformer.encode(formula);
+            solver.ensureVariables(transformer.getNumVariables());
+            
+            for (int assignment = 0; assignment < (1 << numVars); assignment++) {
+                Map<String, Boolean> values = new HashMap<>();
+                int[] assumptions = new int[numVars + 1];
+                for (int v = 0; v < numVars; v++) {
+                    boolean value = ((assignment >> v) & 1) == 1;
+                    values.put("V" + v, value);
+                    assumptions[v] = value ? v + 1 : -(v + 1);
+                }
+                boolean expected = new FormulaEvaluator(values).visit(formula);
+                
+                assumptions[numVars] = literal;
+                assertThat(solver.solve(assumptions), is(expected));
+                assumptions[numVars] = -literal;
+                assertThat(solver.solve(assumptions), is(!expected));
+            }
+        }
+    }
+    
+    /**
+     * Tests the number of clauses and variables created for a simple formula in both modes.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testClauseCounts() throws IOException {
+        // A || (B && C && D)
+        Formula formula = or("A", and(and("B", "C"), "D"));
+        Map<String, Integer> known = new HashMap<>();
+        known.put("A", 1);
+        known.put("B", 2);
+        known.put("C", 3);
+        known.put("D", 4);
+        
+        List<int[]> clauses = new ArrayList<>();
+        TseitinTransformer pg = new TseitinTransformer((clause) -> clauses.add(clause.clone()), known, true);
+        pg.addFormula(formula);
+        
+        // the top-level OR is one clause, the AND is defined one-way with one clause per operand
+        assertThat(pg.getNumVariables(), is(5));
+        assertThat(pg.getNumClauses(), is(4L));
+        assertThat(clauses.size(), is(4));
+        
+        TseitinTransformer tseitin = new TseitinTransformer((clause) -> { }, known, false);
+        tseitin.addFormula(formula);
+        assertThat(tseitin.getNumVariables(), is(5));
+        assertThat(tseitin.getNumClauses(), is(5L));
+    }
+    
+    /**
+     * Tests that shared sub-formulas are only defined once.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testSharedDefinitions() throws IOException {
+        TseitinTransformer transformer = new TseitinTransformer((clause) -> { }, new HashMap<>(), true);
+        int lit1 = transformer.encode(and("A", "B"));
+        long numClauses = transformer.getNumClauses();
+        
+        assertThat(transformer.encode(and("B", "A")), is(lit1));
+        assertThat(transformer.getNumClauses(), is(numClauses));
+        
+        transformer.clearDefinitions();
+        assertTrue(transformer.encode(and("A", "B")) != lit1);
+    }
+    
+    /**
+     * Tests that unknown variables get fresh numbers above the known and reserved ones.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testFreshVariables() throws IOException {
+        Map<String, Integer> known = new HashMap<>();
+        known.put("A", 3);
+        TseitinTransformer transformer = new TseitinTransformer((clause) -> { }, known, true);
+        transformer.reserveVariables(5);
+        
+        assertThat(transformer.getVariable("A"), is(3));
+        assertThat(transformer.getVariable("B"), is(6));
+        assertThat(transformer.getVariable("B"), is(6));
+        assertThat(transformer.encode(not("C")), is(-7));
+        assertThat(transformer.getVariables().size(), is(3));
+    }
+    
+    /**
+     * Tests the DIMACS output of {@link TseitinTransformer#writeDimacs(Iterable, Map, boolean, java.io.Writer)}.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testWriteDimacs() throws IOException {
+        Map<String, Integer> known = new HashMap<>();
+        known.put("A", 1);
+        known.put("B", 2);
+        
+        StringWriter out = new StringWriter();
+        TseitinTransformer.writeDimacs(Arrays.asList(or("A", not("B")), and(not("A"), or("B", "C")), False.INSTANCE),
+                known, true, out);
+        
+        assertThat(out.toString(), is(
+                "c 1 A\n"
+                + "c 2 B\n"
+                + "c 3 C\n"
+                + "p cnf 4 5\n"
+                + "1 -2 0\n"
+                + "-1 0\n"
+                + "2 3 0\n"
+                + "4 0\n"
+                + "-4 0\n"));
+    }
+    
+    /**
+     * Tests that a large DIMACS export can be read by the {@link SatSolver} and has the expected satisfiability.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testWriteDimacsRoundTrip() throws IOException, FormatException {
+        Random random = new Random(3);
+        int numVars = 30;
+        List<Formula> formulas = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            formulas.add(TestFormulas.random(random, numVars, 6, true));
+        }
+        
+        StringWriter out = new StringWriter();
+        TseitinTransformer.writeDimacs(formulas, createKnownVariables(numVars), true, out);
+        
+        SatSolver fromDimacs = new SatSolver();
+        fromDimacs.addDimacs(ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8)));
+        
+        SatSolver direct = new SatSolver();
+        TseitinTransformer transformer = new TseitinTransformer(direct::addClause, createKnownVariables(numVars),
+                false);
+        for (Formula formula : formulas) {
+            transformer.addFormula(formula);
+        }
+        
+        assertThat(fromDimacs.solve(), is(direct.solve()));
+    }
+    
+    /**
+     * Tests that negative numbers and large numbers are written correctly.
+     * 
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testDimacsWriterNumbers() throws IOException {
+        StringWriter out = new StringWriter();
+        DimacsWriter writer = new DimacsWriter(out);
+        writer.writeComment("test");
+        writer.addClause(Integer.MAX_VALUE, -Integer.MAX_VALUE, 10, -1);
+        
+        assertThat(out.toString(), is("c test\n2147483647 -2147483647 10 -1 0\n"));
+    }
+    
+}
@@ -26,6 +26,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -37,8 +40,10 @@ import org.junit.Test;
 
 import net.ssehub.kernel_haven.util.FormatException;
 import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.io.json.JsonList;
 import net.ssehub.kernel_haven.util.io.json.JsonNumber;
 import net.ssehub.kernel_haven.util.io.json.JsonObject;
+import net.ssehub.kernel_haven.util.io.json.JsonParser;
 import net.ssehub.kernel_haven.util.null_checks.NonNull;
 import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.Attribute;
 import net.ssehub.kernel_haven.variability_model.VariabilityModelDescriptor.ConstraintFileType;
@@ -509,6 +514,108 @@ public class VariabilityModelCacheTest {
         assertThat(readD.getUsedInConstraintsOfOtherVariables(), is(set(readC)));
     }
 
+    /**
+     * Tests that the constraint model is stored in a side file, which is used directly by the read model and replaced
+     * when a different constraint model is written.
+     * 
+     * @throws FormatException unwanted.
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testConstraintModelSideFile() throws FormatException, IOException {
+        File dimacsFile = new File("testdata/vmCaching/testmodel.dimacs");
+        VariabilityModel originalVm = new VariabilityModel(dimacsFile, set(new VariabilityVariable("A", "bool")));
+        
+        JsonVariabilityModelCache cache = new JsonVariabilityModelCache(cacheDir);
+        cache.write(originalVm);
+        
+        VariabilityModel readVm = cache.read(new File(""));
+        File sideFile = readVm.getConstraintModel();
+        assertThat(sideFile.getParentFile().getAbsoluteFile(), is(cacheDir.getAbsoluteFile()));
+        assertThat(sideFile.getName().endsWith(".constraints"), is(true));
+        
+        byte[] expected = Files.readAllBytes(dimacsFile.toPath());
+        ByteBuffer mapped = readVm.mapConstraintModel();
+        byte[] actual = new byte[mapped.remaining()];
+        mapped.get(actual);
+        assertThat(actual, is(expected));
+        
+        // writing the read model again keeps the same side file
+        cache.write(readVm);
+        assertThat(sideFile.isFile(), is(true));
+        assertThat(cacheDir.listFiles().length, is(2));
+        
+        // writing a different constraint model replaces the side file
+        File otherDimacs = new File(cacheDir, "other.dimacs");
+        Files.write(otherDimacs.toPath(), "p cnf 1 1\n1 0\n".getBytes(StandardCharsets.UTF_8));
+        cache.write(new VariabilityModel(otherDimacs, set(new VariabilityVariable("A", "bool"))));
+        assertThat(sideFile.exists(), is(false));
+        assertThat(cacheDir.listFiles().length, is(3));
+        
+        readVm = cache.read(new File(""));
+        assertThat(Files.readAllBytes(readVm.getConstraintModel().toPath()),
+                is(Files.readAllBytes(otherDimacs.toPath())));
+    }
+    
+    /**
+     * Tests that a missing constraint model side file is detected.
+     * 
+     * @throws FormatException wanted.
+     * @throws IOException unwanted.
+     */
+    @Test(expected = FormatException.class)
+    public void testMissingConstraintModelSideFile() throws FormatException, IOException {
+        File dimacsFile = new File("testdata/vmCaching/testmodel.dimacs");
+        JsonVariabilityModelCache cache = new JsonVariabilityModelCache(cacheDir);
+        cache.write(new VariabilityModel(dimacsFile, set(new VariabilityVariable("A", "bool"))));
+        
+        for (File file : cacheDir.listFiles()) {
+            if (file.getName().endsWith(".constraints")) {
+                file.delete();
+            }
+        }
+        
+        cache.read(new File(""));
+    }
+    
+    /**
+     * Tests that classes and relations between variables are stored as indices.
+     * 
+     * @throws FormatException unwanted.
+     * @throws IOException unwanted.
+     */
+    @Test
+    public void testIndexedVariables() throws FormatException, IOException {
+        File dimacsFile = new File("testdata/vmCaching/testmodel.dimacs");
+        HierarchicalVariable a = new HierarchicalVariable("A", "bool");
+        HierarchicalVariable b = new HierarchicalVariable("B", "bool");
+        VariabilityVariable c = new VariabilityVariable("C", "bool");
+        b.setParent(a);
+        c.setVariablesUsedInConstraints(set(a, b));
+        
+        new JsonVariabilityModelCache(cacheDir).write(new VariabilityModel(dimacsFile, set(a, b, c)));
+        
+        JsonObject json;
+        try (JsonParser parser = new JsonParser(new File(cacheDir, "vmCache.json"))) {
+            json = (JsonObject) parser.parse();
+        }
+        
+        assertThat(json.getList("classes").getSize(), is(2));
+        
+        JsonList variables = json.getList("variables");
+        JsonObject jsonA = (JsonObject) variables.getElement(0);
+        JsonObject jsonB = (JsonObject) variables.getElement(1);
+        JsonObject jsonC = (JsonObject) variables.getElement(2);
+        
+        assertThat(jsonA.getInt("class"), is(0));
+        assertThat(jsonA.getList("children").getElement(0), is(new JsonNumber(1)));
+        assertThat(jsonB.getInt("parent"), is(0));
+        assertThat(jsonC.getInt("class"), is(1));
+        assertThat(jsonC.getList("references").getSize(), is(2));
+        assertThat(jsonC.getList("references").getElement(0), is(new JsonNumber(0)));
+        assertThat(jsonC.getList("references").getElement(1), is(new JsonNumber(1)));
+    }
+    
     /**
      * Creates a set from varargs.
      * 
@@ -33,6 +33,7 @@ import net.ssehub.kernel_haven.config.Configuration;
 import net.ssehub.kernel_haven.test_utils.TestConfiguration;
 import net.ssehub.kernel_haven.util.ExtractorException;
 import net.ssehub.kernel_haven.util.Util;
+import net.ssehub.kernel_haven.util.logic.VariableIdTable;
 
 /**
  * Tests the variability model provider.
@@ -243,8 +244,8 @@ public class VariabilityModelProviderTest {
         } catch (InterruptedException e) {
         }
         
-        // test if cache is now not empty
-        assertThat(cacheDir.listFiles().length, is(1));
+        // test if cache is now not empty: the JSON file and the constraint model side file
+        assertThat(cacheDir.listFiles().length, is(2));
         
         // cleanup
         Util.deleteFolder(cacheDir);
@@ -269,4 +270,47 @@ public class VariabilityModelProviderTest {
         assertThat(provider.getException(), nullValue());
     }
     
+    /**
+     * Tests that the published model has its own {@link VariableIdTable} aligned with its DIMACS numbers, and that
+     * the global table is not changed by the provider.
+     * 
+     * @throws SetUpException unwanted.
+     */
+    @Test
+    public void testModelVariableIds() throws SetUpException {
+        Properties config = new Properties();
+        config.setProperty("source_tree", "source/tree");
+        
+        // use an ID that is not used yet in the global table
+        int dimacsNumber = VariableIdTable.getInstance().getMaxId() + 10;
+        
+        VariabilityModelProvider provider = new VariabilityModelProvider();
+        provider.setExtractor(new AbstractVariabilityModelExtractor() {
+            
+            @Override
+            protected void init(Configuration config) throws SetUpException {
+            }
+            
+            @Override
+            protected VariabilityModel runOnFile(File target) throws ExtractorException {
+                Set<VariabilityVariable> set = new HashSet<VariabilityVariable>();
+                set.add(new VariabilityVariable("PROVIDER_ALIGNED_VAR", "bool", dimacsNumber));
+                return new VariabilityModel(new File("irrelevant"), set);
+            }
+            
+            @Override
+            protected String getName() {
+                return "AligningExtractor";
+            }
+        });
+
+        provider.setConfig(new TestConfiguration(config));
+        provider.start();
+        VariabilityModel result = provider.getResult();
+        assertThat(result, notNullValue());
+        
+        assertThat(result.getVariableIdTable().getExistingId("PROVIDER_ALIGNED_VAR"), is(dimacsNumber));
+        assertThat(VariableIdTable.getInstance().getExistingId("PROVIDER_ALIGNED_VAR"), is(0));
+    }
+    
 }
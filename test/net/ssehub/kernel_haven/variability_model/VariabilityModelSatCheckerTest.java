@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017-2019 University of Hildesheim, Software Systems Engineering
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.ssehub.kernel_haven.variability_model;
+
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.and;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.not;
+import static net.ssehub.kernel_haven.util.logic.FormulaBuilder.or;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.ssehub.kernel_haven.AllTests;
+import net.ssehub.kernel_haven.util.FormatException;
+import net.ssehub.kernel_haven.util.logic.False;
+import net.ssehub.kernel_haven.util.logic.NaryFormula;
+import net.ssehub.kernel_haven.util.logic.True;
+import net.ssehub.kernel_haven.util.logic.Variable;
+
+/**
+ * Tests the {@link VariabilityModelSatChecker}.
+ *
+ * @author Adam
+ */
+@SuppressWarnings("null")
+public class VariabilityModelSatCheckerTest {
+
+    private VariabilityModelSatChecker checker;
+    
+    /**
+     * Creates the checker for the test model. The model has the following constraints:
+     * <ul>
+     *      <li>ALPHA -&gt; ALPHA_MODULE</li>
+     *      <li>GAMMA -&gt; !ALPHA and GAMMA -&gt; ALPHA, i.e. GAMMA is always false</li>
+     *      <li>BETA_MODULE -&gt; BETA</li>
+     *      <li>!(ALPHA &amp;&amp; ALPHA_MODULE &amp;&amp; BETA &amp;&amp; BETA_MODULE)</li>
+     * </ul>
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Before
+    public void setUp() throws IOException, FormatException {
+        Set<VariabilityVariable> variables = new HashSet<>();
+        variables.add(new VariabilityVariable("ALPHA", "bool", 1));
+        variables.add(new VariabilityVariable("ALPHA_MODULE", "bool", 2));
+        variables.add(new VariabilityVariable("GAMMA", "bool", 3));
+        variables.add(new VariabilityVariable("BETA_MODULE", "bool", 4));
+        variables.add(new VariabilityVariable("BETA", "bool", 5));
+        
+        VariabilityModel vm = new VariabilityModel(new File(AllTests.TESTDATA, "vmCaching/testmodel.dimacs"),
+                variables);
+        checker = new VariabilityModelSatChecker(vm);
+    }
+    
+    /**
+     * A tristate variable that maps its own name and its <code>_MODULE</code> variable to DIMACS numbers.
+     */
+    private static class TristateVariable extends VariabilityVariable {
+
+        private int moduleNumber;
+        
+        /**
+         * Creates a tristate variable.
+         * 
+         * @param name The name of the variable.
+         * @param dimacsNumber The DIMACS number of the variable.
+         * @param moduleNumber The DIMACS number of the <code>_MODULE</code> variable.
+         */
+        TristateVariable(String name, int dimacsNumber, int moduleNumber) {
+            super(name, "tristate", dimacsNumber);
+            this.moduleNumber = moduleNumber;
+        }
+        
+        @Override
+        public void getDimacsMapping(Map<Integer, String> mapping) {
+            super.getDimacsMapping(mapping);
+            mapping.put(moduleNumber, getName() + "_MODULE");
+        }
+        
+    }
+    
+    /**
+     * Tests that variables that are only defined via {@link VariabilityVariable#getDimacsMapping(Map)} (like the
+     * <code>_MODULE</code> variables of tristates) are constrained by the model.
+     * 
+     * @throws IOException unwanted.
+     * @throws FormatException unwanted.
+     */
+    @Test
+    public void testDimacsMapping() throws IOException, FormatException {
+        Set<VariabilityVariable> variables = new HashSet<>();
+        variables.add(new TristateVariable("ALPHA", 1, 2));
+        variables.add(new VariabilityVariable("GAMMA", "bool", 3));
+        variables.add(new TristateVariable("BETA", 5, 4));
+        
+        VariabilityModelSatChecker checker = new VariabilityModelSatChecker(new VariabilityModel(
+                new File(AllTests.TESTDATA, "vmCaching/testmodel.dimacs"), variables));
+        
+        assertThat(checker.isSatisfiable(and("ALPHA", not("ALPHA_MODULE"))), is(false));
+        assertThat(checker.isSatisfiable(and("BETA_MODULE", not("BETA"))), is(false));
+        assertThat(checker.isSatisfiable(or(and("ALPHA", not("ALPHA_MODULE")), "GAMMA")), is(false));
+        assertThat(checker.isSatisfiable(and("ALPHA", "ALPHA_MODULE")), is(true));
+    }
+    
+    /**
+     * Tests conjunctions of literals, which are passed as assumptions.
+     */
+    @Test
+    public void testLiterals() {
+        assertThat(checker.isSatisfiable(), is(true));
+        assertThat(checker.isSatisfiable(new Variable("ALPHA")), is(true));
+        assertThat(checker.isSatisfiable(new Variable("GAMMA")), is(false));
+        assertThat(checker.isSatisfiable(not("GAMMA")), is(true));
+        assertThat(checker.isSatisfiable(and("ALPHA", not("ALPHA_MODULE"))), is(false));
+        assertThat(checker.isSatisfiable(and("ALPHA", "BETA_MODULE")), is(false));
+        assertThat(checker.isSatisfiable(and("ALPHA", "BETA")), is(true));
+        assertThat(checker.isSatisfiable(True.INSTANCE), is(true));
+        assertThat(checker.isSatisfiable(and("ALPHA", False.INSTANCE)), is(false));
+    }
+    
+    /**
+     * Tests formulas that need to be encoded via Tseitin definitions.
+     */
+    @Test
+    public void testComplexFormulas() {
+        assertThat(checker.isSatisfiable(or("GAMMA", "ALPHA")), is(true));
+        assertThat(checker.isSatisfiable(or("GAMMA", and("ALPHA", "BETA_MODULE"))), is(false));
+        assertThat(checker.isSatisfiable(not(or(not("ALPHA"), not("BETA_MODULE")))), is(false));
+        assertThat(checker.isSatisfiable(and(or("ALPHA", "BETA"), not(or("ALPHA_MODULE", "BETA")))), is(false));
+        assertThat(checker.isSatisfiable(NaryFormula.flatten(and(and("ALPHA", "BETA"), "ALPHA_MODULE"))), is(true));
+        
+        // repeated queries re-use the definitions
+        int numVariables = checker.getSolver().getNumVariables();
+        assertThat(checker.isSatisfiable(or("ALPHA", "GAMMA")), is(true));
+        assertThat(checker.getSolver().getNumVariables(), is(numVariables));
+    }
+    
+    /**
+     * Tests variables that are not part of the variability model.
+     */
+    @Test
+    public void testUnknownVariables() {
+        assertThat(checker.isSatisfiable(new Variable("UNKNOWN")), is(true));
+        assertThat(checker.isSatisfiable(and("UNKNOWN", not("UNKNOWN"))), is(false));
+        assertThat(checker.isSatisfiable(and("UNKNOWN", "GAMMA")), is(false));
+        assertThat(checker.isSatisfiable(or("UNKNOWN", "GAMMA")), is(true));
+    }
+    
+}